@@ -25,6 +25,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -148,6 +151,49 @@ public class XmlReader {
 		return false;
 	}
 
+	/**
+	 * Check, whether a file is a metadata file.
+	 *
+	 * @param file A file to be checked; must not be <code>null</code>
+	 * @return <code>true</code>, if the given file is a XML meta data file.
+	 * @throws IllegalArgumentException The given file is not a file.
+	 */
+	public boolean isMetadataFile(final Path file) {
+
+		Preconditions.checkArgument(file != null, "The given file is null");
+
+		return isMetadataFile(file.toFile());
+	}
+
+	/**
+	 * Check, whether a stream contains XML meta data.
+	 * 
+	 * <p>
+	 * The stream is read only once. It is parsed and validated against the VDI
+	 * 2770 XML schema in the same pass. The stream is not closed.
+	 * </p>
+	 *
+	 * @param stream A stream to be checked; must not be <code>null</code>
+	 * @return <code>true</code>, if the stream contains XML meta data without
+	 *         errors.
+	 */
+	public boolean isMetadataFile(final InputStream stream) {
+
+		Preconditions.checkArgument(stream != null, "The given stream is null");
+
+		try {
+			// the unmarshaller validates against the XML schema
+			read(stream, "");
+			return true;
+		} catch (@SuppressWarnings("unused") final XmlValidationException e) {
+			return false;
+		} catch (final Exception e) {
+			log.warn(this.bundle.getString("XmlReader_EX1"), e);
+		}
+
+		return false;
+	}
+
 	/**
 	 * Validate a given XML file that contains meta data according to VDI 2770.
 	 *
@@ -172,15 +218,50 @@ public class XmlReader {
 			// Attention: there messages are not translated
 			read(xmlFile);
 		} catch (XmlValidationException e) {
-			List<XmlValidationFault> xmlFaults = saxValidate(xmlFile);
-			e.getFaults().stream().filter(f -> f instanceof XmlValidationFault)
-					.forEach(f -> xmlFaults.add((XmlValidationFault) f));
-			return xmlFaults;
+			return getFaults(e);
 		}
 		
 		// no validation faults detected
 		return new ArrayList<>();
 	}
+
+	/**
+	 * Validate a given XML file and read the metadata in the same run.
+	 * 
+	 * <p>
+	 * The faults are the same as returned by {@link #validate(File)}. In contrast
+	 * to calling {@link #validate(File)} and {@link #read(File)}, the file is
+	 * parsed at most twice.
+	 * </p>
+	 *
+	 * @param xmlFile A XML file to be checked; must not be <code>null</code>
+	 * @return The validation faults and the metadata, if the file is valid.
+	 * @throws XmlProcessingException   There was an error reading the XML file.
+	 * @throws IllegalArgumentException The given file is not a file.
+	 */
+	public XmlValidationResult validateAndRead(final File xmlFile) throws XmlProcessingException {
+
+		final List<XmlValidationFault> saxFaults = saxValidate(xmlFile);
+		if (Fault.hasErrors(saxFaults)) {
+			return new XmlValidationResult(saxFaults, null, 1);
+		}
+
+		try {
+			return new XmlValidationResult(saxFaults, read(xmlFile), 2);
+		} catch (XmlValidationException e) {
+			// faults of the schema validation are reported only, if there are any
+			return new XmlValidationResult(saxFaults.isEmpty() ? getFaults(e) : saxFaults, null,
+					2);
+		}
+	}
+
+	private static List<XmlValidationFault> getFaults(final XmlValidationException e) {
+
+		final List<XmlValidationFault> result = new ArrayList<>();
+		e.getFaults().stream().filter(f -> f instanceof XmlValidationFault)
+				.forEach(f -> result.add((XmlValidationFault) f));
+		return result;
+	}
 	
 	
 	private List<XmlValidationFault> saxValidate(final File xmlFile) throws XmlProcessingException {
@@ -280,21 +361,73 @@ public class XmlReader {
 		}
 
 		try (FileInputStream tmpStream = new FileInputStream(xmlFile)) {
-			final XmlUtils xmlUtils = new XmlUtils(this.locale);
-			return xmlUtils.readXml(tmpStream);
+			return read(tmpStream, xmlFile.getAbsolutePath());
 		} catch (final FileNotFoundException e) {
 			throw new XmlProcessingException(
 					MessageFormat.format(this.bundle.getString("XmlReader_EX5"), xmlFile), e);
 		} catch (final IOException e) {
 			throw new XmlProcessingException(
 					MessageFormat.format(this.bundle.getString("XmlReader_EX6"), xmlFile), e);
+		}
+	}
+
+	/**
+	 * Read a XML metadata file and return the
+	 * {@link de.vdi.vdi2770.metadata.model.Document} POJO.
+	 *
+	 * @see XmlReader#read(File)
+	 * @param xmlFile A path representing XML metadata; must not be
+	 *                <code>null</code>.
+	 * @return A new instance of {@link de.vdi.vdi2770.metadata.model.Document}
+	 *         which is the POJO representation of the XML file.
+	 * @throws XmlValidationException   The XML document is not valid.
+	 * @throws XmlProcessingException   There was an error reading the XML stream.
+	 * @throws IllegalArgumentException The given path is not a file.
+	 */
+	public de.vdi.vdi2770.metadata.model.Document read(final Path xmlFile)
+			throws XmlValidationException, XmlProcessingException {
+
+		Preconditions.checkArgument(xmlFile != null, "xmlFile is null");
+		Preconditions.checkArgument(Files.isRegularFile(xmlFile), "xmlFile is not a file");
+
+		try (InputStream stream = Files.newInputStream(xmlFile)) {
+			return read(stream, xmlFile.toString());
+		} catch (final IOException e) {
+			throw new XmlProcessingException(
+					MessageFormat.format(this.bundle.getString("XmlReader_EX6"), xmlFile), e);
+		}
+	}
+
+	/**
+	 * Read XML metadata from a stream (e.g. a ZIP entry) and return the
+	 * {@link de.vdi.vdi2770.metadata.model.Document} POJO. While reading, the XML
+	 * is validated according to the VDI 2770 XML schema. There is no logical
+	 * validation. The stream is not closed.
+	 *
+	 * @param stream A stream of XML metadata; must not be <code>null</code>.
+	 * @param name   A name of the stream for messages, e.g. a file name; must not
+	 *               be <code>null</code>.
+	 * @return A new instance of {@link de.vdi.vdi2770.metadata.model.Document}
+	 *         which is the POJO representation of the XML stream.
+	 * @throws XmlValidationException The XML document is not valid.
+	 * @throws XmlProcessingException There was an error reading the XML stream.
+	 */
+	public de.vdi.vdi2770.metadata.model.Document read(final InputStream stream,
+			final String name) throws XmlValidationException, XmlProcessingException {
+
+		Preconditions.checkArgument(stream != null, "stream is null");
+		Preconditions.checkArgument(name != null, "name is null");
+
+		try {
+			final XmlUtils xmlUtils = new XmlUtils(this.locale);
+			return xmlUtils.readXml(stream);
 		} catch (final XmlValidationException e) {
 			throw e;
 		} catch (final XmlProcessingException e) {
 			throw e;
 		} catch (final Exception e) {
 			throw new XmlProcessingException(
-					MessageFormat.format(this.bundle.getString("XmlReader_EX7"), xmlFile), e);
+					MessageFormat.format(this.bundle.getString("XmlReader_EX7"), name), e);
 		}
 	}
 }
@@ -24,6 +24,7 @@ package de.vdi.vdi2770.metadata.xml;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.net.URL;
 import java.util.Locale;
@@ -195,6 +196,31 @@ public class XmlUtils {
 		return DozerBeanMapperBuilder.create().withMappingFiles(mappingFileUrl.toString()).build();
 	}
 
+	/**
+	 * Save a JAXB POJO as XML to an {@link OutputStream}.
+	 * <p>
+	 * The stream is not closed.
+	 * </p>
+	 *
+	 * @param stream   The {@link OutputStream} to write to.
+	 * @param document The {@link Document} instance to serialize.
+	 * @throws XmlProcessingException   There was an error writing the XML.
+	 * @throws IllegalArgumentException The given parameter are not valid.
+	 */
+	public void saveAsXml(final OutputStream stream, final Document document)
+			throws XmlProcessingException {
+
+		Preconditions.checkArgument(stream != null, "The given stream is null");
+		Preconditions.checkArgument(document != null, "Can not save a docment that is null");
+
+		try {
+			final Marshaller jaxbMarshaller = getMarshaller();
+			jaxbMarshaller.marshal(document, stream);
+		} catch (final JAXBException e) {
+			throw new XmlProcessingException(this.bundle.getString("XmlUtils_EX3"), e);
+		}
+	}
+
 	/**
 	 * Serialize a {@link Document} as XML {@link String}.
 	 *
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.metadata.xml;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.vdi.vdi2770.metadata.model.Document;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of {@link XmlReader#validateAndRead(java.io.File)}: the validation
+ * faults of an XML file and the metadata read from it.
+ *
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ */
+@Getter
+@ToString
+public class XmlValidationResult {
+
+	/**
+	 * The validation faults; the same as returned by
+	 * {@link XmlReader#validate(java.io.File)}.
+	 */
+	private final List<XmlValidationFault> faults;
+
+	/**
+	 * The metadata or <code>null</code>, if the XML file is not valid.
+	 */
+	private final Document document;
+
+	/**
+	 * Number of times the XML file has been parsed to create this result.
+	 */
+	private final int parseCount;
+
+	XmlValidationResult(final List<XmlValidationFault> faults, final Document document,
+			final int parseCount) {
+
+		this.faults = Collections.unmodifiableList(faults);
+		this.document = document;
+		this.parseCount = parseCount;
+	}
+}
@@ -22,6 +22,7 @@
 package de.vdi.vdi2770.metadata.xml;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
@@ -145,4 +146,37 @@ public class XmlWriter {
 		// write the document
 		xmlUtils.saveAsXml(xmlFile, xmlDocument, exportXsd);
 	}
+
+	/**
+	 * Convert a {@link Document} according to the information model as XML and
+	 * write it to an {@link OutputStream}. The stream is not closed.
+	 *
+	 * @param stream   An {@link OutputStream} to write to.
+	 * @param document A {@link Document} instance; must be <code>not null</code>
+	 *                 and valid.
+	 * @throws XmlProcessingException   There was an error writing the XML. The
+	 *                                  given document might have errors.
+	 * @throws IllegalArgumentException The given parameter are not valid.
+	 */
+	public void write(final OutputStream stream, final Document document)
+			throws XmlProcessingException {
+
+		Preconditions.checkArgument(stream != null);
+		Preconditions.checkArgument(document != null);
+
+		final List<ValidationFault> documentFaults = document.validate(this.locale,
+				this.isStrictMode);
+
+		if (Fault.hasErrors(documentFaults)) {
+			throw new XmlValidationException(this.bundle.getString("XmlWriter_EX1"),
+					documentFaults);
+		}
+
+		XmlUtils xmlUtils = new XmlUtils(this.locale);
+		final Mapper mapper = xmlUtils.getMapper();
+		final de.vdi.vdi2770.metadata.xsd.Document xmlDocument = mapper.map(document,
+				de.vdi.vdi2770.metadata.xsd.Document.class);
+
+		xmlUtils.saveAsXml(stream, xmlDocument);
+	}
 }
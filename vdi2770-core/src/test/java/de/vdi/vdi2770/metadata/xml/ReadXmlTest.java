@@ -21,9 +21,13 @@
  ******************************************************************************/
 package de.vdi.vdi2770.metadata.xml;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
@@ -422,4 +426,29 @@ public class ReadXmlTest {
 
 	}
 
+	/**
+	 * Read XML metadata from a stream and a {@link java.nio.file.Path}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void readFromStreamTest() throws Exception {
+
+		final XmlReader reader = new XmlReader(Locale.getDefault());
+		final File file = new File(EXAMPLES_FOLDER, "validation.xml");
+
+		try (InputStream stream = new FileInputStream(file)) {
+			final Document document = reader.read(stream, file.getName());
+			assertEquals(this.xmlDocument, document);
+		}
+		assertEquals(this.xmlDocument, reader.read(file.toPath()));
+
+		try (InputStream stream = new FileInputStream(file)) {
+			assertTrue(reader.isMetadataFile(stream));
+		}
+		try (InputStream stream = new FileInputStream(new File(EXAMPLES_FOLDER, "Invalid1.xml"))) {
+			assertFalse(reader.isMetadataFile(stream));
+		}
+	}
+
 }
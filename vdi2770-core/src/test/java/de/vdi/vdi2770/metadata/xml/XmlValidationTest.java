@@ -21,6 +21,7 @@
  ******************************************************************************/
 package de.vdi.vdi2770.metadata.xml;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -73,6 +74,29 @@ public class XmlValidationTest {
 		assertTrue(!Fault.hasWarnings(faults));
 	}
 
+	/**
+	 * Validate and read a file in the same run. The faults are the same as
+	 * reported by {@link XmlReader#validate(File)}.
+	 * 
+	 * @throws MetadataException
+	 */
+	@Test
+	void validateAndReadXml() throws MetadataException {
+
+		final XmlReader reader = new XmlReader(Locale.getDefault());
+
+		for (final String name : new String[] { "Datasheet.xml", "Maindocument.xml",
+				"InvalidEmpty.xml", "Invalid1.xml", "Invalid2.xml", "MissingXmlNs.xml" }) {
+
+			final File xmlFile = new File(EXAMPLES_FOLDER, name);
+			final XmlValidationResult result = reader.validateAndRead(xmlFile);
+
+			assertEquals(reader.validate(xmlFile).toString(), result.getFaults().toString(), name);
+			assertEquals(Fault.hasErrors(result.getFaults()), result.getDocument() == null, name);
+			assertTrue(result.getParseCount() <= 2);
+		}
+	}
+
 	@Test
 	void validateEmptyXml() throws MetadataException {
 
@@ -22,7 +22,12 @@
 package de.vdi.vdi2770.processor;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -34,8 +39,15 @@ import org.apache.commons.cli.ParseException;
 
 import de.vdi.vdi2770.processor.common.IndentUtils;
 import de.vdi.vdi2770.processor.common.MessageLevel;
+import de.vdi.vdi2770.processor.report.BatchSummary;
+import de.vdi.vdi2770.processor.report.BatchValidator;
 import de.vdi.vdi2770.processor.report.ContainerValidator;
 import de.vdi.vdi2770.processor.report.Report;
+import de.vdi.vdi2770.processor.report.ValidationCache;
+import de.vdi.vdi2770.processor.report.ValidationProfile;
+import de.vdi.vdi2770.processor.zip.ContainerBuildResult;
+import de.vdi.vdi2770.processor.zip.ContainerCost;
+import de.vdi.vdi2770.processor.zip.ContainerCostEstimator;
 import de.vdi.vdi2770.processor.zip.ContainerProcessor;
 import lombok.extern.log4j.Log4j2;
 
@@ -53,6 +65,13 @@ public class Application {
 
 	private static final String PROCESS_FOLDER = "process";
 	private static final String CONTAINER_FILE = "report";
+	private static final String INCREMENTAL = "incremental";
+	private static final String REPRODUCIBLE = "reproducible";
+	private static final String ESTIMATE = "estimate";
+	private static final String PROFILE = "profile";
+	private static final String BATCH = "batch";
+	private static final String OUTPUT = "output";
+	private static final String TIMING = "timing";
 
 	/**
 	 * Main method to run the application
@@ -63,16 +82,42 @@ public class Application {
 
 		Options options = new Options();
 
-		Option containerFileOption = Option.builder(CONTAINER_FILE).hasArg().optionalArg(false)
+		Option containerFileOption = Option.builder(CONTAINER_FILE).hasArg()
 				.argName("container").desc("validate a container file").build();
 
-		Option processFolderOption = Option.builder(PROCESS_FOLDER).hasArg().optionalArg(false)
+		Option processFolderOption = Option.builder(PROCESS_FOLDER).hasArg()
 				.argName("folder").desc("process a folder").build();
 
+		Option incrementalOption = Option.builder(INCREMENTAL)
+				.desc("rebuild changed containers only (use with -process)").build();
+
 		options.addOption(processFolderOption);
 
+		options.addOption(incrementalOption);
+
+		options.addOption(Option.builder(REPRODUCIBLE)
+				.desc("create byte-identical containers for identical folders (use with -process)")
+				.build());
+
 		options.addOption(containerFileOption);
 
+		options.addOption(Option.builder(PROFILE).hasArg().argName("profile")
+				.desc("checks to perform: QUICK, STANDARD or FULL (use with -report or -batch)")
+				.build());
+
+		options.addOption(Option.builder(TIMING)
+				.desc("print the time spent in the validation steps (use with -report)").build());
+
+		options.addOption(Option.builder(BATCH).hasArg().argName("source")
+				.desc("validate the containers of a folder or of a file with one path per line")
+				.build());
+
+		options.addOption(Option.builder(OUTPUT).hasArg().argName("file")
+				.desc("result file of -batch (default: batch-results.jsonl)").build());
+
+		options.addOption(Option.builder(ESTIMATE).hasArg().argName("container")
+				.desc("estimate the cost to validate a container file").build());
+
 		CommandLineParser parser = new DefaultParser();
 
 		try {
@@ -89,10 +134,60 @@ public class Application {
 					return;
 				}
 
+				final ValidationProfile profile = getProfile(cmd);
+				if (profile == null) {
+					return;
+				}
+
 				final ContainerValidator report = new ContainerValidator(Locale.getDefault(), true);
+				report.setCache(ValidationCache.fromConfiguration(Locale.getDefault()));
+				report.setProfile(profile);
+				report.setTimingEnabled(cmd.hasOption(TIMING));
 				final Report result = report.validate(containerFile, MessageLevel.INFO, true);
 
 				printReport(result, 0);
+				if (cmd.hasOption(TIMING)) {
+					printTimings(result, 0);
+				}
+			} else if (cmd.hasOption(BATCH)) {
+
+				final File source = new File(cmd.getOptionValue(BATCH));
+				if (!source.exists()) {
+					System.err.println("'" + source.getAbsolutePath() + "' does not exist");
+					return;
+				}
+
+				final ValidationProfile profile = getProfile(cmd);
+				if (profile == null) {
+					return;
+				}
+
+				final ContainerValidator validator = new ContainerValidator(Locale.getDefault(),
+						true);
+				validator.setCache(ValidationCache.fromConfiguration(Locale.getDefault()));
+				validator.setProfile(profile);
+
+				final File resultFile = new File(
+						cmd.getOptionValue(OUTPUT, "batch-results.jsonl"));
+				final BatchSummary summary = BatchValidator
+						.fromConfiguration(Locale.getDefault(), validator)
+						.validate(getContainers(source), resultFile);
+
+				printSummary(summary);
+				System.out.println("Results: " + resultFile.getAbsolutePath() + ", summary: "
+						+ BatchValidator.getSummaryFile(resultFile).getAbsolutePath());
+			} else if (cmd.hasOption(ESTIMATE)) {
+
+				final File containerFile = new File(cmd.getOptionValue(ESTIMATE));
+				if (!containerFile.exists()) {
+					System.err.println("Container file '" + containerFile.getPath()
+							+ "' does not exist");
+					return;
+				}
+
+				final ContainerCost cost = new ContainerCostEstimator(Locale.getDefault())
+						.estimate(containerFile);
+				printCost(cost);
 			} else if (cmd.hasOption(PROCESS_FOLDER)) {
 
 				final String folderPath = cmd.getOptionValue(PROCESS_FOLDER);
@@ -102,7 +197,18 @@ public class Application {
 					return;
 				}
 
-				ContainerProcessor processor = new ContainerProcessor(Locale.getDefault(), true);
+				ContainerProcessor processor = new ContainerProcessor(Locale.getDefault(), true,
+						cmd.hasOption(REPRODUCIBLE));
+
+				if (cmd.hasOption(INCREMENTAL)) {
+					final ContainerBuildResult result = processor
+							.createContainerIncremental(folder);
+					printBuildResult(result, 0);
+					System.out.println(result.getRebuiltCount() + " container(s) rebuilt, "
+							+ result.getReusedCount() + " container(s) reused.");
+					return;
+				}
+
 				File zipFile = processor.createContainer(folder);
 
 				System.out.println(
@@ -119,11 +225,94 @@ public class Application {
 		}
 	}
 
+	private static ValidationProfile getProfile(final CommandLine cmd) {
+
+		if (!cmd.hasOption(PROFILE)) {
+			return ValidationProfile.FULL;
+		}
+
+		try {
+			return ValidationProfile.valueOf(cmd.getOptionValue(PROFILE).toUpperCase(Locale.ROOT));
+		} catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+			System.err.println("Unknown profile '" + cmd.getOptionValue(PROFILE) + "'");
+			return null;
+		}
+	}
+
+	private static List<File> getContainers(final File source) throws IOException {
+
+		if (source.isDirectory()) {
+			return BatchValidator.listContainers(source);
+		}
+
+		// a text file with one container path per line
+		return Files.readAllLines(source.toPath(), StandardCharsets.UTF_8).stream()
+				.map(String::trim).filter(l -> !l.isEmpty()).map(File::new)
+				.collect(Collectors.toList());
+	}
+
+	private static void printSummary(final BatchSummary summary) {
+
+		System.out.println(summary.getContainerCount() + " container(s): "
+				+ summary.getValidCount() + " valid, " + summary.getInvalidCount() + " invalid, "
+				+ summary.getFailedCount() + " failed, " + summary.getResumedCount()
+				+ " resumed, " + summary.getRetriedCount() + " retried ("
+				+ summary.getDurationMillis() + " ms)");
+		System.out.println(IndentUtils.indent(summary.getErrorCount() + " error(s), "
+				+ summary.getWarningCount() + " warning(s)", 1));
+		summary.getErrors().forEach((id, count) -> System.out
+				.println(IndentUtils.indent(MessageLevel.ERROR + " " + id + " " + count, 2)));
+		summary.getWarnings().forEach((id, count) -> System.out
+				.println(IndentUtils.indent(MessageLevel.WARN + " " + id + " " + count, 2)));
+	}
+
 	private static void printHelp(final Options options) {
 		HelpFormatter formatter = new HelpFormatter();
 		formatter.printHelp("VDI 2770 Processor", options);
 	}
 
+	private static void printCost(final ContainerCost cost) {
+
+		System.out.println(cost.getFileName() + ": " + cost.getContainerCount()
+				+ " container(s), depth " + cost.getDepth() + ", " + cost.getEntryCount()
+				+ " entries, " + cost.getTotalSize() + " bytes uncompressed");
+		System.out.println(IndentUtils.indent(cost.getMetadataFileCount()
+				+ " metadata file(s), " + cost.getPdfCount() + " PDF file(s) ("
+				+ cost.getDistinctPdfCount() + " distinct, " + cost.getDistinctPdfSize()
+				+ " bytes)", 1));
+		cost.getPdfSizes().forEach(
+				(path, size) -> System.out.println(IndentUtils.indent(path + " " + size, 2)));
+		System.out.println(IndentUtils.indent("CPU " + cost.getCpuClass() + " (~"
+				+ cost.getEstimatedMillis() + " ms), memory " + cost.getMemoryClass() + " (~"
+				+ cost.getEstimatedMemory() / (1024 * 1024) + " MB)"
+				+ (cost.isComplete() ? "" : ", incomplete"), 1));
+	}
+
+	private static void printBuildResult(final ContainerBuildResult result,
+			final int indentLevel) {
+
+		if (result.getContainerFile() != null) {
+			System.out.println(IndentUtils.indent(result.getContainerFile().getName() + " "
+					+ (result.isRebuilt() ? "rebuilt" : "reused") + " ("
+					+ result.getDurationMillis() + " ms)", indentLevel));
+		}
+		result.getChildren().forEach(c -> printBuildResult(c, indentLevel + 1));
+	}
+
+	private static void printTimings(final Report report, final int indentLevel) {
+
+		System.out.println(IndentUtils.indent(report.getFileName(), indentLevel));
+		report.getTimings().forEach(t -> {
+			System.out.println(IndentUtils.indent(t.getStage() + " " + t.getDurationMillis()
+					+ " ms, " + t.getFiles() + " file(s), " + t.getBytes() + " bytes",
+					indentLevel + 1));
+			t.getChildren().forEach(c -> System.out.println(IndentUtils.indent(c.getName()
+					+ " " + c.getDurationMillis() + " ms, " + c.getBytes() + " bytes",
+					indentLevel + 2)));
+		});
+		report.getSubReports().forEach(r -> printTimings(r, indentLevel + 1));
+	}
+
 	private static void printReport(final Report report, final int indentLevel) {
 
 		report.getMessages().forEach(m -> {
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Preconditions;
+
+import de.vdi.vdi2770.processor.common.ContentTypeDetector.Detection;
+
+/**
+ * Memoise the results of the {@link ContentTypeDetector}.
+ * 
+ * <p>
+ * Results are kept per path, file size and modification time, so the same file
+ * is read only once while it is unchanged. A cache is meant to live for one
+ * validation only (see <code>ValidationSession</code>); it is not bounded and
+ * must not be shared between validations. The cache is thread-safe.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContentTypeCache {
+
+	private final Map<Key, Detection> detections = new ConcurrentHashMap<>();
+
+	/**
+	 * Detect the MIME type of a file.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return The MIME type, e.g. <code>application/pdf</code>.
+	 * @throws IOException There was an error reading the file.
+	 * @see ContentTypeDetector#detect(File)
+	 */
+	public String detect(final File file) throws IOException {
+		return getDetection(file).contentType;
+	}
+
+	/**
+	 * Check, whether a file is a ZIP file.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a plain ZIP file.
+	 * @throws IOException There was an error reading the file.
+	 * @see ContentTypeDetector#isZipFile(File)
+	 */
+	public boolean isZipFile(final File file) throws IOException {
+		return ContentTypeDetector.ZIP.equals(detect(file));
+	}
+
+	/**
+	 * Check, whether a file is a PDF file.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a PDF file.
+	 * @throws IOException There was an error reading the file.
+	 * @see ContentTypeDetector#isPdfFile(File)
+	 */
+	public boolean isPdfFile(final File file) throws IOException {
+		return ContentTypeDetector.PDF.equals(detect(file));
+	}
+
+	/**
+	 * Check, whether a file starts with a XML declaration.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a XML file.
+	 * @throws IOException There was an error reading the file.
+	 * @see ContentTypeDetector#isXmlFile(File)
+	 */
+	public boolean isXmlFile(final File file) throws IOException {
+		return getDetection(file).isXml;
+	}
+
+	/**
+	 * @return The number of memoised results.
+	 */
+	public int size() {
+		return this.detections.size();
+	}
+
+	private Detection getDetection(final File file) throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		final Path path = file.toPath().toAbsolutePath().normalize();
+		final Key key = new Key(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+
+		final Detection cached = this.detections.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		final Detection detection = ContentTypeDetector.getDetection(file);
+		this.detections.put(key, detection);
+		return detection;
+	}
+
+	private static final class Key {
+
+		private final Path path;
+		private final long size;
+		private final long lastModified;
+
+		Key(final Path path, final long size, final long lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.size == other.size && this.lastModified == other.lastModified
+					&& this.path.equals(other.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.path, Long.valueOf(this.size),
+					Long.valueOf(this.lastModified));
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.tika.Tika;
+
+import com.google.common.base.Preconditions;
+import com.google.common.net.MediaType;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Detect the content type (MIME type) of files.
+ * 
+ * <p>
+ * PDF files, XML files and plain ZIP files are recognized by their leading
+ * bytes (magic bytes). Other files are detected by a shared {@link Tika}
+ * instance. ZIP based office formats (e.g. docx, xlsx, odt) are detected by
+ * Tika, too.
+ * </p>
+ * 
+ * <p>
+ * Every call reads the file. Use a {@link ContentTypeCache} to read a file only
+ * once during a validation.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public final class ContentTypeDetector {
+
+	/**
+	 * MIME type of ZIP files.
+	 */
+	public static final String ZIP = "application/zip";
+
+	/**
+	 * MIME type of PDF files.
+	 */
+	public static final String PDF = MediaType.PDF.toString();
+
+	/**
+	 * MIME type of XML files.
+	 */
+	public static final String XML = MediaType.APPLICATION_XML_UTF_8.withoutParameters()
+			.toString();
+
+	private static final int HEADER_LENGTH = 512;
+
+	private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] XML_MAGIC = "<?xml".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	private static final byte[] ZIP_MAGIC = { 'P', 'K', 3, 4 };
+
+	private static final byte[] EMPTY_ZIP_MAGIC = { 'P', 'K', 5, 6 };
+
+	/**
+	 * Names of first ZIP entries that indicate a ZIP based document format.
+	 */
+	private static final String[] ZIP_BASED_FORMAT_ENTRIES = { "[Content_Types].xml",
+			"mimetype", "META-INF/", "_rels/" };
+
+	private static final Tika TIKA = new Tika();
+
+	private ContentTypeDetector() {
+		// utility class
+	}
+
+	/**
+	 * Detect the MIME type of a file.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return The MIME type, e.g. <code>application/pdf</code>.
+	 * @throws IOException There was an error reading the file.
+	 */
+	public static String detect(final File file) throws IOException {
+		return getDetection(file).contentType;
+	}
+
+	/**
+	 * Check, whether a file is a ZIP file.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a plain ZIP file. ZIP based
+	 *         document formats like docx are not reported as ZIP file.
+	 * @throws IOException There was an error reading the file.
+	 */
+	public static boolean isZipFile(final File file) throws IOException {
+		return ZIP.equals(detect(file));
+	}
+
+	/**
+	 * Check, whether a file is a PDF file.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a PDF file.
+	 * @throws IOException There was an error reading the file.
+	 */
+	public static boolean isPdfFile(final File file) throws IOException {
+		return PDF.equals(detect(file));
+	}
+
+	/**
+	 * Check, whether a file starts with a XML declaration.
+	 * 
+	 * @param file An existing file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a XML file.
+	 * @throws IOException There was an error reading the file.
+	 */
+	public static boolean isXmlFile(final File file) throws IOException {
+		return getDetection(file).isXml;
+	}
+
+	static Detection getDetection(final File file) throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		return sniff(file);
+	}
+
+	private static Detection sniff(final File file) throws IOException {
+
+		final byte[] header = new byte[HEADER_LENGTH];
+		int length = 0;
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			length = in.readNBytes(header, 0, HEADER_LENGTH);
+		}
+
+		if (startsWith(header, length, 0, PDF_MAGIC)) {
+			return new Detection(PDF, false);
+		}
+
+		if (startsWith(header, length, 0, EMPTY_ZIP_MAGIC)
+				|| (startsWith(header, length, 0, ZIP_MAGIC)
+						&& !isZipBasedFormat(header, length))) {
+			return new Detection(ZIP, false);
+		}
+
+		final boolean isXml = startsWith(header, length, 0, XML_MAGIC)
+				|| startsWith(header, length, 0, UTF8_BOM)
+						&& startsWith(header, length, UTF8_BOM.length, XML_MAGIC);
+
+		// XML files are detected by Tika, too, to get specific types like
+		// image/svg+xml; the root element is taken from the header that has
+		// already been read
+		final String contentType = isXml
+				? TIKA.detect(Arrays.copyOf(header, length), file.getName())
+				: TIKA.detect(file);
+		if (log.isDebugEnabled()) {
+			log.debug("Detected content type " + contentType + " for file " + file.getName());
+		}
+
+		return new Detection(contentType, isXml);
+	}
+
+	/**
+	 * Check the name of the first local file header of a ZIP file for typical
+	 * entries of ZIP based document formats.
+	 */
+	private static boolean isZipBasedFormat(final byte[] header, final int length) {
+
+		// local file header: name length at offset 26, name at offset 30
+		if (length < 30) {
+			return false;
+		}
+
+		final int nameLength = (header[26] & 0xFF) | ((header[27] & 0xFF) << 8);
+		final String name = new String(header, 30, Math.min(nameLength, length - 30),
+				StandardCharsets.UTF_8);
+
+		return Arrays.stream(ZIP_BASED_FORMAT_ENTRIES).anyMatch(name::startsWith);
+	}
+
+	private static boolean startsWith(final byte[] header, final int length, final int offset,
+			final byte[] magic) {
+
+		if (length < offset + magic.length) {
+			return false;
+		}
+
+		for (int i = 0; i < magic.length; i++) {
+			if (header[offset + i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static final class Detection {
+
+		final String contentType;
+		final boolean isXml;
+
+		Detection(final String contentType, final boolean isXml) {
+			this.contentType = contentType;
+			this.isXml = isXml;
+		}
+	}
+}
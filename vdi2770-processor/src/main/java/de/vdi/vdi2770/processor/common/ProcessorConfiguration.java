@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -35,10 +36,10 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
 
-import org.apache.tika.Tika;
-
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import de.vdi.vdi2770.processor.ProcessorException;
 import lombok.extern.log4j.Log4j2;
@@ -67,6 +68,14 @@ public class ProcessorConfiguration {
 	
 	private static final String VALIDATOR_PREFIX = VDI_PREFIX + "validator.";
 
+	private static final String WORKSPACE_PREFIX = VDI_PREFIX + "workspace.";
+
+	private static final String CACHE_PREFIX = VDI_PREFIX + "cache.";
+
+	private static final String BUDGET_PREFIX = VDI_PREFIX + "budget.";
+
+	private static final String BATCH_PREFIX = VDI_PREFIX + "batch.";
+
 	// PDF properties
 
 	private static final String REPORT_LOGO_FILE_PROPERTY = REPORT_PREFIX + "logo.file";
@@ -94,7 +103,46 @@ public class ProcessorConfiguration {
 	private static final String ZIP_MAX_COMPRESSION = ZIP_PREFIX + "maxcompression";
 
 	private static final String ZIP_MAX_FILE_SIZE = ZIP_PREFIX + "maxfilesize";
+
+	private static final String ZIP_MAX_TOTAL_SIZE = ZIP_PREFIX + "maxtotalsize";
+
+	private static final String ZIP_MAX_DEPTH = ZIP_PREFIX + "maxdepth";
+
+	private static final String ZIP_MAX_ENTRIES = ZIP_PREFIX + "maxentries";
+
+	private static final String ZIP_DEFLATE_THREADS = ZIP_PREFIX + "deflate.threads";
+
+	private static final String ZIP_DEFLATE_PARALLEL_THRESHOLD = ZIP_PREFIX
+			+ "deflate.parallelthreshold";
 	
+	// workspace properties
+
+	private static final String WORKSPACE_ROOT = WORKSPACE_PREFIX + "root";
+
+	private static final String WORKSPACE_QUOTA = WORKSPACE_PREFIX + "quota";
+
+	// validation cache properties
+
+	private static final String CACHE_MEMORY = CACHE_PREFIX + "memory";
+
+	private static final String CACHE_DIRECTORY = CACHE_PREFIX + "directory";
+
+	// validation budget properties
+
+	private static final String BUDGET_TIME = BUDGET_PREFIX + "time";
+
+	private static final String BUDGET_MESSAGES = BUDGET_PREFIX + "messages";
+
+	private static final String BUDGET_ERRORS = BUDGET_PREFIX + "errors";
+
+	private static final String BUDGET_FILES = BUDGET_PREFIX + "files";
+
+	// batch validation properties
+
+	private static final String BATCH_THREADS = BATCH_PREFIX + "threads";
+
+	private static final String BATCH_MEMORY = BATCH_PREFIX + "memory";
+
 	// Strict mode properties
 	
 	private static final String VALIDATOR_TREAT_PDF_ERROR_AS_WARNING = VALIDATOR_PREFIX
@@ -152,6 +200,19 @@ public class ProcessorConfiguration {
 			log.debug(REPORT_LINK_COLOR_PROPERTY + ": " + getReportLinkColor());
 			log.debug(ZIP_MAX_COMPRESSION + ": " + getMaxZipCompressionFactor());
 			log.debug(ZIP_MAX_FILE_SIZE + ": " + getMaxZipFileSize());
+			log.debug(ZIP_MAX_TOTAL_SIZE + ": " + getMaxZipTotalSize());
+			log.debug(ZIP_MAX_DEPTH + ": " + getMaxZipDepth());
+			log.debug(ZIP_MAX_ENTRIES + ": " + getMaxZipEntries());
+			log.debug(ZIP_DEFLATE_THREADS + ": " + getZipDeflateThreads());
+			log.debug(ZIP_DEFLATE_PARALLEL_THRESHOLD + ": " + getZipParallelDeflateThreshold());
+			log.debug(WORKSPACE_ROOT + ": " + getWorkspaceRoot());
+			log.debug(WORKSPACE_QUOTA + ": " + getWorkspaceQuota());
+			log.debug(BUDGET_TIME + ": " + getBudgetTime());
+			log.debug(BUDGET_MESSAGES + ": " + getBudgetMessages());
+			log.debug(BUDGET_ERRORS + ": " + getBudgetErrors());
+			log.debug(BUDGET_FILES + ": " + getBudgetFiles());
+			log.debug(BATCH_THREADS + ": " + getBatchThreads());
+			log.debug(BATCH_MEMORY + ": " + getBatchMemory());
 			log.debug(VALIDATOR_TREAT_PDF_ERROR_AS_WARNING + ": " + isTreatPdfErrorsAsWarnings());
 		}
 	}
@@ -198,9 +259,8 @@ public class ProcessorConfiguration {
 			if (tmp.exists()) {
 
 				// is the file an image?
-				final Tika tika = new Tika();
 				try {
-					String fileMimeType = tika.detect(tmp);
+					String fileMimeType = ContentTypeDetector.detect(tmp);
 					if (log.isDebugEnabled()) {
 						log.debug("Logo file fomat ist " + fileMimeType);
 					}
@@ -372,22 +432,231 @@ public class ProcessorConfiguration {
 	 * @return The value of the property. If the application property is not set, -1
 	 *         returns.
 	 */
-	public int getMaxZipFileSize() {
-		String factor = this.properties.getProperty(ZIP_MAX_FILE_SIZE);
+	public long getMaxZipFileSize() {
+		return getLongProperty(ZIP_MAX_FILE_SIZE);
+	}
 
-		final int defaultValue = -1;
+	/**
+	 * Zip bomb detection: maximum number of uncompressed bytes of all entries of a
+	 * container including all nested containers. The limit is checked while
+	 * extracting.
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns.
+	 */
+	public long getMaxZipTotalSize() {
+		return getLongProperty(ZIP_MAX_TOTAL_SIZE);
+	}
 
-		if (Strings.isNullOrEmpty(factor)) {
+	/**
+	 * Zip bomb detection: maximum nesting depth of containers. The outer container
+	 * has depth 0, containers in the outer container have depth 1 and so on.
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns.
+	 */
+	public int getMaxZipDepth() {
+		return getIntProperty(ZIP_MAX_DEPTH);
+	}
+
+	/**
+	 * Zip bomb detection: maximum number of entries of a container including all
+	 * nested containers.
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns.
+	 */
+	public int getMaxZipEntries() {
+		return getIntProperty(ZIP_MAX_ENTRIES);
+	}
+
+	/**
+	 * Number of threads to deflate a large entry while creating containers (see
+	 * {@link de.vdi.vdi2770.processor.zip.ZipChannelWriter}). A value of 1
+	 * disables parallel compression.
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns. In that case, the number of available processors is used.
+	 */
+	public int getZipDeflateThreads() {
+		return getIntProperty(ZIP_DEFLATE_THREADS);
+	}
+
+	/**
+	 * Minimum size in bytes of an entry that is deflated by multiple threads while
+	 * creating containers.
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns. In that case, a default threshold is used.
+	 */
+	public long getZipParallelDeflateThreshold() {
+		return getLongProperty(ZIP_DEFLATE_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Root folder for temporary files of validations, e.g. a tmpfs mount (see
+	 * {@link Workspace}).
+	 * 
+	 * @return The root folder or <code>null</code>, if the application property is
+	 *         not set. In that case, the default temporary folder is used.
+	 */
+	public File getWorkspaceRoot() {
+		String root = this.properties.getProperty(WORKSPACE_ROOT);
+
+		if (Strings.isNullOrEmpty(root) || Strings.isNullOrEmpty(root.trim())) {
+			return null;
+		}
+
+		return new File(root.trim());
+	}
+
+	/**
+	 * Disk quota in bytes for temporary files of one validation (see
+	 * {@link Workspace}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns.
+	 */
+	public long getWorkspaceQuota() {
+		return getLongProperty(WORKSPACE_QUOTA);
+	}
+
+	/**
+	 * Maximum size in bytes of the validation results that are kept in memory (see
+	 * {@link de.vdi.vdi2770.processor.report.ValidationCache}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns and no results are kept in memory.
+	 */
+	public long getCacheMemorySize() {
+		return getLongProperty(CACHE_MEMORY);
+	}
+
+	/**
+	 * Folder to store validation results, so that they survive restarts (see
+	 * {@link de.vdi.vdi2770.processor.report.ValidationCache}).
+	 * 
+	 * @return The folder or <code>null</code>, if the application property is not
+	 *         set and the results are not stored on disk.
+	 */
+	public File getCacheDirectory() {
+		String directory = this.properties.getProperty(CACHE_DIRECTORY);
+
+		if (Strings.isNullOrEmpty(directory) || Strings.isNullOrEmpty(directory.trim())) {
+			return null;
+		}
+
+		return new File(directory.trim());
+	}
+
+	/**
+	 * Maximum duration of a container validation in milliseconds (see
+	 * {@link de.vdi.vdi2770.processor.report.ValidationBudget}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns and the duration is not limited.
+	 */
+	public long getBudgetTime() {
+		return getLongProperty(BUDGET_TIME);
+	}
+
+	/**
+	 * Maximum number of messages of a container validation (see
+	 * {@link de.vdi.vdi2770.processor.report.ValidationBudget}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns and the number of messages is not limited.
+	 */
+	public long getBudgetMessages() {
+		return getLongProperty(BUDGET_MESSAGES);
+	}
+
+	/**
+	 * Maximum number of errors of a container validation (see
+	 * {@link de.vdi.vdi2770.processor.report.ValidationBudget}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns and the number of errors is not limited.
+	 */
+	public long getBudgetErrors() {
+		return getLongProperty(BUDGET_ERRORS);
+	}
+
+	/**
+	 * Maximum number of files that are analysed in a container validation (see
+	 * {@link de.vdi.vdi2770.processor.report.ValidationBudget}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns and the number of files is not limited.
+	 */
+	public long getBudgetFiles() {
+		return getLongProperty(BUDGET_FILES);
+	}
+
+	/**
+	 * Number of containers that are validated concurrently in a batch (see
+	 * {@link de.vdi.vdi2770.processor.report.BatchValidator}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns. In that case, the number of available processors is used.
+	 */
+	public int getBatchThreads() {
+		return getIntProperty(BATCH_THREADS);
+	}
+
+	/**
+	 * Estimated memory in bytes that all containers of a batch may use at the same
+	 * time (see {@link de.vdi.vdi2770.processor.report.BatchValidator}).
+	 * 
+	 * @return The value of the property. If the application property is not set, -1
+	 *         returns. In that case, half of the maximum heap size is used.
+	 */
+	public long getBatchMemory() {
+		return getLongProperty(BATCH_MEMORY);
+	}
+
+	private long getLongProperty(final String name) {
+		String value = this.properties.getProperty(name);
+
+		final long defaultValue = -1;
+
+		if (Strings.isNullOrEmpty(value)) {
 			return defaultValue;
 		}
 
 		try {
-			return Integer.parseInt(factor);
+			return Long.parseLong(value.trim());
 		} catch (@SuppressWarnings("unused") final NumberFormatException e) {
 			return defaultValue;
 		}
 	}
-	
+
+	private int getIntProperty(final String name) {
+		final long value = getLongProperty(name);
+
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return -1;
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Get a fingerprint of all application properties with the prefix
+	 * <code>vdi2770.</code>. Validation results depend on some of these properties,
+	 * e.g. the ZIP limits. Cached results are only used for the same fingerprint.
+	 * 
+	 * @return A SHA-256 hash of the sorted properties.
+	 */
+	public String getFingerprint() {
+
+		final Hasher hasher = Hashing.sha256().newHasher();
+		this.properties.stringPropertyNames().stream().filter(n -> n.startsWith(VDI_PREFIX))
+				.sorted().forEach(n -> hasher.putString(n, StandardCharsets.UTF_8).putChar('=')
+						.putString(this.properties.getProperty(n).trim(), StandardCharsets.UTF_8)
+						.putChar('\n'));
+		return hasher.hash().toString();
+	}
+
 	/**
 	 * According to VDI 2770, PDF files shall be PDF/A files (normally PDF/A-{1,2,3}a files
 	 * and in case of certificates PDF/A-{1,2,3}b files).
@@ -0,0 +1,496 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.common;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+import de.vdi.vdi2770.processor.ProcessorException;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * A {@link Workspace} owns all temporary files of one validation.
+ * 
+ * <p>
+ * The workspace is a folder below a configurable root folder (see
+ * {@link ProcessorConfiguration#getWorkspaceRoot()}). Closing the workspace
+ * deletes the folder including all files. Use it in a try-with-resources
+ * statement instead of {@link File#deleteOnExit()}.
+ * </p>
+ * 
+ * <p>
+ * Files written by {@link #newOutputStream(Path)} are counted. If a disk quota
+ * is defined (see {@link ProcessorConfiguration#getWorkspaceQuota()}), writing
+ * fails as soon as the quota is exceeded.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class Workspace implements AutoCloseable {
+
+	private static final AtomicInteger ACTIVE_WORKSPACES = new AtomicInteger();
+
+	private static final AtomicLong TOTAL_BYTES_IN_USE = new AtomicLong();
+
+	private static final AtomicLong TOTAL_FILES_IN_USE = new AtomicLong();
+
+	// prefix is WS
+	private final ResourceBundle bundle;
+
+	/**
+	 * The folder of this workspace.
+	 */
+	@Getter
+	private final Path folder;
+
+	/**
+	 * The disk quota in bytes; a value less or equal zero disables the quota.
+	 */
+	@Getter
+	private final long quota;
+
+	private final AtomicLong bytesInUse = new AtomicLong();
+
+	private final AtomicLong filesInUse = new AtomicLong();
+
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/**
+	 * ctor
+	 * 
+	 * <p>
+	 * Root folder and quota are read from the application properties.
+	 * </p>
+	 * 
+	 * @param locale Desired {@link Locale} for messages; must not be
+	 *               <code>null</code>.
+	 * @throws ProcessorException The workspace folder can not be created.
+	 */
+	public Workspace(final Locale locale) throws ProcessorException {
+		this(locale, ProcessorConfiguration.getInstance(locale).getWorkspaceRoot(),
+				ProcessorConfiguration.getInstance(locale).getWorkspaceQuota());
+	}
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale Desired {@link Locale} for messages; must not be
+	 *               <code>null</code>.
+	 * @param root   The root folder; if <code>null</code>, the default temporary
+	 *               folder is used.
+	 * @param quota  The disk quota in bytes; a value less or equal zero disables
+	 *               the quota.
+	 * @throws ProcessorException The workspace folder can not be created.
+	 */
+	public Workspace(final Locale locale, final File root, final long quota)
+			throws ProcessorException {
+		super();
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+
+		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
+		this.quota = quota;
+
+		try {
+			if (root != null) {
+				Files.createDirectories(root.toPath());
+				this.folder = Files.createTempDirectory(root.toPath(), "vdi2770_");
+			} else {
+				this.folder = Files.createTempDirectory("vdi2770_");
+			}
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("WS_EXCEPTION_001"), root != null ? root : ""), e);
+		}
+
+		ACTIVE_WORKSPACES.incrementAndGet();
+
+		if (log.isDebugEnabled()) {
+			log.debug("Workspace created: " + this.folder);
+		}
+	}
+
+	/**
+	 * Create a new folder in the workspace.
+	 * 
+	 * @param name The name of the folder; must not be <code>null</code> or empty.
+	 * @return The new folder.
+	 * @throws ProcessorException The folder can not be created.
+	 */
+	public File createFolder(final String name) throws ProcessorException {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+
+		final Path result = resolve(name);
+		try {
+			Files.createDirectories(result);
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("WS_EXCEPTION_001"), result.toString()), e);
+		}
+
+		return result.toFile();
+	}
+
+	/**
+	 * Resolve a path relative to the workspace folder.
+	 * 
+	 * @param name A relative path; must not be <code>null</code> or empty.
+	 * @return The path in the workspace.
+	 * @throws IllegalArgumentException The path is outside of the workspace.
+	 */
+	public Path resolve(final String name) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		ensureOpen();
+
+		final Path result = this.folder.resolve(name).normalize();
+		Preconditions.checkArgument(result.startsWith(this.folder), "path outside of workspace");
+
+		return result;
+	}
+
+	/**
+	 * Open a counted {@link OutputStream} to write a file in the workspace.
+	 * 
+	 * <p>
+	 * If the quota is exceeded, the stream throws an {@link IOException} that has a
+	 * {@link WorkspaceQuotaExceededException} as cause (see
+	 * {@link #unwrap(IOException)}).
+	 * </p>
+	 * 
+	 * @param file A path in the workspace; must not be <code>null</code>.
+	 * @return The {@link OutputStream}.
+	 * @throws IOException The file can not be created.
+	 */
+	public OutputStream newOutputStream(final Path file) throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+		ensureOpen();
+		Preconditions.checkArgument(file.toAbsolutePath().normalize().startsWith(this.folder),
+				"path outside of workspace");
+
+		final OutputStream out = Files.newOutputStream(file);
+		this.filesInUse.incrementAndGet();
+		TOTAL_FILES_IN_USE.incrementAndGet();
+
+		return new CountingOutputStream(out);
+	}
+
+	/**
+	 * Open a {@link FileChannel} to write a file of a known size in the workspace.
+	 * 
+	 * <p>
+	 * The size is counted against the quota before the file is created, so that
+	 * the content can be copied by the operating system (e.g. by
+	 * {@link FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)}).
+	 * The caller must not write more bytes than reserved.
+	 * </p>
+	 * 
+	 * @param file A path in the workspace; must not be <code>null</code>.
+	 * @param size The number of bytes to reserve.
+	 * @return A writable {@link FileChannel}.
+	 * @throws IOException The file can not be created. If the quota is exceeded,
+	 *                     the cause is a {@link WorkspaceQuotaExceededException}
+	 *                     (see {@link #unwrap(IOException)}).
+	 */
+	public FileChannel newFileChannel(final Path file, final long size) throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+		Preconditions.checkArgument(size >= 0, "invalid size");
+		ensureOpen();
+		Preconditions.checkArgument(file.toAbsolutePath().normalize().startsWith(this.folder),
+				"path outside of workspace");
+
+		allocate(size);
+
+		final FileChannel channel;
+		try {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (final IOException e) {
+			release(size, 0);
+			throw e;
+		}
+		this.filesInUse.incrementAndGet();
+		TOTAL_FILES_IN_USE.incrementAndGet();
+
+		return channel;
+	}
+
+	/**
+	 * Copy a stream into a new file of the workspace.
+	 * 
+	 * @param stream The content; must not be <code>null</code>.
+	 * @param name   A relative path of the new file; must not be <code>null</code>
+	 *               or empty.
+	 * @return The new file.
+	 * @throws ProcessorException The quota has been exceeded (see
+	 *                            {@link WorkspaceQuotaExceededException}) or the
+	 *                            file can not be written.
+	 */
+	public File copy(final InputStream stream, final String name) throws ProcessorException {
+
+		Preconditions.checkArgument(stream != null, "stream is null");
+
+		final Path target = resolve(name);
+		try {
+			Files.createDirectories(target.getParent());
+			try (OutputStream out = newOutputStream(target)) {
+				stream.transferTo(out);
+			}
+		} catch (final IOException e) {
+			final WorkspaceQuotaExceededException quotaExceeded = unwrap(e);
+			if (quotaExceeded != null) {
+				throw quotaExceeded;
+			}
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("WS_EXCEPTION_002"), target.toString()), e);
+		}
+
+		return target.toFile();
+	}
+
+	/**
+	 * Create a file in the workspace with the same content as an existing file of
+	 * the workspace.
+	 * 
+	 * <p>
+	 * The file is created as hard link, so the content is stored only once and is
+	 * not counted against the quota again. If the file system does not support
+	 * hard links, the content is copied. Linked files must not be deleted by
+	 * {@link #delete(File)}.
+	 * </p>
+	 * 
+	 * @param existing An existing file in the workspace; must not be
+	 *                 <code>null</code>.
+	 * @param file     The path of the new file in the workspace; must not be
+	 *                 <code>null</code>.
+	 * @throws IOException The file can not be created. If the quota is exceeded,
+	 *                     the cause is a {@link WorkspaceQuotaExceededException}
+	 *                     (see {@link #unwrap(IOException)}).
+	 */
+	public void link(final Path existing, final Path file) throws IOException {
+
+		Preconditions.checkArgument(existing != null, "existing file is null");
+		Preconditions.checkArgument(file != null, "file is null");
+		ensureOpen();
+		Preconditions.checkArgument(
+				existing.toAbsolutePath().normalize().startsWith(this.folder)
+						&& file.toAbsolutePath().normalize().startsWith(this.folder),
+				"path outside of workspace");
+
+		try {
+			Files.createLink(file, existing);
+			this.filesInUse.incrementAndGet();
+			TOTAL_FILES_IN_USE.incrementAndGet();
+			return;
+		} catch (final UnsupportedOperationException | IOException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Can not create link " + file + ", copying the file", e);
+			}
+		}
+
+		try (FileChannel in = FileChannel.open(existing, StandardOpenOption.READ);
+				FileChannel out = newFileChannel(file, in.size())) {
+			long transferred = 0;
+			final long size = in.size();
+			while (transferred < size) {
+				final long count = in.transferTo(transferred, size - transferred, out);
+				if (count <= 0) {
+					throw new IOException("Unexpected end of file " + existing);
+				}
+				transferred += count;
+			}
+		}
+	}
+
+	/**
+	 * Delete a file in the workspace and release the used bytes.
+	 * 
+	 * @param file A file in the workspace; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file has been deleted.
+	 */
+	public boolean delete(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		final long size = file.length();
+		if (file.isFile() && file.delete()) {
+			release(size, 1);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The number of bytes written to this workspace.
+	 */
+	public long getBytesInUse() {
+		return this.bytesInUse.get();
+	}
+
+	/**
+	 * @return The number of files written to this workspace.
+	 */
+	public long getFilesInUse() {
+		return this.filesInUse.get();
+	}
+
+	/**
+	 * @return <code>true</code>, if the workspace has been closed.
+	 */
+	public boolean isClosed() {
+		return this.closed.get();
+	}
+
+	/**
+	 * @return The number of open workspaces.
+	 */
+	public static int getActiveWorkspaces() {
+		return ACTIVE_WORKSPACES.get();
+	}
+
+	/**
+	 * @return The number of bytes written to all open workspaces.
+	 */
+	public static long getTotalBytesInUse() {
+		return TOTAL_BYTES_IN_USE.get();
+	}
+
+	/**
+	 * @return The number of files written to all open workspaces.
+	 */
+	public static long getTotalFilesInUse() {
+		return TOTAL_FILES_IN_USE.get();
+	}
+
+	/**
+	 * Get the {@link WorkspaceQuotaExceededException} that caused an
+	 * {@link IOException} of a stream created by {@link #newOutputStream(Path)}.
+	 * 
+	 * @param e An {@link IOException}.
+	 * @return The cause or <code>null</code>, if the exception was not caused by
+	 *         an exceeded quota.
+	 */
+	public static WorkspaceQuotaExceededException unwrap(final IOException e) {
+
+		if (e != null && e.getCause() instanceof WorkspaceQuotaExceededException) {
+			return (WorkspaceQuotaExceededException) e.getCause();
+		}
+		return null;
+	}
+
+	/**
+	 * Delete the workspace folder including all files.
+	 */
+	@Override
+	public void close() {
+
+		if (!this.closed.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			FileUtils.deleteDirectory(this.folder.toFile());
+		} catch (final IOException e) {
+			log.warn("Can not delete workspace " + this.folder, e);
+		}
+
+		release(this.bytesInUse.get(), this.filesInUse.get());
+		ACTIVE_WORKSPACES.decrementAndGet();
+
+		if (log.isDebugEnabled()) {
+			log.debug("Workspace closed: " + this.folder);
+		}
+	}
+
+	private void release(final long bytes, final long files) {
+		this.bytesInUse.addAndGet(-bytes);
+		this.filesInUse.addAndGet(-files);
+		TOTAL_BYTES_IN_USE.addAndGet(-bytes);
+		TOTAL_FILES_IN_USE.addAndGet(-files);
+	}
+
+	private void allocate(final long bytes) throws IOException {
+
+		final long used = this.bytesInUse.addAndGet(bytes);
+		TOTAL_BYTES_IN_USE.addAndGet(bytes);
+
+		if (this.quota > 0 && used > this.quota) {
+			// the bytes are not written
+			this.bytesInUse.addAndGet(-bytes);
+			TOTAL_BYTES_IN_USE.addAndGet(-bytes);
+
+			throw new IOException(new WorkspaceQuotaExceededException(MessageFormat.format(
+					this.bundle.getString("WS_MESSAGE_003"), Long.valueOf(this.quota))));
+		}
+	}
+
+	private void ensureOpen() {
+		Preconditions.checkState(!this.closed.get(), "workspace is closed");
+	}
+
+	/**
+	 * Stream that counts the written bytes.
+	 */
+	private class CountingOutputStream extends FilterOutputStream {
+
+		CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			allocate(1);
+			this.out.write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			allocate(len);
+			this.out.write(b, off, len);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.common;
+
+import de.vdi.vdi2770.processor.ProcessorException;
+
+/**
+ * This exception indicates, that the disk quota of a {@link Workspace} has
+ * been exceeded.
+ * 
+ * <p>
+ * The message of the exception is a localized report message.
+ * </p>
+ *
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class WorkspaceQuotaExceededException extends ProcessorException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create an exception with a message
+	 * 
+	 * @param message A message
+	 */
+	public WorkspaceQuotaExceededException(final String message) {
+
+		super(message);
+	}
+}
@@ -51,7 +51,6 @@ import org.apache.pdfbox.preflight.ValidationResult.ValidationError;
 import org.apache.pdfbox.preflight.exception.SyntaxValidationException;
 import org.apache.pdfbox.preflight.parser.PreflightParser;
 import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.tika.Tika;
 import org.apache.xmpbox.XMPMetadata;
 import org.apache.xmpbox.schema.PDFAIdentificationSchema;
 import org.apache.xmpbox.xml.DomXmpParser;
@@ -59,8 +58,8 @@ import org.apache.xmpbox.xml.XmpParsingException;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.net.MediaType;
 
+import de.vdi.vdi2770.processor.common.ContentTypeDetector;
 import de.vdi.vdi2770.processor.common.Message;
 import de.vdi.vdi2770.processor.common.MessageLevel;
 import lombok.extern.log4j.Log4j2;
@@ -335,9 +334,7 @@ public class PdfValidator {
 	 */
 	public static boolean isPdfFile(final File pdfFile) throws IOException {
 
-		final Tika tika = new Tika();
-		final String fileMimeType = tika.detect(pdfFile);
-		return StringUtils.equals(fileMimeType, MediaType.PDF.toString());
+		return ContentTypeDetector.isPdfFile(pdfFile);
 	}
 
 	/**
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The result of a container in a batch validation (see
+ * {@link BatchValidator}). It is written as a single line of the JSON result
+ * file.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+@NoArgsConstructor
+public class BatchResult {
+
+	// message texts start with their ID, e.g. REP_016
+	private static final Pattern MESSAGE_ID = Pattern.compile("^([A-Z]+(?:_[A-Z]+)*_\\d+)\\b");
+
+	/**
+	 * ID of messages without an ID prefix.
+	 */
+	public static final String UNKNOWN_ID = "UNKNOWN";
+
+	/**
+	 * The outcome of a container validation.
+	 */
+	public enum Status {
+
+		/**
+		 * The container has been validated without errors.
+		 */
+		VALID,
+
+		/**
+		 * The container has been validated and has errors.
+		 */
+		INVALID,
+
+		/**
+		 * The container could not be validated; see {@link BatchResult#getException()}.
+		 */
+		FAILED
+	}
+
+	/**
+	 * The absolute path of the container file.
+	 */
+	private String file;
+
+	/**
+	 * The outcome of the validation.
+	 */
+	private Status status;
+
+	/**
+	 * The number of error messages of the container and its sub containers.
+	 */
+	private long errors;
+
+	/**
+	 * The number of warning messages of the container and its sub containers.
+	 */
+	private long warnings;
+
+	/**
+	 * The duration of the validation in milliseconds.
+	 */
+	private long durationMillis;
+
+	/**
+	 * The error and warning messages of the container and its sub containers.
+	 */
+	private List<BatchMessage> messages = new ArrayList<>();
+
+	/**
+	 * The message of the exception, if the container could not be validated.
+	 */
+	private String exception;
+
+	/**
+	 * Create the result of a validated container.
+	 * 
+	 * @param file           The absolute path of the container file.
+	 * @param report         The {@link Report} of the container; must not be
+	 *                       <code>null</code>.
+	 * @param durationMillis The duration of the validation.
+	 * @return A new {@link BatchResult} instance.
+	 */
+	static BatchResult of(final String file, final Report report, final long durationMillis) {
+		return of(file, report.filter(MessageLevel.WARN, false, true), durationMillis);
+	}
+
+	/**
+	 * Create the result of a validated container from its messages, e.g. if the
+	 * report does not retain messages.
+	 * 
+	 * @param file           The absolute path of the container file.
+	 * @param messages       The messages of the container and its sub containers;
+	 *                       must not be <code>null</code>. Messages below
+	 *                       {@link MessageLevel#WARN} are ignored.
+	 * @param durationMillis The duration of the validation.
+	 * @return A new {@link BatchResult} instance.
+	 */
+	static BatchResult of(final String file, final List<Message> messages,
+			final long durationMillis) {
+
+		final BatchResult result = new BatchResult();
+		result.file = file;
+		result.durationMillis = durationMillis;
+
+		for (final Message message : messages) {
+			if (message.getLevel() == MessageLevel.ERROR) {
+				result.errors++;
+			} else if (message.getLevel() == MessageLevel.WARN) {
+				result.warnings++;
+			} else {
+				continue;
+			}
+			result.messages.add(new BatchMessage(message.getLevel(), message.getText()));
+		}
+		result.status = result.errors > 0 ? Status.INVALID : Status.VALID;
+
+		return result;
+	}
+
+	/**
+	 * Create the result of a container that could not be validated.
+	 * 
+	 * @param file           The absolute path of the container file.
+	 * @param exception      The cause; must not be <code>null</code>.
+	 * @param durationMillis The duration of the validation.
+	 * @return A new {@link BatchResult} instance.
+	 */
+	static BatchResult failed(final String file, final Exception exception,
+			final long durationMillis) {
+
+		final BatchResult result = new BatchResult();
+		result.file = file;
+		result.durationMillis = durationMillis;
+		result.status = Status.FAILED;
+		result.exception = exception.getMessage() != null ? exception.getMessage()
+				: exception.getClass().getName();
+
+		return result;
+	}
+
+	/**
+	 * Get the ID of a message text, e.g. <code>REP_016</code>.
+	 * 
+	 * @param text A message text.
+	 * @return The ID or {@link #UNKNOWN_ID}, if the text does not start with an ID.
+	 */
+	static String getMessageId(final String text) {
+
+		if (text == null) {
+			return UNKNOWN_ID;
+		}
+
+		final Matcher matcher = MESSAGE_ID.matcher(text);
+		return matcher.find() ? matcher.group(1) : UNKNOWN_ID;
+	}
+
+	/**
+	 * An error or warning message of a {@link BatchResult}.
+	 */
+	@Data
+	@NoArgsConstructor
+	public static class BatchMessage {
+
+		/**
+		 * Severity of the message.
+		 */
+		private MessageLevel level;
+
+		/**
+		 * The text of the message.
+		 */
+		private String text;
+
+		/**
+		 * ctor
+		 * 
+		 * @param level Severity of the message.
+		 * @param text  The text of the message.
+		 */
+		public BatchMessage(final MessageLevel level, final String text) {
+			super();
+
+			this.level = level;
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The aggregated result of a batch validation (see {@link BatchValidator}).
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+@NoArgsConstructor
+public class BatchSummary {
+
+	/**
+	 * The number of containers in the result file.
+	 */
+	private long containerCount;
+
+	/**
+	 * The number of containers without errors.
+	 */
+	private long validCount;
+
+	/**
+	 * The number of containers with errors.
+	 */
+	private long invalidCount;
+
+	/**
+	 * The number of containers that could not be validated.
+	 */
+	private long failedCount;
+
+	/**
+	 * The number of containers that have been validated in a previous run and
+	 * have been skipped.
+	 */
+	private long resumedCount;
+
+	/**
+	 * The number of containers that could not be validated in a previous run and
+	 * have been validated again.
+	 */
+	private long retriedCount;
+
+	/**
+	 * The total number of error messages.
+	 */
+	private long errorCount;
+
+	/**
+	 * The total number of warning messages.
+	 */
+	private long warningCount;
+
+	/**
+	 * The number of error messages by message ID.
+	 */
+	private Map<String, Long> errors = new TreeMap<>();
+
+	/**
+	 * The number of warning messages by message ID.
+	 */
+	private Map<String, Long> warnings = new TreeMap<>();
+
+	/**
+	 * The duration of this run in milliseconds.
+	 */
+	private long durationMillis;
+
+	/**
+	 * Add the result of a container.
+	 * 
+	 * @param result A {@link BatchResult}; must not be <code>null</code>.
+	 */
+	void add(final BatchResult result) {
+
+		this.containerCount++;
+		if (result.getStatus() == BatchResult.Status.VALID) {
+			this.validCount++;
+		} else if (result.getStatus() == BatchResult.Status.INVALID) {
+			this.invalidCount++;
+		} else {
+			this.failedCount++;
+		}
+
+		this.errorCount += result.getErrors();
+		this.warningCount += result.getWarnings();
+
+		result.getMessages().forEach(m -> {
+			final Map<String, Long> counts = m.getLevel() == MessageLevel.ERROR ? this.errors
+					: this.warnings;
+			counts.merge(BatchResult.getMessageId(m.getText()), Long.valueOf(1), Long::sum);
+		});
+	}
+}
@@ -0,0 +1,530 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.io.filefilter.SuffixFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import de.vdi.vdi2770.processor.common.ProcessorConfiguration;
+import de.vdi.vdi2770.processor.zip.ContainerCostEstimator;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Validate many container files concurrently.
+ * 
+ * <p>
+ * The containers are validated by a fixed number of threads. Before a
+ * container is started, its memory demand is estimated by a
+ * {@link ContainerCostEstimator}; a container is admitted only while the sum of
+ * the estimates of the running containers fits into the memory limit. A
+ * container, that exceeds the limit on its own, runs alone. If the next
+ * container does not fit, a smaller container of the next
+ * {@link #LOOK_AHEAD} containers per thread may be started first, so that the
+ * other threads do not idle while a large container waits for memory.
+ * </p>
+ * 
+ * <p>
+ * The result of every container is appended as a single line of JSON (see
+ * {@link BatchResult}) to a result file as soon as it is available. If the
+ * result file already exists, the run is resumed: containers that are listed in
+ * the file are not validated again and an incomplete last line of an
+ * interrupted run is removed. Containers that could not be validated
+ * ({@link BatchResult.Status#FAILED}, e.g. because of an I/O error or an
+ * exceeded workspace quota) are validated again; the new result is appended and
+ * replaces the previous one. An aggregated {@link BatchSummary} of all results
+ * in the file is written to a second file (see {@link #getSummaryFile(File)}).
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class BatchValidator {
+
+	private static final long MB = 1024 * 1024;
+
+	/**
+	 * The number of waiting containers per thread that are considered, if the next
+	 * container does not fit into the free memory.
+	 */
+	public static final int LOOK_AHEAD = 4;
+
+	private final ResourceBundle bundle;
+
+	private final ContainerValidator validator;
+
+	private final ContainerCostEstimator estimator;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * The number of containers that are validated concurrently.
+	 */
+	@Getter
+	private final int threads;
+
+	/**
+	 * The estimated memory in bytes that all running containers may use.
+	 */
+	@Getter
+	private final long maxMemory;
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale    Desired {@link Locale}; must not be <code>null</code>.
+	 * @param validator The {@link ContainerValidator} that validates the
+	 *                  containers; must not be <code>null</code>. It must not be
+	 *                  changed while a batch is running.
+	 * @param threads   The number of containers that are validated concurrently;
+	 *                  a value less than 1 uses the number of available
+	 *                  processors.
+	 * @param maxMemory The estimated memory in bytes that all running containers
+	 *                  may use; a value less than 1 uses half of the maximum heap
+	 *                  size.
+	 */
+	public BatchValidator(final Locale locale, final ContainerValidator validator,
+			final int threads, final long maxMemory) {
+		super();
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+		Preconditions.checkArgument(validator != null, "validator is null");
+
+		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
+		this.validator = validator;
+		this.estimator = new ContainerCostEstimator(locale);
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.maxMemory = maxMemory > 0 ? maxMemory : Runtime.getRuntime().maxMemory() / 2;
+	}
+
+	/**
+	 * Create a {@link BatchValidator} with the settings defined in the application
+	 * properties (see {@link ProcessorConfiguration}).
+	 * 
+	 * @param locale    Desired {@link Locale}; must not be <code>null</code>.
+	 * @param validator The {@link ContainerValidator} that validates the
+	 *                  containers; must not be <code>null</code>.
+	 * @return A new {@link BatchValidator} instance.
+	 */
+	public static BatchValidator fromConfiguration(final Locale locale,
+			final ContainerValidator validator) {
+
+		final ProcessorConfiguration config = ProcessorConfiguration.getInstance(locale);
+
+		return new BatchValidator(locale, validator, config.getBatchThreads(),
+				config.getBatchMemory());
+	}
+
+	/**
+	 * Find all ZIP files in a folder and its sub folders.
+	 * 
+	 * @param folder A folder; must not be <code>null</code> and must exist.
+	 * @return The ZIP files sorted by their path.
+	 */
+	public static List<File> listContainers(final File folder) {
+
+		Preconditions.checkArgument(folder != null, "folder is null");
+		Preconditions.checkArgument(folder.isDirectory(), "folder does not exist");
+
+		final Collection<File> files = FileUtils.listFiles(folder,
+				new SuffixFileFilter(".zip", IOCase.INSENSITIVE), TrueFileFilter.INSTANCE);
+
+		return files.stream().sorted().collect(Collectors.toList());
+	}
+
+	/**
+	 * Get the file of the {@link BatchSummary} of a result file. It is stored in
+	 * the same folder, e.g. <code>results-summary.json</code> for
+	 * <code>results.jsonl</code>.
+	 * 
+	 * @param resultFile The result file; must not be <code>null</code>.
+	 * @return The summary file.
+	 */
+	public static File getSummaryFile(final File resultFile) {
+
+		Preconditions.checkArgument(resultFile != null, "resultFile is null");
+
+		final File absolute = resultFile.getAbsoluteFile();
+		return new File(absolute.getParentFile(),
+				FilenameUtils.getBaseName(absolute.getName()) + "-summary.json");
+	}
+
+	/**
+	 * Validate container files and append their results to a result file.
+	 * 
+	 * <p>
+	 * If the current thread is interrupted, no further containers are started.
+	 * The running containers are finished and written; the summary includes the
+	 * finished containers only. The run can be resumed with the same result
+	 * file.
+	 * </p>
+	 * 
+	 * @param containers The container files; must not be <code>null</code>.
+	 * @param resultFile The JSON lines file of the results; must not be
+	 *                   <code>null</code>.
+	 * @return The {@link BatchSummary} of all results in the result file.
+	 * @throws ProcessorException The result or summary file can not be read or
+	 *                            written.
+	 */
+	public BatchSummary validate(final List<File> containers, final File resultFile)
+			throws ProcessorException {
+
+		Preconditions.checkArgument(containers != null, "containers is null");
+		Preconditions.checkArgument(resultFile != null, "resultFile is null");
+
+		final long start = System.currentTimeMillis();
+
+		// containers that could not be validated are validated again
+		final Map<String, BatchResult> finished = readResults(resultFile);
+		final BatchSummary summary = new BatchSummary();
+		finished.values().stream().filter(r -> r.getStatus() != BatchResult.Status.FAILED)
+				.forEach(summary::add);
+
+		final List<File> pending = new ArrayList<>();
+		final Set<String> paths = new HashSet<>();
+		long resumed = 0;
+		long retried = 0;
+		for (final File container : containers) {
+			final String path = getPath(container);
+			if (!paths.add(path)) {
+				continue;
+			}
+			final BatchResult result = finished.remove(path);
+			if (result == null) {
+				pending.add(container);
+			} else if (result.getStatus() == BatchResult.Status.FAILED) {
+				retried++;
+				pending.add(container);
+			} else {
+				resumed++;
+			}
+		}
+		// failed results of containers that are not part of this run are kept
+		finished.values().stream().filter(r -> r.getStatus() == BatchResult.Status.FAILED)
+				.forEach(summary::add);
+		summary.setResumedCount(resumed);
+		summary.setRetriedCount(retried);
+
+		final AtomicReference<IOException> writeError = new AtomicReference<>();
+		try (Writer writer = Files.newBufferedWriter(resultFile.toPath(), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			run(pending, result -> {
+				// one line per container; flushed, so that an interrupted run can
+				// be resumed
+				synchronized (summary) {
+					if (writeError.get() != null) {
+						return;
+					}
+					try {
+						writer.write(this.mapper.writeValueAsString(result));
+						writer.write('\n');
+						writer.flush();
+						summary.add(result);
+					} catch (final IOException e) {
+						writeError.set(e);
+					}
+				}
+			});
+		} catch (final IOException e) {
+			writeError.compareAndSet(null, e);
+		}
+
+		if (writeError.get() != null) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("BV_EXCEPTION_002"), resultFile.getAbsolutePath()),
+					writeError.get());
+		}
+
+		summary.setDurationMillis(System.currentTimeMillis() - start);
+
+		final File summaryFile = getSummaryFile(resultFile);
+		try {
+			this.mapper.writerWithDefaultPrettyPrinter().writeValue(summaryFile, summary);
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("BV_EXCEPTION_002"), summaryFile.getAbsolutePath()), e);
+		}
+
+		return summary;
+	}
+
+	private void run(final List<File> containers,
+			final Consumer<BatchResult> consumer) {
+
+		final int memoryPermits = (int) Math.min(Integer.MAX_VALUE,
+				Math.max(1, this.maxMemory / MB));
+		final FreeMemory memory = new FreeMemory(memoryPermits);
+		final Semaphore slots = new Semaphore(this.threads);
+
+		// containers are removed from the head or from the look-ahead window
+		final List<PendingContainer> queue = containers.stream().map(PendingContainer::new)
+				.collect(Collectors.toCollection(LinkedList::new));
+		final int lookAhead = Math.max(1, LOOK_AHEAD * this.threads);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		try {
+			while (!queue.isEmpty()) {
+
+				slots.acquire();
+				final PendingContainer next;
+				try {
+					next = admit(queue, lookAhead, memory, memoryPermits);
+				} catch (final InterruptedException e) {
+					slots.release();
+					throw e;
+				}
+
+				try {
+					executor.execute(() -> {
+						try {
+							consumer.accept(validate(next.container));
+						} finally {
+							memory.release(next.permits);
+							slots.release();
+						}
+					});
+				} catch (final RejectedExecutionException e) {
+					memory.release(next.permits);
+					slots.release();
+					throw e;
+				}
+			}
+		} catch (@SuppressWarnings("unused") final InterruptedException e) {
+			log.info("Batch validation interrupted; running containers are finished");
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdown();
+			awaitTermination(executor);
+		}
+	}
+
+	/**
+	 * Remove the first container of the look-ahead window from the queue that
+	 * fits into the free memory. If no container fits, wait until running
+	 * containers release their memory.
+	 */
+	private PendingContainer admit(final List<PendingContainer> queue, final int lookAhead,
+			final FreeMemory memory, final int memoryPermits) throws InterruptedException {
+
+		final int window = Math.min(queue.size(), lookAhead);
+
+		// a container that needs more than the limit runs alone
+		for (int i = 0; i < window; i++) {
+			final PendingContainer pending = queue.get(i);
+			if (pending.permits < 0) {
+				pending.permits = (int) Math.min(memoryPermits,
+						Math.max(1, (estimateMemory(pending.container) + MB - 1) / MB));
+			}
+		}
+
+		synchronized (memory) {
+			while (true) {
+				for (int i = 0; i < window; i++) {
+					final PendingContainer pending = queue.get(i);
+					if (pending.permits <= memory.available) {
+						if (i > 0 && log.isDebugEnabled()) {
+							log.debug("Starting " + pending.container.getName() + " before "
+									+ queue.get(0).container.getName());
+						}
+						memory.available -= pending.permits;
+						return queue.remove(i);
+					}
+				}
+				memory.wait();
+			}
+		}
+	}
+
+	/**
+	 * The memory in MB that is not used by running containers.
+	 */
+	private static final class FreeMemory {
+
+		private int available;
+
+		FreeMemory(final int available) {
+			this.available = available;
+		}
+
+		synchronized void release(final int permits) {
+			this.available += permits;
+			notifyAll();
+		}
+	}
+
+	private static final class PendingContainer {
+
+		private final File container;
+
+		/**
+		 * The estimated memory in MB or -1, if not estimated yet.
+		 */
+		private int permits = -1;
+
+		PendingContainer(final File container) {
+			this.container = container;
+		}
+	}
+
+	private static void awaitTermination(final ExecutorService executor) {
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+					break;
+				}
+			} catch (@SuppressWarnings("unused") final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private long estimateMemory(final File container) {
+
+		try {
+			return this.estimator.estimate(container).getEstimatedMemory();
+		} catch (final ProcessorException | RuntimeException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Can not estimate memory of " + container.getAbsolutePath(), e);
+			}
+			return ContainerCostEstimator.LOW_MEMORY;
+		}
+	}
+
+	private BatchResult validate(final File container) {
+
+		final String path = getPath(container);
+		final long start = System.currentTimeMillis();
+		try {
+			if (this.validator.isRetainingMessages()) {
+				final Report report = this.validator.validate(container, MessageLevel.WARN,
+						false);
+				return BatchResult.of(path, report, System.currentTimeMillis() - start);
+			}
+
+			// the reports do not retain messages, so they are collected while validating
+			final List<Message> messages = new ArrayList<>();
+			this.validator.validate(container, MessageLevel.WARN, false,
+					(report, message) -> messages.add(message));
+			return BatchResult.of(path, messages, System.currentTimeMillis() - start);
+		} catch (final ProcessorException | MetadataException | RuntimeException e) {
+			log.warn("Can not validate container " + path, e);
+			return BatchResult.failed(path, e, System.currentTimeMillis() - start);
+		}
+	}
+
+	private Map<String, BatchResult> readResults(final File resultFile)
+			throws ProcessorException {
+
+		final Map<String, BatchResult> results = new LinkedHashMap<>();
+		if (!resultFile.exists()) {
+			return results;
+		}
+
+		try {
+			final byte[] data = Files.readAllBytes(resultFile.toPath());
+
+			// remove an incomplete last line of an interrupted run
+			int length = data.length;
+			while (length > 0 && data[length - 1] != '\n') {
+				length--;
+			}
+			if (length < data.length) {
+				try (FileChannel channel = FileChannel.open(resultFile.toPath(),
+						StandardOpenOption.WRITE)) {
+					channel.truncate(length);
+				}
+			}
+
+			final String content = new String(data, 0, length, StandardCharsets.UTF_8);
+			for (final String line : content.split("\n")) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				try {
+					final BatchResult result = this.mapper.readValue(line, BatchResult.class);
+					if (result.getFile() != null) {
+						results.put(result.getFile(), result);
+					}
+				} catch (final JsonProcessingException e) {
+					// the container is validated again
+					log.warn("Invalid line in batch result file " + resultFile.getAbsolutePath(),
+							e);
+				}
+			}
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("BV_EXCEPTION_001"), resultFile.getAbsolutePath()), e);
+		}
+
+		return results;
+	}
+
+	private static String getPath(final File file) {
+		return file.toPath().toAbsolutePath().normalize().toString();
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import de.vdi.vdi2770.processor.common.ContainerType;
+import de.vdi.vdi2770.processor.report.CachedReport.CachedMessage;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The result of the validation of the content of a sub container folder, i.e.
+ * the container type, the XML metadata, the referenced files and the PDF files.
+ * It does not depend on the enclosing container. Relations to other documents
+ * are not part of this result.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+@NoArgsConstructor
+class CachedFolder {
+
+	private ContainerType containerType;
+
+	/**
+	 * The name of the XML metadata file in the folder; <code>null</code>, if no
+	 * metadata file has been found.
+	 */
+	private String metadataFileName;
+
+	/**
+	 * <code>true</code>, if the validation of the folder has been finished, e.g.
+	 * because no metadata file has been found.
+	 */
+	private boolean finished;
+
+	private List<CachedMessage> messages = new ArrayList<>();
+
+	/**
+	 * @return An estimation of the size of this result in memory in bytes.
+	 */
+	@JsonIgnore
+	int getWeight() {
+
+		return (int) Math.min(Integer.MAX_VALUE, 64 + CachedMessage.getWeight(this.messages));
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.base.Preconditions;
+
+import de.vdi.vdi2770.processor.common.ContainerType;
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A {@link Report} including its sub reports as stored by the
+ * {@link ValidationCache}. All messages are kept regardless of the log
+ * threshold of the report.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+@NoArgsConstructor
+class CachedReport {
+
+	private String fileName;
+
+	private String fileHash;
+
+	private ContainerType containerType;
+
+	private List<CachedMessage> messages = new ArrayList<>();
+
+	private List<String> skippedEntries = new ArrayList<>();
+
+	private long skippedEntryCount;
+
+	private List<CachedReport> subReports = new ArrayList<>();
+
+	/**
+	 * Create a snapshot of a {@link Report}.
+	 * 
+	 * @param report A {@link Report}; must not be <code>null</code>.
+	 * @return The snapshot.
+	 */
+	static CachedReport of(final Report report) {
+
+		Preconditions.checkArgument(report != null, "report is null");
+
+		final CachedReport result = new CachedReport();
+		result.fileName = report.getFileName();
+		result.fileHash = report.getFileHash();
+		result.containerType = report.getContainerType();
+		result.messages = CachedMessage.of(report.filter(MessageLevel.INFO, false, false));
+		result.skippedEntries = new ArrayList<>(report.getSkippedEntries());
+		result.skippedEntryCount = report.getSkippedEntryCount();
+		report.getSubReports().forEach(r -> result.subReports.add(of(r)));
+
+		return result;
+	}
+
+	/**
+	 * Create a new {@link Report} from this snapshot.
+	 * 
+	 * @param locale         The {@link Locale} of the report; must not be
+	 *                       <code>null</code>.
+	 * @param fileName       The name of the validated file; must not be
+	 *                       <code>null</code>.
+	 * @param minReportLevel The logging threshold of the report and its sub
+	 *                       reports.
+	 * @param enableFileHash Enable file hashes.
+	 * @param listener       A {@link ReportListener} that receives the messages
+	 *                       and sub reports (may be <code>null</code>).
+	 * @param retainMessages Keep the messages in the report.
+	 * @return A new {@link Report} instance.
+	 */
+	Report restore(final Locale locale, final String fileName, final MessageLevel minReportLevel,
+			final boolean enableFileHash, final ReportListener listener,
+			final boolean retainMessages) {
+
+		final Report result = new Report(locale, fileName, minReportLevel, enableFileHash,
+				this.fileHash);
+		if (listener != null) {
+			result.setListener(listener, retainMessages);
+		}
+		restore(result, locale, minReportLevel, enableFileHash);
+
+		return result;
+	}
+
+	private void restore(final Report result, final Locale locale,
+			final MessageLevel minReportLevel, final boolean enableFileHash) {
+
+		result.setContainerType(this.containerType);
+		result.addMessages(CachedMessage.restore(this.messages));
+		result.setSkippedEntries(this.skippedEntries, this.skippedEntryCount);
+
+		// sub reports are added before their messages, so that a listener receives
+		// them in the same order as during the validation
+		for (final CachedReport cached : this.subReports) {
+			final Report sub = new Report(locale, cached.fileName, minReportLevel,
+					enableFileHash, cached.fileHash);
+			result.addSubReport(sub);
+			cached.restore(sub, locale, minReportLevel, enableFileHash);
+		}
+	}
+
+	/**
+	 * @return An estimation of the size of this snapshot in memory in bytes.
+	 */
+	@JsonIgnore
+	int getWeight() {
+
+		long weight = 64 + CachedMessage.getWeight(this.messages);
+		weight += this.skippedEntries.stream().mapToLong(e -> 40 + 2L * e.length()).sum();
+		weight += this.subReports.stream().mapToLong(CachedReport::getWeight).sum();
+
+		return (int) Math.min(Integer.MAX_VALUE, weight);
+	}
+
+	/**
+	 * A {@link Message} of a cached result.
+	 */
+	@Data
+	@NoArgsConstructor
+	static class CachedMessage {
+
+		private MessageLevel level;
+
+		private String text;
+
+		private int indent;
+
+		static List<CachedMessage> of(final List<Message> messages) {
+
+			final List<CachedMessage> result = new ArrayList<>(messages.size());
+			for (final Message message : messages) {
+				final CachedMessage cached = new CachedMessage();
+				cached.level = message.getLevel();
+				cached.text = message.getText();
+				cached.indent = message.getIndent();
+				result.add(cached);
+			}
+			return result;
+		}
+
+		static List<Message> restore(final List<CachedMessage> messages) {
+
+			final List<Message> result = new ArrayList<>(messages.size());
+			for (final CachedMessage message : messages) {
+				result.add(new Message(message.level, message.text, message.indent));
+			}
+			return result;
+		}
+
+		static long getWeight(final List<CachedMessage> messages) {
+
+			return messages.stream()
+					.mapToLong(m -> 48 + (m.text != null ? 2L * m.text.length() : 0)).sum();
+		}
+	}
+}
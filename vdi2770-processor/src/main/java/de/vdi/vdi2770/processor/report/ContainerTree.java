@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A snapshot of an extracted container.
+ * 
+ * <p>
+ * The tree is scanned once after the extraction of a container. It stores the
+ * names, sizes and types of all files and folders as well as their parent and
+ * child relations. The checks of a validation query the snapshot instead of
+ * the file system. Changes of the file system after the scan are not visible.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContainerTree {
+
+	/**
+	 * A file or folder of a {@link ContainerTree}.
+	 */
+	@Getter
+	public static class Node {
+
+		/**
+		 * The file or folder.
+		 */
+		private final File file;
+
+		/**
+		 * The size of the file in bytes; 0 for folders.
+		 */
+		private final long size;
+
+		/**
+		 * <code>true</code>, if the node is a folder.
+		 */
+		private final boolean directory;
+
+		/**
+		 * The parent folder or <code>null</code> for the root node.
+		 */
+		private final Node parent;
+
+		private final List<Node> children;
+
+		@Getter(AccessLevel.NONE)
+		private List<File> childFiles = Collections.emptyList();
+
+		private Node(final File file, final long size, final boolean directory,
+				final Node parent) {
+			this.file = file;
+			this.size = size;
+			this.directory = directory;
+			this.parent = parent;
+			this.children = directory ? new ArrayList<>() : Collections.emptyList();
+		}
+
+		/**
+		 * @return The name of the file or folder.
+		 */
+		public String getName() {
+			return this.file.getName();
+		}
+
+		/**
+		 * @return The files and folders in the folder ordered by name; empty for
+		 *         files.
+		 */
+		public List<Node> getChildren() {
+			return Collections.unmodifiableList(this.children);
+		}
+
+		private void seal() {
+			if (!this.directory) {
+				return;
+			}
+			this.children.sort((a, b) -> a.file.compareTo(b.file));
+			final List<File> files = new ArrayList<>(this.children.size());
+			for (final Node child : this.children) {
+				files.add(child.file);
+			}
+			this.childFiles = Collections.unmodifiableList(files);
+		}
+	}
+
+	/**
+	 * The root folder of the tree.
+	 */
+	@Getter
+	private final Node root;
+
+	private final Path rootPath;
+
+	private final Map<Path, Node> nodes;
+
+	private ContainerTree(final Node root, final Path rootPath, final Map<Path, Node> nodes) {
+		this.root = root;
+		this.rootPath = rootPath;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Scan a folder and its sub folders.
+	 * 
+	 * @param folder An existing folder; must not be <code>null</code>.
+	 * @return The snapshot of the folder.
+	 * @throws IOException The folder could not be scanned.
+	 */
+	public static ContainerTree scan(final File folder) throws IOException {
+
+		Preconditions.checkArgument(folder != null, "folder is null");
+		Preconditions.checkArgument(folder.isDirectory(), "folder is not a directory");
+
+		final Map<Path, Node> nodes = new HashMap<>();
+		final Path rootPath = toKey(folder);
+		final Node root = new Node(folder, 0, true, null);
+		nodes.put(rootPath, root);
+
+		Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(final Path dir,
+					final BasicFileAttributes attrs) {
+				if (!dir.equals(rootPath)) {
+					add(dir, attrs);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+				add(file, attrs);
+				return FileVisitResult.CONTINUE;
+			}
+
+			private void add(final Path path, final BasicFileAttributes attrs) {
+				final Node parent = nodes.get(path.getParent());
+				final Node node = new Node(new File(parent.file, path.getFileName().toString()),
+						attrs.isDirectory() ? 0 : attrs.size(), attrs.isDirectory(), parent);
+				parent.children.add(node);
+				nodes.put(path, node);
+			}
+		});
+
+		for (final Node node : nodes.values()) {
+			node.seal();
+		}
+
+		return new ContainerTree(root, rootPath, nodes);
+	}
+
+	private static Path toKey(final File file) {
+		return file.getAbsoluteFile().toPath().normalize();
+	}
+
+	/**
+	 * @return The number of files and folders in the tree including the root
+	 *         folder.
+	 */
+	public int size() {
+		return this.nodes.size();
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is the root folder or is located in
+	 *         it.
+	 */
+	public boolean contains(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		return toKey(file).startsWith(this.rootPath);
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return The node of the file or <code>null</code>, if the file is not part
+	 *         of the tree.
+	 */
+	public Node get(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		return this.nodes.get(toKey(file));
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file or folder is part of the tree. Names
+	 *         are compared case sensitive.
+	 */
+	public boolean exists(final File file) {
+		return get(file) != null;
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is a folder of the tree.
+	 */
+	public boolean isDirectory(final File file) {
+		final Node node = get(file);
+		return node != null && node.directory;
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return The size of the file in bytes; 0, if the file is a folder or not
+	 *         part of the tree.
+	 */
+	public long length(final File file) {
+		final Node node = get(file);
+		return node != null ? node.size : 0;
+	}
+
+	/**
+	 * List the content of a folder.
+	 * 
+	 * @param folder A folder; must not be <code>null</code>.
+	 * @return The files and folders in the folder ordered by name or
+	 *         <code>null</code>, if the folder is not part of the tree.
+	 */
+	public List<File> listFiles(final File folder) {
+		final Node node = get(folder);
+		if (node == null || !node.directory) {
+			return null;
+		}
+		return node.childFiles;
+	}
+
+	/**
+	 * Find all files with a given extension in a folder and its sub folders.
+	 * 
+	 * @param folder    A folder; must not be <code>null</code>.
+	 * @param extension A file extension without a leading dot, e.g.
+	 *                  <code>xml</code>; must not be empty.
+	 * @return The files ordered by path; empty, if the folder is not part of the
+	 *         tree.
+	 */
+	public List<File> findFiles(final File folder, final String extension) {
+
+		Preconditions.checkArgument(extension != null && !extension.isEmpty(),
+				"extension is null or empty");
+
+		final List<File> result = new ArrayList<>();
+		final Node node = get(folder);
+		if (node != null && node.directory) {
+			collect(node, "." + extension, result);
+		}
+		return result;
+	}
+
+	private static void collect(final Node folder, final String suffix, final List<File> result) {
+		for (final Node child : folder.children) {
+			if (child.directory) {
+				collect(child, suffix, result);
+			} else if (child.getName().endsWith(suffix)) {
+				result.add(child.file);
+			}
+		}
+	}
+}
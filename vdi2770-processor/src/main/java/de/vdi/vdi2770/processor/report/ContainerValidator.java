@@ -22,7 +22,6 @@
 package de.vdi.vdi2770.processor.report;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,16 +29,27 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.tika.Tika;
 
 import de.vdi.vdi2770.metadata.MetadataException;
 import de.vdi.vdi2770.metadata.model.Constants;
@@ -49,20 +59,17 @@ import de.vdi.vdi2770.metadata.model.DocumentClassification;
 import de.vdi.vdi2770.metadata.model.DocumentId;
 import de.vdi.vdi2770.metadata.model.DocumentRelationship;
 import de.vdi.vdi2770.metadata.model.DocumentVersion;
-import de.vdi.vdi2770.metadata.model.MainDocument;
 import de.vdi.vdi2770.metadata.common.Fault;
 import de.vdi.vdi2770.metadata.common.FaultLevel;
 import de.vdi.vdi2770.metadata.model.ObjectId;
 import de.vdi.vdi2770.metadata.model.ValidationFault;
 import de.vdi.vdi2770.metadata.xml.FileNames;
 import de.vdi.vdi2770.metadata.xml.XmlProcessingException;
-import de.vdi.vdi2770.metadata.xml.XmlReader;
 import de.vdi.vdi2770.metadata.xml.XmlValidationFault;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 
 import de.vdi.vdi2770.processor.ProcessorException;
 import de.vdi.vdi2770.processor.common.Check;
@@ -70,9 +77,14 @@ import de.vdi.vdi2770.processor.common.ContainerType;
 import de.vdi.vdi2770.processor.common.Message;
 import de.vdi.vdi2770.processor.common.MessageLevel;
 import de.vdi.vdi2770.processor.common.ProcessorConfiguration;
-import de.vdi.vdi2770.processor.pdf.PdfValidationException;
+import de.vdi.vdi2770.processor.common.Workspace;
+import de.vdi.vdi2770.processor.common.WorkspaceQuotaExceededException;
 import de.vdi.vdi2770.processor.pdf.PdfValidator;
+import de.vdi.vdi2770.processor.report.CachedReport.CachedMessage;
+import de.vdi.vdi2770.processor.report.ValidationProgress.Stage;
+import de.vdi.vdi2770.processor.zip.ExtractionBudget;
 import de.vdi.vdi2770.processor.zip.ZipFault;
+import de.vdi.vdi2770.processor.zip.ZipLimitExceededException;
 import de.vdi.vdi2770.processor.zip.ZipUtils;
 import lombok.extern.log4j.Log4j2;
 
@@ -97,6 +109,38 @@ public class ContainerValidator {
 	private final Locale locale;
 	private boolean isStrictMode;
 
+	private final AtomicInteger analysedPdfFiles = new AtomicInteger();
+
+	// sibling sub containers are validated concurrently
+	private final ForkJoinPool pool;
+
+	// results of containers and sub containers by content (optional)
+	private volatile ValidationCache cache;
+
+	// the checks to perform
+	private volatile ValidationProfile profile = ValidationProfile.FULL;
+
+	// the limits of a validation
+	private volatile ValidationBudget budget;
+
+	// receives the messages of a validation (optional)
+	private volatile ReportListener reportListener;
+
+	private volatile boolean retainMessages = true;
+
+	// record the time spent in the validation steps
+	private volatile boolean timingEnabled = false;
+
+	// the workers of the default pool use the class loader of the processor, e.g.
+	// to find the JAXB implementation in a Spring Boot application
+	private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool(
+			Runtime.getRuntime().availableProcessors(), p -> {
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+						.newThread(p);
+				thread.setContextClassLoader(ContainerValidator.class.getClassLoader());
+				return thread;
+			}, null, false);
+
 	/**
 	 * ctor
 	 * 
@@ -110,18 +154,166 @@ public class ContainerValidator {
 	/**
 	 * ctor
 	 * 
+	 * <p>
+	 * Sub containers are validated by a shared pool with one thread per
+	 * processor.
+	 * </p>
+	 * 
 	 * @param isStrictMode Enable or disable strict validation.
 	 * @param locale       Desired {@link Locale} for validation messages; must not
 	 *                     be <code>null</code>.
 	 */
 	public ContainerValidator(final Locale locale, final boolean isStrictMode) {
+		this(locale, isStrictMode, DEFAULT_POOL);
+	}
+
+	/**
+	 * ctor
+	 * 
+	 * <p>
+	 * Sibling sub containers are validated as tasks of the given pool. Each task
+	 * writes into its own sub {@link Report}, so the order of messages does not
+	 * depend on the number of threads. A pool with a parallelism of 1 validates
+	 * the sub containers one after another.
+	 * </p>
+	 * 
+	 * @param isStrictMode Enable or disable strict validation.
+	 * @param locale       Desired {@link Locale} for validation messages; must not
+	 *                     be <code>null</code>.
+	 * @param pool         A {@link ForkJoinPool} to validate sub containers; must
+	 *                     not be <code>null</code>.
+	 */
+	public ContainerValidator(final Locale locale, final boolean isStrictMode,
+			final ForkJoinPool pool) {
 		super();
 
 		Preconditions.checkArgument(locale != null);
+		Preconditions.checkArgument(pool != null, "pool is null");
 
 		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
 		this.locale = (Locale) locale.clone();
 		this.isStrictMode = isStrictMode;
+		this.pool = pool;
+		this.budget = ValidationBudget.fromConfiguration(locale);
+	}
+
+	/**
+	 * Set a cache for validation results. If a cache is set, the reports of
+	 * containers and the validation of the content of sub containers with the
+	 * same content are taken from the cache.
+	 * 
+	 * @param cache A {@link ValidationCache} or <code>null</code> to disable
+	 *              caching.
+	 */
+	public void setCache(final ValidationCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @return The {@link ValidationCache} or <code>null</code>, if no cache is
+	 *         used.
+	 */
+	public ValidationCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Set the checks to perform. The default profile is
+	 * {@link ValidationProfile#FULL}. If checks are skipped, the report of every
+	 * container contains a message.
+	 * 
+	 * @param profile A {@link ValidationProfile}; must not be <code>null</code>.
+	 */
+	public void setProfile(final ValidationProfile profile) {
+
+		Preconditions.checkArgument(profile != null, "profile is null");
+
+		this.profile = profile;
+	}
+
+	/**
+	 * @return The {@link ValidationProfile} of this validator.
+	 */
+	public ValidationProfile getProfile() {
+		return this.profile;
+	}
+
+	/**
+	 * Set the limits of a validation. The default limits are defined in the
+	 * application properties (see {@link ValidationBudget#fromConfiguration(Locale)}).
+	 * If a limit is exceeded, the validation is aborted and an incomplete report is
+	 * returned. Incomplete reports are not cached.
+	 * 
+	 * @param budget A {@link ValidationBudget}; must not be <code>null</code>.
+	 */
+	public void setBudget(final ValidationBudget budget) {
+
+		Preconditions.checkArgument(budget != null, "budget is null");
+
+		this.budget = budget;
+	}
+
+	/**
+	 * @return The {@link ValidationBudget} of this validator.
+	 */
+	public ValidationBudget getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Set a listener that receives the messages and sub reports of every
+	 * container validation as soon as they are added (see
+	 * {@link Report#setListener(ReportListener, boolean)}). Reports taken from
+	 * the {@link ValidationCache} are passed to the listener, too.
+	 * 
+	 * @param listener       A {@link ReportListener} or <code>null</code> to
+	 *                       remove the listener.
+	 * @param retainMessages If <code>false</code>, the returned reports do not
+	 *                       contain messages and are not cached.
+	 */
+	public void setReportListener(final ReportListener listener, final boolean retainMessages) {
+
+		Preconditions.checkArgument(listener != null || retainMessages,
+				"messages must be retained without listener");
+
+		this.reportListener = listener;
+		this.retainMessages = retainMessages;
+	}
+
+	/**
+	 * @return The {@link ReportListener} or <code>null</code>, if no listener is
+	 *         set.
+	 */
+	public ReportListener getReportListener() {
+		return this.reportListener;
+	}
+
+	/**
+	 * @return <code>true</code>, if the returned reports contain the messages
+	 *         (see {@link #setReportListener(ReportListener, boolean)}).
+	 */
+	boolean isRetainingMessages() {
+		return this.retainMessages;
+	}
+
+	/**
+	 * Enable or disable the timing of the validation steps (see
+	 * {@link Report#getTimings()}). If enabled, validation results are not taken
+	 * from the {@link ValidationCache}.
+	 * 
+	 * @param timingEnabled <code>true</code> to record the time spent in the
+	 *                      validation steps of every report.
+	 */
+	public void setTimingEnabled(final boolean timingEnabled) {
+		this.timingEnabled = timingEnabled;
+	}
+
+	/**
+	 * @return <code>true</code>, if the time spent in the validation steps is
+	 *         recorded.
+	 */
+	public boolean isTimingEnabled() {
+		return this.timingEnabled;
 	}
 
 	/**
@@ -188,42 +380,252 @@ public class ContainerValidator {
 		Preconditions.checkArgument(zipFile != null, "file is null");
 		Preconditions.checkArgument(minReportLevel != null, "minReportLevel is null");
 
+		// the time limit starts before the container is extracted
+		return validate(zipFile, minReportLevel, enableFileHash,
+				new ValidationSession(this.locale, this.isStrictMode, this.budget));
+	}
+
+	/**
+	 * Validate ZIP container and pass the messages to an additional listener, e.g.
+	 * to collect the messages of a container if reports do not retain messages
+	 * (see {@link #setReportListener(ReportListener, boolean)}).
+	 *
+	 * @param zipFile         A ZIP {@link File}; must not be <code>null</code> and
+	 *                        must exist.
+	 * @param minReportLevel  The logging threshold.
+	 * @param enableFileHash  If <code>true</code>, the property
+	 *                        {@link Report#getFileHash()} will be set; otherwise
+	 *                        not.
+	 * @param messageListener A {@link ReportListener} for the messages of this
+	 *                        validation; must not be <code>null</code>.
+	 * @return A {@link Report} containing information and error {@link Message}s.
+	 * @throws ProcessorException Error while processing the container.
+	 * @throws MetadataException  Error reading XML metadata in the container.
+	 */
+	Report validate(final File zipFile, final MessageLevel minReportLevel,
+			final boolean enableFileHash, final ReportListener messageListener)
+			throws MetadataException, ProcessorException {
+
+		Preconditions.checkArgument(zipFile != null, "file is null");
+		Preconditions.checkArgument(minReportLevel != null, "minReportLevel is null");
+		Preconditions.checkArgument(messageListener != null, "messageListener is null");
+
+		final ValidationSession session = new ValidationSession(this.locale, this.isStrictMode,
+				this.budget);
+		session.setMessageListener(messageListener);
+		return validate(zipFile, minReportLevel, enableFileHash, session);
+	}
+
+	/**
+	 * Validate a ZIP container asynchronously.
+	 * 
+	 * <p>
+	 * The validation is cancelled, if the returned {@link CompletableFuture} is
+	 * cancelled. The extraction stops at the next entry or block of inflated
+	 * bytes, the validation stops before the next sub container or PDF file. The
+	 * validation settings of this instance must not be changed until the
+	 * validation has finished.
+	 * </p>
+	 * 
+	 * @param zipFile        A ZIP {@link File}; must not be <code>null</code> and
+	 *                       must exist.
+	 * @param minReportLevel The logging threshold.
+	 * @param enableFileHash If <code>true</code>, the property
+	 *                       {@link Report#getFileHash()} will be set; otherwise
+	 *                       not.
+	 * @param listener       A {@link ProgressListener} (may be <code>null</code>).
+	 * @param executor       The {@link Executor} that runs the validation; must not
+	 *                       be <code>null</code>.
+	 * @return A {@link CompletableFuture} of the {@link Report}. It completes
+	 *         exceptionally with a {@link ProcessorException} or
+	 *         {@link MetadataException}, if the validation fails.
+	 */
+	public CompletableFuture<Report> validateAsync(final File zipFile,
+			final MessageLevel minReportLevel, final boolean enableFileHash,
+			final ProgressListener listener, final Executor executor) {
+
+		Preconditions.checkArgument(zipFile != null, "file is null");
+		Preconditions.checkArgument(minReportLevel != null, "minReportLevel is null");
+		Preconditions.checkArgument(executor != null, "executor is null");
+
+		final AtomicReference<ValidationSession> running = new AtomicReference<>();
+		final CompletableFuture<Report> result = new CompletableFuture<Report>() {
+
+			@Override
+			public boolean cancel(final boolean mayInterruptIfRunning) {
+				final boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+				final ValidationSession session = running.get();
+				if (session != null) {
+					session.cancel();
+				}
+				return cancelled;
+			}
+		};
+
+		try {
+			executor.execute(() -> {
+				if (result.isDone()) {
+					return;
+				}
+
+				final ValidationSession session = new ValidationSession(this.locale,
+						this.isStrictMode, this.budget);
+				session.setProgressListener(listener);
+				running.set(session);
+
+				// cancelled while the session has been created
+				if (result.isCancelled()) {
+					session.cancel();
+					return;
+				}
+
+				try {
+					result.complete(validate(zipFile, minReportLevel, enableFileHash, session));
+				} catch (final ProcessorException | MetadataException | RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			result.completeExceptionally(e);
+		}
+
+		return result;
+	}
+
+	private Report validate(final File zipFile, final MessageLevel minReportLevel,
+			final boolean enableFileHash, final ValidationSession session)
+			throws MetadataException, ProcessorException {
+
 		Check check = new Check(this.locale);
 		check.fileExists(zipFile, "REP_EXCEPTION_001");
 		check.isZipFile(zipFile, "REP_EXCEPTION_002");
 
+		// containers with the same content are validated once
+		final ValidationCache validationCache = this.cache;
+		String key = null;
+		if (validationCache != null) {
+			try {
+				key = ValidationCache.getContainerKey(ValidationCache.hash(zipFile),
+						zipFile.getName(), this.locale, this.isStrictMode, this.profile,
+						enableFileHash);
+			} catch (final IOException e) {
+				log.warn("Can not hash file " + zipFile.getAbsolutePath(), e);
+			}
+		}
+
+		// timings are taken from a new validation
+		if (key != null && !this.timingEnabled) {
+			final CachedReport cached = validationCache.getReport(key);
+			if (cached != null) {
+				return cached.restore(this.locale, Report.fixFileName(zipFile), minReportLevel,
+						enableFileHash, getReportListener(session), this.retainMessages);
+			}
+		}
+
+		final Report report = validateContainer(zipFile, minReportLevel, enableFileHash,
+				session);
+
+		// incomplete reports are not cached
+		if (key != null && !session.isAborted() && report.isRetainingMessages()) {
+			validationCache.putReport(key, CachedReport.of(report));
+		}
+
+		return report;
+	}
+
+	/**
+	 * Get the listener of the reports of a validation: the listener of this
+	 * validator, the message listener of the session or both.
+	 */
+	private ReportListener getReportListener(final ValidationSession session) {
+
+		final ReportListener listener = this.reportListener;
+		final ReportListener messageListener = session.getMessageListener();
+		if (messageListener == null) {
+			return listener;
+		}
+		if (listener == null) {
+			return messageListener;
+		}
+
+		// the listener of this validator is shared by concurrent validations
+		return new ReportListener() {
+
+			@Override
+			public void messageAdded(final Report report, final Message message) {
+				synchronized (listener) {
+					listener.messageAdded(report, message);
+				}
+				messageListener.messageAdded(report, message);
+			}
+
+			@Override
+			public void subReportAdded(final Report parent, final Report subReport) {
+				synchronized (listener) {
+					listener.subReportAdded(parent, subReport);
+				}
+				messageListener.subReportAdded(parent, subReport);
+			}
+
+			@Override
+			public boolean isStopRequested() {
+				return listener.isStopRequested() || messageListener.isStopRequested();
+			}
+		};
+	}
+
+	private Report validateContainer(final File zipFile, final MessageLevel minReportLevel,
+			final boolean enableFileHash, final ValidationSession session)
+			throws MetadataException, ProcessorException {
+
 		final ZipUtils zip = new ZipUtils(this.locale);
 
 		final Report report = new Report(this.locale, zipFile, minReportLevel, enableFileHash);
+		final ReportListener listener = getReportListener(session);
+		if (listener != null) {
+			report.setListener(listener, this.retainMessages);
+		}
+		if (this.timingEnabled) {
+			report.enableTiming();
+		}
 
 		List<ZipFault> zipFaults = zip.validateZipFile(zipFile);
 		zipFaults.forEach(f -> report.addMessage(zipFaultToMessage(f, 0)));
 
-		if (report.hasErrors()) {
+		if (report.getErrorCount() > 0) {
 			log.info("Found ZIP validation errors.");
 			return report;
 		}
 
-		// unzip the first level ZIP file
-		final Path tmpPath = zip.unzipToTemperaryFolder(zipFile, true, report);
-		final File tmpDir = tmpPath.toFile();
-		if (log.isDebugEnabled()) {
-			log.debug("Temp Path Created: " + tmpDir.getParentFile().getAbsolutePath());
-		}
-		tmpDir.deleteOnExit();
-
-		Report result = validateUnzippedContainer(tmpDir, report);
-
-		try {
+		// unzip the first level ZIP file into a workspace that is deleted afterwards;
+		// only the XML metadata, referenced files and nested containers are extracted
+		try (Workspace workspace = new Workspace(this.locale)) {
+			final Path tmpPath;
+			try {
+				final ExtractionBudget extractionBudget = ExtractionBudget
+						.fromConfiguration(this.locale);
+				extractionBudget.setDeadline(session.getDeadline());
+				extractionBudget.setCancellation(session::isCancelled);
+				extractionBudget.setProgressListener(session.getProgressListener());
+				// nested containers are hashed only to look up cached results
+				extractionBudget.setContainerHashing(this.cache != null);
+				tmpPath = zip.unzip(zipFile, workspace, true, true, report, extractionBudget);
+			} catch (final ZipLimitExceededException | WorkspaceQuotaExceededException e) {
+				// extraction has been aborted; report the exceeded limit
+				report.addMessage(new Message(MessageLevel.ERROR, e.getMessage()));
+				if (session.checkBudget(report)) {
+					reportAborted(report, session);
+				}
+				return report;
+			}
 			if (log.isDebugEnabled()) {
-				log.debug("Delete Temp Path: " + tmpDir.getParentFile().getAbsolutePath());
+				log.debug("Workspace Path: " + tmpPath + " (" + workspace.getFilesInUse()
+						+ " files, " + workspace.getBytesInUse() + " bytes)");
 			}
-			FileUtils.deleteDirectory(tmpDir.getParentFile());
-		} catch (final IOException e) {
-			log.warn("Can not delete dir " + tmpDir.getParentFile().getAbsolutePath(), e);
-		}
 
-		return result;
+			return validateUnzippedContainer(tmpPath.toFile(), report, session);
+		}
 	}
 
 	/**
@@ -239,36 +641,118 @@ public class ContainerValidator {
 	public Report validateUnzippedContainer(final File folder, final Report report)
 			throws MetadataException, ProcessorException {
 
+		// every XML file is parsed once; the results are used by all validation steps
+		return validateUnzippedContainer(folder, report,
+				new ValidationSession(this.locale, this.isStrictMode, this.budget));
+	}
+
+	/**
+	 * Validate the content of a container file that has been extracted to a folder
+	 * using an existing {@link ValidationSession}.
+	 * 
+	 * @param folder  The folder that contains the extracted content; must not be
+	 *                <code>null</code> and the folder must exist
+	 * @param report  A {@link Report} instance
+	 * @param session The {@link ValidationSession} that holds the parsed XML files;
+	 *                must not be <code>null</code>.
+	 * @return A {@link Report} for this folder
+	 * @throws MetadataException  An error occurred reading XML meta data
+	 * @throws ProcessorException There was an error while processing the folder
+	 */
+	public Report validateUnzippedContainer(final File folder, final Report report,
+			final ValidationSession session) throws MetadataException, ProcessorException {
+
 		Preconditions.checkArgument(folder != null, "folder is null");
 		Preconditions.checkArgument(report != null, "report is null");
+		Preconditions.checkArgument(session != null, "session is null");
 
 		Check check = new Check(this.locale);
 		check.fileExists(folder, "REP_EXCEPTION_001");
 		check.isDirectory(folder, "REP_EXCEPTION_003");
 
-		final Collection<File> xmlFiles = FileUtils.listFiles(folder, new String[] { "xml" }, true);
-
-		final XmlReader reader = new XmlReader(this.locale);
-
-		// filter to meta data XML files
-		final List<File> metaDataFiles = xmlFiles.stream().filter(f -> reader.isMetadataFile(f))
-				.collect(Collectors.toList());
+		// the extracted content is scanned once; all checks query the snapshot
+		ContainerTree tree = session.getTree(folder);
+		if (tree == null) {
+			try {
+				tree = ContainerTree.scan(folder);
+				session.addTree(tree);
+			} catch (final IOException e) {
+				log.warn("Could not scan folder " + folder.getName(), e);
+			}
+		}
+		final Collection<File> xmlFiles = tree != null ? tree.findFiles(folder, "xml")
+				: FileUtils.listFiles(folder, new String[] { "xml" }, true);
+
+		// filter to meta data XML files; every file is read once in a session
+		final Path basePath = folder.toPath();
+		final List<File> metaDataFiles = new ArrayList<>();
+		for (final File xmlFile : xmlFiles) {
+			final boolean isRead = session.getParseCount(xmlFile) > 0;
+			final long start = System.nanoTime();
+			if (session.isMetadataFile(xmlFile)) {
+				metaDataFiles.add(xmlFile);
+			}
+			if (!isRead) {
+				report.recordTiming(StageTiming.Stage.XML_VALIDATION,
+						FilenameUtils.separatorsToUnix(basePath.relativize(xmlFile.toPath())
+								.toString()),
+						System.nanoTime() - start, session.length(xmlFile));
+			}
+		}
 
 		final Map<File, Document> documents = new HashMap<>();
 		for (File metaDataFile : metaDataFiles) {
 			// read the document
-			final Document document = reader.tryRead(metaDataFile);
+			final Document document = session.getDocument(metaDataFile);
 			if (document != null) {
 				documents.put(metaDataFile, document);
 			}
 		}
 
+		session.setDocumentCount(documents.size());
+
 		// process the file in the ZIP
-		process(folder, report, null, documents, 0);
+		process(folder, report, null, documents, 0, session);
+
+		reportAborted(report, session);
 
 		return report;
 	}
 
+	private void reportAborted(final Report report, final ValidationSession session) {
+
+		final ValidationBudget.Limit limit = session.getExceededLimit();
+		if (limit == null) {
+			return;
+		}
+
+		final ValidationBudget validationBudget = session.getBudget();
+		final String label;
+		final long value;
+		switch (limit) {
+		case TIME:
+			label = this.bundle.getString("REP_LABEL_BUDGET_TIME");
+			value = validationBudget.getMaxTime();
+			break;
+		case MESSAGES:
+			label = this.bundle.getString("REP_LABEL_BUDGET_MESSAGES");
+			value = validationBudget.getMaxMessages();
+			break;
+		case ERRORS:
+			label = this.bundle.getString("REP_LABEL_BUDGET_ERRORS");
+			value = validationBudget.getMaxErrors();
+			break;
+		default:
+			label = this.bundle.getString("REP_LABEL_BUDGET_FILES");
+			value = validationBudget.getMaxFiles();
+			break;
+		}
+
+		log.info("Validation aborted, limit exceeded: " + limit);
+		report.addMessage(new Message(MessageLevel.ERROR, MessageFormat
+				.format(this.bundle.getString("REP_MESSAGE_050"), label, Long.valueOf(value))));
+	}
+
 	private void validateObjectRelations(final Document current, final Document parent,
 			final Report report, final int indentLevel) {
 
@@ -305,16 +789,17 @@ public class ContainerValidator {
 	}
 
 	private void validateDocumentRelations(final File dir, final Report report,
-			final Map<File, Document> documents, final int indentLevel) {
+			final Map<File, Document> documents, final int indentLevel,
+			final ValidationSession session) {
 
 		Preconditions.checkArgument(documents != null, "documents is null");
 		Preconditions.checkArgument(dir != null, "dir is null");
 		Preconditions.checkArgument(report != null, "report is null");
 
 		File current = new File(dir, FileNames.MAIN_DOCUMENT_XML_FILE_NAME);
-		if (!current.exists()) {
+		if (!session.exists(current)) {
 			current = new File(dir, FileNames.METADATA_XML_FILE_NAME);
-			if (!current.exists()) {
+			if (!session.exists(current)) {
 				log.warn("No XML meta data file found. Can not validate");
 				return;
 			}
@@ -380,7 +865,8 @@ public class ContainerValidator {
 	}
 
 	private File getMetadataFile(final List<File> files, final ContainerType type,
-			final Report report, final int indentLevel) throws ProcessorException {
+			final Report report, final int indentLevel, final ValidationSession session)
+			throws ProcessorException {
 
 		Preconditions.checkArgument(files != null, "files is null");
 		Preconditions.checkArgument(type != null, "type is null");
@@ -388,15 +874,15 @@ public class ContainerValidator {
 
 		final Optional<File> metadataFile;
 
-		final XmlReader reader = new XmlReader(this.locale);
-
 		if (type.equals(ContainerType.DOCUMENT_CONTAINER)) {
 
-			metadataFile = files.stream().filter(f -> reader.isMetadataFileForDocument(f))
+			metadataFile = files.stream()
+					.filter(f -> isFileNamed(f, FileNames.METADATA_XML_FILE_NAME, session))
 					.findFirst();
 		} else {
 
-			metadataFile = files.stream().filter(f -> reader.isMetadataFileForMainDocument(f))
+			metadataFile = files.stream()
+					.filter(f -> isFileNamed(f, FileNames.MAIN_DOCUMENT_XML_FILE_NAME, session))
 					.findFirst();
 		}
 
@@ -427,8 +913,8 @@ public class ContainerValidator {
 	}
 
 	private void process(final File folder, final Report report, final Document parentDocument,
-			final Map<File, Document> allKnownDocuments, final int indentLevel)
-			throws ProcessorException, MetadataException {
+			final Map<File, Document> allKnownDocuments, final int indentLevel,
+			final ValidationSession session) throws ProcessorException, MetadataException {
 
 		Preconditions.checkArgument(folder != null, "folder is null");
 		Preconditions.checkArgument(report != null, "report is null");
@@ -437,8 +923,13 @@ public class ContainerValidator {
 		Check check = new Check(this.locale);
 		check.isDirectory(folder, "REP_EXCEPTION_003");
 
+		// the limits are checked before every step
+		if (session.checkBudget(report)) {
+			return;
+		}
+
 		// list files in folder
-		final File[] files = folder.listFiles();
+		final List<File> files = session.listFiles(folder);
 
 		// no files in folder
 		if (files == null) {
@@ -449,6 +940,142 @@ public class ContainerValidator {
 			return;
 		}
 
+		final List<File> filesInFolder = files.stream().filter(f -> !session.isDirectory(f))
+				.collect(Collectors.toList());
+
+		// the content of the folder is validated independently of the enclosing
+		// container
+		final CachedFolder content = validateContent(folder, files, filesInFolder, report,
+				indentLevel, session);
+		if (content.isFinished()) {
+			return;
+		}
+
+		session.documentValidated(report.getFileName());
+		if (session.checkBudget(report)) {
+			return;
+		}
+
+		final File vdiXmlFile = new File(folder, content.getMetadataFileName());
+		final ContainerType type = content.getContainerType();
+
+		final Document currentDocument = allKnownDocuments.get(vdiXmlFile);
+
+		final boolean validateRelations = this.profile.isRelationValidation();
+
+		// validate relations between objects
+		if (validateRelations) {
+			final long start = System.nanoTime();
+			validateObjectRelations(currentDocument, parentDocument, report, indentLevel);
+			report.recordTiming(StageTiming.Stage.RELATIONS, null, System.nanoTime() - start, 0);
+		}
+
+		if (validateRelations && parentDocument != null && currentDocument != null
+				&& currentDocument.getDocumentId().size() > 0) {
+
+			String target = this.bundle.getString("MD_LABEL_D");
+			if (currentDocument.isMainDocument()) {
+				target = this.bundle.getString("MD_LABEL_MD");
+			}
+
+			// main documents shall be referenced by higher level main documents
+			if (!isKnownByParent(currentDocument, parentDocument)) {
+				report.addMessage(new Message(MessageLevel.ERROR,
+						MessageFormat.format(this.bundle.getString("REP_MESSAGE_029"), target,
+								currentDocument.getDocumentId().get(0).getAsText())));
+			} else {
+				report.addMessage(new Message(MessageLevel.INFO,
+						MessageFormat.format(this.bundle.getString("REP_MESSAGE_030"), target,
+								currentDocument.getDocumentId().get(0).getAsText())));
+			}
+		}
+
+		// only process other ZIP files, if the container is documentation
+		// container file
+		// if strict mode is disabled, try to process ZIP files although the ZIP
+		// file may not be a file container
+		if (session.checkBudget(report)) {
+			return;
+		}
+
+		if (type == ContainerType.DOCUMENTATION_CONTAINER || (!this.isStrictMode && type == null)) {
+
+			// check VDI2770_Main.pdf file
+			validateMainDocumentPdf(folder, report, indentLevel, session);
+
+			// search for other ZIP files
+			final List<File> zipFiles = filesInFolder.stream().filter(f -> isZipFile(f, session))
+					.collect(Collectors.toList());
+
+			// process other ZIP files that were included in the container
+			processEmbeddedZipFiles(folder, zipFiles, report, currentDocument, allKnownDocuments,
+					indentLevel + 1, session);
+		}
+
+		// validate relations between documents after all sub containers have been
+		// processed
+		if (validateRelations && !session.checkBudget(report)) {
+			final long start = System.nanoTime();
+			validateDocumentRelations(folder, report, allKnownDocuments, indentLevel, session);
+			report.recordTiming(StageTiming.Stage.RELATIONS, null, System.nanoTime() - start, 0);
+		}
+
+		// report warning, if ZIP file is not a container file
+		// remark: a ZIP file may be a valid attachment in the container
+		if (this.isStrictMode && type == null) {
+			report.addMessage(new Message(MessageLevel.WARN,
+					this.bundle.getString("REP_MESSAGE_034"), indentLevel));
+		}
+	}
+
+	private CachedFolder validateContent(final File folder, final List<File> files,
+			final List<File> filesInFolder, final Report report, final int indentLevel,
+			final ValidationSession session) {
+
+		// the report of the whole container is cached, only sub containers are cached
+		// separately; messages that are not retained can not be cached and timings
+		// are taken from a new validation; the content of a sub container is known
+		// by the hash of its ZIP file, which is taken once while extracting
+		final ValidationCache validationCache = this.cache;
+		if (validationCache == null || indentLevel == 0 || !report.isRetainingMessages()
+				|| report.isTimingEnabled() || report.getContainerHash() == null) {
+			return validateFolder(folder, files, filesInFolder, report, indentLevel, session);
+		}
+
+		final String key = ValidationCache.getSubContainerKey(report.getContainerHash(),
+				this.locale, this.isStrictMode, this.profile, indentLevel,
+				report.getSkippedEntries(), report.getSkippedEntryCount());
+
+		final CachedFolder cached = validationCache.getSubContainer(key);
+		if (cached != null) {
+			report.setContainerType(cached.getContainerType());
+			report.addMessages(CachedMessage.restore(cached.getMessages()));
+			return cached;
+		}
+
+		final int firstMessage = report.filter(MessageLevel.INFO, false, false).size();
+		final CachedFolder result = validateFolder(folder, files, filesInFolder, report,
+				indentLevel, session);
+
+		// the validation may be incomplete
+		if (session.isAborted()) {
+			return result;
+		}
+
+		final List<Message> messages = report.filter(MessageLevel.INFO, false, false);
+		result.setMessages(CachedMessage.of(messages.subList(firstMessage, messages.size())));
+		validationCache.putSubContainer(key, result);
+
+		return result;
+	}
+
+	private CachedFolder validateFolder(final File folder, final List<File> files,
+			final List<File> filesInFolder, final Report report, final int indentLevel,
+			final ValidationSession session) {
+
+		final CachedFolder result = new CachedFolder();
+		result.setFinished(true);
+
 		// add strict mode enabled / disabled to report
 		if (this.isStrictMode) {
 			report.addMessage(new Message(this.bundle.getString("REP_MESSAGE_036"), indentLevel));
@@ -456,28 +1083,22 @@ public class ContainerValidator {
 			report.addMessage(new Message(this.bundle.getString("REP_MESSAGE_037"), indentLevel));
 		}
 
-		// convert to array to support streams and so on
-		final List<File> filesInFolder = Lists.newArrayList(files).stream()
-				.filter(f -> !f.isDirectory()).collect(Collectors.toList());
-		for (final File file : filesInFolder) {
-			// remove the files, because they are unzipped into a temporary folder
-			file.deleteOnExit();
-		}
+		reportProfile(report, indentLevel);
 
 		// output the XML metadata file name
-		reportExistingVdiXmlFile(folder, report, indentLevel);
+		reportExistingVdiXmlFile(folder, report, indentLevel, session);
 
 		File vdiXmlFile = null;
-		ContainerType type = null;
 		try {
-			type = getContainerType(filesInFolder);
+			final ContainerType type = getContainerType(filesInFolder, session);
+			result.setContainerType(type);
 			report.setContainerType(type);
 			report.addMessage(new Message(
 					MessageFormat.format(this.bundle.getString("REP_MESSAGE_003"), type),
 					indentLevel));
 
 			// try to find XML meta data file
-			vdiXmlFile = getMetadataFile(filesInFolder, type, report, indentLevel);
+			vdiXmlFile = getMetadataFile(filesInFolder, type, report, indentLevel, session);
 
 		} catch (final ProcessorException ex) {
 			report.addMessage(new Message(MessageLevel.ERROR, ex.getMessage(), indentLevel));
@@ -485,33 +1106,30 @@ public class ContainerValidator {
 			// finish validation in strict mode, because neither VDI2770_Main.xml nor
 			// VDI2770_Metadata.xml has been found
 			if (this.isStrictMode) {
-				return;
+				return result;
 			}
 
 			// if strict mode is disabled, we try to read XML files that are named
 			// differently
-			final File[] xmlFiles = folder.listFiles(new FilenameFilter() {
-				@Override
-				public boolean accept(final File dir, final String name) {
-					return name.toLowerCase().endsWith(".xml");
-				}
-			});
+			final List<File> xmlFiles = files.stream()
+					.filter(f -> f.getName().toLowerCase().endsWith(".xml"))
+					.collect(Collectors.toList());
 
 			// no XML files found
-			if (xmlFiles == null || xmlFiles.length == 0) {
-				return;
+			if (xmlFiles.isEmpty()) {
+				return result;
 			}
 
 			// more than one XML file found
 			// report as warning
-			if (xmlFiles.length > 1) {
+			if (xmlFiles.size() > 1) {
 				report.addMessage(
 						new Message(this.bundle.getString("REP_MESSAGE_033"), indentLevel));
-				return;
+				return result;
 			}
 
 			// try the first XML file for processing
-			vdiXmlFile = xmlFiles[0];
+			vdiXmlFile = xmlFiles.get(0);
 		}
 
 		// process only, if file found try to parse sub container although this error
@@ -521,85 +1139,47 @@ public class ContainerValidator {
 					this.bundle.getString("REP_MESSAGE_005"), vdiXmlFile.getName()), indentLevel));
 
 			// process and validate the XML file
-			validateAndReportVdiXmlFile(vdiXmlFile, report, indentLevel);
+			validateAndReportVdiXmlFile(vdiXmlFile, report, indentLevel, true, session);
 		} else {
 			report.addMessage(new Message(MessageLevel.ERROR,
 					this.bundle.getString("REP_MESSAGE_026"), indentLevel));
-			return;
-		}
-
-		final Document currentDocument = allKnownDocuments.get(vdiXmlFile);
-
-		// validate relations between objects
-		validateObjectRelations(currentDocument, parentDocument, report, indentLevel);
-
-		if (parentDocument != null && currentDocument != null
-				&& currentDocument.getDocumentId().size() > 0) {
-
-			String target = this.bundle.getString("MD_LABEL_D");
-			if (currentDocument.isMainDocument()) {
-				target = this.bundle.getString("MD_LABEL_MD");
-			}
-
-			// main documents shall be referenced by higher level main documents
-			if (!isKnownByParent(currentDocument, parentDocument)) {
-				report.addMessage(new Message(MessageLevel.ERROR,
-						MessageFormat.format(this.bundle.getString("REP_MESSAGE_029"), target,
-								currentDocument.getDocumentId().get(0).getAsText())));
-			} else {
-				report.addMessage(new Message(MessageLevel.INFO,
-						MessageFormat.format(this.bundle.getString("REP_MESSAGE_030"), target,
-								currentDocument.getDocumentId().get(0).getAsText())));
-			}
+			return result;
 		}
 
-		// validate relations between documents
-		validateDocumentRelations(folder, report, allKnownDocuments, indentLevel);
+		result.setMetadataFileName(vdiXmlFile.getName());
+		result.setFinished(false);
 
-		// only process other ZIP files, if the container is documentation
-		// container file
-		// if strict mode is disabled, try to process ZIP files although the ZIP
-		// file may not be a file container
-		if (type == ContainerType.DOCUMENTATION_CONTAINER || (!this.isStrictMode && type == null)) {
-
-			// check VDI2770_Main.pdf file
-			validateMainDocumentPdf(folder, report, indentLevel);
+		return result;
+	}
 
-			// search for other ZIP files
-			final List<File> zipFiles = filesInFolder.stream().filter(f -> ZipUtils.isZipFile(f))
-					.collect(Collectors.toList());
+	private void reportExistingVdiXmlFile(final File folder, final Report report, int indentLevel,
+			final ValidationSession session) {
 
-			// process other ZIP files that were included in the container
-			processEmbeddedZipFiles(folder, zipFiles, report, currentDocument, allKnownDocuments,
-					indentLevel + 1);
-		}
+		Preconditions.checkArgument(folder != null, "folder is null");
+		Preconditions.checkArgument(report != null, "report is null");
 
-		// report warning, if ZIP file is not a container file
-		// remark: a ZIP file may be a valid attachment in the container
-		if (this.isStrictMode && type == null) {
-			report.addMessage(new Message(MessageLevel.WARN,
-					this.bundle.getString("REP_MESSAGE_034"), indentLevel));
+		// the names in the snapshot are compared case sensitive
+		if (!hasFile(folder, FileNames.MAIN_DOCUMENT_XML_FILE_NAME, session)
+				&& !hasFile(folder, FileNames.METADATA_XML_FILE_NAME, session)) {
+			report.addMessage(new Message(MessageLevel.ERROR,
+					this.bundle.getString("REP_MESSAGE_035"), indentLevel));
 		}
 	}
 
-	private void reportExistingVdiXmlFile(final File folder, final Report report, int indentLevel) {
+	private static boolean hasFile(final File folder, final String fileName,
+			final ValidationSession session) {
 
-		Preconditions.checkArgument(folder != null, "folder is null");
-		Preconditions.checkArgument(report != null, "report is null");
+		final File fileToCheck = new File(folder, fileName);
+		final ContainerTree tree = session.getTree(fileToCheck);
+		if (tree != null) {
+			return tree.exists(fileToCheck);
+		}
 
-		File fileToCheck = new File(folder, FileNames.MAIN_DOCUMENT_XML_FILE_NAME);
 		try {
-			if (!fileToCheck.exists() || !fileToCheck.getCanonicalPath()
-					.endsWith(FileNames.MAIN_DOCUMENT_XML_FILE_NAME)) {
-				fileToCheck = new File(folder, FileNames.METADATA_XML_FILE_NAME);
-				if (!fileToCheck.exists() || !fileToCheck.getCanonicalPath()
-						.endsWith(FileNames.METADATA_XML_FILE_NAME)) {
-					report.addMessage(new Message(MessageLevel.ERROR,
-							this.bundle.getString("REP_MESSAGE_035"), indentLevel));
-				}
-			}
-		} catch (final Exception e) {
+			return fileToCheck.exists() && fileToCheck.getCanonicalPath().endsWith(fileName);
+		} catch (final IOException e) {
 			log.warn("Error while checking XML metadata file", e);
+			return false;
 		}
 	}
 
@@ -612,30 +1192,38 @@ public class ContainerValidator {
 		return parentRelations.stream().anyMatch(current.getDocumentId()::contains);
 	}
 
+	private static boolean isZipFile(final File file, final ValidationSession session) {
+
+		try {
+			return session.getContentTypes().isZipFile(file);
+		} catch (final IOException e) {
+			log.error("Can not probe content type of file " + file.getName(), e);
+			return false;
+		}
+	}
+
 	private void validateMainDocumentPdf(final File folder, final Report report,
-			final int indentLevel) {
+			final int indentLevel, final ValidationSession session) {
 
 		final File mainPdfFile = new File(folder, FileNames.MAIN_DOCUMENT_PDF_FILE_NAME);
-		if (!mainPdfFile.exists()) {
+		if (!session.exists(mainPdfFile)) {
 			report.addMessage(new Message(MessageLevel.ERROR,
 					this.bundle.getString("REP_MESSAGE_025"), indentLevel));
 		}
 	}
 
-	private ContainerType getContainerType(final List<File> filesInContainer)
-			throws ProcessorException {
-
-		final XmlReader reader = new XmlReader(this.locale);
+	private ContainerType getContainerType(final List<File> filesInContainer,
+			final ValidationSession session) throws ProcessorException {
 
 		Preconditions.checkArgument(filesInContainer != null, "filesInContainer is null");
 
 		final ContainerType type;
-		if (filesInContainer.stream().filter(f -> reader.isMetadataFileForMainDocument(f))
-				.count() > 0) {
+		if (filesInContainer.stream()
+				.anyMatch(f -> isFileNamed(f, FileNames.MAIN_DOCUMENT_XML_FILE_NAME, session))) {
 			log.info("Processing a documentation container.");
 			type = ContainerType.DOCUMENTATION_CONTAINER;
-		} else if (filesInContainer.stream().filter(f -> reader.isMetadataFileForDocument(f))
-				.count() > 0) {
+		} else if (filesInContainer.stream()
+				.anyMatch(f -> isFileNamed(f, FileNames.METADATA_XML_FILE_NAME, session))) {
 			log.info("Processing a document container.");
 			type = ContainerType.DOCUMENT_CONTAINER;
 		} else {
@@ -645,22 +1233,120 @@ public class ContainerValidator {
 		return type;
 	}
 
+	/**
+	 * Check the name of a file without accessing the file system for files of the
+	 * extracted container.
+	 */
+	private static boolean isFileNamed(final File file, final String name,
+			final ValidationSession session) {
+		return name.equals(file.getName()) && !session.isDirectory(file);
+	}
+
 	private void processEmbeddedZipFiles(final File folder, final Collection<File> zipFiles,
 			final Report report, final Document parentDocument,
-			final Map<File, Document> allKnownDocuments, final int indentLevel)
-			throws ProcessorException, MetadataException {
+			final Map<File, Document> allKnownDocuments, final int indentLevel,
+			final ValidationSession session) throws ProcessorException, MetadataException {
 
 		Preconditions.checkArgument(allKnownDocuments != null, "allKnownDocuments is null");
 		Preconditions.checkArgument(folder != null, "folder is null");
 		Preconditions.checkArgument(zipFiles != null, "zipFiles null");
 		Preconditions.checkArgument(report != null, "report is null");
 
-		File[] directories = folder.listFiles(File::isDirectory);
-		if (directories != null && directories.length > 0) {
-			for (final File sub : directories) {
+		final List<File> files = session.listFiles(folder);
+		if (files == null) {
+			return;
+		}
+
+		// the sub reports are created in a fixed order before the sub containers are
+		// processed
+		final List<SubContainerTask> tasks = new ArrayList<>();
+		for (final File sub : files) {
+			if (session.isDirectory(sub)) {
+				tasks.add(new SubContainerTask(sub, report.getSubReport(sub), parentDocument,
+						allKnownDocuments, indentLevel + 1, session));
+			}
+		}
+
+		if (tasks.isEmpty()) {
+			return;
+		}
+
+		if (tasks.size() == 1) {
+			tasks.get(0).compute();
+		} else if (ForkJoinTask.inForkJoinPool()) {
+			ForkJoinTask.invokeAll(tasks);
+		} else {
+			this.pool.invoke(new RecursiveAction() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					ForkJoinTask.invokeAll(tasks);
+				}
+			});
+		}
+
+		// report the first failure in the order of the sub containers
+		for (final SubContainerTask task : tasks) {
+			task.rethrow();
+		}
+	}
+
+	/**
+	 * Validation of a sub container as task of a {@link ForkJoinPool}.
+	 */
+	private final class SubContainerTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File folder;
+
+		private final transient Report report;
+
+		private final transient Document parentDocument;
+
+		private final transient Map<File, Document> allKnownDocuments;
 
-				final Report subReport = report.getSubReport(sub);
-				process(sub, subReport, parentDocument, allKnownDocuments, indentLevel + 1);
+		private final int indentLevel;
+
+		private final transient ValidationSession session;
+
+		private ProcessorException processorException;
+
+		private MetadataException metadataException;
+
+		SubContainerTask(final File folder, final Report report, final Document parentDocument,
+				final Map<File, Document> allKnownDocuments, final int indentLevel,
+				final ValidationSession session) {
+			super();
+
+			this.folder = folder;
+			this.report = report;
+			this.parentDocument = parentDocument;
+			this.allKnownDocuments = allKnownDocuments;
+			this.indentLevel = indentLevel;
+			this.session = session;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				process(this.folder, this.report, this.parentDocument, this.allKnownDocuments,
+						this.indentLevel, this.session);
+			} catch (final ProcessorException e) {
+				this.processorException = e;
+			} catch (final MetadataException e) {
+				this.metadataException = e;
+			}
+		}
+
+		void rethrow() throws ProcessorException, MetadataException {
+			if (this.processorException != null) {
+				throw this.processorException;
+			}
+			if (this.metadataException != null) {
+				throw this.metadataException;
 			}
 		}
 	}
@@ -694,60 +1380,96 @@ public class ContainerValidator {
 		Preconditions.checkArgument(report != null, "report is null");
 		Preconditions.checkArgument(xmlFile.exists(), "xmlFile does not exist");
 
-		validateVdiXmlFile(xmlFile, report, indentLevel);
-		reportVdiXmlFile(xmlFile, report, indentLevel, checkFilesExist);
+		reportProfile(report, indentLevel);
+		validateAndReportVdiXmlFile(xmlFile, report, indentLevel, checkFilesExist,
+				new ValidationSession(this.locale, this.isStrictMode, this.budget));
+	}
+
+	private void reportProfile(final Report report, final int indentLevel) {
+
+		final ValidationProfile validationProfile = this.profile;
+
+		final List<String> skippedChecks = new ArrayList<>();
+		if (!validationProfile.isModelValidation()) {
+			skippedChecks.add(this.bundle.getString("REP_LABEL_MODEL"));
+		}
+		if (!validationProfile.isRelationValidation()) {
+			skippedChecks.add(this.bundle.getString("REP_LABEL_RELATIONS"));
+		}
+		if (!validationProfile.isContentTypeDetection()) {
+			skippedChecks.add(this.bundle.getString("REP_LABEL_CONTENT_TYPE"));
+		}
+		if (!validationProfile.isPdfAnalysis()) {
+			skippedChecks.add(this.bundle.getString("REP_LABEL_PDF"));
+		}
+
+		if (!skippedChecks.isEmpty()) {
+			report.addMessage(new Message(
+					MessageFormat.format(this.bundle.getString("REP_MESSAGE_049"),
+							validationProfile, String.join(", ", skippedChecks)),
+					indentLevel));
+		}
+	}
+
+	private void validateAndReportVdiXmlFile(final File xmlFile, final Report report,
+			final int indentLevel, boolean checkFilesExist, final ValidationSession session) {
+
+		validateVdiXmlFile(xmlFile, report, indentLevel, session);
+		reportVdiXmlFile(xmlFile, report, indentLevel, checkFilesExist, session);
 	}
 
 	private void reportVdiXmlFile(final File xmlFile, final Report report, final int indentLevel,
-			boolean checkFilesExist) {
+			boolean checkFilesExist, final ValidationSession session) {
 
 		Preconditions.checkArgument(xmlFile != null, "xml file is null");
 		Preconditions.checkArgument(report != null, "report is null");
 
-		final XmlReader reader = new XmlReader(this.locale);
+		// the file has already been read while validating the XML schema
+		final Document document = session.getDocument(xmlFile);
+		if (document == null) {
+			if (log.isInfoEnabled()) {
+				log.info("Error while XML validation of " + xmlFile.getAbsolutePath());
+			}
+			report.addMessage(
+					new Message(MessageLevel.ERROR, this.bundle.getString("REP_MESSAGE_039")));
+			return;
+		}
 
-		List<ValidationFault> faults = null;
 		try {
-			Document document = reader.read(xmlFile);
-			if (document.isMainDocument()) {
-				MainDocument main = new MainDocument(document);
-				faults = main.validate(this.locale, this.isStrictMode);
-			} else {
-				faults = document.validate(null, this.locale, this.isStrictMode);
+			if (this.profile.isModelValidation()) {
+				final long start = System.nanoTime();
+				final List<ValidationFault> faults = session.getModelFaults(xmlFile);
+				report.recordTiming(StageTiming.Stage.MODEL_VALIDATION, xmlFile.getName(),
+						System.nanoTime() - start, 0);
+
+				// add validation messages to report
+				faults.stream().forEach(f -> report.addMessage(new Message(f, indentLevel)));
 			}
 
-			// add validation messages to report
-			faults.stream().forEach(f -> report.addMessage(new Message(f, indentLevel)));
-
 			reportDocumentIds(document, report, indentLevel);
 			reportObjectIds(document, report, indentLevel);
 			reportClassifications(document, report, indentLevel);
 			reportRelationships(document, report, indentLevel);
 			if (checkFilesExist) {
 				reportStoredDocumentRepresentations(document, xmlFile.getParent(), report,
-						indentLevel);
+						indentLevel, session);
 			}
 
 		} catch (final ProcessorException e) {
 			report.addMessage(new Message(MessageLevel.ERROR, e.getMessage()));
-		} catch (final XmlProcessingException e) {
-			if (log.isInfoEnabled()) {
-				log.info("Error while XML validation", e);
-			}
-			report.addMessage(
-					new Message(MessageLevel.ERROR, this.bundle.getString("REP_MESSAGE_039")));
 		}
 	}
 
 	private void reportUnnecessaryFiles(final String basePath, final List<DigitalFile> storedFiles,
-			final Report report, final int indentLevel) throws ProcessorException {
+			final Report report, final int indentLevel, final ValidationSession session)
+			throws ProcessorException {
 
 		// check for additional files that are not specified in the XML
-		final File[] localFiles = new File(basePath).listFiles();
+		final List<File> localFiles = session.listFiles(new File(basePath));
 		if (localFiles != null) {
 			final ZipUtils zip = new ZipUtils(this.locale);
 			for (final File file : localFiles) {
-				if (!file.isDirectory() && !zip.isContainer(file, false)
+				if (!session.isDirectory(file) && !zip.isContainer(file, false)
 						&& !FileNames.isMetadataFile(file)) {
 
 					if (storedFiles.stream()
@@ -761,10 +1483,25 @@ public class ContainerValidator {
 				}
 			}
 		}
+
+		// entries that have not been extracted are known from the ZIP directory only
+		for (final String entryName : report.getSkippedEntries()) {
+			if (storedFiles.stream().noneMatch(f -> StringUtils.equals(f.getFileName(), entryName))) {
+				report.addMessage(new Message(MessageLevel.WARN, MessageFormat
+						.format(this.bundle.getString("REP_MESSAGE_006"), entryName), indentLevel));
+			}
+		}
+		final long furtherEntries = report.getSkippedEntryCount()
+				- report.getSkippedEntries().size();
+		if (furtherEntries > 0) {
+			report.addMessage(new Message(MessageLevel.WARN, MessageFormat.format(
+					this.bundle.getString("REP_MESSAGE_048"), Long.valueOf(furtherEntries)),
+					indentLevel));
+		}
 	}
 
 	private void reportMissingFiles(final String basePath, final List<DigitalFile> storedFiles,
-			final Report report, final int indentLevel) {
+			final Report report, final int indentLevel, final ValidationSession session) {
 
 		// look for files that are defined in the metadata but do not exist
 		for (final DigitalFile storedFile : storedFiles) {
@@ -772,7 +1509,7 @@ public class ContainerValidator {
 			final String fileName = storedFile.getFileName();
 			final File localFile = new File(basePath, fileName);
 
-			if (!localFile.exists()) {
+			if (!session.exists(localFile)) {
 				report.addMessage(new Message(MessageLevel.ERROR,
 						MessageFormat.format(this.bundle.getString("REP_MESSAGE_007"), fileName),
 						indentLevel));
@@ -785,7 +1522,10 @@ public class ContainerValidator {
 	}
 
 	private void reportPdf(final Document document, final String basePath,
-			final List<DigitalFile> storedFiles, final Report report, final int indentLevel) {
+			final List<DigitalFile> storedFiles, final Report report, final int indentLevel,
+			final ValidationSession session) {
+
+		final ValidationProfile validationProfile = this.profile;
 
 		// list of PDF files
 		// There may be more than one PDF file as digital file (attachment)
@@ -797,13 +1537,25 @@ public class ContainerValidator {
 			final String fileName = storedFile.getFileName();
 			final File localFile = new File(basePath, fileName);
 
-			if (localFile.exists()) {
+			if (session.exists(localFile)) {
+
+				// stop analysing files, if a limit has been exceeded
+				if (session.checkBudget(report) || ((validationProfile.isContentTypeDetection()
+						|| validationProfile.isPdfAnalysis()) && !session.countFile())) {
+					break;
+				}
 
 				// check and report mime type compared to declared mime type in the XML
-				reportContentType(storedFile, localFile, report, indentLevel);
+				if (validationProfile.isContentTypeDetection()) {
+					reportContentType(storedFile, localFile, report, indentLevel, session);
+				}
+
+				if (!validationProfile.isPdfAnalysis()) {
+					continue;
+				}
 
 				try {
-					if (PdfValidator.isPdfFile(localFile)) {
+					if (session.getContentTypes().isPdfFile(localFile)) {
 						pdfFiles.add(localFile);
 					}
 				} catch (final IOException e) {
@@ -826,17 +1578,27 @@ public class ContainerValidator {
 				.count() == 0;
 		
 		// only one PDF file found.  
-		if (pdfFiles.size() == 1) {
-			report.addMessages(validatePdfFile(pdfFiles.get(0), allowPdfAaOnly, indentLevel));
+		if (pdfFiles.size() == 1 && !session.checkBudget(report)) {
+			session.fireProgress(Stage.PDF_ANALYSIS, pdfFiles.get(0).getName(), 1, 1);
+			report.addMessages(
+					validatePdfFile(pdfFiles.get(0), allowPdfAaOnly, false, indentLevel, report,
+							session));
 		}
 
 		// there is more than one PDF file
 		if (pdfFiles.size() > 1) {
 
-			Map<File, List<Message>> pdfFileStatus = new HashMap<>();
+			// keep the order of the metadata, so that reports are reproducible
+			Map<File, List<Message>> pdfFileStatus = new LinkedHashMap<>();
 			boolean validPdfFound = false;
 			for (File pdfFile : pdfFiles) {
-				List<Message> pdfFaults = validatePdfFile(pdfFile, allowPdfAaOnly, indentLevel);
+				if (session.checkBudget(report)) {
+					break;
+				}
+				session.fireProgress(Stage.PDF_ANALYSIS, pdfFile.getName(),
+						pdfFileStatus.size() + 1, pdfFiles.size());
+				List<Message> pdfFaults = validatePdfFile(pdfFile, allowPdfAaOnly, false,
+						indentLevel, report, session);
 				pdfFileStatus.put(pdfFile, pdfFaults);
 				if (!Message.hasErrors(pdfFaults)) {
 					validPdfFound = true;
@@ -851,7 +1613,8 @@ public class ContainerValidator {
 					} else {
 						// report errors as information (validate the PDF file again)
 						report.addMessages(
-								validatePdfFile(status.getKey(), allowPdfAaOnly, true, indentLevel));
+								validatePdfFile(status.getKey(), allowPdfAaOnly, true, indentLevel,
+										report, session));
 					}
 				}
 			} else {
@@ -865,7 +1628,8 @@ public class ContainerValidator {
 	}
 
 	private void reportStoredDocumentRepresentations(final Document document, final String basePath,
-			final Report report, final int indentLevel) throws ProcessorException {
+			final Report report, final int indentLevel, final ValidationSession session)
+			throws ProcessorException {
 
 		Preconditions.checkArgument(document != null, "document is null");
 		Preconditions.checkArgument(!Strings.isNullOrEmpty(basePath), "basepath is null or empty");
@@ -876,15 +1640,15 @@ public class ContainerValidator {
 				.map(v -> v.getDigitalFile()).flatMap(d -> d.stream()).collect(Collectors.toList());
 
 		// report files that are located in the ZIP but not declared in the XML file
-		reportUnnecessaryFiles(basePath, storedFiles, report, indentLevel);
+		reportUnnecessaryFiles(basePath, storedFiles, report, indentLevel, session);
 
 		// report files that are declared in the XML file but are not contained in the
 		// ZIP file
-		reportMissingFiles(basePath, storedFiles, report, indentLevel);
+		reportMissingFiles(basePath, storedFiles, report, indentLevel, session);
 
 		// additional report for PDF(/A) files
 		// More than one PDF file may exist
-		reportPdf(document, basePath, storedFiles, report, indentLevel);
+		reportPdf(document, basePath, storedFiles, report, indentLevel, session);
 	}
 
 	private static boolean mimeTypeContainsParameter(final String mimeType) {
@@ -927,7 +1691,7 @@ public class ContainerValidator {
 	}
 
 	private void reportContentType(final DigitalFile storedFile, final File localFile,
-			final Report report, final int indentLevel) {
+			final Report report, final int indentLevel, final ValidationSession session) {
 
 		Preconditions.checkArgument(storedFile != null, "stored file is null");
 		Preconditions.checkArgument(localFile != null, "local file is null");
@@ -938,8 +1702,10 @@ public class ContainerValidator {
 			final String contentType = storedFile.getFileFormat();
 			if (contentType != null) {
 
-				final Tika tika = new Tika();
-				final String detectedMimeType = tika.detect(localFile);
+				final long start = System.nanoTime();
+				final String detectedMimeType = session.getContentTypes().detect(localFile);
+				report.recordTiming(StageTiming.Stage.CONTENT_TYPE, localFile.getName(),
+						System.nanoTime() - start, localFile.length());
 
 				if (!mimeTypeEquals(contentType, detectedMimeType)) {
 					report.addMessage(new Message(MessageLevel.WARN,
@@ -981,7 +1747,7 @@ public class ContainerValidator {
 	 */
 	public List<Message> validatePdfFile(final File pdfFile, boolean isCertificateClass,
 			final int indentLevel) {
-		return validatePdfFile(pdfFile, isCertificateClass, false, indentLevel);
+		return validatePdfFile(pdfFile, isCertificateClass, false, indentLevel, null, null);
 	}
 
 	
@@ -1001,18 +1767,22 @@ public class ContainerValidator {
 	 * @param treatErrosAsInfo Report an information message instead of an error
 	 *                         message, if PDF/A conformance validation fails
 	 * @param indentLevel      Level of indent.
+	 * @param report           The {@link Report} that records the timings of the
+	 *                         analysis (may be <code>null</code>).
 	 * @return A {@link List} of {@link Message} including Information, warnings and
 	 *         errors.
 	 */
 	private List<Message> validatePdfFile(final File pdfFile, boolean allowPDFAaOnly,
-			boolean treatErrorsAsInfo, final int indentLevel) {
+			boolean treatErrorsAsInfo, final int indentLevel, final Report report,
+			final ValidationSession session) {
 
 		Preconditions.checkArgument(pdfFile != null, "pdfFile is null");
 		Preconditions.checkArgument(pdfFile.exists(), "pdfFile does not exist");
 		
 		final List<Message> messages = new ArrayList<>();
 
-		final PdfValidator pdfValidator = new PdfValidator(this.locale, this.isStrictMode);
+		// the analysis is shared by all PDF files with the same content
+		final PdfAnalysis analysis = analysePdfFile(pdfFile, report, session);
 
 		String pdfVersion = "";
 		
@@ -1026,9 +1796,9 @@ public class ContainerValidator {
 		}
 
 		// read and check PDF/A conformance level
-		try {
+		if (analysis.pdfVersion != null) {
 
-			pdfVersion = pdfValidator.getPdfAVersion(pdfFile);
+			pdfVersion = analysis.pdfVersion;
 			messages.add(new Message(MessageFormat.format(this.bundle.getString("REP_MESSAGE_015"),
 					pdfFile.getName(), pdfVersion), indentLevel));
 
@@ -1037,22 +1807,19 @@ public class ContainerValidator {
 						new Message(level, this.bundle.getString("REP_MESSAGE_038"), indentLevel));
 			}
 
-		} catch (final PdfValidationException e) {
+		} else {
 			// can not read PDF/A level. The given PDF file may not be a PDF/A file.
 			// Report information, if strict PDF validation is disabled
 			messages.add(new Message(
 					level, MessageFormat.format(this.bundle.getString("REP_MESSAGE_017"),
 							pdfFile.getName()),
 					indentLevel));
-			if (log.isWarnEnabled()) {
-				log.warn("Error reading PDF/A level", e.getMessage());
-			}
 		}
 
 		// PDF files shall not be encrypted
 		boolean isEncrypted = false;
-		try {
-			isEncrypted = pdfValidator.isEncrypted(pdfFile);
+		if (analysis.encryptionError == null) {
+			isEncrypted = analysis.isEncrypted;
 			if (isEncrypted) {
 				messages.add(new Message(treatErrorsAsInfo ? MessageLevel.INFO : MessageLevel.ERROR,
 						MessageFormat.format(this.bundle.getString("REP_MESSAGE_040"),
@@ -1062,18 +1829,17 @@ public class ContainerValidator {
 				messages.add(new Message(MessageLevel.INFO, MessageFormat.format(
 						this.bundle.getString("REP_MESSAGE_041"), pdfFile.getName()), indentLevel));
 			}
-		} catch (final IOException e) {
+		} else {
 			messages.add(new Message(MessageLevel.ERROR,
 					MessageFormat.format(this.bundle.getString("REP_MESSAGE_042"),
-							pdfFile.getName(), e.getMessage()),
+							pdfFile.getName(), analysis.encryptionError),
 					indentLevel));
 		}
 
 		// if not encrypted, try to extract text from PDF
 		if (!isEncrypted) {
-			try {
-				boolean hasText = pdfValidator.hasText(pdfFile);
-				if (hasText) {
+			if (!analysis.hasTextError) {
+				if (analysis.hasText) {
 					messages.add(new Message(MessageLevel.INFO, MessageFormat
 							.format(this.bundle.getString("REP_MESSAGE_043"), pdfFile.getName()),
 							indentLevel));
@@ -1086,12 +1852,7 @@ public class ContainerValidator {
 											pdfFile.getName()),
 									indentLevel));
 				}
-			} catch (final IOException e) {
-
-				if (log.isWarnEnabled()) {
-					log.warn("Can not extract text from file " + pdfFile.getAbsolutePath(), e);
-				}
-
+			} else {
 				messages.add(new Message(treatErrorsAsInfo ? MessageLevel.INFO : MessageLevel.ERROR,
 						MessageFormat.format(this.bundle.getString("REP_MESSAGE_045"),
 								pdfFile.getName()),
@@ -1100,10 +1861,10 @@ public class ContainerValidator {
 
 			if (pdfVersion.contains("A")) {
 
-				// try to execute preflight in case the PDF file is a PDF/A file
+				// preflight in case the PDF file is a PDF/A file
 				// only PDF/A1a and PDF/A-1b are supported at the moment
-				try {
-					final List<Message> validationMessages = pdfValidator.preflight(pdfFile);
+				if (analysis.preflight != null) {
+					final List<Message> validationMessages = analysis.preflight;
 
 					if (Message.filter(validationMessages, MessageLevel.WARN).size() > 0) {
 						messages.add(new Message(MessageLevel.WARN,
@@ -1114,7 +1875,7 @@ public class ContainerValidator {
 
 					for (final Message m : validationMessages) {
 						if (m.getLevel() == MessageLevel.INFO) {
-							messages.add(m);
+							messages.add(new Message(m.getLevel(), m.getText(), m.getIndent()));
 						} else {
 							messages.add(new Message(m.getLevel(),
 									MessageFormat.format(this.bundle.getString("REP_MESSAGE_047"),
@@ -1122,10 +1883,7 @@ public class ContainerValidator {
 									indentLevel));
 						}
 					}
-				} catch (IOException e) {
-					if (log.isWarnEnabled()) {
-						log.warn("Error while PDF preflight", e);
-					}
+				} else {
 					messages.add(new Message(MessageLevel.ERROR, MessageFormat
 							.format(this.bundle.getString("REP_MESSAGE_046"), pdfFile.getName()),
 							indentLevel));
@@ -1136,6 +1894,34 @@ public class ContainerValidator {
 		return messages;
 	}
 
+	/**
+	 * Analyse a PDF file or get the analysis of a PDF file with the same content
+	 * and name from the {@link ValidationSession}. Timings are recorded for new
+	 * analyses only.
+	 */
+	private PdfAnalysis analysePdfFile(final File pdfFile, final Report report,
+			final ValidationSession session) {
+
+		final Function<File, PdfAnalysis> analyser = f -> {
+			this.analysedPdfFiles.incrementAndGet();
+			return new PdfAnalysis(f, new PdfValidator(this.locale, this.isStrictMode), report);
+		};
+
+		if (session == null) {
+			return analyser.apply(pdfFile);
+		}
+		return session.getPdfAnalysis(pdfFile, analyser);
+	}
+
+	/**
+	 * @return The number of PDF files that have been analysed by this validator.
+	 *         PDF files with the same content and name are analysed only once.
+	 */
+	@VisibleForTesting
+	int getAnalysedPdfFiles() {
+		return this.analysedPdfFiles.get();
+	}
+
 	private void reportRelationships(final Document document, final Report report,
 			final int indentLevel) {
 
@@ -1274,14 +2060,25 @@ public class ContainerValidator {
 	 */
 	public void validateVdiXmlFile(final File xmlFile, final Report report, final int indentLevel) {
 
+		validateVdiXmlFile(xmlFile, report, indentLevel,
+				new ValidationSession(this.locale, this.isStrictMode));
+	}
+
+	private void validateVdiXmlFile(final File xmlFile, final Report report, final int indentLevel,
+			final ValidationSession session) {
+
 		Preconditions.checkArgument(xmlFile != null, "xmlFile is null");
 		Preconditions.checkArgument(report != null, "report is null");
 
-		final XmlReader reader = new XmlReader(this.locale);
-
 		try {
 
-			final List<XmlValidationFault> errors = reader.validate(xmlFile);
+			final boolean isRead = session.getParseCount(xmlFile) > 0;
+			final long start = System.nanoTime();
+			final List<XmlValidationFault> errors = session.getFaults(xmlFile);
+			if (!isRead) {
+				report.recordTiming(StageTiming.Stage.XML_VALIDATION, xmlFile.getName(),
+						System.nanoTime() - start, xmlFile.length());
+			}
 			if (!Fault.hasWarnings(errors)) {
 				report.addMessage(
 						new Message(this.bundle.getString("REP_MESSAGE_020"), indentLevel));
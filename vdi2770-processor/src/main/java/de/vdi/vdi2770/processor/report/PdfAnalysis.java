@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.pdf.PdfValidationException;
+import de.vdi.vdi2770.processor.pdf.PdfValidator;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Results of the {@link PdfValidator} for a PDF file. Messages are created
+ * from the results for every PDF file with the same content.
+ * 
+ * <p>
+ * Analyses are shared by the PDF files of one {@link ValidationSession} only
+ * (see {@link ValidationSession#getPdfAnalysis(File, java.util.function.Function)}).
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+class PdfAnalysis {
+
+	/**
+	 * The PDF/A version or <code>null</code>, if the version can not be read.
+	 */
+	String pdfVersion;
+
+	boolean isEncrypted = false;
+
+	/**
+	 * The error while reading the encryption or <code>null</code>.
+	 */
+	String encryptionError;
+
+	boolean hasText = false;
+
+	boolean hasTextError = false;
+
+	/**
+	 * The preflight messages or <code>null</code>, if the preflight failed.
+	 */
+	List<Message> preflight = new ArrayList<>();
+
+	PdfAnalysis(final File pdfFile, final PdfValidator pdfValidator, final Report report) {
+
+		final long size = pdfFile.length();
+
+		long start = System.nanoTime();
+		try {
+			this.pdfVersion = pdfValidator.getPdfAVersion(pdfFile);
+		} catch (final PdfValidationException e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Error reading PDF/A level", e.getMessage());
+			}
+		}
+
+		try {
+			this.isEncrypted = pdfValidator.isEncrypted(pdfFile);
+		} catch (final IOException e) {
+			this.encryptionError = e.getMessage();
+		}
+		recordTiming(report, StageTiming.Stage.PDF_LOAD, pdfFile, start, size);
+
+		if (this.isEncrypted) {
+			return;
+		}
+
+		start = System.nanoTime();
+		try {
+			this.hasText = pdfValidator.hasText(pdfFile);
+		} catch (final IOException e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Can not extract text from file " + pdfFile.getAbsolutePath(), e);
+			}
+			this.hasTextError = true;
+		}
+		recordTiming(report, StageTiming.Stage.PDF_TEXT, pdfFile, start, size);
+
+		if (this.pdfVersion != null && this.pdfVersion.contains("A")) {
+			start = System.nanoTime();
+			try {
+				this.preflight = Collections
+						.unmodifiableList(pdfValidator.preflight(pdfFile));
+			} catch (final IOException e) {
+				if (log.isWarnEnabled()) {
+					log.warn("Error while PDF preflight", e);
+				}
+				this.preflight = null;
+			}
+			recordTiming(report, StageTiming.Stage.PDF_PREFLIGHT, pdfFile, start, size);
+		}
+	}
+
+	private static void recordTiming(final Report report, final StageTiming.Stage stage,
+			final File pdfFile, final long start, final long size) {
+		if (report != null) {
+			report.recordTiming(stage, pdfFile.getName(), System.nanoTime() - start, size);
+		}
+	}
+}
@@ -27,6 +27,7 @@ import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
@@ -38,6 +39,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.RandomStringGenerator;
 import org.apache.logging.log4j.util.Strings;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.Hashing;
 
@@ -72,6 +75,12 @@ import static org.apache.commons.text.CharacterPredicates.LETTERS;
 @Log4j2
 public class Report {
 
+	/**
+	 * Maximum number of skipped entry names kept by a report (see
+	 * {@link #addSkippedEntry(String)}).
+	 */
+	public static final int MAX_SKIPPED_ENTRIES = 1000;
+
 	@Getter(value = AccessLevel.NONE)
 	@Setter(value = AccessLevel.NONE)
 	private final ResourceBundle bundle;
@@ -112,6 +121,106 @@ public class Report {
 	@Setter(value = AccessLevel.NONE)
 	private final boolean enableFileHash;
 
+	/**
+	 * Names of container entries that have not been extracted, because they are
+	 * not referenced by the XML metadata (see {@link #addSkippedEntry(String)}).
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	private final List<String> skippedEntries = new ArrayList<>();
+
+	/**
+	 * Number of container entries that have not been extracted. Only the first
+	 * {@link #MAX_SKIPPED_ENTRIES} names are kept in {@link #skippedEntries}.
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	private long skippedEntryCount = 0;
+
+	/**
+	 * An optional listener that receives messages and sub reports as soon as they
+	 * are added.
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private transient ReportListener listener;
+
+	/**
+	 * If <code>false</code>, messages are passed to the {@link #listener} only.
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private boolean retainMessages = true;
+
+	/**
+	 * Number of added messages, including messages that are not retained.
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private int messageCount = 0;
+
+	/**
+	 * Number of added error messages, including messages that are not retained.
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private int errorCount = 0;
+
+	/**
+	 * The timings of the validation steps or <code>null</code>, if timing is
+	 * disabled (see {@link #enableTiming()}).
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private EnumMap<StageTiming.Stage, StageTiming> timings;
+
+	/**
+	 * The SHA-256 hash of the nested ZIP file of this report or <code>null</code>
+	 * (see {@link #setContainerHash(String)}).
+	 */
+	@Getter(value = AccessLevel.NONE)
+	@Setter(value = AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private String containerHash;
+
+	/**
+	 * Create a new {@link Report} instance from a cached validation result (see
+	 * {@link ValidationCache}). No file is read.
+	 * 
+	 * @param locale         Desired {@link Locale} for validation messages; must
+	 *                       not be <code>null</code>.
+	 * @param fileName       The name of the validated file; must not be
+	 *                       <code>null</code>.
+	 * @param minReportLevel A minimal logging level (as threshold)
+	 * @param enableFileHash Value for sub reports.
+	 * @param fileHash       The hash of the file (may be <code>null</code>).
+	 */
+	Report(final Locale locale, final String fileName, final MessageLevel minReportLevel,
+			final boolean enableFileHash, final String fileHash) {
+
+		Preconditions.checkArgument(locale != null);
+		Preconditions.checkArgument(fileName != null);
+		Preconditions.checkArgument(minReportLevel != null);
+
+		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
+		this.locale = (Locale) locale.clone();
+		this.fileName = fileName;
+		this.logThreshold = minReportLevel;
+		this.enableFileHash = enableFileHash;
+		this.fileHash = fileHash;
+	}
+
 	/**
 	 * Create a new {@link Report} instance that as sub report.
 	 * 
@@ -124,6 +233,9 @@ public class Report {
 
 		Report sub = new Report(this.locale, file, this.logThreshold, this.enableFileHash);
 		addSubReport(sub);
+		if (isTimingEnabled()) {
+			sub.enableTiming();
+		}
 
 		return sub;
 	}
@@ -153,7 +265,7 @@ public class Report {
 		return createSubReport(file);
 	}
 
-	private static String fixFileName(final File file) {
+	static String fixFileName(final File file) {
 
 		if (file.isDirectory()) {
 			return file.getName() + ".zip";
@@ -168,6 +280,87 @@ public class Report {
 		return fileName;
 	}
 
+	/**
+	 * Add the name of a container entry that has not been extracted.
+	 * 
+	 * @param entryName The name of the entry; must not be <code>null</code>.
+	 */
+	public void addSkippedEntry(final String entryName) {
+
+		Preconditions.checkArgument(entryName != null, "entryName is null");
+
+		// containers can have a huge number of entries; only the count of further
+		// entries is kept
+		if (this.skippedEntries.size() < MAX_SKIPPED_ENTRIES) {
+			this.skippedEntries.add(entryName);
+		}
+		this.skippedEntryCount++;
+	}
+
+	/**
+	 * Set the skipped entries of a cached validation result.
+	 * 
+	 * @param entryNames The names of the entries; must not be <code>null</code>.
+	 * @param count      The number of skipped entries.
+	 */
+	void setSkippedEntries(final List<String> entryNames, final long count) {
+
+		Preconditions.checkArgument(entryNames != null, "entryNames is null");
+
+		this.skippedEntries.clear();
+		this.skippedEntries.addAll(entryNames);
+		this.skippedEntryCount = count;
+	}
+
+	/**
+	 * Get the number of container entries that have not been extracted. It can be
+	 * larger than the size of {@link #getSkippedEntries()}.
+	 * 
+	 * @return The number of skipped entries.
+	 */
+	@JsonIgnore
+	public long getSkippedEntryCount() {
+
+		return this.skippedEntryCount;
+	}
+
+	/**
+	 * Set the SHA-256 hash of the ZIP file of a nested container. The hash is
+	 * taken once before the nested container is extracted and identifies the
+	 * content of the extracted folder (see {@link ValidationCache}).
+	 * 
+	 * @param containerHash The hash or <code>null</code>.
+	 */
+	public void setContainerHash(final String containerHash) {
+
+		this.containerHash = containerHash;
+	}
+
+	/**
+	 * Get the SHA-256 hash of the ZIP file of a nested container.
+	 * 
+	 * @return The hash or <code>null</code>, if the report does not belong to an
+	 *         extracted nested container.
+	 */
+	@JsonIgnore
+	public String getContainerHash() {
+
+		return this.containerHash;
+	}
+
+	/**
+	 * Get the names of container entries that have not been extracted, because
+	 * they are not referenced by the XML metadata. At most
+	 * {@link #MAX_SKIPPED_ENTRIES} names are returned.
+	 * 
+	 * @return A {@link List} of entry names; can be empty.
+	 */
+	@JsonIgnore
+	public List<String> getSkippedEntries() {
+
+		return Collections.unmodifiableList(this.skippedEntries);
+	}
+
 	/**
 	 * A a new sub-report for this {@link Report} instance.
 	 *
@@ -178,6 +371,128 @@ public class Report {
 		Preconditions.checkArgument(report != null, "report is null");
 
 		this.subReports.add(report);
+
+		final ReportListener reportListener = this.listener;
+		if (reportListener != null) {
+			report.setListener(reportListener, this.retainMessages);
+			synchronized (reportListener) {
+				reportListener.subReportAdded(this, report);
+			}
+		}
+	}
+
+	/**
+	 * Set a listener that receives the messages and sub reports of this report and
+	 * all sub reports as soon as they are added.
+	 * 
+	 * @param listener       A {@link ReportListener} or <code>null</code> to
+	 *                       remove the listener.
+	 * @param retainMessages If <code>false</code>, messages are passed to the
+	 *                       listener only and are not kept in this report, e.g. to
+	 *                       validate a large number of containers with little
+	 *                       memory. Validation results are not cached in this
+	 *                       case.
+	 */
+	public void setListener(final ReportListener listener, final boolean retainMessages) {
+
+		Preconditions.checkArgument(listener != null || retainMessages,
+				"messages must be retained without listener");
+
+		this.listener = listener;
+		this.retainMessages = retainMessages;
+		this.subReports.forEach(r -> r.setListener(listener, retainMessages));
+	}
+
+	/**
+	 * Record the time spent in the validation steps of this report and of sub
+	 * reports created afterwards (see {@link #getTimings()}).
+	 */
+	public synchronized void enableTiming() {
+
+		if (this.timings == null) {
+			this.timings = new EnumMap<>(StageTiming.Stage.class);
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, if the time spent in the validation steps is
+	 *         recorded.
+	 */
+	@JsonIgnore
+	public synchronized boolean isTimingEnabled() {
+		return this.timings != null;
+	}
+
+	/**
+	 * Add the time spent in a validation step. Nothing is recorded, if timing is
+	 * disabled.
+	 * 
+	 * @param stage         The validation step; must not be <code>null</code>.
+	 * @param fileName      The name of the processed file or <code>null</code>.
+	 * @param durationNanos The wall time in nanoseconds.
+	 * @param bytes         The number of processed bytes.
+	 */
+	public void recordTiming(final StageTiming.Stage stage, final String fileName,
+			final long durationNanos, final long bytes) {
+
+		Preconditions.checkArgument(stage != null, "stage is null");
+
+		final StageTiming timing;
+		synchronized (this) {
+			if (this.timings == null) {
+				return;
+			}
+			timing = this.timings.computeIfAbsent(stage, s -> new StageTiming(s, null));
+		}
+		timing.add(fileName, durationNanos, bytes);
+	}
+
+	/**
+	 * Get the time spent in the validation steps of this report. Sub reports are
+	 * not included.
+	 * 
+	 * @return The timings in the order of the {@link StageTiming.Stage}s; empty,
+	 *         if timing is disabled.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	public synchronized List<StageTiming> getTimings() {
+
+		if (this.timings == null) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<>(this.timings.values());
+	}
+
+	/**
+	 * @return <code>true</code>, if messages are kept in this report.
+	 */
+	boolean isRetainingMessages() {
+		return this.retainMessages;
+	}
+
+	/**
+	 * @return <code>true</code>, if the listener requests to stop the validation.
+	 */
+	boolean isStopRequested() {
+		final ReportListener reportListener = this.listener;
+		return reportListener != null && reportListener.isStopRequested();
+	}
+
+	/**
+	 * @return The number of added messages, including messages that are not
+	 *         retained.
+	 */
+	int getMessageCount() {
+		return this.messageCount;
+	}
+
+	/**
+	 * @return The number of added error messages, including messages that are not
+	 *         retained.
+	 */
+	int getErrorCount() {
+		return this.errorCount;
 	}
 
 	/**
@@ -210,7 +525,22 @@ public class Report {
 
 		Preconditions.checkArgument(message != null, "message is null or empty");
 
-		this.messages.add(message);
+		this.messageCount++;
+		if (message.getLevel() == MessageLevel.ERROR) {
+			this.errorCount++;
+		}
+
+		if (this.retainMessages) {
+			this.messages.add(message);
+		}
+
+		final ReportListener reportListener = this.listener;
+		if (reportListener != null
+				&& message.getLevel().numeric() >= this.logThreshold.numeric()) {
+			synchronized (reportListener) {
+				reportListener.messageAdded(this, message);
+			}
+		}
 	}
 
 	/**
@@ -223,7 +553,7 @@ public class Report {
 
 		Preconditions.checkArgument(messages != null, "messages is null");
 
-		this.messages.addAll(messages);
+		messages.forEach(this::addMessage);
 	}
 
 	/**
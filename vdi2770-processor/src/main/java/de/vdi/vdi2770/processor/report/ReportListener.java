@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import de.vdi.vdi2770.processor.common.Message;
+
+/**
+ * Receives the messages and sub reports of a {@link Report} as soon as they are
+ * added (see {@link Report#setListener(ReportListener, boolean)} and
+ * {@link ContainerValidator#setReportListener(ReportListener, boolean)}).
+ * 
+ * <p>
+ * The messages of a report are received in the order they are added; only
+ * messages that meet the log threshold of the report are received. Sub reports
+ * are validated concurrently, so messages of sibling sub reports may be
+ * interleaved. The calls are synchronized on the listener, i.e. they do not
+ * overlap.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public interface ReportListener {
+
+	/**
+	 * A message has been added to a report.
+	 * 
+	 * @param report  The {@link Report}.
+	 * @param message The added {@link Message}.
+	 */
+	void messageAdded(Report report, Message message);
+
+	/**
+	 * A sub report has been added to a report. The sub report uses the same
+	 * listener.
+	 * 
+	 * @param parent    The parent {@link Report}.
+	 * @param subReport The added sub {@link Report}.
+	 */
+	default void subReportAdded(final Report parent, final Report subReport) {
+		// nothing to do
+	}
+
+	/**
+	 * Request to stop the validation, e.g. after the first error. The validation
+	 * stops at the next step and returns an incomplete report.
+	 * 
+	 * @return <code>true</code>, if the validation shall be stopped.
+	 */
+	default boolean isStopRequested() {
+		return false;
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Preconditions;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The time spent in a step of a validation (see {@link Report#getTimings()}).
+ * 
+ * <p>
+ * A {@link StageTiming} of a {@link Report} sums up all files of a stage. Its
+ * children are the timings of the single files, e.g. of every PDF file that has
+ * been loaded. The timings are summed up per file name; only the
+ * {@link #MAX_FILES} slowest files are returned as children.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Getter
+@ToString
+public class StageTiming {
+
+	/**
+	 * Maximum number of files returned per stage (see {@link #getChildren()}).
+	 */
+	public static final int MAX_FILES = 100;
+
+	/**
+	 * The steps of a validation that are timed.
+	 */
+	public enum Stage {
+
+		/**
+		 * Extraction of the entries of a ZIP file.
+		 */
+		EXTRACTION,
+
+		/**
+		 * XML schema validation and reading of XML metadata files.
+		 */
+		XML_VALIDATION,
+
+		/**
+		 * Validation of the metadata model of XML metadata files.
+		 */
+		MODEL_VALIDATION,
+
+		/**
+		 * Validation of object and document relations.
+		 */
+		RELATIONS,
+
+		/**
+		 * Detection of the MIME type of document files.
+		 */
+		CONTENT_TYPE,
+
+		/**
+		 * Loading of PDF files to read the PDF/A level and the encryption.
+		 */
+		PDF_LOAD,
+
+		/**
+		 * Text extraction of PDF files.
+		 */
+		PDF_TEXT,
+
+		/**
+		 * PDF/A preflight of PDF files.
+		 */
+		PDF_PREFLIGHT
+	}
+
+	/**
+	 * The timed step.
+	 */
+	private final Stage stage;
+
+	/**
+	 * The name of the file or <code>null</code> for the sum of a stage.
+	 */
+	private final String name;
+
+	/**
+	 * The wall time in nanoseconds.
+	 */
+	private long durationNanos;
+
+	/**
+	 * The number of processed bytes.
+	 */
+	private long bytes;
+
+	/**
+	 * The number of files.
+	 */
+	private long files;
+
+	/**
+	 * The timings of the files by name.
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final Map<String, StageTiming> children = new HashMap<>();
+
+	/**
+	 * ctor
+	 * 
+	 * @param stage The timed step; must not be <code>null</code>.
+	 * @param name  The name of the file or <code>null</code> for the sum of a
+	 *              stage.
+	 */
+	public StageTiming(final Stage stage, final String name) {
+		super();
+
+		Preconditions.checkArgument(stage != null, "stage is null");
+
+		this.stage = stage;
+		this.name = name;
+	}
+
+	/**
+	 * @return The wall time in milliseconds.
+	 */
+	public long getDurationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(getDurationNanos());
+	}
+
+	/**
+	 * @return The wall time in nanoseconds.
+	 */
+	public synchronized long getDurationNanos() {
+		return this.durationNanos;
+	}
+
+	/**
+	 * @return The number of processed bytes.
+	 */
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * @return The number of files.
+	 */
+	public synchronized long getFiles() {
+		return this.files;
+	}
+
+	/**
+	 * Get the timings of the slowest files of this stage.
+	 * 
+	 * @return At most {@link #MAX_FILES} timings ordered by their duration; the
+	 *         slowest file first.
+	 */
+	public synchronized List<StageTiming> getChildren() {
+
+		return this.children.values().stream()
+				.sorted(Comparator.comparingLong(StageTiming::getDurationNanos).reversed())
+				.limit(MAX_FILES).collect(Collectors.toList());
+	}
+
+	/**
+	 * Add the time spent for a file or for a step without file.
+	 * 
+	 * @param fileName      The name of the file or <code>null</code>.
+	 * @param durationNanos The wall time in nanoseconds.
+	 * @param fileBytes     The number of processed bytes.
+	 */
+	synchronized void add(final String fileName, final long durationNanos,
+			final long fileBytes) {
+
+		this.durationNanos += durationNanos;
+		this.bytes += fileBytes;
+
+		if (fileName == null) {
+			return;
+		}
+
+		// every file is counted once, its samples are summed up
+		StageTiming child = this.children.get(fileName);
+		if (child == null) {
+			child = new StageTiming(this.stage, fileName);
+			child.files = 1;
+			this.children.put(fileName, child);
+			this.files++;
+		}
+		child.add(null, durationNanos, fileBytes);
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.util.Locale;
+
+import de.vdi.vdi2770.processor.common.ProcessorConfiguration;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Limits of a container validation (see
+ * {@link ContainerValidator#setBudget(ValidationBudget)}).
+ * 
+ * <p>
+ * The limits are checked cooperatively at the boundaries of the validation
+ * steps, e.g. before a sub container or a PDF file is validated. If a limit is
+ * exceeded, the validation is aborted and the incomplete {@link Report} is
+ * returned with an error message. A limit less or equal zero disables the
+ * check.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@ToString
+public class ValidationBudget {
+
+	/**
+	 * A budget without limits.
+	 */
+	public static final ValidationBudget UNLIMITED = new ValidationBudget(-1, -1, -1, -1);
+
+	/**
+	 * Maximum duration of a validation in milliseconds, including the extraction
+	 * of the container.
+	 */
+	@Getter
+	private final long maxTime;
+
+	/**
+	 * Maximum number of messages of a validation including all sub reports.
+	 */
+	@Getter
+	private final long maxMessages;
+
+	/**
+	 * Maximum number of error messages of a validation including all sub reports.
+	 */
+	@Getter
+	private final long maxErrors;
+
+	/**
+	 * Maximum number of files that are analysed, i.e. the files of the document
+	 * versions whose MIME type or PDF format is checked.
+	 */
+	@Getter
+	private final long maxFiles;
+
+	/**
+	 * ctor
+	 * 
+	 * @param maxTime     Maximum duration of a validation in milliseconds.
+	 * @param maxMessages Maximum number of messages.
+	 * @param maxErrors   Maximum number of error messages.
+	 * @param maxFiles    Maximum number of files that are analysed.
+	 */
+	public ValidationBudget(final long maxTime, final long maxMessages, final long maxErrors,
+			final long maxFiles) {
+		super();
+
+		this.maxTime = maxTime;
+		this.maxMessages = maxMessages;
+		this.maxErrors = maxErrors;
+		this.maxFiles = maxFiles;
+	}
+
+	/**
+	 * Create a budget with the limits defined in the application properties (see
+	 * {@link ProcessorConfiguration}).
+	 * 
+	 * @param locale Desired {@link Locale}; must not be <code>null</code>.
+	 * @return A new {@link ValidationBudget} instance.
+	 */
+	public static ValidationBudget fromConfiguration(final Locale locale) {
+
+		final ProcessorConfiguration config = ProcessorConfiguration.getInstance(locale);
+
+		return new ValidationBudget(config.getBudgetTime(), config.getBudgetMessages(),
+				config.getBudgetErrors(), config.getBudgetFiles());
+	}
+
+	/**
+	 * Check, whether any limit is enabled.
+	 * 
+	 * @return <code>true</code>, if at least one limit is greater than zero.
+	 */
+	public boolean isLimited() {
+		return this.maxTime > 0 || this.maxMessages > 0 || this.maxErrors > 0
+				|| this.maxFiles > 0;
+	}
+
+	/**
+	 * The limits of a {@link ValidationBudget}.
+	 */
+	public enum Limit {
+
+		/**
+		 * see {@link ValidationBudget#getMaxTime()}
+		 */
+		TIME,
+
+		/**
+		 * see {@link ValidationBudget#getMaxMessages()}
+		 */
+		MESSAGES,
+
+		/**
+		 * see {@link ValidationBudget#getMaxErrors()}
+		 */
+		ERRORS,
+
+		/**
+		 * see {@link ValidationBudget#getMaxFiles()}
+		 */
+		FILES
+	}
+}
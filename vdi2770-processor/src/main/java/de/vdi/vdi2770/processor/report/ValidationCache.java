@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import de.vdi.vdi2770.processor.common.ProcessorConfiguration;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * A cache of validation results by content.
+ * 
+ * <p>
+ * The report of a container is cached by the SHA-256 hash and the name of the
+ * container file, the validation settings, the version of the validator and the
+ * application properties. The validation of the content of a sub container
+ * (container type, XML metadata, referenced files and PDF files) is cached by
+ * the SHA-256 hash of the nested ZIP file and the entries skipped during
+ * extraction, so that the same sub container is not validated again in another
+ * documentation container. Relations to other
+ * documents are always validated.
+ * </p>
+ * 
+ * <p>
+ * The results are kept in memory up to a maximum size; the least recently used
+ * results are removed first. If a folder is given, the results are also stored
+ * as JSON files in this folder and are available after a restart. Files in the
+ * folder are not removed automatically; see {@link #clear()}.
+ * </p>
+ * 
+ * <p>
+ * A cache can be shared by multiple {@link ContainerValidator}s and threads.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ValidationCache {
+
+	// increase, if the cached data changes
+	private static final String FORMAT_VERSION = "1";
+
+	private static final String VERSION = MoreObjects.firstNonNull(
+			ValidationCache.class.getPackage().getImplementationVersion(), "development");
+
+	private static final String CONTAINER = "container";
+
+	private static final String SUB_CONTAINER = "subcontainer";
+
+	private final Cache<String, Object> memory;
+
+	private final boolean isMemoryEnabled;
+
+	private final File directory;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final AtomicLong containerHits = new AtomicLong();
+
+	private final AtomicLong containerMisses = new AtomicLong();
+
+	private final AtomicLong subContainerHits = new AtomicLong();
+
+	private final AtomicLong subContainerMisses = new AtomicLong();
+
+	private final AtomicLong diskHits = new AtomicLong();
+
+	/**
+	 * ctor
+	 * 
+	 * @param maxMemorySize Maximum size of the results in memory in bytes; if 0
+	 *                      or less, no results are kept in memory.
+	 */
+	public ValidationCache(final long maxMemorySize) {
+		this(maxMemorySize, null);
+	}
+
+	/**
+	 * ctor
+	 * 
+	 * @param maxMemorySize Maximum size of the results in memory in bytes; if 0
+	 *                      or less, no results are kept in memory.
+	 * @param directory     A folder to store the results; if <code>null</code>,
+	 *                      the results are not stored on disk.
+	 */
+	public ValidationCache(final long maxMemorySize, final File directory) {
+		super();
+
+		Preconditions.checkArgument(maxMemorySize > 0 || directory != null,
+				"neither memory nor directory");
+		Preconditions.checkArgument(directory == null || !directory.isFile(),
+				"directory is a file");
+
+		this.memory = CacheBuilder.newBuilder().maximumWeight(Math.max(0, maxMemorySize))
+				.weigher((final String k, final Object v) -> weigh(v)).recordStats().build();
+		this.isMemoryEnabled = maxMemorySize > 0;
+		this.directory = directory;
+	}
+
+	/**
+	 * Create a cache according to the application properties
+	 * <code>vdi2770.cache.memory</code> and <code>vdi2770.cache.directory</code>.
+	 * 
+	 * @param locale Desired {@link Locale} for messages; must not be
+	 *               <code>null</code>.
+	 * @return A new cache or <code>null</code>, if caching is disabled.
+	 */
+	public static ValidationCache fromConfiguration(final Locale locale) {
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+
+		final ProcessorConfiguration config = ProcessorConfiguration.getInstance(locale);
+		final long maxMemorySize = config.getCacheMemorySize();
+		final File directory = config.getCacheDirectory();
+
+		if (maxMemorySize <= 0 && directory == null) {
+			return null;
+		}
+
+		return new ValidationCache(maxMemorySize, directory);
+	}
+
+	/**
+	 * @return The current hit and miss counts.
+	 */
+	public ValidationCacheStatistics getStatistics() {
+
+		return new ValidationCacheStatistics(this.containerHits.get(), this.containerMisses.get(),
+				this.subContainerHits.get(), this.subContainerMisses.get(), this.diskHits.get(),
+				this.memory.stats().evictionCount(), this.memory.size());
+	}
+
+	/**
+	 * Remove all results from memory and from disk.
+	 * 
+	 * @throws IOException The results on disk can not be removed.
+	 */
+	public void clear() throws IOException {
+
+		this.memory.invalidateAll();
+		if (this.directory != null && this.directory.exists()) {
+			FileUtils.cleanDirectory(this.directory);
+		}
+	}
+
+	/**
+	 * Get the key for the report of a container. The messages contain the name of
+	 * the file.
+	 */
+	static String getContainerKey(final String contentHash, final String fileName,
+			final Locale locale, final boolean isStrictMode, final ValidationProfile profile,
+			final boolean enableFileHash) {
+
+		return getKey(CONTAINER, contentHash, locale, isStrictMode, profile,
+				fileName + "|" + enableFileHash);
+	}
+
+	/**
+	 * Get the key for the validation of the content of a sub container. The
+	 * content hash is the hash of the nested ZIP file. The messages contain the
+	 * indent level and the entries that have not been extracted.
+	 */
+	static String getSubContainerKey(final String contentHash, final Locale locale,
+			final boolean isStrictMode, final ValidationProfile profile, final int indentLevel,
+			final List<String> skippedEntries, final long skippedEntryCount) {
+
+		Preconditions.checkArgument(skippedEntries != null, "skippedEntries is null");
+
+		final List<String> entries = new ArrayList<>(skippedEntries);
+		Collections.sort(entries);
+
+		return getKey(SUB_CONTAINER, contentHash, locale, isStrictMode, profile,
+				Joiner.on('|').join(Integer.valueOf(indentLevel), Long.valueOf(skippedEntryCount),
+						Joiner.on('/').join(entries)));
+	}
+
+	private static String getKey(final String kind, final String contentHash,
+			final Locale locale, final boolean isStrictMode, final ValidationProfile profile,
+			final Object parameter) {
+
+		Preconditions.checkArgument(contentHash != null, "contentHash is null");
+		Preconditions.checkArgument(locale != null, "locale is null");
+		Preconditions.checkArgument(profile != null, "profile is null");
+
+		final String key = Joiner.on('|').join(kind, contentHash, locale.toLanguageTag(),
+				Boolean.valueOf(isStrictMode), profile, parameter, VERSION, FORMAT_VERSION,
+				ProcessorConfiguration.getInstance(locale).getFingerprint());
+
+		return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+	}
+
+	/**
+	 * Get the SHA-256 hash of a file.
+	 */
+	static String hash(final File file) throws IOException {
+
+		return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+	}
+
+	/**
+	 * Get a cached report.
+	 * 
+	 * @return The cached report or <code>null</code>.
+	 */
+	CachedReport getReport(final String key) {
+
+		final CachedReport result = get(key, CachedReport.class);
+		(result != null ? this.containerHits : this.containerMisses).incrementAndGet();
+
+		return result;
+	}
+
+	void putReport(final String key, final CachedReport report) {
+
+		put(key, report);
+	}
+
+	/**
+	 * Get the cached validation of a sub container.
+	 * 
+	 * @return The cached result or <code>null</code>.
+	 */
+	CachedFolder getSubContainer(final String key) {
+
+		final CachedFolder result = get(key, CachedFolder.class);
+		(result != null ? this.subContainerHits : this.subContainerMisses).incrementAndGet();
+
+		return result;
+	}
+
+	void putSubContainer(final String key, final CachedFolder folder) {
+
+		put(key, folder);
+	}
+
+	private <T> T get(final String key, final Class<T> type) {
+
+		final Object value = this.memory.getIfPresent(key);
+		if (type.isInstance(value)) {
+			return type.cast(value);
+		}
+
+		if (this.directory == null) {
+			return null;
+		}
+
+		final File file = getFile(key);
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			final T result = this.mapper.readValue(file, type);
+			this.diskHits.incrementAndGet();
+			if (this.isMemoryEnabled) {
+				this.memory.put(key, result);
+			}
+			return result;
+		} catch (final IOException e) {
+			log.warn("Can not read cached result " + file.getAbsolutePath(), e);
+			if (!file.delete()) {
+				log.warn("Can not delete cached result " + file.getAbsolutePath());
+			}
+			return null;
+		}
+	}
+
+	private void put(final String key, final Object value) {
+
+		if (this.isMemoryEnabled) {
+			this.memory.put(key, value);
+		}
+
+		if (this.directory == null) {
+			return;
+		}
+
+		// write to a temporary file first, so that other processes never read an
+		// incomplete result
+		final File file = getFile(key);
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			final Path tmp = Files.createTempFile(file.getParentFile().toPath(), key, ".tmp");
+			try {
+				this.mapper.writeValue(tmp.toFile(), value);
+				Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (final IOException e) {
+			log.warn("Can not store cached result " + file.getAbsolutePath(), e);
+		}
+	}
+
+	private File getFile(final String key) {
+
+		return new File(new File(this.directory, key.substring(0, 2)), key + ".json");
+	}
+
+	private static int weigh(final Object value) {
+
+		if (value instanceof CachedReport) {
+			return ((CachedReport) value).getWeight();
+		}
+		if (value instanceof CachedFolder) {
+			return ((CachedFolder) value).getWeight();
+		}
+		return 1;
+	}
+}
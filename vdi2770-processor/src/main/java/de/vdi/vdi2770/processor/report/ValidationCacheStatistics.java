@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Hit and miss counts of a {@link ValidationCache}.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Getter
+@ToString
+public class ValidationCacheStatistics {
+
+	/**
+	 * The number of containers whose report has been taken from the cache.
+	 */
+	private final long containerHits;
+
+	/**
+	 * The number of containers that have been validated, because their report
+	 * has not been cached.
+	 */
+	private final long containerMisses;
+
+	/**
+	 * The number of sub containers whose content validation has been taken from
+	 * the cache.
+	 */
+	private final long subContainerHits;
+
+	/**
+	 * The number of sub containers whose content has been validated, because the
+	 * result has not been cached.
+	 */
+	private final long subContainerMisses;
+
+	/**
+	 * The number of hits that have been read from disk.
+	 */
+	private final long diskHits;
+
+	/**
+	 * The number of results that have been removed from memory.
+	 */
+	private final long evictions;
+
+	/**
+	 * The number of results in memory.
+	 */
+	private final long entries;
+
+	ValidationCacheStatistics(final long containerHits, final long containerMisses,
+			final long subContainerHits, final long subContainerMisses, final long diskHits,
+			final long evictions, final long entries) {
+		super();
+
+		this.containerHits = containerHits;
+		this.containerMisses = containerMisses;
+		this.subContainerHits = subContainerHits;
+		this.subContainerMisses = subContainerMisses;
+		this.diskHits = diskHits;
+		this.evictions = evictions;
+		this.entries = entries;
+	}
+
+	/**
+	 * @return The ratio of hits to requests of containers and sub containers; 0,
+	 *         if there was no request.
+	 */
+	public double getHitRate() {
+
+		final long hits = this.containerHits + this.subContainerHits;
+		final long requests = hits + this.containerMisses + this.subContainerMisses;
+
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+}
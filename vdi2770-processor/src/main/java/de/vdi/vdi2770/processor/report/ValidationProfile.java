@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+/**
+ * A validation profile defines the checks of a container validation (see
+ * {@link ContainerValidator#setProfile(ValidationProfile)}). The ZIP structure,
+ * the file names and the XML schema of the metadata are always checked.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public enum ValidationProfile {
+
+	/**
+	 * ZIP structure, file names and XML schema of the metadata only
+	 */
+	QUICK(false, false, false, false),
+
+	/**
+	 * {@link #QUICK} plus metadata model, relations and MIME types; no PDF
+	 * analysis
+	 */
+	STANDARD(true, true, true, false),
+
+	/**
+	 * All checks
+	 */
+	FULL(true, true, true, true);
+
+	private final boolean modelValidation;
+
+	private final boolean relationValidation;
+
+	private final boolean contentTypeDetection;
+
+	private final boolean pdfAnalysis;
+
+	ValidationProfile(final boolean modelValidation, final boolean relationValidation,
+			final boolean contentTypeDetection, final boolean pdfAnalysis) {
+		this.modelValidation = modelValidation;
+		this.relationValidation = relationValidation;
+		this.contentTypeDetection = contentTypeDetection;
+		this.pdfAnalysis = pdfAnalysis;
+	}
+
+	/**
+	 * @return <code>true</code>, if the metadata model is validated, e.g.
+	 *         mandatory classifications and languages.
+	 */
+	public boolean isModelValidation() {
+		return this.modelValidation;
+	}
+
+	/**
+	 * @return <code>true</code>, if relations between objects and documents are
+	 *         validated.
+	 */
+	public boolean isRelationValidation() {
+		return this.relationValidation;
+	}
+
+	/**
+	 * @return <code>true</code>, if the MIME types of the files are detected and
+	 *         compared to the metadata.
+	 */
+	public boolean isContentTypeDetection() {
+		return this.contentTypeDetection;
+	}
+
+	/**
+	 * @return <code>true</code>, if PDF files are analysed (PDF/A level,
+	 *         encryption and text).
+	 */
+	public boolean isPdfAnalysis() {
+		return this.pdfAnalysis;
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A progress event of a container validation (see {@link ProgressListener}).
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Getter
+@ToString
+public class ValidationProgress {
+
+	/**
+	 * The steps of a container validation.
+	 */
+	public enum Stage {
+
+		/**
+		 * An entry of a ZIP file is extracted or skipped; the current and total
+		 * values are the number of entries of the ZIP file.
+		 */
+		EXTRACTION,
+
+		/**
+		 * The XML metadata of a container has been validated; the current and total
+		 * values are the number of metadata files of the container and all sub
+		 * containers.
+		 */
+		VALIDATION,
+
+		/**
+		 * A PDF file is going to be analysed; the current and total values are the
+		 * number of PDF files of the document.
+		 */
+		PDF_ANALYSIS
+	}
+
+	/**
+	 * The step of the validation.
+	 */
+	private final Stage stage;
+
+	/**
+	 * The name of the file that is processed.
+	 */
+	private final String fileName;
+
+	/**
+	 * The number of processed items.
+	 */
+	private final long current;
+
+	/**
+	 * The total number of items; less than zero, if unknown.
+	 */
+	private final long total;
+
+	/**
+	 * ctor
+	 * 
+	 * @param stage    The step of the validation.
+	 * @param fileName The name of the file that is processed.
+	 * @param current  The number of processed items.
+	 * @param total    The total number of items.
+	 */
+	public ValidationProgress(final Stage stage, final String fileName, final long current,
+			final long total) {
+		super();
+
+		this.stage = stage;
+		this.fileName = fileName;
+		this.current = current;
+		this.total = total;
+	}
+}
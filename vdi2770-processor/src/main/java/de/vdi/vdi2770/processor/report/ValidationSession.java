@@ -0,0 +1,603 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+import de.vdi.vdi2770.metadata.common.Fault;
+import de.vdi.vdi2770.metadata.model.Document;
+import de.vdi.vdi2770.metadata.model.MainDocument;
+import de.vdi.vdi2770.metadata.model.ValidationFault;
+import de.vdi.vdi2770.metadata.xml.XmlProcessingException;
+import de.vdi.vdi2770.metadata.xml.XmlReader;
+import de.vdi.vdi2770.metadata.xml.XmlValidationFault;
+import de.vdi.vdi2770.metadata.xml.XmlValidationResult;
+import de.vdi.vdi2770.processor.common.ContentTypeCache;
+import de.vdi.vdi2770.processor.report.ValidationBudget.Limit;
+import de.vdi.vdi2770.processor.report.ValidationProgress.Stage;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * State of the validation of one extracted container.
+ * 
+ * <p>
+ * Every XML file is validated and read at most once; the schema faults, the
+ * metadata and the faults of the metadata model are shared by all validation
+ * steps. Folders are listed at most once, too. A session can be used by
+ * multiple threads.
+ * </p>
+ * 
+ * <p>
+ * The session keeps track of the {@link ValidationBudget} of the validation.
+ * The time limit starts with the creation of the session.
+ * </p>
+ * 
+ * <p>
+ * A session can be cancelled, e.g. by another thread. The validation stops at
+ * the next step, like a validation whose budget has been exceeded.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ValidationSession {
+
+	/**
+	 * The {@link XmlReader} of this session.
+	 */
+	@Getter
+	private final XmlReader reader;
+
+	private final Locale locale;
+
+	private final boolean isStrictMode;
+
+	private final Map<File, XmlAnalysis> analyses = new ConcurrentHashMap<>();
+
+	private final Map<File, List<ValidationFault>> modelFaults = new ConcurrentHashMap<>();
+
+	private final Map<File, Optional<List<File>>> listings = new ConcurrentHashMap<>();
+
+	// analysis results of PDF files by content hash and name
+	private final Map<String, PdfAnalysis> pdfAnalyses = new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link ValidationBudget} of this session.
+	 */
+	@Getter
+	private final ValidationBudget budget;
+
+	/**
+	 * The end of the time limit or <code>null</code>, if the duration is not
+	 * limited.
+	 */
+	@Getter
+	private final Instant deadline;
+
+	private final Map<String, int[]> countedMessages = new ConcurrentHashMap<>();
+
+	private final AtomicLong messageCount = new AtomicLong();
+
+	private final AtomicLong errorCount = new AtomicLong();
+
+	private final AtomicLong fileCount = new AtomicLong();
+
+	private final AtomicReference<Limit> exceededLimit = new AtomicReference<>();
+
+	private volatile boolean cancelled = false;
+
+	/**
+	 * An optional {@link ProgressListener}.
+	 */
+	@Getter
+	@Setter
+	private volatile ProgressListener progressListener;
+
+	/**
+	 * An optional {@link ReportListener} that receives the messages of this
+	 * validation in addition to the listener of the {@link ContainerValidator}.
+	 */
+	@Getter
+	@Setter
+	private volatile ReportListener messageListener;
+
+	/**
+	 * The number of metadata files to validate; less than zero, if unknown.
+	 */
+	@Getter
+	@Setter
+	private volatile long documentCount = -1;
+
+	private final AtomicLong validatedDocuments = new AtomicLong();
+
+	/**
+	 * The detected content types of the files of this session.
+	 */
+	@Getter
+	private final ContentTypeCache contentTypes = new ContentTypeCache();
+
+	/**
+	 * The snapshots of the extracted folders of this session. Files outside of
+	 * the snapshots are queried on the file system.
+	 */
+	private final List<ContainerTree> trees = new CopyOnWriteArrayList<>();
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale       Desired {@link Locale} for validation messages; must not
+	 *                     be <code>null</code>.
+	 * @param isStrictMode Enable or disable strict validation of the metadata.
+	 */
+	public ValidationSession(final Locale locale, final boolean isStrictMode) {
+		this(locale, isStrictMode, ValidationBudget.UNLIMITED);
+	}
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale       Desired {@link Locale} for validation messages; must not
+	 *                     be <code>null</code>.
+	 * @param isStrictMode Enable or disable strict validation of the metadata.
+	 * @param budget       The limits of the validation; must not be
+	 *                     <code>null</code>.
+	 */
+	public ValidationSession(final Locale locale, final boolean isStrictMode,
+			final ValidationBudget budget) {
+		super();
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+		Preconditions.checkArgument(budget != null, "budget is null");
+
+		this.locale = (Locale) locale.clone();
+		this.isStrictMode = isStrictMode;
+		this.reader = new XmlReader(locale);
+		this.budget = budget;
+		this.deadline = budget.getMaxTime() > 0 ? Instant.now().plusMillis(budget.getMaxTime())
+				: null;
+	}
+
+	/**
+	 * Count the messages that have been added to a {@link Report} since the last
+	 * call and check the limits of the {@link ValidationBudget}. If the
+	 * {@link ReportListener} of the report requests to stop, the session is
+	 * cancelled.
+	 * 
+	 * @param report A {@link Report} of this validation; may be <code>null</code>
+	 *               to check the time limit only.
+	 * @return <code>true</code>, if a limit has been exceeded and the validation
+	 *         shall be aborted.
+	 */
+	public boolean checkBudget(final Report report) {
+
+		if (report != null) {
+			final String id = report.getId();
+			final int[] counted = this.countedMessages.computeIfAbsent(id, i -> new int[2]);
+			this.messageCount.addAndGet(report.getMessageCount() - counted[0]);
+			this.errorCount.addAndGet(report.getErrorCount() - counted[1]);
+			counted[0] = report.getMessageCount();
+			counted[1] = report.getErrorCount();
+
+			if (report.isStopRequested()) {
+				cancel();
+			}
+		}
+
+		if (this.deadline != null && Instant.now().isAfter(this.deadline)) {
+			abort(Limit.TIME);
+		}
+		if (this.budget.getMaxMessages() > 0
+				&& this.messageCount.get() > this.budget.getMaxMessages()) {
+			abort(Limit.MESSAGES);
+		}
+		if (this.budget.getMaxErrors() > 0
+				&& this.errorCount.get() > this.budget.getMaxErrors()) {
+			abort(Limit.ERRORS);
+		}
+
+		return isAborted();
+	}
+
+	/**
+	 * Count a file that is going to be analysed and check the limit of the
+	 * {@link ValidationBudget}.
+	 * 
+	 * @return <code>true</code>, if the file may be analysed; <code>false</code>,
+	 *         if a limit has been exceeded and the validation shall be aborted.
+	 */
+	public boolean countFile() {
+
+		if (isAborted()) {
+			return false;
+		}
+
+		if (this.budget.getMaxFiles() > 0
+				&& this.fileCount.incrementAndGet() > this.budget.getMaxFiles()) {
+			abort(Limit.FILES);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Abort the validation.
+	 * 
+	 * @param limit The exceeded limit; must not be <code>null</code>. Only the
+	 *              first exceeded limit is kept.
+	 */
+	public void abort(final Limit limit) {
+
+		Preconditions.checkArgument(limit != null, "limit is null");
+
+		this.exceededLimit.compareAndSet(null, limit);
+	}
+
+	/**
+	 * Cancel the validation. The validation stops at the next step.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * @return <code>true</code>, if the validation has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * @return <code>true</code>, if a limit of the {@link ValidationBudget} has
+	 *         been exceeded or the validation has been cancelled.
+	 */
+	public boolean isAborted() {
+		return this.cancelled || this.exceededLimit.get() != null;
+	}
+
+	/**
+	 * Count a validated metadata file and notify the {@link ProgressListener}.
+	 * 
+	 * @param fileName The name of the container of the metadata file.
+	 */
+	public void documentValidated(final String fileName) {
+		fireProgress(Stage.VALIDATION, fileName, this.validatedDocuments.incrementAndGet(),
+				this.documentCount);
+	}
+
+	/**
+	 * Notify the {@link ProgressListener}, if set.
+	 * 
+	 * @param stage    The step of the validation.
+	 * @param fileName The name of the file that is processed.
+	 * @param current  The number of processed items.
+	 * @param total    The total number of items; less than zero, if unknown.
+	 */
+	public void fireProgress(final Stage stage, final String fileName, final long current,
+			final long total) {
+
+		final ProgressListener listener = this.progressListener;
+		if (listener == null) {
+			return;
+		}
+
+		try {
+			listener.progress(new ValidationProgress(stage, fileName, current, total));
+		} catch (final RuntimeException e) {
+			log.warn("Error in progress listener", e);
+		}
+	}
+
+	/**
+	 * @return The first exceeded limit or <code>null</code>, if the validation has
+	 *         not been aborted.
+	 */
+	public Limit getExceededLimit() {
+		return this.exceededLimit.get();
+	}
+
+	/**
+	 * Add the snapshot of an extracted folder. Snapshots of different folders can
+	 * be added, e.g. by validations that share this session.
+	 * 
+	 * @param tree A snapshot; must not be <code>null</code>.
+	 */
+	public void addTree(final ContainerTree tree) {
+
+		Preconditions.checkArgument(tree != null, "tree is null");
+
+		this.trees.add(tree);
+	}
+
+	/**
+	 * Get the snapshot that contains a file.
+	 * 
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return The snapshot or <code>null</code>, if the file is not located in a
+	 *         snapshot of this session.
+	 */
+	public ContainerTree getTree(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		for (final ContainerTree tree : this.trees) {
+			if (tree.contains(file)) {
+				return tree;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * List the content of a folder.
+	 * 
+	 * @param folder A folder; must not be <code>null</code>.
+	 * @return The files and folders in the folder ordered by name or
+	 *         <code>null</code>, if the folder can not be listed.
+	 */
+	public List<File> listFiles(final File folder) {
+
+		Preconditions.checkArgument(folder != null, "folder is null");
+
+		final ContainerTree snapshot = getTree(folder);
+		if (snapshot != null) {
+			return snapshot.listFiles(folder);
+		}
+
+		return this.listings.computeIfAbsent(folder.getAbsoluteFile(), f -> {
+			final File[] files = f.listFiles();
+			if (files == null) {
+				return Optional.empty();
+			}
+			Arrays.sort(files);
+			return Optional.of(Collections.unmodifiableList(Arrays.asList(files)));
+		}).orElse(null);
+	}
+
+	/**
+	 * Get the analysis of a PDF file with the same content and name or analyse
+	 * the file. The name is part of the key, because preflight messages contain
+	 * the file name. The analyses are kept for this session only.
+	 * 
+	 * @param pdfFile  A PDF file; must not be <code>null</code>.
+	 * @param analyser Creates the analysis of a PDF file; must not be
+	 *                 <code>null</code>.
+	 * @return The analysis of the file.
+	 */
+	PdfAnalysis getPdfAnalysis(final File pdfFile, final Function<File, PdfAnalysis> analyser) {
+
+		Preconditions.checkArgument(pdfFile != null, "pdfFile is null");
+		Preconditions.checkArgument(analyser != null, "analyser is null");
+
+		String key = null;
+		try {
+			key = com.google.common.io.Files.asByteSource(pdfFile).hash(Hashing.sha256())
+					.toString() + "/" + pdfFile.getName();
+			final PdfAnalysis cached = this.pdfAnalyses.get(key);
+			if (cached != null) {
+				if (log.isDebugEnabled()) {
+					log.debug("Reusing analysis of PDF file " + pdfFile.getName() + " (" + key
+							+ ")");
+				}
+				return cached;
+			}
+		} catch (final IOException e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Can not hash file " + pdfFile.getAbsolutePath(), e);
+			}
+		}
+
+		final PdfAnalysis analysis = analyser.apply(pdfFile);
+		if (key != null) {
+			this.pdfAnalyses.putIfAbsent(key, analysis);
+		}
+
+		return analysis;
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file or folder exists.
+	 */
+	public boolean exists(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		final ContainerTree snapshot = getTree(file);
+		if (snapshot != null) {
+			return snapshot.exists(file);
+		}
+		return file.exists();
+	}
+
+	/**
+	 * @param file A file or folder; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is an existing folder.
+	 */
+	public boolean isDirectory(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		final ContainerTree snapshot = getTree(file);
+		if (snapshot != null) {
+			return snapshot.isDirectory(file);
+		}
+		return file.isDirectory();
+	}
+
+	/**
+	 * @param file A file; must not be <code>null</code>.
+	 * @return The size of the file in bytes.
+	 */
+	public long length(final File file) {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		final ContainerTree snapshot = getTree(file);
+		if (snapshot != null) {
+			return snapshot.length(file);
+		}
+		return file.length();
+	}
+
+	/**
+	 * Get the faults of the XML schema validation of a file (see
+	 * {@link XmlReader#validate(File)}).
+	 * 
+	 * @param xmlFile An existing XML file; must not be <code>null</code>.
+	 * @return A {@link List} of {@link XmlValidationFault}s.
+	 * @throws XmlProcessingException There was an error reading the file.
+	 */
+	public List<XmlValidationFault> getFaults(final File xmlFile) throws XmlProcessingException {
+
+		final XmlAnalysis analysis = analyse(xmlFile);
+		if (analysis.exception != null) {
+			throw analysis.exception;
+		}
+
+		return analysis.result.getFaults();
+	}
+
+	/**
+	 * Get the metadata of a file.
+	 * 
+	 * @param xmlFile An existing XML file; must not be <code>null</code>.
+	 * @return The metadata or <code>null</code>, if the file can not be read or is
+	 *         not valid.
+	 */
+	public Document getDocument(final File xmlFile) {
+
+		final XmlAnalysis analysis = analyse(xmlFile);
+		return analysis.result != null ? analysis.result.getDocument() : null;
+	}
+
+	/**
+	 * Get the faults of the metadata model of a file, i.e. the result of
+	 * {@link MainDocument#validate(Locale, boolean)} for main documents and
+	 * {@link Document#validate(String, Locale, boolean)} otherwise.
+	 * 
+	 * @param xmlFile An existing XML file; must not be <code>null</code>.
+	 * @return A {@link List} of {@link ValidationFault}s; empty, if the file can
+	 *         not be read.
+	 */
+	public List<ValidationFault> getModelFaults(final File xmlFile) {
+
+		final Document document = getDocument(xmlFile);
+		if (document == null) {
+			return Collections.emptyList();
+		}
+
+		return this.modelFaults.computeIfAbsent(xmlFile.getAbsoluteFile(), f -> {
+			if (document.isMainDocument()) {
+				return new MainDocument(document).validate(this.locale, this.isStrictMode);
+			}
+			return document.validate(null, this.locale, this.isStrictMode);
+		});
+	}
+
+	/**
+	 * Check, whether a file is a metadata file (see
+	 * {@link XmlReader#isMetadataFile(File)}).
+	 * 
+	 * @param xmlFile An existing XML file; must not be <code>null</code>.
+	 * @return <code>true</code>, if the file is valid according to the XML
+	 *         schema.
+	 */
+	public boolean isMetadataFile(final File xmlFile) {
+
+		final XmlAnalysis analysis = analyse(xmlFile);
+		return analysis.result != null && !Fault.hasErrors(analysis.result.getFaults());
+	}
+
+	/**
+	 * Get the number of times an XML file has been parsed in this session.
+	 * 
+	 * @param xmlFile A file; must not be <code>null</code>.
+	 * @return The number of parser runs; 0, if the file has not been read.
+	 */
+	public int getParseCount(final File xmlFile) {
+
+		Preconditions.checkArgument(xmlFile != null, "xmlFile is null");
+
+		final XmlAnalysis analysis = this.analyses.get(xmlFile.getAbsoluteFile());
+		return analysis != null ? analysis.parseCount : 0;
+	}
+
+	private XmlAnalysis analyse(final File xmlFile) {
+
+		Preconditions.checkArgument(xmlFile != null, "xmlFile is null");
+		Preconditions.checkArgument(exists(xmlFile) && !isDirectory(xmlFile),
+				"xmlFile is not a file");
+
+		return this.analyses.computeIfAbsent(xmlFile.getAbsoluteFile(), f -> {
+			try {
+				return new XmlAnalysis(this.reader.validateAndRead(f));
+			} catch (final XmlProcessingException e) {
+				return new XmlAnalysis(e);
+			}
+		});
+	}
+
+	/**
+	 * Result of reading an XML file.
+	 */
+	private static final class XmlAnalysis {
+
+		private final XmlValidationResult result;
+
+		private final XmlProcessingException exception;
+
+		private final int parseCount;
+
+		XmlAnalysis(final XmlValidationResult result) {
+			this.result = result;
+			this.exception = null;
+			this.parseCount = result.getParseCount();
+		}
+
+		XmlAnalysis(final XmlProcessingException exception) {
+			this.result = null;
+			this.exception = exception;
+			this.parseCount = 1;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Workspace;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * A content-addressed store of compressed ZIP entries.
+ * 
+ * <p>
+ * Files are identified by their SHA-256 hash. The first time a content is
+ * added, it is compressed into a blob file of a {@link Workspace}. Every
+ * further file with the same content is copied from the blob without
+ * compressing it again (see {@link ZipChannelWriter#copyEntry}). The blob files
+ * are deleted when the store is closed.
+ * </p>
+ * 
+ * <p>
+ * A store is meant to be used while creating multiple containers, e.g. by the
+ * {@link ContainerProcessor}, that carry the same digital files. It is not
+ * thread-safe.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class BlobStore implements AutoCloseable {
+
+	private final Workspace workspace;
+
+	private final Map<HashCode, Blob> blobs = new HashMap<>();
+
+	/**
+	 * The number of files that have been copied from an existing blob.
+	 */
+	@Getter
+	private int hits = 0;
+
+	/**
+	 * The number of files that have been compressed into a new blob.
+	 */
+	@Getter
+	private int misses = 0;
+
+	/**
+	 * ctor
+	 * 
+	 * <p>
+	 * The blob files are written to a new {@link Workspace}.
+	 * </p>
+	 * 
+	 * @param locale Desired {@link Locale} for messages; must not be
+	 *               <code>null</code>.
+	 * @throws ProcessorException The workspace can not be created.
+	 */
+	public BlobStore(final Locale locale) throws ProcessorException {
+		super();
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+
+		this.workspace = new Workspace(locale);
+	}
+
+	/**
+	 * Add a file to a ZIP file.
+	 * 
+	 * <p>
+	 * The compression method and the compression parameters are chosen like
+	 * {@link ZipChannelWriter#addFile(Path, String)} with the settings of the
+	 * given writer. The modification time is taken from the file.
+	 * </p>
+	 * 
+	 * @param writer The {@link ZipChannelWriter} of the ZIP file; must not be
+	 *               <code>null</code>.
+	 * @param file   A regular file; must not be <code>null</code>.
+	 * @param name   The name of the entry; must not be <code>null</code> or empty
+	 *               and must be unique.
+	 * @throws IOException There was an error reading the file or writing the ZIP
+	 *                     file. If the quota of the workspace is exceeded, the
+	 *                     cause is a
+	 *                     {@link de.vdi.vdi2770.processor.common.WorkspaceQuotaExceededException}.
+	 */
+	public void addFile(final ZipChannelWriter writer, final Path file, final String name)
+			throws IOException {
+
+		Preconditions.checkArgument(writer != null, "writer is null");
+		Preconditions.checkArgument(file != null, "file is null");
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+
+		final HashCode hash = MoreFiles.asByteSource(file).hash(Hashing.sha256());
+
+		Blob blob = this.blobs.get(hash);
+		if (blob == null) {
+			blob = compress(writer, file, hash);
+			this.blobs.put(hash, blob);
+			this.misses++;
+		} else {
+			this.hits++;
+			if (log.isDebugEnabled()) {
+				log.debug("Reusing compressed content of " + file.getFileName() + " (" + hash
+						+ ")");
+			}
+		}
+
+		final ZipDirectoryEntry entry = new ZipDirectoryEntry();
+		entry.setName(blob.entry.getName());
+		entry.setMethod(blob.entry.getMethod());
+		entry.setCrc(blob.entry.getCrc());
+		entry.setSize(blob.entry.getSize());
+		entry.setCompressedSize(blob.entry.getCompressedSize());
+		entry.setDosTime(ZipChannelWriter.toDosTime(Files.getLastModifiedTime(file).toMillis()));
+
+		try (FileChannel source = FileChannel.open(blob.path, StandardOpenOption.READ)) {
+			writer.copyEntry(source, blob.dataOffset, entry, name);
+		}
+	}
+
+	/**
+	 * @return The number of distinct contents in the store.
+	 */
+	public int size() {
+		return this.blobs.size();
+	}
+
+	/**
+	 * Delete all blob files.
+	 */
+	@Override
+	public void close() {
+
+		if (log.isDebugEnabled()) {
+			log.debug("Closing blob store: " + this.blobs.size() + " blobs, " + this.hits
+					+ " reused");
+		}
+
+		this.blobs.clear();
+		this.workspace.close();
+	}
+
+	private Blob compress(final ZipChannelWriter writer, final Path file, final HashCode hash)
+			throws IOException {
+
+		final Path path = this.workspace.resolve(hash.toString() + ".zip");
+
+		// deflated data might be a little larger than the input; reserve space for
+		// headers, too
+		final long size = Files.size(file);
+		try (ZipChannelWriter blobWriter = new ZipChannelWriter(
+				this.workspace.newFileChannel(path, size + size / 1000 + 4096))) {
+			blobWriter.setDeflateThreads(writer.getDeflateThreads());
+			blobWriter.setParallelThreshold(writer.getParallelThreshold());
+			blobWriter.setReproducible(writer.isReproducible());
+			blobWriter.addFile(file, hash.toString());
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final List<ZipDirectoryEntry> entries = ZipDirectory.read(channel);
+			final ZipDirectoryEntry entry = entries.get(0);
+			return new Blob(path, entry, ZipDirectory.getDataOffset(channel, entry));
+		}
+	}
+
+	/**
+	 * A compressed content in a blob file.
+	 */
+	private static final class Blob {
+
+		private final Path path;
+		private final ZipDirectoryEntry entry;
+		private final long dataOffset;
+
+		Blob(final Path path, final ZipDirectoryEntry entry, final long dataOffset) {
+			this.path = path;
+			this.entry = entry;
+			this.dataOffset = dataOffset;
+		}
+	}
+}
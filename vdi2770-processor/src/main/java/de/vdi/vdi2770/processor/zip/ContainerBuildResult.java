@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * The result of an incremental container build of a folder (see
+ * {@link ContainerProcessor#createContainerIncremental(File)}).
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+public class ContainerBuildResult {
+
+	/**
+	 * The processed folder.
+	 */
+	private final File folder;
+
+	/**
+	 * The container file or <code>null</code>, if the folder is not a container.
+	 */
+	private File containerFile;
+
+	/**
+	 * <code>true</code>, if the container file has been created;
+	 * <code>false</code>, if an existing container file has been reused.
+	 */
+	private boolean rebuilt;
+
+	/**
+	 * Time in milliseconds to process the folder without sub folders.
+	 */
+	private long durationMillis;
+
+	/**
+	 * The results of the sub folders.
+	 */
+	private final List<ContainerBuildResult> children = new ArrayList<>();
+
+	/**
+	 * @return The number of rebuilt containers including all sub folders.
+	 */
+	public int getRebuiltCount() {
+		return (this.rebuilt ? 1 : 0)
+				+ this.children.stream().mapToInt(ContainerBuildResult::getRebuiltCount).sum();
+	}
+
+	/**
+	 * @return The number of reused containers including all sub folders.
+	 */
+	public int getReusedCount() {
+		return (this.containerFile != null && !this.rebuilt ? 1 : 0)
+				+ this.children.stream().mapToInt(ContainerBuildResult::getReusedCount).sum();
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+import lombok.Getter;
+
+/**
+ * Changes of a container that are applied by {@link ContainerRepackager}.
+ * 
+ * <p>
+ * Entries are identified by their name in the container. Changes of nested
+ * containers are described by {@link #nested(String)}. All other entries are
+ * copied without recompression.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Getter
+public class ContainerChanges {
+
+	/**
+	 * New names of entries by current name.
+	 */
+	private final Map<String, String> renamed = new HashMap<>();
+
+	/**
+	 * Files replacing the content of entries by entry name.
+	 */
+	private final Map<String, Path> replaced = new HashMap<>();
+
+	/**
+	 * Names of entries to remove.
+	 */
+	private final Set<String> removed = new HashSet<>();
+
+	/**
+	 * New entries, appended in the order of insertion.
+	 */
+	private final Map<String, Path> added = new LinkedHashMap<>();
+
+	/**
+	 * Changes of nested containers by entry name.
+	 */
+	private final Map<String, ContainerChanges> nested = new HashMap<>();
+
+	/**
+	 * Rename an entry.
+	 * 
+	 * @param name    The current name of the entry; must not be <code>null</code>
+	 *                or empty.
+	 * @param newName The new name; must not be <code>null</code> or empty.
+	 * @return This instance.
+	 */
+	public ContainerChanges rename(final String name, final String newName) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(newName), "newName is null or empty");
+
+		this.renamed.put(name, newName);
+		return this;
+	}
+
+	/**
+	 * Replace the content of an entry.
+	 * 
+	 * @param name The name of the entry; must not be <code>null</code> or empty.
+	 * @param file The new content; must not be <code>null</code>.
+	 * @return This instance.
+	 */
+	public ContainerChanges replace(final String name, final Path file) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkArgument(file != null, "file is null");
+		Preconditions.checkArgument(!this.nested.containsKey(name),
+				"entry is changed as nested container");
+
+		this.replaced.put(name, file);
+		return this;
+	}
+
+	/**
+	 * Remove an entry.
+	 * 
+	 * @param name The name of the entry; must not be <code>null</code> or empty.
+	 * @return This instance.
+	 */
+	public ContainerChanges remove(final String name) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+
+		this.removed.add(name);
+		return this;
+	}
+
+	/**
+	 * Add a new entry.
+	 * 
+	 * @param name The name of the new entry; must not be <code>null</code> or
+	 *             empty.
+	 * @param file The content; must not be <code>null</code>.
+	 * @return This instance.
+	 */
+	public ContainerChanges add(final String name, final Path file) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkArgument(file != null, "file is null");
+
+		this.added.put(name, file);
+		return this;
+	}
+
+	/**
+	 * Get the changes of a nested container. Untouched entries of the nested
+	 * container are copied without recompression, too.
+	 * 
+	 * @param name The name of the nested container entry; must not be
+	 *             <code>null</code> or empty.
+	 * @return The changes of the nested container.
+	 */
+	public ContainerChanges nested(final String name) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkArgument(!this.replaced.containsKey(name), "entry is replaced");
+
+		return this.nested.computeIfAbsent(name, n -> new ContainerChanges());
+	}
+
+	/**
+	 * @return The names of all existing entries that are affected by a change.
+	 */
+	public Set<String> getChangedEntries() {
+
+		final Set<String> result = new HashSet<>();
+		result.addAll(this.renamed.keySet());
+		result.addAll(this.replaced.keySet());
+		result.addAll(this.removed);
+		result.addAll(this.nested.keySet());
+		return result;
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * The estimated cost to validate a container file (see
+ * {@link ContainerCostEstimator}).
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+public class ContainerCost {
+
+	/**
+	 * Coarse classes of predicted resource usage.
+	 */
+	public enum CostClass {
+
+		/**
+		 * Can be processed inline, e.g. in a request thread.
+		 */
+		LOW,
+
+		/**
+		 * Should be processed by a worker pool.
+		 */
+		MEDIUM,
+
+		/**
+		 * Should be queued and processed with dedicated resources.
+		 */
+		HIGH
+	}
+
+	/**
+	 * The name of the container file.
+	 */
+	private String fileName;
+
+	/**
+	 * The size of the container file in bytes.
+	 */
+	private long fileSize;
+
+	/**
+	 * The maximum nesting depth of ZIP files; 0 for a container without nested
+	 * ZIP files.
+	 */
+	private int depth;
+
+	/**
+	 * The number of containers (ZIP files with XML metadata) including the given
+	 * container.
+	 */
+	private int containerCount;
+
+	/**
+	 * The number of entries of all ZIP files.
+	 */
+	private int entryCount;
+
+	/**
+	 * The number of XML metadata files (<code>VDI2770_Main.xml</code> and
+	 * <code>VDI2770_Metadata.xml</code>).
+	 */
+	private int metadataFileCount;
+
+	/**
+	 * The uncompressed size of the largest XML metadata file in bytes.
+	 */
+	private long maxMetadataSize;
+
+	/**
+	 * The uncompressed sizes of PDF files by path. Nested paths are separated by
+	 * <code>/</code>, e.g. <code>AB393.zip/demo.pdf</code>.
+	 */
+	private final Map<String, Long> pdfSizes = new LinkedHashMap<>();
+
+	/**
+	 * The number of PDF files with distinct content; PDF files with the same
+	 * content are analysed once.
+	 */
+	private int distinctPdfCount;
+
+	/**
+	 * The uncompressed size of all distinct PDF files in bytes.
+	 */
+	private long distinctPdfSize;
+
+	/**
+	 * The uncompressed size of all entries in bytes.
+	 */
+	private long totalSize;
+
+	/**
+	 * <code>false</code>, if nested ZIP files could not be listed (e.g. large
+	 * deflated ZIP files), so the estimation is a lower bound.
+	 */
+	private boolean complete = true;
+
+	/**
+	 * The predicted validation time in milliseconds on a single CPU core.
+	 */
+	private long estimatedMillis;
+
+	/**
+	 * The predicted peak heap usage of the validation in bytes.
+	 */
+	private long estimatedMemory;
+
+	/**
+	 * The class of the predicted validation time.
+	 */
+	private CostClass cpuClass;
+
+	/**
+	 * The class of the predicted heap usage.
+	 */
+	private CostClass memoryClass;
+
+	/**
+	 * @return The number of PDF files.
+	 */
+	public int getPdfCount() {
+		return this.pdfSizes.size();
+	}
+}
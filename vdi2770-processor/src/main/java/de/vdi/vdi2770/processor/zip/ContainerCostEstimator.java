@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+import de.vdi.vdi2770.metadata.xml.FileNames;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.zip.ContainerCost.CostClass;
+
+/**
+ * Estimate the cost to validate a container file before the validation starts.
+ * 
+ * <p>
+ * Only the central directories of the container file and the nested ZIP files
+ * are read (see {@link ZipUtils#listEntries(File)}), so the estimation is cheap
+ * compared to the validation.
+ * </p>
+ * 
+ * <p>
+ * The time model is a linear model of the number of containers, the number and
+ * size of distinct PDF files and the uncompressed bytes. It has been calibrated
+ * against measured validation times of the sample containers in the
+ * <code>examples</code> folder (warm JVM, one CPU core). The memory model is a
+ * conservative bound derived from the largest PDF file and the largest XML
+ * metadata file, because PDF files and XML files are parsed in memory one after
+ * another.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContainerCostEstimator {
+
+	private static final long MB = 1024 * 1024;
+
+	// time model in milliseconds, see ContainerCostEstimatorTest#calibrationBenchmark
+	static final double BASE_MILLIS = 5;
+	static final double CONTAINER_MILLIS = 110;
+	static final double PDF_MILLIS = 40;
+	static final double PDF_MILLIS_PER_MB = 200;
+	static final double EXTRACT_MILLIS_PER_MB = 150;
+
+	// memory model in bytes
+	static final long BASE_MEMORY = 32 * MB;
+	static final double PDF_MEMORY_FACTOR = 8;
+	static final double METADATA_MEMORY_FACTOR = 20;
+
+	/**
+	 * Maximum predicted time in milliseconds of {@link CostClass#LOW}.
+	 */
+	public static final long LOW_CPU_MILLIS = 1000;
+
+	/**
+	 * Maximum predicted time in milliseconds of {@link CostClass#MEDIUM}.
+	 */
+	public static final long MEDIUM_CPU_MILLIS = 30000;
+
+	/**
+	 * Maximum predicted heap usage in bytes of {@link CostClass#LOW}.
+	 */
+	public static final long LOW_MEMORY = 64 * MB;
+
+	/**
+	 * Maximum predicted heap usage in bytes of {@link CostClass#MEDIUM}.
+	 */
+	public static final long MEDIUM_MEMORY = 512 * MB;
+
+	private final Locale locale;
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale Desired {@link Locale} for messages; must not be
+	 *               <code>null</code>.
+	 */
+	public ContainerCostEstimator(final Locale locale) {
+		super();
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+
+		this.locale = (Locale) locale.clone();
+	}
+
+	/**
+	 * Estimate the cost to validate a container file.
+	 * 
+	 * @param zipFile A ZIP file; must not be <code>null</code> and must exist.
+	 * @return The estimated cost.
+	 * @throws ProcessorException There was an error reading the ZIP file or a
+	 *                            limit of the application properties (see
+	 *                            {@link ExtractionBudget}) has been exceeded.
+	 */
+	public ContainerCost estimate(final File zipFile) throws ProcessorException {
+
+		Preconditions.checkArgument(zipFile != null, "zip file is null");
+
+		final ZipUtils zip = new ZipUtils(this.locale);
+		return estimate(zip.listEntries(zipFile));
+	}
+
+	/**
+	 * Estimate the cost to validate a container from its entries.
+	 * 
+	 * @param root The root node of a container file (see
+	 *             {@link ZipUtils#listEntries(File)}); must not be
+	 *             <code>null</code>.
+	 * @return The estimated cost.
+	 */
+	public ContainerCost estimate(final ZipEntryNode root) {
+
+		Preconditions.checkArgument(root != null, "root is null");
+
+		final ContainerCost cost = new ContainerCost();
+		cost.setFileName(root.getName());
+		cost.setFileSize(root.getCompressedSize());
+
+		final Set<String> distinctPdfs = new HashSet<>();
+		collect(root, "", 0, cost, distinctPdfs);
+
+		long maxPdfSize = 0;
+		for (final Long size : cost.getPdfSizes().values()) {
+			maxPdfSize = Math.max(maxPdfSize, size.longValue());
+		}
+
+		final double millis = BASE_MILLIS + CONTAINER_MILLIS * cost.getContainerCount()
+				+ PDF_MILLIS * cost.getDistinctPdfCount()
+				+ PDF_MILLIS_PER_MB * cost.getDistinctPdfSize() / MB
+				+ EXTRACT_MILLIS_PER_MB * cost.getTotalSize() / MB;
+		cost.setEstimatedMillis(Math.round(millis));
+
+		final double memory = BASE_MEMORY + PDF_MEMORY_FACTOR * maxPdfSize
+				+ METADATA_MEMORY_FACTOR * cost.getMaxMetadataSize();
+		cost.setEstimatedMemory(Math.round(memory));
+
+		cost.setCpuClass(classify(cost.getEstimatedMillis(), LOW_CPU_MILLIS, MEDIUM_CPU_MILLIS));
+		cost.setMemoryClass(classify(cost.getEstimatedMemory(), LOW_MEMORY, MEDIUM_MEMORY));
+
+		return cost;
+	}
+
+	private static void collect(final ZipEntryNode node, final String path, final int depth,
+			final ContainerCost cost, final Set<String> distinctPdfs) {
+
+		cost.setDepth(Math.max(cost.getDepth(), depth));
+
+		boolean isContainer = false;
+		for (final ZipEntryNode child : node.getChildren()) {
+
+			cost.setEntryCount(cost.getEntryCount() + 1);
+			cost.setTotalSize(cost.getTotalSize() + child.getSize());
+
+			final String name = child.getName();
+			final String lowerCaseName = name.toLowerCase();
+
+			if (FileNames.MAIN_DOCUMENT_XML_FILE_NAME.equals(name)
+					|| FileNames.METADATA_XML_FILE_NAME.equals(name)) {
+				isContainer = true;
+				cost.setMetadataFileCount(cost.getMetadataFileCount() + 1);
+				cost.setMaxMetadataSize(Math.max(cost.getMaxMetadataSize(), child.getSize()));
+			} else if (lowerCaseName.endsWith(".pdf") && !child.isDirectory()) {
+				cost.getPdfSizes().put(path + name, Long.valueOf(child.getSize()));
+
+				// same key as the deduplication while extracting
+				if (distinctPdfs.add(child.getSize() + ":" + child.getCrc())) {
+					cost.setDistinctPdfCount(cost.getDistinctPdfCount() + 1);
+					cost.setDistinctPdfSize(cost.getDistinctPdfSize() + child.getSize());
+				}
+			} else if (child.isZip()) {
+				collect(child, path + name + "/", depth + 1, cost, distinctPdfs);
+			} else if (lowerCaseName.endsWith(".zip") && !child.isEncrypted()) {
+				// the entries of the nested ZIP file are unknown
+				cost.setComplete(false);
+			}
+		}
+
+		if (isContainer) {
+			cost.setContainerCount(cost.getContainerCount() + 1);
+		}
+	}
+
+	private static CostClass classify(final long value, final long low, final long medium) {
+
+		if (value <= low) {
+			return CostClass.LOW;
+		}
+		if (value <= medium) {
+			return CostClass.MEDIUM;
+		}
+		return CostClass.HIGH;
+	}
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * A {@link ContainerManifest} records the content hashes of the inputs and the
+ * output of a container that has been created from a folder.
+ * 
+ * <p>
+ * Inputs are the XML metadata file, the digital files and the container files
+ * of sub folders. The build mode (reproducible or not) is recorded, too. If the
+ * inputs, the build mode and the output did not change since the last build,
+ * the existing container file can be reused (see
+ * {@link ContainerProcessor#createContainerIncremental(File)}).
+ * </p>
+ * 
+ * <p>
+ * Hashes are SHA-256 values. A file is hashed again only if its size or
+ * modification time differs from the manifest.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+@NoArgsConstructor
+@Log4j2
+public class ContainerManifest {
+
+	/**
+	 * Name of the manifest file in a container folder.
+	 */
+	public static final String FILE_NAME = ".vdi2770_manifest.json";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.enable(SerializationFeature.INDENT_OUTPUT);
+
+	/**
+	 * Input files by name relative to the folder.
+	 */
+	private Map<String, FileEntry> inputs = new TreeMap<>();
+
+	/**
+	 * <code>true</code>, if the container has been built in reproducible mode.
+	 */
+	private boolean reproducible;
+
+	/**
+	 * The container file.
+	 */
+	private FileEntry output;
+
+	/**
+	 * Size, modification time and hash of a file.
+	 */
+	@Data
+	@NoArgsConstructor
+	public static class FileEntry {
+
+		private String name;
+
+		private long size;
+
+		private long lastModified;
+
+		private String sha256;
+
+		/**
+		 * Check, whether a file has the same content as this entry.
+		 * 
+		 * @param other An other entry; may be <code>null</code>.
+		 * @return <code>true</code>, if name and hash are equal.
+		 */
+		public boolean isSameContent(final FileEntry other) {
+			return other != null && Objects.equals(this.name, other.name)
+					&& Objects.equals(this.sha256, other.sha256);
+		}
+	}
+
+	/**
+	 * Add an input file.
+	 * 
+	 * @param name     The name relative to the folder; must not be
+	 *                 <code>null</code>.
+	 * @param file     An existing file; must not be <code>null</code>.
+	 * @param previous The manifest of the last build to reuse hashes; may be
+	 *                 <code>null</code>.
+	 * @throws IOException There was an error reading the file.
+	 */
+	public void addInput(final String name, final File file, final ContainerManifest previous)
+			throws IOException {
+
+		Preconditions.checkArgument(name != null, "name is null");
+
+		final FileEntry known = previous != null ? previous.getInputs().get(name) : null;
+		this.inputs.put(name, createEntry(name, file, known));
+	}
+
+	/**
+	 * Check, whether the inputs of this manifest equal the inputs of an other
+	 * manifest. A different build mode is a changed input.
+	 * 
+	 * @param other An other manifest; may be <code>null</code>.
+	 * @return <code>true</code>, if the same files with the same content are
+	 *         inputs and the build mode is the same.
+	 */
+	public boolean hasSameInputs(final ContainerManifest other) {
+
+		if (other == null || this.reproducible != other.isReproducible()
+				|| !this.inputs.keySet().equals(other.getInputs().keySet())) {
+			return false;
+		}
+
+		return this.inputs.entrySet().stream()
+				.allMatch(e -> e.getValue().isSameContent(other.getInputs().get(e.getKey())));
+	}
+
+	/**
+	 * Create an entry for a file.
+	 * 
+	 * @param name  The name of the entry; must not be <code>null</code>.
+	 * @param file  An existing file; must not be <code>null</code>.
+	 * @param known A previous entry of the file; if size and modification time did
+	 *              not change, its hash is reused. May be <code>null</code>.
+	 * @return A new {@link FileEntry}.
+	 * @throws IOException There was an error reading the file.
+	 */
+	public static FileEntry createEntry(final String name, final File file, final FileEntry known)
+			throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		final FileEntry result = new FileEntry();
+		result.setName(name);
+		result.setSize(file.length());
+		result.setLastModified(file.lastModified());
+
+		if (known != null && known.getSize() == result.getSize()
+				&& known.getLastModified() == result.getLastModified()
+				&& known.getSha256() != null) {
+			result.setSha256(known.getSha256());
+		} else {
+			result.setSha256(sha256(file));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Read the manifest of a folder.
+	 * 
+	 * @param folder A folder; must not be <code>null</code>.
+	 * @return The manifest or <code>null</code>, if there is no readable manifest.
+	 */
+	public static ContainerManifest read(final File folder) {
+
+		Preconditions.checkArgument(folder != null, "folder is null");
+
+		final File file = new File(folder, FILE_NAME);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			return MAPPER.readValue(file, ContainerManifest.class);
+		} catch (final IOException e) {
+			log.warn("Can not read manifest " + file.getAbsolutePath(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the manifest to a folder.
+	 * 
+	 * @param folder A folder; must not be <code>null</code>.
+	 * @throws IOException There was an error writing the manifest.
+	 */
+	public void write(final File folder) throws IOException {
+
+		Preconditions.checkArgument(folder != null, "folder is null");
+
+		MAPPER.writeValue(new File(folder, FILE_NAME), this);
+	}
+
+	private static String sha256(final File file) throws IOException {
+
+		try (InputStream stream = Files.newInputStream(file.toPath());
+				HashingInputStream hashing = new HashingInputStream(Hashing.sha256(), stream)) {
+			ByteStreams.exhaust(hashing);
+			return hashing.hash().toString();
+		}
+	}
+}
@@ -23,16 +23,22 @@ package de.vdi.vdi2770.processor.zip;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.Files;
 
 import de.vdi.vdi2770.metadata.MetadataException;
 import de.vdi.vdi2770.metadata.common.Fault;
@@ -63,6 +69,7 @@ public class ContainerProcessor {
 	private final ResourceBundle bundle;
 	private final Locale locale;
 	private final boolean isStrictMode;
+	private final boolean isReproducible;
 
 	/**
 	 * ctor
@@ -80,6 +87,21 @@ public class ContainerProcessor {
 	 * @param isStrictMode Enable or disable strict validation.
 	 */
 	public ContainerProcessor(final Locale locale, final boolean isStrictMode) {
+		this(locale, isStrictMode, false);
+	}
+
+	/**
+	 * ctor
+	 *
+	 * @param locale         Desired {@link Locale} for validation messages.
+	 * @param isStrictMode   Enable or disable strict validation.
+	 * @param isReproducible Enable or disable reproducible containers. If enabled,
+	 *                       entries are sorted, have no file times and are
+	 *                       compressed with fixed parameters, so identical folders
+	 *                       always result in byte-identical containers.
+	 */
+	public ContainerProcessor(final Locale locale, final boolean isStrictMode,
+			final boolean isReproducible) {
 		super();
 
 		Preconditions.checkArgument(locale != null);
@@ -87,6 +109,7 @@ public class ContainerProcessor {
 		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
 		this.locale = (Locale) locale.clone();
 		this.isStrictMode = isStrictMode;
+		this.isReproducible = isReproducible;
 	}
 
 	/**
@@ -96,7 +119,9 @@ public class ContainerProcessor {
 	 * </p>
 	 * 
 	 * <p>
-	 * Every sub folder is analyzed.
+	 * Every sub folder is analyzed. Digital files with the same content (e.g. a
+	 * safety manual in many document containers) are compressed only once (see
+	 * {@link BlobStore}).
 	 * </p>
 	 * 
 	 * @param folder An existing folder containing a meta data XML file and may be
@@ -110,6 +135,19 @@ public class ContainerProcessor {
 
 		Preconditions.checkArgument(folder != null);
 
+		try (BlobStore store = new BlobStore(this.locale)) {
+			final File result = createContainer(folder, store);
+			if (log.isInfoEnabled()) {
+				log.info("Compressed " + store.size() + " distinct files, reused "
+						+ store.getHits() + " files.");
+			}
+			return result;
+		}
+	}
+
+	private File createContainer(final File folder, final BlobStore store)
+			throws ProcessorException, MetadataException {
+
 		if (!folder.exists()) {
 			throw new ProcessorException(MessageFormat
 					.format(this.bundle.getString("CP_EXCEPTION_001"), folder.getAbsolutePath()));
@@ -118,22 +156,33 @@ public class ContainerProcessor {
 		// include sub-folder recursively
 		// sub-folders are processed first to include this zipped container files in
 		// this container
+		final List<File> subContainers = new ArrayList<>();
 		List<File> subFolders = getSubFolders(folder);
 		if (subFolders.size() > 0) {
 			for (final File subFolder : subFolders) {
-				File zip = createContainer(subFolder);
+				File zip = createContainer(subFolder, store);
 				if (zip != null) {
-					zip.deleteOnExit();
+					subContainers.add(zip);
 				}
 			}
 		}
 
+		File result = null;
 		if (isDocumentationContainerFolder(folder)) {
-			return createDocumentationContainer(folder);
+			result = createDocumentationContainer(folder, store);
+		} else if (isDocumentContainerFolder(folder)) {
+			result = createDocumentContainer(folder, store);
 		}
 
-		if (isDocumentContainerFolder(folder)) {
-			return createDocumentContainer(folder);
+		if (result != null) {
+			// the sub containers are included in the result, so delete the
+			// intermediate files
+			for (final File zip : subContainers) {
+				if (!zip.delete()) {
+					log.warn("Can not delete file " + zip.getAbsolutePath());
+				}
+			}
+			return result;
 		}
 
 		if (log.isInfoEnabled()) {
@@ -144,6 +193,235 @@ public class ContainerProcessor {
 
 	}
 
+	/**
+	 * <p>
+	 * Create a document or documentation container like
+	 * {@link #createContainer(File)}, but reuse existing container files.
+	 * </p>
+	 *
+	 * <p>
+	 * For every container folder a {@link ContainerManifest} is stored next to
+	 * the container file. It contains the SHA-256 hashes of the XML metadata
+	 * file, the digital files and the container files of sub folders. A container
+	 * is rebuilt only, if one of its inputs or the container file itself has
+	 * changed. Container files of sub folders are kept.
+	 * </p>
+	 *
+	 * @param folder An existing folder containing a meta data XML file and may be
+	 *               sub-folders.
+	 * @return The result of the folder including results of the sub folders.
+	 * @throws ProcessorException There was an error processing the folder, the
+	 *                            digital files or the manifest.
+	 * @throws MetadataException  The XML meta data files could not be processed
+	 */
+	public ContainerBuildResult createContainerIncremental(final File folder)
+			throws ProcessorException, MetadataException {
+
+		Preconditions.checkArgument(folder != null);
+
+		try (BlobStore store = new BlobStore(this.locale)) {
+			return createContainerIncremental(folder, store);
+		}
+	}
+
+	private ContainerBuildResult createContainerIncremental(final File folder,
+			final BlobStore store) throws ProcessorException, MetadataException {
+
+		if (!folder.exists()) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("CP_EXCEPTION_001"), folder.getAbsolutePath()));
+		}
+
+		final ContainerBuildResult result = new ContainerBuildResult(folder);
+
+		// sub-folders first, their container files are inputs of this container
+		for (final File subFolder : getSubFolders(folder)) {
+			result.getChildren().add(createContainerIncremental(subFolder, store));
+		}
+
+		final Stopwatch watch = Stopwatch.createStarted();
+
+		final File metadataFile;
+		if (isDocumentationContainerFolder(folder)) {
+			metadataFile = new File(folder, FileNames.MAIN_DOCUMENT_XML_FILE_NAME);
+		} else if (isDocumentContainerFolder(folder)) {
+			metadataFile = new File(folder, FileNames.METADATA_XML_FILE_NAME);
+		} else {
+			if (log.isInfoEnabled()) {
+				log.info("Folder " + folder.getAbsolutePath() + " is not a container.");
+			}
+			return result;
+		}
+
+		final Document metaData = readMetadata(metadataFile);
+		final File zipFile = getZipFile(metaData, folder);
+		final ContainerManifest previous = ContainerManifest.read(folder);
+		final ContainerManifest manifest = new ContainerManifest();
+		manifest.setReproducible(this.isReproducible);
+
+		try {
+			boolean isComplete = true;
+
+			manifest.addInput(metadataFile.getName(), metadataFile, previous);
+			for (final DigitalFile digitalFile : getDigitalFiles(metaData)) {
+				final File content = new File(folder, digitalFile.getFileName());
+				if (content.isFile()) {
+					manifest.addInput(digitalFile.getFileName(), content, previous);
+				} else {
+					// missing files are reported while building the container
+					isComplete = false;
+				}
+			}
+			for (final ContainerBuildResult child : result.getChildren()) {
+				final File childZip = child.getContainerFile();
+				if (childZip != null) {
+					manifest.addInput(child.getFolder().getName() + "/" + childZip.getName(),
+							childZip, previous);
+				}
+			}
+
+			if (isComplete && zipFile.isFile() && previous != null
+					&& manifest.hasSameInputs(previous) && previous.getOutput() != null
+					&& ContainerManifest
+							.createEntry(zipFile.getName(), zipFile, previous.getOutput())
+							.isSameContent(previous.getOutput())) {
+
+				if (log.isInfoEnabled()) {
+					log.info("Container file " + zipFile + " is up to date.");
+				}
+				result.setContainerFile(zipFile);
+				result.setDurationMillis(watch.elapsed(TimeUnit.MILLISECONDS));
+				return result;
+			}
+
+			final File created = metadataFile.getName()
+					.equals(FileNames.MAIN_DOCUMENT_XML_FILE_NAME)
+							? createDocumentationContainer(folder, store)
+							: createDocumentContainer(folder, store);
+
+			manifest.setOutput(ContainerManifest.createEntry(created.getName(), created, null));
+			manifest.write(folder);
+
+			result.setContainerFile(created);
+			result.setRebuilt(true);
+			result.setDurationMillis(watch.elapsed(TimeUnit.MILLISECONDS));
+
+			if (log.isInfoEnabled()) {
+				log.info("Container file " + created + " has been rebuilt in "
+						+ result.getDurationMillis() + " ms.");
+			}
+
+			return result;
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("CP_EXCEPTION_011"), folder.getAbsolutePath()), e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Write a document or documentation container for a folder directly to an
+	 * {@link OutputStream}.
+	 * </p>
+	 * 
+	 * <p>
+	 * In contrast to {@link #createContainer(File)}, no ZIP files are created in
+	 * the folder structure. Containers of sub-folders are zipped on the fly into
+	 * the stream. The given stream is not closed.
+	 * </p>
+	 * 
+	 * @param folder An existing folder containing a meta data XML file and may be
+	 *               sub-folders.
+	 * @param stream The {@link OutputStream} to write the container to.
+	 * @throws ProcessorException There was an error processing the folder or
+	 *                            digital files or the folder is not a container.
+	 */
+	public void writeContainer(final File folder, final OutputStream stream)
+			throws ProcessorException {
+
+		Preconditions.checkArgument(folder != null);
+		Preconditions.checkArgument(stream != null);
+
+		final ContainerSource source = getContainerSource(folder);
+		if (source == null) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("CP_EXCEPTION_010"), folder.getAbsolutePath()));
+		}
+
+		new ContainerWriter(this.locale, this.isStrictMode, this.isReproducible).write(source,
+				stream);
+	}
+
+	/**
+	 * Describe the container of a folder and its sub-folders as
+	 * {@link ContainerSource} that can be written by a {@link ContainerWriter}.
+	 * 
+	 * @param folder An existing folder containing a meta data XML file and may be
+	 *               sub-folders.
+	 * @return The {@link ContainerSource} or <code>null</code>, if the folder is
+	 *         not a container.
+	 * @throws ProcessorException There was an error processing the folder or
+	 *                            digital files.
+	 */
+	public ContainerSource getContainerSource(final File folder) throws ProcessorException {
+
+		Preconditions.checkArgument(folder != null);
+
+		if (!folder.exists()) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("CP_EXCEPTION_001"), folder.getAbsolutePath()));
+		}
+
+		final List<ContainerSource> subContainers = new ArrayList<>();
+		for (final File subFolder : getSubFolders(folder)) {
+			final ContainerSource sub = getContainerSource(subFolder);
+			if (sub != null) {
+				subContainers.add(sub);
+			}
+		}
+
+		final boolean isDocumentation = isDocumentationContainerFolder(folder);
+		if (!isDocumentation && !isDocumentContainerFolder(folder)) {
+			if (log.isInfoEnabled()) {
+				log.info("Folder " + folder.getAbsolutePath() + " is not a container.");
+			}
+			return null;
+		}
+
+		final File metadataFile = new File(folder, isDocumentation
+				? FileNames.MAIN_DOCUMENT_XML_FILE_NAME : FileNames.METADATA_XML_FILE_NAME);
+		final Document metaData = readMetadata(metadataFile);
+
+		final ContainerSource source = new ContainerSource(metaData,
+				Files.asByteSource(metadataFile));
+
+		for (final DigitalFile digitalFile : getDigitalFiles(metaData)) {
+
+			File content = new File(folder, digitalFile.getFileName());
+			if (!content.exists()) {
+				throw new ProcessorException(
+						MessageFormat.format(this.bundle.getString("CP_EXCEPTION_003"),
+								content.getAbsolutePath(), metadataFile.getAbsolutePath()));
+			}
+
+			source.addDigitalFile(digitalFile.getFileName(), Files.asByteSource(content));
+		}
+
+		if (isDocumentation) {
+			// include related document container and documentation container
+			for (final ContainerSource sub : subContainers) {
+				if (isReferencedByMainDocument(metaData, sub.getDocument().getDocumentId())) {
+					source.addSubContainer(sub);
+				} else {
+					log.warn("Found container " + sub.getContainerFileName()
+							+ " thas is not referenced by main document");
+				}
+			}
+		}
+
+		return source;
+	}
+
 	/**
 	 * Read sup-folders of the next level
 	 * 
@@ -160,6 +438,8 @@ public class ContainerProcessor {
 		});
 
 		if (subFolders != null && subFolders.length > 0) {
+			// the order of listFiles depends on the file system
+			Arrays.sort(subFolders, Comparator.comparing(File::getName));
 			return Arrays.asList(subFolders);
 		}
 
@@ -212,10 +492,12 @@ public class ContainerProcessor {
 	 * Zip all digital files and meta data files into a container file
 	 * 
 	 * @param folder folder to process
+	 * @param store  store of compressed digital files
 	 * @return Zip file of the created container
 	 * @throws ProcessorException
 	 */
-	private File createDocumentContainer(File folder) throws ProcessorException {
+	private File createDocumentContainer(File folder, final BlobStore store)
+			throws ProcessorException {
 
 		Preconditions.checkArgument(folder != null);
 
@@ -256,7 +538,7 @@ public class ContainerProcessor {
 		}
 
 		ZipUtils zipUtils = new ZipUtils(this.locale);
-		zipUtils.zip(zipFile, filesToZip);
+		zipUtils.zip(zipFile, filesToZip, this.isReproducible, store);
 
 		return zipFile;
 	}
@@ -269,19 +551,7 @@ public class ContainerProcessor {
 	 */
 	private static DocumentId getDocumentId(final Document document) {
 
-		Preconditions.checkArgument(document != null);
-
-		final List<DocumentId> primaryIds = document.getDocumentId().stream()
-				.filter(i -> i.getIsPrimary().booleanValue()).collect(Collectors.toList());
-
-		DocumentId id = null;
-		if (primaryIds.size() > 0) {
-			id = primaryIds.get(0);
-		} else {
-			id = document.getDocumentId().get(0);
-		}
-
-		return id;
+		return ContainerSource.getDocumentId(document);
 	}
 
 	/**
@@ -290,11 +560,12 @@ public class ContainerProcessor {
 	 * </p>
 	 * 
 	 * @param folder
+	 * @param store
 	 * @return
 	 * @throws ProcessorException
 	 * @throws MetadataException
 	 */
-	private File createDocumentationContainer(File folder)
+	private File createDocumentationContainer(File folder, final BlobStore store)
 			throws ProcessorException, MetadataException {
 
 		Preconditions.checkArgument(folder != null);
@@ -345,7 +616,7 @@ public class ContainerProcessor {
 		}
 
 		ZipUtils zipUtils = new ZipUtils(this.locale);
-		zipUtils.zip(zipFile, filesToZip);
+		zipUtils.zip(zipFile, filesToZip, this.isReproducible, store);
 
 		return zipFile;
 	}
@@ -379,7 +650,11 @@ public class ContainerProcessor {
 		Preconditions.checkArgument(xmlMetadataFile != null, "Parameter containerFile is null");
 		Preconditions.checkArgument(xmlMetadataFile.exists(), "xmlMetadataFile does not exist");
 
-		final List<DocumentId> documentIds = getDocumentIds(xmlMetadataFile);
+		return isReferencedByMainDocument(mainDocument, getDocumentIds(xmlMetadataFile));
+	}
+
+	private static boolean isReferencedByMainDocument(final Document mainDocument,
+			final List<DocumentId> documentIds) {
 
 		final List<DocumentId> refersTo = mainDocument.getDocumentVersion().stream()
 				.map(v -> v.getDocumentRelationship()).flatMap(Collection::stream)
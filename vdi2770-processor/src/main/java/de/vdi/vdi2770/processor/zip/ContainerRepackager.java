@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Workspace;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Repackage a container file with a few changes.
+ * 
+ * <p>
+ * In contrast to {@link ZipUtils#unzip} and {@link ZipUtils#zip}, the container
+ * is not extracted. The compressed data of untouched entries is copied verbatim
+ * into the new container file. Only replaced and added entries are compressed.
+ * Nested containers with changes are repackaged recursively in the same way.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ContainerRepackager {
+
+	// Prefix is ZU
+	private final ResourceBundle bundle;
+	private final Locale locale;
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale Desired {@link Locale} for messages.
+	 */
+	public ContainerRepackager(final Locale locale) {
+		super();
+
+		Preconditions.checkArgument(locale != null);
+
+		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
+		this.locale = (Locale) locale.clone();
+	}
+
+	/**
+	 * Write a copy of a container file with changes.
+	 * 
+	 * @param container An existing container file; must not be <code>null</code>.
+	 * @param target    The new container file; must not be <code>null</code> and
+	 *                  must differ from the container file. An existing file is
+	 *                  replaced.
+	 * @param changes   The changes; must not be <code>null</code>.
+	 * @return The number of entries (including entries of nested containers) that
+	 *         have been copied without recompression.
+	 * @throws ProcessorException The container can not be read, a changed entry
+	 *                            does not exist or the target can not be written.
+	 */
+	public int repackage(final File container, final File target, final ContainerChanges changes)
+			throws ProcessorException {
+
+		try (Workspace workspace = new Workspace(this.locale)) {
+			return repackage(container, target, changes, workspace);
+		}
+	}
+
+	/**
+	 * Write a copy of a container file with changes and use a given
+	 * {@link Workspace} for temporary files.
+	 * 
+	 * @param container An existing container file; must not be <code>null</code>.
+	 * @param target    The new container file; must not be <code>null</code> and
+	 *                  must differ from the container file. An existing file is
+	 *                  replaced.
+	 * @param changes   The changes; must not be <code>null</code>.
+	 * @param workspace An open {@link Workspace}; must not be <code>null</code>.
+	 * @return The number of entries (including entries of nested containers) that
+	 *         have been copied without recompression.
+	 * @throws ProcessorException The container can not be read, a changed entry
+	 *                            does not exist or the target can not be written.
+	 */
+	public int repackage(final File container, final File target, final ContainerChanges changes,
+			final Workspace workspace) throws ProcessorException {
+
+		Preconditions.checkArgument(container != null, "container is null");
+		Preconditions.checkArgument(target != null, "target is null");
+		Preconditions.checkArgument(changes != null, "changes is null");
+		Preconditions.checkArgument(workspace != null, "workspace is null");
+		Preconditions.checkArgument(
+				!container.getAbsoluteFile().equals(target.getAbsoluteFile()),
+				"container and target are the same file");
+
+		if (!container.isFile()) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("ZU_EXCEPTION_003"), container.getAbsolutePath()));
+		}
+
+		final Stopwatch watch = Stopwatch.createStarted();
+
+		boolean success = false;
+		try (FileChannel source = FileChannel.open(container.toPath(),
+				StandardOpenOption.READ)) {
+
+			final int copied = repackage(source, 0, source, container.getName(), changes,
+					target.toPath(), workspace);
+			success = true;
+
+			if (log.isInfoEnabled()) {
+				log.info("Repackaged " + container.getName() + " to " + target.getName() + " in "
+						+ watch + ", " + copied + " entries copied without recompression");
+			}
+
+			return copied;
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("ZU_EXCEPTION_019"), container.getAbsolutePath()), e);
+		} finally {
+			if (!success) {
+				try {
+					Files.deleteIfExists(target.toPath());
+				} catch (final IOException e) {
+					log.warn("Can not delete file " + target.getAbsolutePath(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Repackage a (nested) ZIP file.
+	 * 
+	 * @param source    The channel of the outermost container file.
+	 * @param base      The offset of the ZIP file in the source channel.
+	 * @param view      A channel of the ZIP file starting at the base offset.
+	 * @param name      The name of the ZIP file for messages.
+	 * @param changes   The changes of the ZIP file.
+	 * @param target    The new ZIP file.
+	 * @param workspace A {@link Workspace} for temporary files.
+	 * @return The number of entries copied without recompression.
+	 */
+	private int repackage(final FileChannel source, final long base,
+			final SeekableByteChannel view, final String name, final ContainerChanges changes,
+			final Path target, final Workspace workspace) throws IOException, ProcessorException {
+
+		final List<ZipDirectoryEntry> entries = ZipDirectory.read(view);
+
+		final Set<String> names = entries.stream().map(ZipDirectoryEntry::getName)
+				.collect(Collectors.toSet());
+		for (final String changed : changes.getChangedEntries()) {
+			if (!names.contains(changed)) {
+				throw new ProcessorException(MessageFormat
+						.format(this.bundle.getString("ZU_EXCEPTION_020"), changed, name));
+			}
+		}
+
+		if (entries.stream().anyMatch(ZipDirectoryEntry::isEncrypted)) {
+			throw new ProcessorException(
+					MessageFormat.format(this.bundle.getString("ZU_EXCEPTION_018"), name));
+		}
+
+		int copied = 0;
+		try (ZipChannelWriter writer = new ZipChannelWriter(target)) {
+			for (final ZipDirectoryEntry entry : entries) {
+
+				final String entryName = entry.getName();
+				if (changes.getRemoved().contains(entryName)) {
+					continue;
+				}
+
+				final String newName = changes.getRenamed().getOrDefault(entryName, entryName);
+				final Path replacement = changes.getReplaced().get(entryName);
+				final ContainerChanges nestedChanges = changes.getNested().get(entryName);
+
+				if (replacement != null) {
+					writer.addFile(replacement, newName);
+				} else if (nestedChanges != null) {
+					final Path nestedTarget = workspace.resolve(UUID.randomUUID() + ".zip");
+					copied += repackageNested(source, base, view, entry, nestedChanges,
+							nestedTarget, workspace);
+					writer.addFile(nestedTarget,
+							newName, entry.getMethod() == ZipDirectoryEntry.DEFLATED
+									? ZipDirectoryEntry.DEFLATED
+									: ZipDirectoryEntry.STORED);
+					// the nested target is not written by the workspace
+					Files.deleteIfExists(nestedTarget);
+				} else {
+					writer.copyEntry(source, base + ZipDirectory.getDataOffset(view, entry), entry,
+							newName);
+					copied++;
+				}
+			}
+
+			for (final String added : changes.getAdded().keySet()) {
+				writer.addFile(changes.getAdded().get(added), added);
+			}
+		}
+
+		return copied;
+	}
+
+	private int repackageNested(final FileChannel source, final long base,
+			final SeekableByteChannel view, final ZipDirectoryEntry entry,
+			final ContainerChanges changes, final Path target, final Workspace workspace)
+			throws IOException, ProcessorException {
+
+		if (entry.getMethod() == ZipDirectoryEntry.STORED) {
+			// the nested container is a slice of the source, so its entries can be
+			// copied from the source directly
+			try (SeekableByteChannel nested = ZipDirectory.openRaw(view, entry)) {
+				return repackage(source, base + ZipDirectory.getDataOffset(view, entry), nested,
+						entry.getName(), changes, target, workspace);
+			}
+		}
+
+		// compressed nested containers are inflated once
+		final Path inflated = workspace.resolve(UUID.randomUUID() + ".zip");
+		try (InputStream input = ZipDirectory.openStream(view, entry);
+				OutputStream output = workspace.newOutputStream(inflated)) {
+			ByteStreams.copy(input, output);
+		}
+
+		try (FileChannel nested = FileChannel.open(inflated, StandardOpenOption.READ)) {
+			return repackage(nested, 0, nested, entry.getName(), changes, target, workspace);
+		} finally {
+			workspace.delete(inflated.toFile());
+		}
+	}
+}
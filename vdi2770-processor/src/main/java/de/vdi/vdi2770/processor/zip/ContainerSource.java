@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteSource;
+
+import de.vdi.vdi2770.metadata.model.DigitalFile;
+import de.vdi.vdi2770.metadata.model.Document;
+import de.vdi.vdi2770.metadata.model.DocumentId;
+import de.vdi.vdi2770.metadata.xml.FileNames;
+
+/**
+ * Description of a document or documentation container that can be written by
+ * a {@link ContainerWriter} without creating files on disk.
+ * 
+ * <p>
+ * A source consists of the metadata {@link Document}, the content of the
+ * referenced digital files and, in case of a documentation container, the
+ * sources of the nested containers. The content of every file is provided as
+ * {@link ByteSource}, i.e. it can be backed by a file, a byte array or any
+ * other stream provider.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContainerSource {
+
+	private final Document document;
+
+	private final ByteSource metadata;
+
+	private final Map<String, ByteSource> digitalFiles = new LinkedHashMap<>();
+
+	private final List<ContainerSource> subContainers = new ArrayList<>();
+
+	/**
+	 * ctor
+	 * 
+	 * <p>
+	 * The XML metadata file will be serialized from the given {@link Document}.
+	 * </p>
+	 * 
+	 * @param document The metadata of the container; must not be
+	 *                 <code>null</code>.
+	 */
+	public ContainerSource(final Document document) {
+		this(document, null);
+	}
+
+	/**
+	 * ctor
+	 * 
+	 * @param document The metadata of the container; must not be
+	 *                 <code>null</code>.
+	 * @param metadata The content of the XML metadata file. If <code>null</code>,
+	 *                 the XML metadata file will be serialized from the given
+	 *                 {@link Document}.
+	 */
+	public ContainerSource(final Document document, final ByteSource metadata) {
+		super();
+
+		Preconditions.checkArgument(document != null, "document is null");
+
+		this.document = document;
+		this.metadata = metadata;
+	}
+
+	/**
+	 * Add the content of a digital file.
+	 * 
+	 * @param fileName The name of the file as referenced in the metadata; must not
+	 *                 be <code>null</code> or empty.
+	 * @param content  The content of the file; must not be <code>null</code>.
+	 * @return This instance.
+	 */
+	public ContainerSource addDigitalFile(final String fileName, final ByteSource content) {
+
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(fileName), "fileName is null or empty");
+		Preconditions.checkArgument(content != null, "content is null");
+
+		this.digitalFiles.put(fileName, content);
+		return this;
+	}
+
+	/**
+	 * Add a nested container. Nested containers are written as ZIP files into
+	 * this container.
+	 * 
+	 * @param subContainer The nested container; must not be <code>null</code>.
+	 * @return This instance.
+	 */
+	public ContainerSource addSubContainer(final ContainerSource subContainer) {
+
+		Preconditions.checkArgument(subContainer != null, "subContainer is null");
+		Preconditions.checkArgument(subContainer != this, "a container can not contain itself");
+
+		this.subContainers.add(subContainer);
+		return this;
+	}
+
+	/**
+	 * @return The metadata of the container.
+	 */
+	public Document getDocument() {
+		return this.document;
+	}
+
+	/**
+	 * @return The content of the XML metadata file; may be <code>null</code>.
+	 */
+	public ByteSource getMetadata() {
+		return this.metadata;
+	}
+
+	/**
+	 * @return The content of the digital files by file name.
+	 */
+	public Map<String, ByteSource> getDigitalFiles() {
+		return Collections.unmodifiableMap(this.digitalFiles);
+	}
+
+	/**
+	 * @return The nested containers.
+	 */
+	public List<ContainerSource> getSubContainers() {
+		return Collections.unmodifiableList(this.subContainers);
+	}
+
+	/**
+	 * Check, whether this source describes a documentation container.
+	 * 
+	 * @return <code>true</code>, if the metadata describes a main document.
+	 */
+	public boolean isDocumentationContainer() {
+		return this.document.isMainDocument();
+	}
+
+	/**
+	 * Get the name of the XML metadata file in the container.
+	 * 
+	 * @return {@link FileNames#MAIN_DOCUMENT_XML_FILE_NAME} for documentation
+	 *         containers, otherwise {@link FileNames#METADATA_XML_FILE_NAME}.
+	 */
+	public String getMetadataFileName() {
+		return isDocumentationContainer() ? FileNames.MAIN_DOCUMENT_XML_FILE_NAME
+				: FileNames.METADATA_XML_FILE_NAME;
+	}
+
+	/**
+	 * Get the file name of the container, i.e. the primary document id followed
+	 * by the extension <code>.zip</code>.
+	 * 
+	 * @return The file name of the container.
+	 */
+	public String getContainerFileName() {
+		return getDocumentId(this.document).getId() + ".zip";
+	}
+
+	/**
+	 * Get the {@link DigitalFile}s referenced by the metadata.
+	 * 
+	 * @return A {@link List} of {@link DigitalFile}s.
+	 */
+	public List<DigitalFile> getReferencedFiles() {
+		return this.document.getDocumentVersion().stream().map(v -> v.getDigitalFile())
+				.flatMap(e -> e.stream()).collect(Collectors.toList());
+	}
+
+	/**
+	 * Get the primary document id of a {@link Document}. If there is no primary
+	 * id, the first id is returned.
+	 * 
+	 * @param document A {@link Document}; must not be <code>null</code>.
+	 * @return The {@link DocumentId}.
+	 */
+	static DocumentId getDocumentId(final Document document) {
+
+		Preconditions.checkArgument(document != null);
+
+		final List<DocumentId> primaryIds = document.getDocumentId().stream()
+				.filter(i -> i.getIsPrimary().booleanValue()).collect(Collectors.toList());
+
+		if (primaryIds.size() > 0) {
+			return primaryIds.get(0);
+		}
+
+		return document.getDocumentId().get(0);
+	}
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+
+import de.vdi.vdi2770.metadata.model.DigitalFile;
+import de.vdi.vdi2770.metadata.xml.XmlProcessingException;
+import de.vdi.vdi2770.metadata.xml.XmlWriter;
+import de.vdi.vdi2770.processor.ProcessorException;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Write document and documentation containers directly to an
+ * {@link OutputStream}.
+ * 
+ * <p>
+ * Nested containers are zipped on the fly into the entries of their parent
+ * container. Neither the nested containers nor the container itself are
+ * written to disk, so the output stream can be e.g. a HTTP response or an
+ * object store upload.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ContainerWriter {
+
+	/**
+	 * Time of all entries in reproducible mode; the earliest MS-DOS time.
+	 */
+	private static final LocalDateTime REPRODUCIBLE_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+
+	// Prefix is CP
+	private final ResourceBundle bundle;
+	private final Locale locale;
+	private final boolean isStrictMode;
+	private final boolean isReproducible;
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale Desired {@link Locale} for validation messages.
+	 */
+	public ContainerWriter(final Locale locale) {
+		this(locale, false);
+	}
+
+	/**
+	 * ctor
+	 *
+	 * @param locale       Desired {@link Locale} for validation messages.
+	 * @param isStrictMode Enable or disable strict validation.
+	 */
+	public ContainerWriter(final Locale locale, final boolean isStrictMode) {
+		this(locale, isStrictMode, false);
+	}
+
+	/**
+	 * ctor
+	 *
+	 * @param locale         Desired {@link Locale} for validation messages.
+	 * @param isStrictMode   Enable or disable strict validation.
+	 * @param isReproducible Enable or disable reproducible containers. If enabled,
+	 *                       all entries have the same time and are deflated with
+	 *                       default parameters, so the same source always results
+	 *                       in the same bytes.
+	 */
+	public ContainerWriter(final Locale locale, final boolean isStrictMode,
+			final boolean isReproducible) {
+		super();
+
+		Preconditions.checkArgument(locale != null);
+
+		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
+		this.locale = (Locale) locale.clone();
+		this.isStrictMode = isStrictMode;
+		this.isReproducible = isReproducible;
+	}
+
+	/**
+	 * Write a container including all nested containers as ZIP to an
+	 * {@link OutputStream}.
+	 * 
+	 * <p>
+	 * The given stream is not closed.
+	 * </p>
+	 * 
+	 * @param source The container to write; must not be <code>null</code>.
+	 * @param stream The {@link OutputStream} to write to; must not be
+	 *               <code>null</code>.
+	 * @throws ProcessorException The container is incomplete or there was an
+	 *                            error writing the stream.
+	 */
+	public void write(final ContainerSource source, final OutputStream stream)
+			throws ProcessorException {
+
+		Preconditions.checkArgument(source != null, "source is null");
+		Preconditions.checkArgument(stream != null, "stream is null");
+
+		// check the whole tree first; do not produce partial output
+		checkSource(source);
+
+		// closing the ZIP stream does not close the given stream
+		try (ZipOutputStream zip = createZipStream(stream)) {
+			writeEntries(source, zip);
+			zip.finish();
+			stream.flush();
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat
+					.format(this.bundle.getString("CP_EXCEPTION_008"), source.getContainerFileName()),
+					e);
+		}
+	}
+
+	private void checkSource(final ContainerSource source) throws ProcessorException {
+
+		final List<DigitalFile> digitalFiles = source.getReferencedFiles();
+		if (digitalFiles.isEmpty()) {
+			// digital files are required
+			final String key = source.isDocumentationContainer() ? "CP_EXCEPTION_004"
+					: "CP_EXCEPTION_002";
+			throw new ProcessorException(MessageFormat.format(this.bundle.getString(key),
+					source.getContainerFileName()));
+		}
+
+		for (final DigitalFile digitalFile : digitalFiles) {
+			if (!source.getDigitalFiles().containsKey(digitalFile.getFileName())) {
+				throw new ProcessorException(
+						MessageFormat.format(this.bundle.getString("CP_EXCEPTION_003"),
+								digitalFile.getFileName(), source.getContainerFileName()));
+			}
+		}
+
+		for (final ContainerSource sub : source.getSubContainers()) {
+			checkSource(sub);
+		}
+	}
+
+	private void writeEntries(final ContainerSource source, final ZipOutputStream zip)
+			throws IOException, ProcessorException {
+
+		final Set<String> entryNames = new HashSet<>();
+
+		for (final DigitalFile digitalFile : source.getReferencedFiles()) {
+			final String name = digitalFile.getFileName();
+			if (entryNames.add(name)) {
+				writeEntry(zip, name, source.getDigitalFiles().get(name));
+			}
+		}
+
+		final String metadataName = source.getMetadataFileName();
+		entryNames.add(metadataName);
+		if (source.getMetadata() != null) {
+			writeEntry(zip, metadataName, source.getMetadata());
+		} else {
+			zip.putNextEntry(createEntry(metadataName));
+			try {
+				new XmlWriter(this.locale, this.isStrictMode)
+						.write(CloseShieldOutputStream.wrap(zip), source.getDocument());
+			} catch (final XmlProcessingException e) {
+				throw new ProcessorException(MessageFormat.format(
+						this.bundle.getString("CP_EXCEPTION_009"), source.getContainerFileName()),
+						e);
+			}
+			zip.closeEntry();
+		}
+
+		for (final ContainerSource sub : source.getSubContainers()) {
+
+			final String name = sub.getContainerFileName();
+			if (!entryNames.add(name)) {
+				log.warn("Skipping duplicate container " + name + " in "
+						+ source.getContainerFileName());
+				continue;
+			}
+
+			if (log.isDebugEnabled()) {
+				log.debug("Writing nested container " + name);
+			}
+
+			zip.putNextEntry(createEntry(name));
+
+			// the nested ZIP stream writes into the entry of the parent stream
+			try (ZipOutputStream nested = createZipStream(zip)) {
+				writeEntries(sub, nested);
+			}
+
+			zip.closeEntry();
+		}
+	}
+
+	private ZipOutputStream createZipStream(final OutputStream stream) {
+
+		final ZipOutputStream zip = new ZipOutputStream(CloseShieldOutputStream.wrap(stream));
+		if (this.isReproducible) {
+			zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+			zip.setMethod(ZipOutputStream.DEFLATED);
+		}
+		return zip;
+	}
+
+	private ZipEntry createEntry(final String name) {
+
+		final ZipEntry entry = new ZipEntry(name);
+		if (this.isReproducible) {
+			entry.setTimeLocal(REPRODUCIBLE_TIME);
+		}
+		return entry;
+	}
+
+	private void writeEntry(final ZipOutputStream zip, final String name,
+			final ByteSource content) throws IOException {
+
+		zip.putNextEntry(createEntry(name));
+		try (InputStream in = content.openStream()) {
+			in.transferTo(zip);
+		}
+		zip.closeEntry();
+	}
+}
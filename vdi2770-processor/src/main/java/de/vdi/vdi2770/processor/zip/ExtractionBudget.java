@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import com.google.common.base.Preconditions;
+
+import de.vdi.vdi2770.processor.common.ProcessorConfiguration;
+import de.vdi.vdi2770.processor.report.ProgressListener;
+import de.vdi.vdi2770.processor.report.ValidationProgress;
+import de.vdi.vdi2770.processor.report.ValidationProgress.Stage;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Limits that are enforced while a ZIP file and all nested ZIP files are
+ * extracted.
+ * 
+ * <p>
+ * In contrast to {@link ZipUtils#isBomb(java.io.File)}, the limits do not rely
+ * on the sizes declared in the ZIP headers. The decompressed bytes are counted
+ * while inflating. One instance is shared by all nesting levels of a container,
+ * i.e. the total size and the entry count are cumulative.
+ * </p>
+ * 
+ * <p>
+ * A limit less or equal zero disables the check. For the nesting depth, a
+ * negative value disables the check.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ExtractionBudget {
+
+	// prefix is ZU
+	private final ResourceBundle bundle;
+
+	/**
+	 * Maximum number of uncompressed bytes of all entries in all nesting levels.
+	 */
+	@Getter
+	private final long maxTotalSize;
+
+	/**
+	 * Maximum number of uncompressed bytes of a single entry.
+	 */
+	@Getter
+	private final long maxEntrySize;
+
+	/**
+	 * Maximum factor between uncompressed and compressed size of an entry.
+	 */
+	@Getter
+	private final int maxCompressionFactor;
+
+	/**
+	 * Maximum nesting depth of ZIP files; the outer ZIP file has depth zero.
+	 */
+	@Getter
+	private final int maxDepth;
+
+	/**
+	 * Maximum number of entries in all nesting levels.
+	 */
+	@Getter
+	private final int maxEntries;
+
+	/**
+	 * End of the time limit of the extraction; <code>null</code> disables the
+	 * check. The time limit is checked for each entry.
+	 */
+	@Getter
+	@Setter
+	private volatile Instant deadline;
+
+	/**
+	 * Returns <code>true</code>, if the extraction shall be cancelled;
+	 * <code>null</code> disables the check. The cancellation is checked for each
+	 * entry and while an entry is inflated.
+	 */
+	@Getter
+	@Setter
+	private volatile BooleanSupplier cancellation;
+
+	/**
+	 * An optional {@link ProgressListener} that is notified for each entry.
+	 */
+	@Getter
+	@Setter
+	private volatile ProgressListener progressListener;
+
+	/**
+	 * If <code>true</code>, nested containers are hashed before they are
+	 * extracted, so that their validation results can be cached by content (see
+	 * {@link de.vdi.vdi2770.processor.report.Report#getContainerHash()}).
+	 */
+	@Getter
+	@Setter
+	private volatile boolean containerHashing;
+
+	private final AtomicLong totalSize = new AtomicLong();
+
+	private final AtomicInteger entryCount = new AtomicInteger();
+
+	/**
+	 * ctor
+	 * 
+	 * @param locale               Desired {@link Locale} for messages; must not be
+	 *                             <code>null</code>.
+	 * @param maxTotalSize         Maximum number of uncompressed bytes of all
+	 *                             entries in all nesting levels.
+	 * @param maxEntrySize         Maximum number of uncompressed bytes of a single
+	 *                             entry.
+	 * @param maxCompressionFactor Maximum factor between uncompressed and
+	 *                             compressed size of an entry.
+	 * @param maxDepth             Maximum nesting depth of ZIP files.
+	 * @param maxEntries           Maximum number of entries in all nesting
+	 *                             levels.
+	 */
+	public ExtractionBudget(final Locale locale, final long maxTotalSize,
+			final long maxEntrySize, final int maxCompressionFactor, final int maxDepth,
+			final int maxEntries) {
+		super();
+
+		Preconditions.checkArgument(locale != null, "locale is null");
+
+		this.bundle = ResourceBundle.getBundle("i8n.processor", locale);
+		this.maxTotalSize = maxTotalSize;
+		this.maxEntrySize = maxEntrySize;
+		this.maxCompressionFactor = maxCompressionFactor;
+		this.maxDepth = maxDepth;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Create a new budget with the limits defined in the application properties
+	 * (see {@link ProcessorConfiguration}).
+	 * 
+	 * @param locale Desired {@link Locale} for messages; must not be
+	 *               <code>null</code>.
+	 * @return A new {@link ExtractionBudget} instance.
+	 */
+	public static ExtractionBudget fromConfiguration(final Locale locale) {
+
+		final ProcessorConfiguration config = ProcessorConfiguration.getInstance(locale);
+
+		return new ExtractionBudget(locale, config.getMaxZipTotalSize(),
+				config.getMaxZipFileSize(), config.getMaxZipCompressionFactor(),
+				config.getMaxZipDepth(), config.getMaxZipEntries());
+	}
+
+	/**
+	 * @return The number of uncompressed bytes extracted so far.
+	 */
+	public long getTotalSize() {
+		return this.totalSize.get();
+	}
+
+	/**
+	 * @return The number of entries extracted so far.
+	 */
+	public int getEntryCount() {
+		return this.entryCount.get();
+	}
+
+	/**
+	 * Check the nesting depth of a ZIP file.
+	 * 
+	 * @param zipFileName The name of the ZIP file.
+	 * @param depth       The nesting depth; the outer ZIP file has depth zero.
+	 * @throws ZipLimitExceededException The maximum depth is exceeded.
+	 */
+	public void checkDepth(final String zipFileName, final int depth)
+			throws ZipLimitExceededException {
+
+		if (this.maxDepth >= 0 && depth > this.maxDepth) {
+			throw new ZipLimitExceededException(
+					MessageFormat.format(this.bundle.getString("ZU_MESSAGE_007"), zipFileName,
+							Integer.valueOf(this.maxDepth)));
+		}
+	}
+
+	/**
+	 * Count an entry of a ZIP file.
+	 * 
+	 * @param zipFileName The name of the ZIP file.
+	 * @throws ZipLimitExceededException The maximum number of entries or the time
+	 *                                    limit is exceeded.
+	 */
+	public void countEntry(final String zipFileName) throws ZipLimitExceededException {
+
+		checkCancelled(zipFileName);
+
+		final Instant end = this.deadline;
+		if (end != null && Instant.now().isAfter(end)) {
+			throw new ZipLimitExceededException(MessageFormat
+					.format(this.bundle.getString("ZU_MESSAGE_011"), zipFileName));
+		}
+
+		final int count = this.entryCount.incrementAndGet();
+		if (this.maxEntries > 0 && count > this.maxEntries) {
+			throw new ZipLimitExceededException(
+					MessageFormat.format(this.bundle.getString("ZU_MESSAGE_008"), zipFileName,
+							Integer.valueOf(this.maxEntries)));
+		}
+	}
+
+	/**
+	 * Notify the {@link ProgressListener} about an entry that is going to be
+	 * extracted.
+	 * 
+	 * @param zipFileName The name of the ZIP file.
+	 * @param current     The number of processed entries of the ZIP file.
+	 * @param total       The number of entries of the ZIP file.
+	 */
+	void extracted(final String zipFileName, final long current, final long total) {
+
+		final ProgressListener listener = this.progressListener;
+		if (listener == null) {
+			return;
+		}
+
+		try {
+			listener.progress(new ValidationProgress(Stage.EXTRACTION, zipFileName, current, total));
+		} catch (final RuntimeException e) {
+			log.warn("Error in progress listener", e);
+		}
+	}
+
+	private void checkCancelled(final String name) throws ZipLimitExceededException {
+
+		final BooleanSupplier cancelled = this.cancellation;
+		if (cancelled != null && cancelled.getAsBoolean()) {
+			throw new ZipLimitExceededException(
+					MessageFormat.format(this.bundle.getString("ZU_MESSAGE_012"), name));
+		}
+	}
+
+	/**
+	 * Wrap the decompressing {@link InputStream} of a ZIP entry. The returned
+	 * stream counts the uncompressed bytes and fails as soon as a limit is
+	 * exceeded. In that case, the thrown {@link IOException} has a
+	 * {@link ZipLimitExceededException} as cause (see
+	 * {@link #unwrap(IOException)}).
+	 * 
+	 * <p>
+	 * The compression factor is calculated from the compressed bytes that have
+	 * actually been read, not from the compressed size declared in the ZIP
+	 * headers.
+	 * </p>
+	 * 
+	 * @param stream         The decompressing stream of the entry; must not be
+	 *                       <code>null</code>.
+	 * @param entryName      The name of the entry.
+	 * @param compressedRead Supplies the number of compressed bytes read so far;
+	 *                       must not be <code>null</code>.
+	 * @return The counting {@link InputStream}.
+	 */
+	public InputStream limit(final InputStream stream, final String entryName,
+			final LongSupplier compressedRead) {
+
+		Preconditions.checkArgument(stream != null, "stream is null");
+		Preconditions.checkArgument(compressedRead != null, "compressedRead is null");
+
+		return new CountingStream(stream, entryName, compressedRead);
+	}
+
+	/**
+	 * Count the bytes of a {@link ZipDirectoryEntry#STORED} entry that is copied
+	 * without decompression (see
+	 * {@link ZipDirectory#transfer(java.nio.channels.FileChannel, ZipDirectoryEntry, java.nio.channels.WritableByteChannel)}).
+	 * 
+	 * @param entryName The name of the entry.
+	 * @param size      The size of the entry.
+	 * @throws ZipLimitExceededException A limit is exceeded.
+	 */
+	public void countStored(final String entryName, final long size)
+			throws ZipLimitExceededException {
+
+		try {
+			count(entryName, size, size, size);
+		} catch (final IOException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Get the {@link ZipLimitExceededException} that caused an {@link IOException}
+	 * of a stream created by {@link #limit(InputStream, String, LongSupplier)}.
+	 * 
+	 * @param e An {@link IOException}.
+	 * @return The cause or <code>null</code>, if the exception was not caused by
+	 *         an exceeded limit.
+	 */
+	public static ZipLimitExceededException unwrap(final IOException e) {
+
+		if (e != null && e.getCause() instanceof ZipLimitExceededException) {
+			return (ZipLimitExceededException) e.getCause();
+		}
+		return null;
+	}
+
+	private void count(final String entryName, final long entrySize, final long compressedSize,
+			final long bytes) throws IOException {
+
+		try {
+			checkCancelled(entryName);
+		} catch (final ZipLimitExceededException e) {
+			throw new IOException(e);
+		}
+
+		final long total = this.totalSize.addAndGet(bytes);
+
+		String message = null;
+		if (this.maxTotalSize > 0 && total > this.maxTotalSize) {
+			message = MessageFormat.format(this.bundle.getString("ZU_MESSAGE_006"), entryName,
+					Long.valueOf(this.maxTotalSize));
+		} else if (this.maxEntrySize > 0 && entrySize > this.maxEntrySize) {
+			message = MessageFormat.format(this.bundle.getString("ZU_MESSAGE_010"), entryName,
+					Long.valueOf(this.maxEntrySize));
+		} else if (this.maxCompressionFactor > 0
+				&& entrySize / Math.max(1, compressedSize) > this.maxCompressionFactor) {
+			message = MessageFormat.format(this.bundle.getString("ZU_MESSAGE_009"), entryName,
+					Integer.valueOf(this.maxCompressionFactor));
+		}
+
+		if (message != null) {
+			throw new IOException(new ZipLimitExceededException(message));
+		}
+	}
+
+	/**
+	 * Stream that counts the bytes read and checks the limits.
+	 */
+	private class CountingStream extends FilterInputStream {
+
+		private final String entryName;
+
+		private final LongSupplier compressedRead;
+
+		private long entrySize = 0;
+
+		CountingStream(final InputStream in, final String entryName,
+				final LongSupplier compressedRead) {
+			super(in);
+
+			this.entryName = entryName;
+			this.compressedRead = compressedRead;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int result = super.read();
+			if (result >= 0) {
+				update(1);
+			}
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int result = super.read(b, off, len);
+			if (result > 0) {
+				update(result);
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long result = super.skip(n);
+			if (result > 0) {
+				update(result);
+			}
+			return result;
+		}
+
+		private void update(final long bytes) throws IOException {
+			this.entrySize += bytes;
+			count(this.entryName, this.entrySize, this.compressedRead.getAsLong(), bytes);
+		}
+	}
+}
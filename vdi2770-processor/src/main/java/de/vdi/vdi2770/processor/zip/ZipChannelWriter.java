@@ -0,0 +1,878 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Write a ZIP file to a {@link FileChannel}.
+ * 
+ * <p>
+ * Files are read by {@link FileChannel}s, too. Entries that are already
+ * compressed (e.g. nested containers, scanned PDF files or images) are
+ * {@link ZipDirectoryEntry#STORED} and copied by
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * without passing the Java heap. All other entries are
+ * {@link ZipDirectoryEntry#DEFLATED} using direct buffers.
+ * </p>
+ * 
+ * <p>
+ * ZIP64 extensions are written if an entry or the archive is larger than 4 GB
+ * or the archive has more than 65535 entries.
+ * </p>
+ * 
+ * <p>
+ * Large entries can be deflated by multiple threads (see
+ * {@link #setDeflateThreads(int)}). Like pigz, the entry is split into blocks
+ * that are compressed concurrently. Every block is primed with the last 32 KB of
+ * the previous block as dictionary and ends with a sync flush, so the
+ * concatenated blocks are a single standard deflate stream.
+ * </p>
+ * 
+ * <p>
+ * In reproducible mode (see {@link #setReproducible(boolean)}), the same
+ * entries always result in the same bytes.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ZipChannelWriter implements Closeable {
+
+	private static final int VERSION_DEFAULT = 20;
+
+	private static final int VERSION_ZIP64 = 45;
+
+	private static final int UTF8_FLAG = 1 << 11;
+
+	private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	private static final int ZIP64_EXTRA_FIELD = 0x0001;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Size of the sample that is compressed to decide, whether an entry is
+	 * stored.
+	 */
+	private static final int SAMPLE_SIZE = 64 * 1024;
+
+	/**
+	 * An entry is stored, if deflating the sample saves less than 5 percent.
+	 */
+	private static final double MIN_COMPRESSION_SAVING = 0.05;
+
+	/**
+	 * Default minimum size of an entry that is deflated by multiple threads.
+	 */
+	public static final long DEFAULT_PARALLEL_THRESHOLD = 16L * 1024 * 1024;
+
+	/**
+	 * Size of the blocks that are deflated concurrently.
+	 */
+	private static final int BLOCK_SIZE = 1024 * 1024;
+
+	/**
+	 * Maximum size of a deflate dictionary.
+	 */
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	/**
+	 * Modification time of all entries in reproducible mode: 1980-01-01 00:00, the
+	 * earliest MS-DOS time.
+	 */
+	public static final long REPRODUCIBLE_DOS_TIME = (1 << 21) | (1 << 16);
+
+	private final FileChannel channel;
+
+	private boolean reproducible = false;
+
+	private int deflateThreads = 1;
+
+	private long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+	private ExecutorService executor;
+
+	private final List<ZipDirectoryEntry> entries = new ArrayList<>();
+
+	private final Set<String> names = new HashSet<>();
+
+	private boolean closed = false;
+
+	/**
+	 * ctor
+	 * 
+	 * <p>
+	 * An existing file is replaced.
+	 * </p>
+	 * 
+	 * @param zipFile The path of the new ZIP file; must not be <code>null</code>.
+	 * @throws IOException The file can not be created.
+	 */
+	public ZipChannelWriter(final Path zipFile) throws IOException {
+		this(FileChannel.open(zipFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * ctor
+	 * 
+	 * <p>
+	 * The ZIP file is written from the current position of the channel. The
+	 * channel is closed by {@link #close()}.
+	 * </p>
+	 * 
+	 * @param channel A writable {@link FileChannel}; must not be
+	 *                <code>null</code>.
+	 */
+	public ZipChannelWriter(final FileChannel channel) {
+		super();
+
+		Preconditions.checkArgument(channel != null, "channel is null");
+
+		this.channel = channel;
+	}
+
+	/**
+	 * Set the number of threads to deflate large entries.
+	 * 
+	 * @param threads The number of threads; 1 disables parallel compression.
+	 */
+	public void setDeflateThreads(final int threads) {
+
+		Preconditions.checkArgument(threads > 0, "threads must be greater than 0");
+		Preconditions.checkState(this.executor == null, "deflate threads already started");
+
+		this.deflateThreads = threads;
+	}
+
+	/**
+	 * @return The number of threads to deflate large entries.
+	 */
+	public int getDeflateThreads() {
+		return this.deflateThreads;
+	}
+
+	/**
+	 * Enable or disable the reproducible mode. In reproducible mode, all entries
+	 * have the modification time {@link #REPRODUCIBLE_DOS_TIME} and no external
+	 * attributes. Entries are deflated by a single thread with fixed parameters,
+	 * so the result does not depend on the configuration of parallel compression.
+	 * The order of entries is the order of the calls.
+	 * 
+	 * @param reproducible <code>true</code> to enable the reproducible mode.
+	 */
+	public void setReproducible(final boolean reproducible) {
+		this.reproducible = reproducible;
+	}
+
+	/**
+	 * @return <code>true</code>, if the reproducible mode is enabled.
+	 */
+	public boolean isReproducible() {
+		return this.reproducible;
+	}
+
+	/**
+	 * Set the minimum size of entries that are deflated by multiple threads.
+	 * 
+	 * @param threshold A size in bytes; must be 0 or greater. The default is
+	 *                  {@link #DEFAULT_PARALLEL_THRESHOLD}.
+	 */
+	public void setParallelThreshold(final long threshold) {
+
+		Preconditions.checkArgument(threshold >= 0, "invalid threshold");
+
+		this.parallelThreshold = threshold;
+	}
+
+	/**
+	 * @return The minimum size of entries that are deflated by multiple threads.
+	 */
+	public long getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+	/**
+	 * Add a file. The compression method is chosen by the content of the file.
+	 * 
+	 * @param file A regular file; must not be <code>null</code>.
+	 * @param name The name of the entry; must not be <code>null</code> or empty
+	 *             and must be unique.
+	 * @throws IOException There was an error reading the file or writing the ZIP
+	 *                     file.
+	 */
+	public void addFile(final Path file, final String name) throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+			final int method = isCompressible(source) ? ZipDirectoryEntry.DEFLATED
+					: ZipDirectoryEntry.STORED;
+			addFile(source, name, method,
+					toDosTime(Files.getLastModifiedTime(file).toMillis()));
+		}
+	}
+
+	/**
+	 * Add a file with a given compression method.
+	 * 
+	 * @param file   A regular file; must not be <code>null</code>.
+	 * @param name   The name of the entry; must not be <code>null</code> or empty
+	 *               and must be unique.
+	 * @param method {@link ZipDirectoryEntry#STORED} or
+	 *               {@link ZipDirectoryEntry#DEFLATED}.
+	 * @throws IOException There was an error reading the file or writing the ZIP
+	 *                     file.
+	 */
+	public void addFile(final Path file, final String name, final int method)
+			throws IOException {
+
+		Preconditions.checkArgument(file != null, "file is null");
+
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+			addFile(source, name, method,
+					toDosTime(Files.getLastModifiedTime(file).toMillis()));
+		}
+	}
+
+	/**
+	 * Add the content of a channel.
+	 * 
+	 * @param source  A {@link FileChannel} to read from position zero to the end;
+	 *                must not be <code>null</code>.
+	 * @param name    The name of the entry; must not be <code>null</code> or empty
+	 *                and must be unique.
+	 * @param method  {@link ZipDirectoryEntry#STORED} or
+	 *                {@link ZipDirectoryEntry#DEFLATED}.
+	 * @param dosTime The modification time in MS-DOS format.
+	 * @throws IOException There was an error reading the source or writing the
+	 *                     ZIP file.
+	 */
+	public void addFile(final FileChannel source, final String name, final int method,
+			final long dosTime) throws IOException {
+
+		Preconditions.checkArgument(source != null, "source is null");
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkArgument(
+				method == ZipDirectoryEntry.STORED || method == ZipDirectoryEntry.DEFLATED,
+				"unsupported compression method");
+		Preconditions.checkState(!this.closed, "writer is closed");
+
+		if (!this.names.add(name)) {
+			throw new ZipException("Duplicate entry " + name);
+		}
+
+		final long size = source.size();
+
+		final ZipDirectoryEntry entry = new ZipDirectoryEntry();
+		entry.setName(name);
+		entry.setMethod(method);
+		entry.setDosTime(this.reproducible ? REPRODUCIBLE_DOS_TIME : dosTime);
+		entry.setSize(size);
+		entry.setLocalHeaderOffset(this.channel.position());
+
+		final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		if (!StandardCharsets.US_ASCII.newEncoder().canEncode(name)) {
+			entry.setFlags(UTF8_FLAG);
+		}
+
+		if (method == ZipDirectoryEntry.STORED) {
+			// the CRC is required before the data
+			entry.setCrc(ZipDirectory.crc(source, 0, size));
+			entry.setCompressedSize(size);
+
+			writeLocalHeader(entry, nameBytes, size >= ZIP64_MAGIC);
+
+			long transferred = 0;
+			while (transferred < size) {
+				final long count = source.transferTo(transferred, size - transferred,
+						this.channel);
+				if (count <= 0) {
+					throw new ZipException("Unexpected end of file " + name);
+				}
+				transferred += count;
+			}
+		} else {
+			// deflated data might be a little larger than the input
+			final boolean zip64 = size + size / 1000 + 1024 >= ZIP64_MAGIC;
+			writeLocalHeader(entry, nameBytes, zip64);
+			final long dataOffset = this.channel.position();
+
+			entry.setCrc(deflate(source));
+			entry.setCompressedSize(this.channel.position() - dataOffset);
+
+			// patch CRC and sizes in the local header
+			patchLocalHeader(entry, nameBytes.length, zip64);
+		}
+
+		this.entries.add(entry);
+	}
+
+	/**
+	 * Copy an entry of an other ZIP file without decompressing it.
+	 *
+	 * <p>
+	 * The compressed data is copied verbatim by
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+	 * Compression method, CRC, sizes and modification time are taken from the
+	 * given entry.
+	 * </p>
+	 *
+	 * @param source     The {@link FileChannel} containing the compressed data;
+	 *                   must not be <code>null</code>.
+	 * @param dataOffset The offset of the compressed data in the source channel
+	 *                   (see {@link ZipDirectory#getDataOffset}).
+	 * @param entry      The entry of the central directory of the source; must not
+	 *                   be <code>null</code> or encrypted.
+	 * @param name       The name of the new entry; must not be <code>null</code>
+	 *                   or empty and must be unique.
+	 * @throws IOException There was an error reading the source or writing the
+	 *                     ZIP file.
+	 */
+	public void copyEntry(final FileChannel source, final long dataOffset,
+			final ZipDirectoryEntry entry, final String name) throws IOException {
+
+		Preconditions.checkArgument(source != null, "source is null");
+		Preconditions.checkArgument(entry != null, "entry is null");
+		Preconditions.checkArgument(!entry.isEncrypted(), "entry is encrypted");
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkState(!this.closed, "writer is closed");
+
+		final long compressedSize = entry.getCompressedSize();
+		if (dataOffset < 0 || dataOffset + compressedSize > source.size()) {
+			throw new ZipException("Entry " + entry.getName() + " exceeds the ZIP file");
+		}
+
+		if (!this.names.add(name)) {
+			throw new ZipException("Duplicate entry " + name);
+		}
+
+		final ZipDirectoryEntry copy = new ZipDirectoryEntry();
+		copy.setName(name);
+		copy.setMethod(entry.getMethod());
+		copy.setDosTime(this.reproducible ? REPRODUCIBLE_DOS_TIME : entry.getDosTime());
+		copy.setCrc(entry.getCrc());
+		copy.setSize(entry.getSize());
+		copy.setCompressedSize(compressedSize);
+		copy.setExternalAttributes(this.reproducible ? 0 : entry.getExternalAttributes());
+		copy.setLocalHeaderOffset(this.channel.position());
+
+		// sizes are written to the local header, so no data descriptor is used
+		final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		int flags = entry.getFlags() & ~(DATA_DESCRIPTOR_FLAG | UTF8_FLAG);
+		if (!StandardCharsets.US_ASCII.newEncoder().canEncode(name)) {
+			flags |= UTF8_FLAG;
+		}
+		copy.setFlags(flags);
+
+		writeLocalHeader(copy, nameBytes,
+				entry.getSize() >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC);
+
+		long transferred = 0;
+		while (transferred < compressedSize) {
+			final long count = source.transferTo(dataOffset + transferred,
+					compressedSize - transferred, this.channel);
+			if (count <= 0) {
+				throw new ZipException("Unexpected end of entry " + entry.getName());
+			}
+			transferred += count;
+		}
+
+		this.entries.add(copy);
+	}
+
+	/**
+	 * @return The number of entries written so far.
+	 */
+	public int getEntryCount() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Write the central directory and close the channel.
+	 * 
+	 * @throws IOException There was an error writing the ZIP file.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+
+		try {
+			writeCentralDirectory();
+		} finally {
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+			}
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Check, whether the content of a file can be compressed. A sample from the
+	 * middle of the file is deflated.
+	 * 
+	 * @param source A {@link FileChannel}; must not be <code>null</code>.
+	 * @return <code>true</code>, if deflating saves at least 5 percent.
+	 * @throws IOException There was an error reading the file.
+	 */
+	static boolean isCompressible(final FileChannel source) throws IOException {
+
+		final long size = source.size();
+		if (size <= SAMPLE_SIZE) {
+			// deflating small files is cheap
+			return true;
+		}
+
+		final ByteBuffer sample = ByteBuffer.allocate(SAMPLE_SIZE);
+		long position = (size - SAMPLE_SIZE) / 2;
+		while (sample.hasRemaining()) {
+			final int read = source.read(sample, position);
+			if (read < 0) {
+				break;
+			}
+			position += read;
+		}
+		sample.flip();
+
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(sample);
+			deflater.finish();
+			final byte[] output = new byte[SAMPLE_SIZE];
+			long compressed = 0;
+			while (!deflater.finished()) {
+				compressed += deflater.deflate(output);
+			}
+			return compressed < sample.limit() * (1 - MIN_COMPRESSION_SAVING);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Convert a Java time to MS-DOS date and time.
+	 * 
+	 * @param time Milliseconds since epoch.
+	 * @return The time in MS-DOS format.
+	 */
+	static long toDosTime(final long time) {
+
+		final LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time),
+				ZoneId.systemDefault());
+		if (date.getYear() < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return ((date.getYear() - 1980L) << 25) | ((long) date.getMonthValue() << 21)
+				| ((long) date.getDayOfMonth() << 16) | ((long) date.getHour() << 11)
+				| ((long) date.getMinute() << 5) | (date.getSecond() >> 1);
+	}
+
+	private long deflate(final FileChannel source) throws IOException {
+
+		if (!this.reproducible && this.deflateThreads > 1 && source.size() >= this.parallelThreshold
+				&& source.size() > BLOCK_SIZE) {
+			return deflateParallel(source);
+		}
+
+		final CRC32 crc = new CRC32();
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		try {
+			long position = 0;
+			boolean eof = false;
+			while (!deflater.finished()) {
+				if (deflater.needsInput() && !eof) {
+					input.clear();
+					final int read = source.read(input, position);
+					if (read < 0) {
+						// the deflater still references the buffer
+						input.limit(0);
+						eof = true;
+						deflater.finish();
+					} else {
+						position += read;
+						input.flip();
+						crc.update(input);
+						input.rewind();
+						deflater.setInput(input);
+					}
+				}
+
+				output.clear();
+				deflater.deflate(output);
+				output.flip();
+				while (output.hasRemaining()) {
+					this.channel.write(output);
+				}
+			}
+		} finally {
+			deflater.end();
+		}
+
+		return crc.getValue();
+	}
+
+	/**
+	 * Deflate the content of a channel by multiple threads. Blocks are read and
+	 * checksummed in order by the calling thread, compressed concurrently and
+	 * written in order. At most two blocks per thread are in memory.
+	 * 
+	 * @param source The channel to deflate.
+	 * @return The CRC of the content.
+	 * @throws IOException There was an error reading the source or writing the
+	 *                     ZIP file.
+	 */
+	private long deflateParallel(final FileChannel source) throws IOException {
+
+		final long size = source.size();
+		final CRC32 crc = new CRC32();
+		final ExecutorService service = getExecutor();
+		final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+		final int window = this.deflateThreads * 2;
+
+		try {
+			byte[] previous = null;
+			long position = 0;
+			while (position < size) {
+				final byte[] block = new byte[(int) Math.min(BLOCK_SIZE, size - position)];
+				final ByteBuffer buffer = ByteBuffer.wrap(block);
+				while (buffer.hasRemaining()) {
+					if (source.read(buffer, position + buffer.position()) < 0) {
+						throw new ZipException("Unexpected end of file");
+					}
+				}
+				crc.update(block);
+				position += block.length;
+
+				final byte[] dictionary = previous == null ? null
+						: Arrays.copyOfRange(previous,
+								Math.max(0, previous.length - DICTIONARY_SIZE), previous.length);
+				final boolean last = position >= size;
+				pending.add(service.submit(() -> deflateBlock(block, dictionary, last)));
+				previous = block;
+
+				if (pending.size() >= window) {
+					writeBlock(pending.poll());
+				}
+			}
+
+			while (!pending.isEmpty()) {
+				writeBlock(pending.poll());
+			}
+		} finally {
+			pending.forEach(f -> f.cancel(true));
+		}
+
+		return crc.getValue();
+	}
+
+	/**
+	 * Deflate a block of a deflate stream.
+	 * 
+	 * @param block      The uncompressed data.
+	 * @param dictionary The end of the previous block or <code>null</code> for the
+	 *                   first block.
+	 * @param last       <code>true</code> for the last block of the stream.
+	 * @return The compressed data. All blocks but the last one end with a sync
+	 *         flush at a byte boundary.
+	 */
+	static byte[] deflateBlock(final byte[] block, final byte[] dictionary,
+			final boolean last) {
+
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(block);
+
+			final ByteArrayOutputStream result = new ByteArrayOutputStream(block.length / 2 + 64);
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					result.write(buffer, 0, deflater.deflate(buffer));
+				}
+			} else {
+				int count;
+				do {
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					result.write(buffer, 0, count);
+				} while (count == buffer.length);
+			}
+			return result.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeBlock(final Future<byte[]> block) throws IOException {
+
+		try {
+			write(ByteBuffer.wrap(block.get()));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while deflating");
+		} catch (final ExecutionException e) {
+			throw new IOException("Error while deflating", e.getCause());
+		}
+	}
+
+	private ExecutorService getExecutor() {
+
+		if (this.executor == null) {
+			final AtomicInteger counter = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(this.deflateThreads, r -> {
+				final Thread thread = new Thread(r, "zip-deflate-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.executor;
+	}
+
+	private void writeLocalHeader(final ZipDirectoryEntry entry, final byte[] name,
+			final boolean zip64) throws IOException {
+
+		final ByteBuffer header = ByteBuffer
+				.allocate(ZipDirectory.LOCAL_HEADER_LENGTH + name.length + (zip64 ? 20 : 0))
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		header.putInt(ZipDirectory.LOCAL_HEADER_SIGNATURE);
+		header.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+		header.putShort((short) entry.getFlags());
+		header.putShort((short) entry.getMethod());
+		header.putInt((int) entry.getDosTime());
+		header.putInt((int) entry.getCrc());
+		header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.getCompressedSize()));
+		header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.getSize()));
+		header.putShort((short) name.length);
+		header.putShort((short) (zip64 ? 20 : 0));
+		header.put(name);
+		if (zip64) {
+			header.putShort((short) ZIP64_EXTRA_FIELD);
+			header.putShort((short) 16);
+			header.putLong(entry.getSize());
+			header.putLong(entry.getCompressedSize());
+		}
+		header.flip();
+
+		write(header);
+	}
+
+	private void patchLocalHeader(final ZipDirectoryEntry entry, final int nameLength,
+			final boolean zip64) throws IOException {
+
+		final ByteBuffer patch = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+		patch.putInt((int) entry.getCrc());
+		patch.putInt((int) (zip64 ? ZIP64_MAGIC : entry.getCompressedSize()));
+		patch.putInt((int) (zip64 ? ZIP64_MAGIC : entry.getSize()));
+		patch.flip();
+		write(patch, entry.getLocalHeaderOffset() + 14);
+
+		if (zip64) {
+			final ByteBuffer sizes = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			sizes.putLong(entry.getSize());
+			sizes.putLong(entry.getCompressedSize());
+			sizes.flip();
+			write(sizes, entry.getLocalHeaderOffset() + ZipDirectory.LOCAL_HEADER_LENGTH
+					+ nameLength + 4);
+		}
+	}
+
+	private void writeCentralDirectory() throws IOException {
+
+		final long directoryOffset = this.channel.position();
+
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (final ZipDirectoryEntry entry : this.entries) {
+
+			final byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+
+			final boolean sizeZip64 = entry.getSize() >= ZIP64_MAGIC;
+			final boolean compressedSizeZip64 = entry.getCompressedSize() >= ZIP64_MAGIC;
+			final boolean offsetZip64 = entry.getLocalHeaderOffset() >= ZIP64_MAGIC;
+			final int extraLength = (sizeZip64 || compressedSizeZip64 || offsetZip64)
+					? 4 + (sizeZip64 ? 8 : 0) + (compressedSizeZip64 ? 8 : 0)
+							+ (offsetZip64 ? 8 : 0)
+					: 0;
+			final int version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+			final int length = 46 + name.length + extraLength;
+			if (buffer.remaining() < length) {
+				flush(buffer);
+			}
+			final ByteBuffer header = buffer.remaining() >= length ? buffer
+					: ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+			header.putInt(ZipDirectory.CENTRAL_HEADER_SIGNATURE);
+			header.putShort((short) version);
+			header.putShort((short) version);
+			header.putShort((short) entry.getFlags());
+			header.putShort((short) entry.getMethod());
+			header.putInt((int) entry.getDosTime());
+			header.putInt((int) entry.getCrc());
+			header.putInt((int) (compressedSizeZip64 ? ZIP64_MAGIC : entry.getCompressedSize()));
+			header.putInt((int) (sizeZip64 ? ZIP64_MAGIC : entry.getSize()));
+			header.putShort((short) name.length);
+			header.putShort((short) extraLength);
+			// comment length, disk number, internal and external attributes
+			header.putShort((short) 0);
+			header.putShort((short) 0);
+			header.putShort((short) 0);
+			header.putInt((int) entry.getExternalAttributes());
+			header.putInt((int) (offsetZip64 ? ZIP64_MAGIC : entry.getLocalHeaderOffset()));
+			header.put(name);
+			if (extraLength > 0) {
+				header.putShort((short) ZIP64_EXTRA_FIELD);
+				header.putShort((short) (extraLength - 4));
+				if (sizeZip64) {
+					header.putLong(entry.getSize());
+				}
+				if (compressedSizeZip64) {
+					header.putLong(entry.getCompressedSize());
+				}
+				if (offsetZip64) {
+					header.putLong(entry.getLocalHeaderOffset());
+				}
+			}
+
+			if (header != buffer) {
+				flush(header);
+			}
+		}
+		flush(buffer);
+
+		final long directoryEnd = this.channel.position();
+		final long directorySize = directoryEnd - directoryOffset;
+		final long count = this.entries.size();
+
+		final boolean zip64 = count >= ZIP64_MAGIC_COUNT || directorySize >= ZIP64_MAGIC
+				|| directoryOffset >= ZIP64_MAGIC;
+
+		if (zip64) {
+			final ByteBuffer record = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+
+			// ZIP64 end of central directory record
+			record.putInt(ZipDirectory.ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+			record.putLong(44);
+			record.putShort((short) VERSION_ZIP64);
+			record.putShort((short) VERSION_ZIP64);
+			record.putInt(0);
+			record.putInt(0);
+			record.putLong(count);
+			record.putLong(count);
+			record.putLong(directorySize);
+			record.putLong(directoryOffset);
+
+			// ZIP64 end of central directory locator
+			record.putInt(ZipDirectory.ZIP64_LOCATOR_SIGNATURE);
+			record.putInt(0);
+			record.putLong(directoryEnd);
+			record.putInt(1);
+
+			record.flip();
+			write(record);
+		}
+
+		final ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+		end.putInt(ZipDirectory.END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+		end.putShort((short) 0);
+		end.putShort((short) 0);
+		end.putShort((short) (zip64 ? ZIP64_MAGIC_COUNT : count));
+		end.putShort((short) (zip64 ? ZIP64_MAGIC_COUNT : count));
+		end.putInt((int) (zip64 ? ZIP64_MAGIC : directorySize));
+		end.putInt((int) (zip64 ? ZIP64_MAGIC : directoryOffset));
+		end.putShort((short) 0);
+		end.flip();
+		write(end);
+
+		if (log.isDebugEnabled()) {
+			log.debug("Wrote " + count + " ZIP entries" + (zip64 ? " (ZIP64)" : ""));
+		}
+	}
+
+	private void flush(final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		write(buffer);
+		buffer.clear();
+	}
+
+	private void write(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+	}
+
+	private void write(final ByteBuffer buffer, final long position) throws IOException {
+		long current = position;
+		while (buffer.hasRemaining()) {
+			current += this.channel.write(buffer, current);
+		}
+	}
+}
@@ -0,0 +1,905 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Read the central directory of a ZIP file without extracting any entry.
+ * 
+ * <p>
+ * The ZIP file is accessed by a {@link SeekableByteChannel}, so it can be a
+ * file, a slice of an other ZIP file (a stored nested ZIP file) or an in-memory
+ * buffer. ZIP64 archives are supported.
+ * </p>
+ * 
+ * <p>
+ * For a {@link FileChannel}, large central directories are memory mapped and
+ * {@link ZipDirectoryEntry#STORED} entries can be copied by
+ * {@link #transfer(FileChannel, ZipDirectoryEntry, WritableByteChannel)}
+ * without passing the Java heap.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public final class ZipDirectory {
+
+	static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+	static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+
+	static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	static final int LOCAL_HEADER_LENGTH = 30;
+
+	private static final int CENTRAL_HEADER_LENGTH = 46;
+
+	private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+
+	private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+	private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH = 56;
+
+	private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+	private static final int ZIP64_EXTRA_FIELD = 0x0001;
+
+	private static final int UTF8_FLAG = 1 << 11;
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final Charset LEGACY_CHARSET = getLegacyCharset();
+
+	/**
+	 * Central directories larger than this are memory mapped.
+	 */
+	private static final int MAP_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Maximum size of a memory mapped region to calculate CRC values.
+	 */
+	private static final long MAP_CHUNK_SIZE = 256L * 1024 * 1024;
+
+	private ZipDirectory() {
+		// utility class
+	}
+
+	/**
+	 * Read the entries of the central directory.
+	 * 
+	 * <p>
+	 * All entries are kept in memory. For archives with a large number of entries
+	 * use {@link #open(SeekableByteChannel)} to iterate the entries one by one.
+	 * </p>
+	 * 
+	 * @param channel A {@link SeekableByteChannel} of a ZIP file; must not be
+	 *                <code>null</code>.
+	 * @return The entries in the order of the central directory.
+	 * @throws IOException The central directory could not be read, e.g. the
+	 *                     channel does not contain a ZIP file.
+	 */
+	public static List<ZipDirectoryEntry> read(final SeekableByteChannel channel)
+			throws IOException {
+
+		final Cursor cursor = open(channel);
+
+		final List<ZipDirectoryEntry> result = new ArrayList<>();
+		ZipDirectoryEntry entry;
+		while ((entry = cursor.next()) != null) {
+			result.add(entry);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Open the central directory to iterate its entries one by one.
+	 * 
+	 * <p>
+	 * Only a window of the central directory is kept in memory, so the heap used
+	 * does not depend on the number of entries. For a {@link FileChannel}, large
+	 * windows are memory mapped.
+	 * </p>
+	 * 
+	 * @param channel A {@link SeekableByteChannel} of a ZIP file; must not be
+	 *                <code>null</code>. The channel must not be closed while the
+	 *                {@link Cursor} is in use.
+	 * @return A {@link Cursor} positioned before the first entry.
+	 * @throws IOException The end of the central directory could not be read, e.g.
+	 *                     the channel does not contain a ZIP file.
+	 */
+	public static Cursor open(final SeekableByteChannel channel) throws IOException {
+
+		Preconditions.checkArgument(channel != null, "channel is null");
+
+		final long size = channel.size();
+		if (size < END_OF_CENTRAL_DIRECTORY_LENGTH) {
+			throw new ZipException("File is too small to be a ZIP file");
+		}
+
+		// the end of central directory record is followed by a comment
+		final int tailLength = (int) Math.min(size,
+				END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+		final ByteBuffer tail = readFully(channel, size - tailLength, tailLength);
+
+		int eocd = -1;
+		for (int i = tailLength - END_OF_CENTRAL_DIRECTORY_LENGTH; i >= 0; i--) {
+			if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+				eocd = i;
+				break;
+			}
+		}
+		if (eocd < 0) {
+			throw new ZipException("End of central directory not found");
+		}
+
+		long entries = tail.getShort(eocd + 10) & 0xFFFF;
+		long directorySize = tail.getInt(eocd + 12) & ZIP64_MAGIC;
+		long directoryOffset = tail.getInt(eocd + 16) & ZIP64_MAGIC;
+
+		// ZIP64 end of central directory locator
+		final long eocdPosition = size - tailLength + eocd;
+		if (eocdPosition >= ZIP64_LOCATOR_LENGTH) {
+			final ByteBuffer locator = readFully(channel, eocdPosition - ZIP64_LOCATOR_LENGTH,
+					ZIP64_LOCATOR_LENGTH);
+			if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+				final long zip64Offset = locator.getLong(8);
+				if (zip64Offset < 0 || zip64Offset > size - ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH) {
+					throw new ZipException("Invalid ZIP64 end of central directory offset");
+				}
+				final ByteBuffer zip64 = readFully(channel, zip64Offset,
+						ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH);
+				if (zip64.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+					throw new ZipException("Invalid ZIP64 end of central directory");
+				}
+				entries = zip64.getLong(32);
+				directorySize = zip64.getLong(40);
+				directoryOffset = zip64.getLong(48);
+			}
+		}
+
+		if (entries < 0 || directoryOffset < 0 || directorySize < 0
+				|| directoryOffset + directorySize > size) {
+			throw new ZipException("Invalid central directory offset");
+		}
+
+		return new Cursor(channel, directoryOffset, directorySize, entries);
+	}
+
+	/**
+	 * Find an entry by its name.
+	 * 
+	 * @param channel A {@link SeekableByteChannel} of a ZIP file; must not be
+	 *                <code>null</code>.
+	 * @param name    The name of the entry; must not be <code>null</code>.
+	 * @return The first entry with the given name or <code>null</code>, if the
+	 *         central directory does not contain such an entry.
+	 * @throws IOException The central directory could not be read.
+	 */
+	public static ZipDirectoryEntry find(final SeekableByteChannel channel, final String name)
+			throws IOException {
+
+		Preconditions.checkArgument(name != null, "name is null");
+
+		final Cursor cursor = open(channel);
+		ZipDirectoryEntry entry;
+		while ((entry = cursor.next()) != null) {
+			if (name.equals(entry.getName())) {
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Sequential access to the entries of a central directory (see
+	 * {@link ZipDirectory#open(SeekableByteChannel)}).
+	 * 
+	 * <p>
+	 * Instances are not thread safe.
+	 * </p>
+	 */
+	public static final class Cursor {
+
+		/**
+		 * Size of a window that is read into the heap.
+		 */
+		private static final int WINDOW_SIZE = 64 * 1024;
+
+		private final SeekableByteChannel channel;
+
+		private final long end;
+
+		private final long entryCount;
+
+		private long position;
+
+		private long readEntries = 0;
+
+		private ByteBuffer window;
+
+		private long windowStart;
+
+		private Cursor(final SeekableByteChannel channel, final long directoryOffset,
+				final long directorySize, final long entryCount) {
+			this.channel = channel;
+			this.position = directoryOffset;
+			this.end = directoryOffset + directorySize;
+			this.entryCount = entryCount;
+		}
+
+		/**
+		 * @return The number of entries as given by the end of central directory
+		 *         record.
+		 */
+		public long getEntryCount() {
+			return this.entryCount;
+		}
+
+		/**
+		 * Read the next entry.
+		 * 
+		 * @return The next entry or <code>null</code>, if all entries have been read.
+		 * @throws IOException The central directory is truncated or contains less
+		 *                     entries than declared.
+		 */
+		public ZipDirectoryEntry next() throws IOException {
+
+			if (this.position + CENTRAL_HEADER_LENGTH > this.end
+					|| ensure(this.position, CENTRAL_HEADER_LENGTH)
+							.getInt(offset(this.position)) != CENTRAL_HEADER_SIGNATURE) {
+
+				if (this.readEntries < this.entryCount) {
+					throw new ZipException("Central directory contains " + this.readEntries
+							+ " entries, expected " + this.entryCount);
+				}
+				return null;
+			}
+
+			final ByteBuffer header = ensure(this.position, CENTRAL_HEADER_LENGTH);
+			final int start = offset(this.position);
+			final int length = CENTRAL_HEADER_LENGTH + (header.getShort(start + 28) & 0xFFFF)
+					+ (header.getShort(start + 30) & 0xFFFF) + (header.getShort(start + 32) & 0xFFFF);
+			if (this.position + length > this.end) {
+				throw new ZipException("Truncated central directory");
+			}
+
+			final ByteBuffer record = ensure(this.position, length);
+			final ZipDirectoryEntry entry = readEntry(record, offset(this.position));
+
+			this.position += length;
+			this.readEntries++;
+			return entry;
+		}
+
+		private int offset(final long absolute) {
+			return (int) (absolute - this.windowStart);
+		}
+
+		/**
+		 * Make sure, the window contains the given range of the channel.
+		 */
+		private ByteBuffer ensure(final long start, final int length) throws IOException {
+
+			if (this.window != null && start >= this.windowStart
+					&& start + length <= this.windowStart + this.window.limit()) {
+				return this.window;
+			}
+
+			if (this.channel instanceof FileChannel && this.end - start >= MAP_THRESHOLD) {
+				final long mapped = Math.min(this.end - start, MAP_CHUNK_SIZE);
+				this.window = ((FileChannel) this.channel)
+						.map(FileChannel.MapMode.READ_ONLY, start, mapped)
+						.order(ByteOrder.LITTLE_ENDIAN);
+			} else {
+				final int read = (int) Math.min(this.end - start, Math.max(WINDOW_SIZE, length));
+				this.window = readFully(this.channel, start, read);
+			}
+			this.windowStart = start;
+
+			return this.window;
+		}
+	}
+
+	private static ZipDirectoryEntry readEntry(final ByteBuffer directory, final int position) {
+
+		final int flags = directory.getShort(position + 8) & 0xFFFF;
+		final int nameLength = directory.getShort(position + 28) & 0xFFFF;
+		final int extraLength = directory.getShort(position + 30) & 0xFFFF;
+
+		final ZipDirectoryEntry entry = new ZipDirectoryEntry();
+		entry.setFlags(flags);
+		entry.setMethod(directory.getShort(position + 10) & 0xFFFF);
+		entry.setDosTime(directory.getInt(position + 12) & ZIP64_MAGIC);
+		entry.setCrc(directory.getInt(position + 16) & ZIP64_MAGIC);
+		entry.setCompressedSize(directory.getInt(position + 20) & ZIP64_MAGIC);
+		entry.setSize(directory.getInt(position + 24) & ZIP64_MAGIC);
+		entry.setExternalAttributes(directory.getInt(position + 38) & ZIP64_MAGIC);
+		entry.setLocalHeaderOffset(directory.getInt(position + 42) & ZIP64_MAGIC);
+
+		final byte[] name = new byte[nameLength];
+		directory.get(position + CENTRAL_HEADER_LENGTH, name);
+		entry.setName(new String(name,
+				(flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : LEGACY_CHARSET));
+
+		readZip64ExtraField(directory, position + CENTRAL_HEADER_LENGTH + nameLength,
+				extraLength, entry);
+
+		return entry;
+	}
+
+	private static void readZip64ExtraField(final ByteBuffer directory, final int start,
+			final int length, final ZipDirectoryEntry entry) {
+
+		int position = start;
+		while (position + 4 <= start + length) {
+			final int id = directory.getShort(position) & 0xFFFF;
+			final int size = directory.getShort(position + 2) & 0xFFFF;
+			if (id == ZIP64_EXTRA_FIELD) {
+				int field = position + 4;
+				final int end = field + size;
+				if (entry.getSize() == ZIP64_MAGIC && field + 8 <= end) {
+					entry.setSize(directory.getLong(field));
+					field += 8;
+				}
+				if (entry.getCompressedSize() == ZIP64_MAGIC && field + 8 <= end) {
+					entry.setCompressedSize(directory.getLong(field));
+					field += 8;
+				}
+				if (entry.getLocalHeaderOffset() == ZIP64_MAGIC && field + 8 <= end) {
+					entry.setLocalHeaderOffset(directory.getLong(field));
+				}
+				return;
+			}
+			position += 4 + size;
+		}
+	}
+
+	/**
+	 * Get the offset of the (compressed) data of an entry.
+	 * 
+	 * @param channel The {@link SeekableByteChannel} of the ZIP file.
+	 * @param entry   An entry of the ZIP file.
+	 * @return The offset of the data in the channel.
+	 * @throws IOException The local file header is invalid.
+	 */
+	public static long getDataOffset(final SeekableByteChannel channel,
+			final ZipDirectoryEntry entry) throws IOException {
+
+		final ByteBuffer header = readFully(channel, entry.getLocalHeaderOffset(),
+				LOCAL_HEADER_LENGTH);
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local file header of entry " + entry.getName());
+		}
+
+		final int nameLength = header.getShort(26) & 0xFFFF;
+		final int extraLength = header.getShort(28) & 0xFFFF;
+
+		return entry.getLocalHeaderOffset() + LOCAL_HEADER_LENGTH + nameLength + extraLength;
+	}
+
+	/**
+	 * Get a read-only view of the compressed data of an entry. For
+	 * {@link ZipDirectoryEntry#STORED} entries, this is the content of the entry.
+	 * 
+	 * @param channel The {@link SeekableByteChannel} of the ZIP file.
+	 * @param entry   An entry of the ZIP file.
+	 * @return A {@link SeekableByteChannel} of the data; closing it does not
+	 *         close the given channel.
+	 * @throws IOException The local file header is invalid.
+	 */
+	public static SeekableByteChannel openRaw(final SeekableByteChannel channel,
+			final ZipDirectoryEntry entry) throws IOException {
+
+		final long offset = getDataOffset(channel, entry);
+		if (offset + entry.getCompressedSize() > channel.size()) {
+			throw new ZipException("Entry " + entry.getName() + " exceeds the ZIP file");
+		}
+		return new SliceChannel(channel, offset, entry.getCompressedSize());
+	}
+
+	/**
+	 * Copy the content of a {@link ZipDirectoryEntry#STORED} entry to a channel.
+	 * 
+	 * <p>
+	 * The bytes are copied by
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so the
+	 * operating system can copy them without passing the Java heap. Afterwards,
+	 * the CRC of the entry is verified on a memory mapped view of the data.
+	 * </p>
+	 * 
+	 * @param channel The {@link FileChannel} of the ZIP file; must not be
+	 *                <code>null</code>.
+	 * @param entry   A stored entry of the ZIP file; must not be
+	 *                <code>null</code>.
+	 * @param target  The target channel; must not be <code>null</code>.
+	 * @return The number of copied bytes.
+	 * @throws IOException The entry is not stored, the local file header is
+	 *                     invalid or the CRC does not match.
+	 */
+	public static long transfer(final FileChannel channel, final ZipDirectoryEntry entry,
+			final WritableByteChannel target) throws IOException {
+
+		Preconditions.checkArgument(channel != null, "channel is null");
+		Preconditions.checkArgument(entry != null, "entry is null");
+		Preconditions.checkArgument(target != null, "target is null");
+
+		if (entry.getMethod() != ZipDirectoryEntry.STORED || entry.isEncrypted()) {
+			throw new ZipException("Entry " + entry.getName() + " is not stored");
+		}
+		if (entry.getCompressedSize() != entry.getSize()) {
+			throw new ZipException("Invalid size of stored entry " + entry.getName());
+		}
+
+		final long offset = getDataOffset(channel, entry);
+		final long size = entry.getSize();
+		if (offset + size > channel.size()) {
+			throw new ZipException("Entry " + entry.getName() + " exceeds the ZIP file");
+		}
+
+		long transferred = 0;
+		while (transferred < size) {
+			final long count = channel.transferTo(offset + transferred, size - transferred,
+					target);
+			if (count <= 0) {
+				throw new EOFException("Unexpected end of ZIP file");
+			}
+			transferred += count;
+		}
+
+		if (crc(channel, offset, size) != entry.getCrc()) {
+			throw new ZipException("CRC error in entry " + entry.getName());
+		}
+
+		return size;
+	}
+
+	/**
+	 * Calculate the CRC-32 of a region of a file on memory mapped views.
+	 */
+	static long crc(final FileChannel channel, final long offset, final long size)
+			throws IOException {
+
+		final CRC32 crc = new CRC32();
+
+		// a mapped region is released by the garbage collector only; small regions
+		// are read, so that archives with many entries do not exhaust the maximum
+		// number of mapped regions of the process
+		if (size < MAP_THRESHOLD) {
+			crc.update(readFully(channel, offset, (int) size));
+			return crc.getValue();
+		}
+
+		long position = 0;
+		while (position < size) {
+			final long length = Math.min(MAP_CHUNK_SIZE, size - position);
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset + position, length));
+			position += length;
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Open the uncompressed content of an entry. The CRC of the entry is verified
+	 * when the end of the stream is reached.
+	 * 
+	 * @param channel The {@link SeekableByteChannel} of the ZIP file.
+	 * @param entry   An entry of the ZIP file; must not be encrypted.
+	 * @return An {@link InputStream} of the uncompressed content.
+	 * @throws IOException The compression method is not supported or the local
+	 *                     file header is invalid.
+	 */
+	public static InputStream openStream(final SeekableByteChannel channel,
+			final ZipDirectoryEntry entry) throws IOException {
+
+		return openStream(channel, entry, null);
+	}
+
+	/**
+	 * Open the uncompressed content of an entry and count the compressed bytes
+	 * that are read from the ZIP file.
+	 * 
+	 * @param channel        The {@link SeekableByteChannel} of the ZIP file.
+	 * @param entry          An entry of the ZIP file; must not be encrypted.
+	 * @param compressedRead Receives the number of compressed bytes read; may be
+	 *                       <code>null</code>.
+	 * @return An {@link InputStream} of the uncompressed content.
+	 * @throws IOException The compression method is not supported or the local
+	 *                     file header is invalid.
+	 */
+	static InputStream openStream(final SeekableByteChannel channel,
+			final ZipDirectoryEntry entry, final AtomicLong compressedRead) throws IOException {
+
+		if (entry.isEncrypted()) {
+			throw new ZipException("Entry " + entry.getName() + " is encrypted");
+		}
+
+		final InputStream raw = Channels.newInputStream(openRaw(channel, entry));
+
+		switch (entry.getMethod()) {
+		case ZipDirectoryEntry.STORED:
+			if (compressedRead == null) {
+				return new CheckedEntryStream(raw, entry);
+			}
+			return new CheckedEntryStream(new FilterInputStream(raw) {
+				@Override
+				public int read() throws IOException {
+					final int result = this.in.read();
+					if (result >= 0) {
+						compressedRead.incrementAndGet();
+					}
+					return result;
+				}
+
+				@Override
+				public int read(final byte[] b, final int off, final int len)
+						throws IOException {
+					final int result = this.in.read(b, off, len);
+					if (result > 0) {
+						compressedRead.addAndGet(result);
+					}
+					return result;
+				}
+			}, entry);
+		case ZipDirectoryEntry.DEFLATED:
+			final Inflater inflater = new Inflater(true);
+			return new CheckedEntryStream(new InflaterInputStream(raw, inflater, 64 * 1024) {
+				@Override
+				public int read(final byte[] b, final int off, final int len)
+						throws IOException {
+					final int result = super.read(b, off, len);
+					// the stream reads ahead, so ask the inflater for the consumed bytes
+					if (compressedRead != null) {
+						compressedRead.set(inflater.getBytesRead());
+					}
+					return result;
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						inflater.end();
+					}
+				}
+			}, entry);
+		default:
+			throw new ZipException("Unsupported compression method " + entry.getMethodName()
+					+ " of entry " + entry.getName());
+		}
+	}
+
+	/**
+	 * Create a read-only {@link SeekableByteChannel} for a byte array, e.g. a
+	 * nested ZIP file that has been inflated in memory.
+	 * 
+	 * @param data The content; must not be <code>null</code>.
+	 * @return A {@link SeekableByteChannel}.
+	 */
+	public static SeekableByteChannel inMemory(final byte[] data) {
+
+		Preconditions.checkArgument(data != null, "data is null");
+
+		return new MemoryChannel(data);
+	}
+
+	static ByteBuffer readFully(final SeekableByteChannel channel, final long position,
+			final int length) throws IOException {
+
+		final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		long current = position;
+		while (buffer.hasRemaining()) {
+			final int read;
+			if (channel instanceof FileChannel) {
+				read = ((FileChannel) channel).read(buffer, current);
+			} else {
+				channel.position(current);
+				read = channel.read(buffer);
+			}
+			if (read < 0) {
+				throw new EOFException("Unexpected end of ZIP file");
+			}
+			current += read;
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static Charset getLegacyCharset() {
+		try {
+			return Charset.forName("IBM437");
+		} catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+			return StandardCharsets.ISO_8859_1;
+		}
+	}
+
+	/**
+	 * Stream that verifies size and CRC of an entry at the end of the stream.
+	 */
+	private static final class CheckedEntryStream extends FilterInputStream {
+
+		private final ZipDirectoryEntry entry;
+
+		private final CRC32 crc = new CRC32();
+
+		private long size = 0;
+
+		private boolean verified = false;
+
+		CheckedEntryStream(final InputStream in, final ZipDirectoryEntry entry) {
+			super(in);
+			this.entry = entry;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int result = this.in.read();
+			if (result >= 0) {
+				this.crc.update(result);
+				this.size++;
+			} else {
+				verify();
+			}
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int result = this.in.read(b, off, len);
+			if (result > 0) {
+				this.crc.update(b, off, result);
+				this.size += result;
+			} else if (result < 0) {
+				verify();
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			// skipped bytes must be part of the CRC
+			final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			long skipped = 0;
+			while (skipped < n) {
+				final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+				if (read < 0) {
+					break;
+				}
+				skipped += read;
+			}
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void verify() throws ZipException {
+			if (this.verified) {
+				return;
+			}
+			this.verified = true;
+
+			if (this.size != this.entry.getSize() || this.crc.getValue() != this.entry.getCrc()) {
+				throw new ZipException("CRC error in entry " + this.entry.getName());
+			}
+		}
+	}
+
+	/**
+	 * Read-only view of a region of a parent channel.
+	 */
+	private static final class SliceChannel implements SeekableByteChannel {
+
+		private final SeekableByteChannel parent;
+		private final long offset;
+		private final long length;
+		private long position = 0;
+		private boolean open = true;
+
+		SliceChannel(final SeekableByteChannel parent, final long offset, final long length) {
+			this.parent = parent;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return this.open && this.parent.isOpen();
+		}
+
+		@Override
+		public void close() {
+			this.open = false;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) throws IOException {
+			ensureOpen();
+
+			final long remaining = this.length - this.position;
+			if (remaining <= 0) {
+				return -1;
+			}
+
+			final ByteBuffer target = dst.slice();
+			if (target.remaining() > remaining) {
+				target.limit((int) remaining);
+			}
+
+			final int read;
+			if (this.parent instanceof FileChannel) {
+				read = ((FileChannel) this.parent).read(target, this.offset + this.position);
+			} else {
+				this.parent.position(this.offset + this.position);
+				read = this.parent.read(target);
+			}
+
+			if (read > 0) {
+				dst.position(dst.position() + read);
+				this.position += read;
+			}
+			return read;
+		}
+
+		@Override
+		public int write(final ByteBuffer src) {
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public long position() throws IOException {
+			ensureOpen();
+			return this.position;
+		}
+
+		@Override
+		public SeekableByteChannel position(final long newPosition) throws IOException {
+			ensureOpen();
+			Preconditions.checkArgument(newPosition >= 0, "negative position");
+			this.position = newPosition;
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			ensureOpen();
+			return this.length;
+		}
+
+		@Override
+		public SeekableByteChannel truncate(final long size) {
+			throw new NonWritableChannelException();
+		}
+
+		private void ensureOpen() throws ClosedChannelException {
+			if (!isOpen()) {
+				throw new ClosedChannelException();
+			}
+		}
+	}
+
+	/**
+	 * Read-only channel of a byte array.
+	 */
+	private static final class MemoryChannel implements SeekableByteChannel {
+
+		private final byte[] data;
+		private int position = 0;
+		private boolean open = true;
+
+		MemoryChannel(final byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return this.open;
+		}
+
+		@Override
+		public void close() {
+			this.open = false;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) throws IOException {
+			ensureOpen();
+
+			if (this.position >= this.data.length) {
+				return -1;
+			}
+
+			final int count = Math.min(dst.remaining(), this.data.length - this.position);
+			dst.put(this.data, this.position, count);
+			this.position += count;
+			return count;
+		}
+
+		@Override
+		public int write(final ByteBuffer src) {
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public long position() throws IOException {
+			ensureOpen();
+			return this.position;
+		}
+
+		@Override
+		public SeekableByteChannel position(final long newPosition) throws IOException {
+			ensureOpen();
+			Preconditions.checkArgument(newPosition >= 0, "negative position");
+			this.position = (int) Math.min(newPosition, this.data.length);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			ensureOpen();
+			return this.data.length;
+		}
+
+		@Override
+		public SeekableByteChannel truncate(final long size) {
+			throw new NonWritableChannelException();
+		}
+
+		private void ensureOpen() throws ClosedChannelException {
+			if (!this.open) {
+				throw new ClosedChannelException();
+			}
+		}
+	}
+}
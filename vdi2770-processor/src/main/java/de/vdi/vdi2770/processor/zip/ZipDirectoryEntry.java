@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import lombok.Data;
+
+/**
+ * An entry of the central directory of a ZIP file (see {@link ZipDirectory}).
+ * 
+ * <p>
+ * Sizes and offsets are already resolved from ZIP64 extra fields.
+ * </p>
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+public class ZipDirectoryEntry {
+
+	/**
+	 * Compression method STORED (no compression).
+	 */
+	public static final int STORED = 0;
+
+	/**
+	 * Compression method DEFLATED.
+	 */
+	public static final int DEFLATED = 8;
+
+	/**
+	 * Name (path) of the entry.
+	 */
+	private String name;
+
+	/**
+	 * General purpose bit flags.
+	 */
+	private int flags;
+
+	/**
+	 * Compression method, e.g. {@link #STORED} or {@link #DEFLATED}.
+	 */
+	private int method;
+
+	/**
+	 * Last modification time and date in MS-DOS format.
+	 */
+	private long dosTime;
+
+	/**
+	 * CRC-32 checksum of the uncompressed data.
+	 */
+	private long crc;
+
+	/**
+	 * Compressed size in bytes.
+	 */
+	private long compressedSize;
+
+	/**
+	 * Uncompressed size in bytes.
+	 */
+	private long size;
+
+	/**
+	 * Offset of the local file header.
+	 */
+	private long localHeaderOffset;
+
+	/**
+	 * External file attributes.
+	 */
+	private long externalAttributes;
+
+	/**
+	 * @return <code>true</code>, if the entry is a directory.
+	 */
+	public boolean isDirectory() {
+		return this.name.endsWith("/");
+	}
+
+	/**
+	 * @return <code>true</code>, if the entry is encrypted.
+	 */
+	public boolean isEncrypted() {
+		return (this.flags & 1) != 0;
+	}
+
+	/**
+	 * @return A readable name of the compression method.
+	 */
+	public String getMethodName() {
+		switch (this.method) {
+		case STORED:
+			return "STORED";
+		case DEFLATED:
+			return "DEFLATED";
+		default:
+			return "METHOD_" + this.method;
+		}
+	}
+}
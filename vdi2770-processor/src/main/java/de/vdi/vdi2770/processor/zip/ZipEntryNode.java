@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * A node of a tree of ZIP entries. Nested ZIP files have child nodes for their
+ * entries.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+public class ZipEntryNode {
+
+	/**
+	 * Name (path) of the entry in its ZIP file. For the root node, it is the name
+	 * of the ZIP file.
+	 */
+	private String name;
+
+	/**
+	 * Uncompressed size in bytes.
+	 */
+	private long size;
+
+	/**
+	 * Compressed size in bytes.
+	 */
+	private long compressedSize;
+
+	/**
+	 * CRC-32 checksum of the uncompressed data.
+	 */
+	private long crc;
+
+	/**
+	 * Name of the compression method, e.g. <code>DEFLATED</code>.
+	 */
+	private String method;
+
+	/**
+	 * <code>true</code>, if the entry is a folder.
+	 */
+	private boolean directory;
+
+	/**
+	 * <code>true</code>, if the entry is encrypted.
+	 */
+	private boolean encrypted;
+
+	/**
+	 * <code>true</code>, if the entries of the node have been listed, i.e. the
+	 * node represents a ZIP file.
+	 */
+	private boolean zip;
+
+	/**
+	 * Entries of a nested ZIP file; empty for other entries.
+	 */
+	private final List<ZipEntryNode> children = new ArrayList<>();
+
+	/**
+	 * Get the child node for an entry name.
+	 * 
+	 * @param entryName The name of the entry.
+	 * @return The child node or <code>null</code>.
+	 */
+	public ZipEntryNode getChild(final String entryName) {
+		return this.children.stream().filter(c -> c.getName().equals(entryName)).findFirst()
+				.orElse(null);
+	}
+
+	/**
+	 * Get the total number of nodes below this node.
+	 * 
+	 * @return The number of descendants.
+	 */
+	public int countDescendants() {
+		return this.children.stream().mapToInt(c -> 1 + c.countDescendants()).sum();
+	}
+}
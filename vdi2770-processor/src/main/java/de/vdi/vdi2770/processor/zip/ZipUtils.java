@@ -21,45 +21,65 @@
  ******************************************************************************/
 package de.vdi.vdi2770.processor.zip;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.DirectoryStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.ZipException;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import de.vdi.vdi2770.metadata.MetadataException;
 import de.vdi.vdi2770.metadata.common.FaultLevel;
 import de.vdi.vdi2770.metadata.common.FaultType;
+import de.vdi.vdi2770.metadata.model.DigitalFile;
+import de.vdi.vdi2770.metadata.model.Document;
 import de.vdi.vdi2770.metadata.xml.FileNames;
+import de.vdi.vdi2770.metadata.xml.XmlProcessingException;
 import de.vdi.vdi2770.metadata.xml.XmlReader;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
 
 import de.vdi.vdi2770.processor.ProcessorException;
 import de.vdi.vdi2770.processor.common.Check;
+import de.vdi.vdi2770.processor.common.ContentTypeDetector;
 import de.vdi.vdi2770.processor.common.Message;
 import de.vdi.vdi2770.processor.common.MessageLevel;
 import de.vdi.vdi2770.processor.common.ProcessorConfiguration;
+import de.vdi.vdi2770.processor.common.Workspace;
+import de.vdi.vdi2770.processor.common.WorkspaceQuotaExceededException;
 import de.vdi.vdi2770.processor.report.Report;
+import de.vdi.vdi2770.processor.report.StageTiming;
 import lombok.extern.log4j.Log4j2;
-import net.lingala.zip4j.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.FileHeader;
 
 /**
  * This utility class provides some methods to read and write ZIP files and ZIP
@@ -76,6 +96,17 @@ public class ZipUtils {
 	private final ResourceBundle bundle;
 	private final Locale locale;
 
+	/**
+	 * Maximum size of nested ZIP files that are inflated in memory for listing.
+	 */
+	public static final int MAX_IN_MEMORY_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Maximum size of XML metadata that is read directly from a ZIP file for
+	 * selective extraction.
+	 */
+	private static final long MAX_METADATA_SIZE = 64L * 1024 * 1024;
+
 	/**
 	 * media type for ZIP files
 	 */
@@ -128,12 +159,61 @@ public class ZipUtils {
 	/**
 	 * Create ZIP file with a given {@link Collection} of {@link File}s.
 	 * 
+	 * <p>
+	 * The ZIP file is written by a {@link ZipChannelWriter}: already compressed
+	 * files (e.g. nested containers or scanned PDF files) are stored and copied
+	 * without passing the Java heap. Large files are deflated by multiple threads
+	 * (see application properties <code>vdi2770.zip.deflate.*</code>). An existing
+	 * file is replaced.
+	 * </p>
+	 * 
 	 * @param zipFile    A {@link File} to create as ZIP file.
 	 * @param filesToZip A {@link Collection} of {@link File} that shall be zipped.
 	 * @throws ProcessorException An error occurred while zipping the file.
 	 */
 	public void zip(final File zipFile, final Collection<File> filesToZip)
 			throws ProcessorException {
+		zip(zipFile, filesToZip, false);
+	}
+
+	/**
+	 * Create ZIP file with a given {@link Collection} of {@link File}s.
+	 * 
+	 * <p>
+	 * If reproducible is enabled, the entries are sorted by name and written
+	 * without file times (see {@link ZipChannelWriter#setReproducible(boolean)}).
+	 * The same files always result in a byte-identical ZIP file.
+	 * </p>
+	 * 
+	 * @param zipFile      A {@link File} to create as ZIP file.
+	 * @param filesToZip   A {@link Collection} of {@link File} that shall be
+	 *                     zipped.
+	 * @param reproducible Enable or disable reproducible ZIP files.
+	 * @throws ProcessorException An error occurred while zipping the file.
+	 */
+	public void zip(final File zipFile, final Collection<File> filesToZip,
+			final boolean reproducible) throws ProcessorException {
+		zip(zipFile, filesToZip, reproducible, null);
+	}
+
+	/**
+	 * Create ZIP file with a given {@link Collection} of {@link File}s.
+	 * 
+	 * <p>
+	 * If a {@link BlobStore} is given, files with a content that has already been
+	 * compressed are copied from the store instead of compressing them again. ZIP
+	 * files (e.g. nested containers) are written directly.
+	 * </p>
+	 * 
+	 * @param zipFile      A {@link File} to create as ZIP file.
+	 * @param filesToZip   A {@link Collection} of {@link File} that shall be
+	 *                     zipped.
+	 * @param reproducible Enable or disable reproducible ZIP files.
+	 * @param store        A {@link BlobStore} (may be <code>null</code>).
+	 * @throws ProcessorException An error occurred while zipping the file.
+	 */
+	public void zip(final File zipFile, final Collection<File> filesToZip,
+			final boolean reproducible, final BlobStore store) throws ProcessorException {
 
 		Preconditions.checkArgument(zipFile != null);
 		Preconditions.checkArgument(filesToZip != null);
@@ -163,11 +243,37 @@ public class ZipUtils {
 			zipContent.add(fileToZip);
 		}
 
-		try (final ZipFile zipResult = new ZipFile(zipFile)) {
-			zipResult.addFiles(zipContent);
-		} catch (final ZipException e) {
-			throw new ProcessorException(this.bundle.getString("ZU_EXCEPTION_002"), e);
+		if (reproducible) {
+			zipContent.sort(Comparator.comparing(File::getName));
+		}
+
+		final Set<String> names = new HashSet<>();
+		final ProcessorConfiguration config = ProcessorConfiguration.getInstance(this.locale);
+		final int threads = config.getZipDeflateThreads();
+		final long threshold = config.getZipParallelDeflateThreshold();
+
+		try (final ZipChannelWriter writer = new ZipChannelWriter(zipFile.toPath())) {
+			writer.setDeflateThreads(
+					threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+			if (threshold >= 0) {
+				writer.setParallelThreshold(threshold);
+			}
+			writer.setReproducible(reproducible);
+
+			for (final File file : zipContent) {
+				if (!names.add(file.getName())) {
+					log.warn("Skipping file " + file.getAbsolutePath()
+							+ ", because an entry with the same name exists.");
+					continue;
+				}
+				if (store != null && !file.getName().toLowerCase().endsWith(".zip")) {
+					store.addFile(writer, file.toPath(), file.getName());
+				} else {
+					writer.addFile(file.toPath(), file.getName());
+				}
+			}
 		} catch (final IOException e) {
+			FileUtils.deleteQuietly(zipFile);
 			throw new ProcessorException(this.bundle.getString("ZU_EXCEPTION_002"), e);
 		}
 	}
@@ -267,7 +373,7 @@ public class ZipUtils {
 
 		// check the MIME type of the file
 		try {
-			if (ZIP_CONTENT_TYPE.contains(Files.probeContentType(file.toPath()))) {
+			if (ContentTypeDetector.isZipFile(file)) {
 				return true;
 			}
 		} catch (final IOException e) {
@@ -280,6 +386,11 @@ public class ZipUtils {
 	/**
 	 * Check, whether a {@link File} is a valid ZIP file.
 	 * 
+	 * <p>
+	 * The central directory is read entry by entry, so ZIP64 archives with any
+	 * number of entries can be checked.
+	 * </p>
+	 * 
 	 * @param file A ZIP {@link File}
 	 * @return True, if true ZIP {@link File} is valid.
 	 */
@@ -290,8 +401,12 @@ public class ZipUtils {
 			return false;
 		}
 
-		try (final ZipFile zip = new ZipFile(file)) {
-			return zip.isValidZipFile();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+			while (cursor.next() != null) {
+				// read all entries of the central directory
+			}
+			return true;
 		} catch (IOException e) {
 			log.warn("Error reading file " + file.getAbsolutePath(), e);
 		}
@@ -323,23 +438,25 @@ public class ZipUtils {
 
 			ProcessorConfiguration config = ProcessorConfiguration.getInstance(Locale.getDefault());
 			int maxCompressionFactor = config.getMaxZipCompressionFactor();
-			int maxFileSize = config.getMaxZipFileSize();
+			long maxFileSize = config.getMaxZipFileSize();
 
-			try (final ZipFile zip = new ZipFile(file)) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
 
 				// we only need to validate the first layer, because ZIP
 				// in ZIP files are extracted manually
-				for (final FileHeader fileInZip : zip.getFileHeaders()) {
+				final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+				ZipDirectoryEntry fileInZip;
+				while ((fileInZip = cursor.next()) != null) {
 
 					if (!fileInZip.isDirectory()) {
 
 						long compressedSize = fileInZip.getCompressedSize();
 						if (compressedSize == 0 && log.isWarnEnabled()) {
-							log.warn("File " + fileInZip.getFileName()
+							log.warn("File " + fileInZip.getName()
 									+ " has compressed size of zero.");
 						}
 
-						long uncompressedSize = fileInZip.getUncompressedSize();
+						long uncompressedSize = fileInZip.getSize();
 
 						// check for invalid size values
 						if (compressedSize < 0 || uncompressedSize < 0) {
@@ -389,8 +506,14 @@ public class ZipUtils {
 
 		Preconditions.checkArgument(file != null, "file is null");
 
-		try (final ZipFile zip = new ZipFile(file)) {
-			return zip.isEncrypted();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+			ZipDirectoryEntry entry;
+			while ((entry = cursor.next()) != null) {
+				if (entry.isEncrypted()) {
+					return true;
+				}
+			}
 		} catch (final ZipException e) {
 			log.error("Can read encryption of ZIP file " + file.getName(), e);
 		} catch (IOException e) {
@@ -402,6 +525,12 @@ public class ZipUtils {
 
 	/**
 	 * Get a list of file names (not file paths) in a ZIP file.
+	 * 
+	 * <p>
+	 * Nested container files are listed like extracted folders, i.e. by their
+	 * name without extension followed by their content. The names are read from
+	 * the central directories; nothing is extracted to disk.
+	 * </p>
 	 *
 	 * @param zipFile A ZIP file; must not be <code>null</code> and must exist.
 	 * @return A {@link List} of all file names in the ZIP file.
@@ -414,55 +543,188 @@ public class ZipUtils {
 		Check check = new Check(this.locale);
 		check.fileExists(zipFile, "ZU_EXCEPTION_003");
 
-		final Path tempFolder = unzipToTemperaryFolder(zipFile, true);
+		return getFileNames(listEntries(zipFile));
+	}
+
+	private static List<String> getFileNames(final ZipEntryNode zipNode) {
 
-		// read the file names
 		final List<String> result = new ArrayList<>();
-		result.addAll(getFileNamesInFolder(tempFolder, true));
+		final Set<String> folders = new HashSet<>();
 
-		try {
-			FileUtils.deleteDirectory(tempFolder.toFile());
-		} catch (final IOException e) {
-			log.warn("Can not delete folder " + tempFolder.toFile().getAbsolutePath(), e);
+		for (final ZipEntryNode child : zipNode.getChildren()) {
+
+			final String name = StringUtils.removeEnd(child.getName(), "/");
+			final String[] segments = name.split("/");
+
+			// parent folders
+			for (int i = 0; i < segments.length - 1; i++) {
+				if (folders.add(String.join("/", Arrays.copyOf(segments, i + 1)))) {
+					result.add(segments[i]);
+				}
+			}
+
+			final String fileName = segments[segments.length - 1];
+			if (child.isDirectory()) {
+				if (folders.add(name)) {
+					result.add(fileName);
+				}
+			} else if (segments.length == 1 && isContainerNode(child)) {
+				// nested containers are handled like extracted folders
+				result.add(FilenameUtils.removeExtension(fileName));
+				result.addAll(getFileNames(child));
+			} else {
+				result.add(fileName);
+			}
 		}
 
 		return result;
 	}
 
+	private static boolean isContainerNode(final ZipEntryNode node) {
+		return node.isZip() && (node.getChild(FileNames.METADATA_XML_FILE_NAME) != null
+				|| node.getChild(FileNames.MAIN_DOCUMENT_XML_FILE_NAME) != null);
+	}
+
 	/**
-	 * Get a {@link List} of file names (not path to the files) for a given
-	 * {@link Path}.
-	 *
-	 * @param path                  A folder {@link Path}; must not be
-	 *                              <code>null</code>.
-	 * @param includeSubDirectories If <code>true</code>, file of sub directories
-	 *                              will be included.
-	 * @return A {@link List} of file names; can be empty.
-	 * @throws ProcessorException There was an error reading file names.
+	 * List the entries of a ZIP file and all nested ZIP files as tree.
+	 * 
+	 * <p>
+	 * Only the central directories are read. Stored nested ZIP files are read in
+	 * place, deflated nested ZIP files up to {@value #MAX_IN_MEMORY_SIZE} bytes are
+	 * inflated in memory. Nothing is written to disk. The limits of the
+	 * application properties (see {@link ExtractionBudget}) are enforced.
+	 * </p>
+	 * 
+	 * @param zipFile A ZIP file; must not be <code>null</code> and must exist.
+	 * @return The root node representing the ZIP file.
+	 * @throws ProcessorException There was an error reading the ZIP file or a
+	 *                            limit has been exceeded.
 	 */
-	private List<String> getFileNamesInFolder(final Path path, final boolean includeSubDirectories)
-			throws ProcessorException {
+	public ZipEntryNode listEntries(final File zipFile) throws ProcessorException {
 
-		final List<String> files = new ArrayList<>();
+		Preconditions.checkArgument(zipFile != null, "zip file is null");
 
-		try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+		Check check = new Check(this.locale);
+		check.fileExists(zipFile, "ZU_EXCEPTION_003");
 
-			for (final Path entry : stream) {
-				final Path entryFileName = entry.getFileName();
-				if (entryFileName != null) {
-					files.add(entryFileName.toString());
-				}
+		try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+			return listEntries(channel, zipFile.getName(),
+					ExtractionBudget.fromConfiguration(this.locale));
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_010"), zipFile.getAbsolutePath()), e);
+		}
+	}
+
+	/**
+	 * List the entries of a ZIP file and all nested ZIP files as tree.
+	 * 
+	 * @param channel A {@link SeekableByteChannel} of a ZIP file, e.g. a file or
+	 *                an in-memory buffer (see
+	 *                {@link ZipDirectory#inMemory(byte[])}); must not be
+	 *                <code>null</code>.
+	 * @param name    The name of the ZIP file.
+	 * @param budget  The limits to enforce; must not be <code>null</code>.
+	 * @return The root node representing the ZIP file.
+	 * @throws ProcessorException There was an error reading the ZIP file or a
+	 *                            limit has been exceeded.
+	 */
+	public ZipEntryNode listEntries(final SeekableByteChannel channel, final String name,
+			final ExtractionBudget budget) throws ProcessorException {
+
+		Preconditions.checkArgument(channel != null, "channel is null");
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "name is null or empty");
+		Preconditions.checkArgument(budget != null, "budget is null");
+
+		try {
+			final ZipEntryNode root = new ZipEntryNode();
+			root.setName(name);
+			root.setSize(channel.size());
+			root.setCompressedSize(channel.size());
+			root.setMethod("STORED");
+			root.setZip(true);
+
+			listEntries(channel, root, budget, 0);
 
-				if (Files.isDirectory(entry) && includeSubDirectories) {
-					files.addAll(getFileNamesInFolder(entry, includeSubDirectories));
+			return root;
+		} catch (final IOException e) {
+			throw new ProcessorException(
+					MessageFormat.format(this.bundle.getString("ZU_EXCEPTION_010"), name), e);
+		}
+	}
+
+	private void listEntries(final SeekableByteChannel channel, final ZipEntryNode node,
+			final ExtractionBudget budget, final int depth)
+			throws IOException, ZipLimitExceededException {
+
+		budget.checkDepth(node.getName(), depth);
+
+		final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+		ZipDirectoryEntry entry;
+		while ((entry = cursor.next()) != null) {
+
+			budget.countEntry(node.getName());
+
+			final ZipEntryNode child = new ZipEntryNode();
+			child.setName(entry.getName());
+			child.setSize(entry.getSize());
+			child.setCompressedSize(entry.getCompressedSize());
+			child.setCrc(entry.getCrc());
+			child.setMethod(entry.getMethodName());
+			child.setDirectory(entry.isDirectory());
+			child.setEncrypted(entry.isEncrypted());
+			node.getChildren().add(child);
+
+			if (entry.isDirectory() || entry.isEncrypted()
+					|| !entry.getName().toLowerCase().endsWith(".zip")) {
+				continue;
+			}
+
+			try (SeekableByteChannel nested = openNestedZip(channel, entry, budget)) {
+				if (nested != null) {
+					listEntries(nested, child, budget, depth + 1);
+					child.setZip(true);
+				}
+			} catch (final ZipException e) {
+				// the entry is not a (valid) ZIP file; list it as a file
+				if (log.isDebugEnabled()) {
+					log.debug("Can not list entries of " + entry.getName() + ": " + e.getMessage());
 				}
+				child.getChildren().clear();
 			}
-		} catch (final IOException e) {
-			throw new ProcessorException(MessageFormat
-					.format(this.bundle.getString("ZU_EXCEPTION_007"), path.toString()), e);
+		}
+	}
+
+	private static SeekableByteChannel openNestedZip(final SeekableByteChannel channel,
+			final ZipDirectoryEntry entry, final ExtractionBudget budget)
+			throws IOException, ZipLimitExceededException {
+
+		if (entry.getMethod() == ZipDirectoryEntry.STORED) {
+			return ZipDirectory.openRaw(channel, entry);
 		}
 
-		return files;
+		if (entry.getMethod() != ZipDirectoryEntry.DEFLATED
+				|| entry.getSize() > MAX_IN_MEMORY_SIZE) {
+			log.warn("Can not list entries of nested ZIP file " + entry.getName());
+			return null;
+		}
+
+		final AtomicLong compressedRead = new AtomicLong();
+		try (InputStream in = budget.limit(ZipDirectory.openStream(channel, entry, compressedRead),
+				entry.getName(), compressedRead::get)) {
+			final byte[] data = in.readNBytes(MAX_IN_MEMORY_SIZE + 1);
+			if (data.length > MAX_IN_MEMORY_SIZE) {
+				log.warn("Can not list entries of nested ZIP file " + entry.getName());
+				return null;
+			}
+			return ZipDirectory.inMemory(data);
+		} catch (final IOException e) {
+			final ZipLimitExceededException limitExceeded = ExtractionBudget.unwrap(e);
+			if (limitExceeded != null) {
+				throw limitExceeded;
+			}
+			throw e;
+		}
 	}
 
 	/**
@@ -500,7 +762,10 @@ public class ZipUtils {
 	 *                             files according to VDI 2770 will be extracted and
 	 *                             the origin ZIP container files will be deleted.
 	 * @param report               {@link Report} instances to protocol messages
-	 * @return The {@link Path} to the temporary folder
+	 * @return The {@link Path} to the temporary folder. The caller is responsible
+	 *         to delete the parent folder of the returned path. Prefer
+	 *         {@link #unzip(File, Workspace, boolean, Report)} for deterministic
+	 *         cleanup.
 	 * @throws ProcessorException There was an error while unzipping the ZIP file.
 	 */
 	public Path unzipToTemperaryFolder(final File zipFile, final boolean extractZipsAndDelete,
@@ -510,9 +775,125 @@ public class ZipUtils {
 
 		final File tmpFile = createTemporaryFolder();
 		final File targetFile = new File(tmpFile, FilenameUtils.removeExtension(zipFile.getName()));
-		targetFile.deleteOnExit();
 
-		unzip(zipFile, targetFile, extractZipsAndDelete, report);
+		try {
+			unzip(zipFile, targetFile, extractZipsAndDelete, report);
+		} catch (final ProcessorException e) {
+			// do not leave partially extracted files
+			FileUtils.deleteQuietly(tmpFile);
+			throw e;
+		}
+
+		return targetFile.toPath();
+	}
+
+	/**
+	 * Unzip a ZIP file into a {@link Workspace}.
+	 *
+	 * <p>
+	 * Included ZIP files that are documentation container or document container can
+	 * be unzipped, too (see parameter extractZipsAndDelete). All extracted bytes
+	 * are counted against the quota of the workspace. The files are deleted when
+	 * the workspace is closed.
+	 * </p>
+	 *
+	 * @param zipFile              A ZIP file; must not be <code>null</code> and
+	 *                             must exist.
+	 * @param workspace            An open {@link Workspace}; must not be
+	 *                             <code>null</code>.
+	 * @param extractZipsAndDelete If <code>true</code>, all including container
+	 *                             files according to VDI 2770 will be extracted and
+	 *                             the origin ZIP container files will be deleted.
+	 * @param report               A {@link Report} to log messages (may be
+	 *                             <code>null</code>).
+	 * @return The {@link Path} to the folder in the workspace.
+	 * @throws ProcessorException There was an error while unzipping the ZIP file.
+	 *                            If an extraction limit is exceeded, a
+	 *                            {@link ZipLimitExceededException} is thrown. If
+	 *                            the quota of the workspace is exceeded, a
+	 *                            {@link WorkspaceQuotaExceededException} is
+	 *                            thrown.
+	 */
+	public Path unzip(final File zipFile, final Workspace workspace,
+			final boolean extractZipsAndDelete, final Report report) throws ProcessorException {
+		return unzip(zipFile, workspace, extractZipsAndDelete, false, report);
+	}
+
+	/**
+	 * Unzip a ZIP file into a {@link Workspace}.
+	 *
+	 * <p>
+	 * If selective extraction is enabled, the XML metadata file
+	 * (<code>VDI2770_Main.xml</code> or <code>VDI2770_Metadata.xml</code>) is read
+	 * from the ZIP file first. Afterwards, only XML files, the digital files
+	 * referenced by the metadata, <code>VDI2770_Main.pdf</code>, ZIP files and
+	 * entries in sub folders are extracted. The names of all other entries are
+	 * added to the report (see {@link Report#getSkippedEntries()}). If the
+	 * metadata can not be read, all entries are extracted.
+	 * </p>
+	 *
+	 * @param zipFile              A ZIP file; must not be <code>null</code> and
+	 *                             must exist.
+	 * @param workspace            An open {@link Workspace}; must not be
+	 *                             <code>null</code>.
+	 * @param extractZipsAndDelete If <code>true</code>, all including container
+	 *                             files according to VDI 2770 will be extracted and
+	 *                             the origin ZIP container files will be deleted.
+	 * @param selective            Enable or disable selective extraction.
+	 * @param report               A {@link Report} to log messages (may be
+	 *                             <code>null</code>).
+	 * @return The {@link Path} to the folder in the workspace.
+	 * @throws ProcessorException There was an error while unzipping the ZIP file.
+	 *                            If an extraction limit is exceeded, a
+	 *                            {@link ZipLimitExceededException} is thrown. If
+	 *                            the quota of the workspace is exceeded, a
+	 *                            {@link WorkspaceQuotaExceededException} is
+	 *                            thrown.
+	 */
+	public Path unzip(final File zipFile, final Workspace workspace,
+			final boolean extractZipsAndDelete, final boolean selective, final Report report)
+			throws ProcessorException {
+		return unzip(zipFile, workspace, extractZipsAndDelete, selective, report,
+				ExtractionBudget.fromConfiguration(this.locale));
+	}
+
+	/**
+	 * Unzip a ZIP file into a {@link Workspace} and enforce the limits of an
+	 * {@link ExtractionBudget} (see
+	 * {@link #unzip(File, Workspace, boolean, boolean, Report)}).
+	 *
+	 * @param zipFile              A ZIP file; must not be <code>null</code> and
+	 *                             must exist.
+	 * @param workspace            An open {@link Workspace}; must not be
+	 *                             <code>null</code>.
+	 * @param extractZipsAndDelete If <code>true</code>, all including container
+	 *                             files according to VDI 2770 will be extracted and
+	 *                             the origin ZIP container files will be deleted.
+	 * @param selective            Enable or disable selective extraction.
+	 * @param report               A {@link Report} to log messages (may be
+	 *                             <code>null</code>).
+	 * @param budget               The limits to enforce; must not be
+	 *                             <code>null</code>.
+	 * @return The {@link Path} to the folder in the workspace.
+	 * @throws ProcessorException There was an error while unzipping the ZIP file.
+	 *                            If a limit is exceeded, a
+	 *                            {@link ZipLimitExceededException} is thrown. If
+	 *                            the quota of the workspace is exceeded, a
+	 *                            {@link WorkspaceQuotaExceededException} is
+	 *                            thrown.
+	 */
+	public Path unzip(final File zipFile, final Workspace workspace,
+			final boolean extractZipsAndDelete, final boolean selective, final Report report,
+			final ExtractionBudget budget) throws ProcessorException {
+
+		Preconditions.checkArgument(zipFile != null, "zip file is null");
+		Preconditions.checkArgument(workspace != null, "workspace is null");
+
+		final File targetFile = workspace
+				.resolve(FilenameUtils.removeExtension(zipFile.getName())).toFile();
+
+		unzip(zipFile, targetFile, extractZipsAndDelete, report, budget, workspace, selective,
+				new ExtractedContent(), 0);
 
 		return targetFile.toPath();
 	}
@@ -520,18 +901,28 @@ public class ZipUtils {
 	/**
 	 * Create a new temporary folder (e.g. to unzip a ZIP file).
 	 *
+	 * <p>
+	 * The caller is responsible to delete the folder. Prefer a {@link Workspace}
+	 * for deterministic cleanup.
+	 * </p>
+	 *
 	 * @return A {@link File} representing the new temporary folder.
 	 * @throws ProcessorException There was an error creating the new folder.
 	 */
 	public File createTemporaryFolder() throws ProcessorException {
 
 		try {
-			final Path tempFolder = Files.createTempDirectory("vdi2770_");
-
-			final File tmpFile = tempFolder.toFile();
-			tmpFile.deleteOnExit();
+			final File root = ProcessorConfiguration.getInstance(this.locale).getWorkspaceRoot();
+
+			final Path tempFolder;
+			if (root != null) {
+				Files.createDirectories(root.toPath());
+				tempFolder = Files.createTempDirectory(root.toPath(), "vdi2770_");
+			} else {
+				tempFolder = Files.createTempDirectory("vdi2770_");
+			}
 
-			return tmpFile;
+			return tempFolder.toFile();
 
 		} catch (final IOException e) {
 			throw new ProcessorException(this.bundle.getString("ZU_EXCEPTION_015"), e);
@@ -578,12 +969,56 @@ public class ZipUtils {
 	 * @param report               A {@link Report} to log messages (may be
 	 *                             <code>null</code>).
 	 * @throws ProcessorException There was an error while unzipping the ZIP file.
+	 *                            If an extraction limit defined in the application
+	 *                            properties is exceeded, a
+	 *                            {@link ZipLimitExceededException} is thrown.
 	 */
 	public void unzip(final File zipFile, final File targetDir, final boolean extractZipsAndDelete,
 			final Report report) throws ProcessorException {
+		unzip(zipFile, targetDir, extractZipsAndDelete, report,
+				ExtractionBudget.fromConfiguration(this.locale));
+	}
+
+	/**
+	 * Unzip a ZIP file to a folder and enforce the limits of an
+	 * {@link ExtractionBudget}.
+	 *
+	 * <p>
+	 * Included ZIP files that are documentation container or document container can
+	 * be unzipped, too (see parameter extractZipsAndDelete). The budget is shared
+	 * by all nesting levels.
+	 * </p>
+	 *
+	 * @param zipFile              A ZIP file; must not be <code>null</code> and
+	 *                             must exist.
+	 * @param targetDir            The target directory; must not be
+	 *                             <code>null</code>.
+	 * @param extractZipsAndDelete If <code>true</code>, all including container
+	 *                             files according to VDI 2770 will be extracted and
+	 *                             the origin ZIP container files will be deleted.
+	 * @param report               A {@link Report} to log messages (may be
+	 *                             <code>null</code>).
+	 * @param budget               The limits to enforce; must not be
+	 *                             <code>null</code>.
+	 * @throws ProcessorException There was an error while unzipping the ZIP file.
+	 *                            If a limit is exceeded, a
+	 *                            {@link ZipLimitExceededException} is thrown.
+	 */
+	public void unzip(final File zipFile, final File targetDir, final boolean extractZipsAndDelete,
+			final Report report, final ExtractionBudget budget) throws ProcessorException {
+		unzip(zipFile, targetDir, extractZipsAndDelete, report, budget, null, false, null, 0);
+	}
+
+	private void unzip(final File zipFile, final File targetDir, final boolean extractZipsAndDelete,
+			final Report report, final ExtractionBudget budget, final Workspace workspace,
+			final boolean selective, final ExtractedContent content, final int depth)
+			throws ProcessorException {
 
 		Preconditions.checkArgument(zipFile != null, "zip file is null");
 		Preconditions.checkArgument(targetDir != null, "target dir is null");
+		Preconditions.checkArgument(budget != null, "budget is null");
+
+		budget.checkDepth(zipFile.getName(), depth);
 
 		Check check = new Check(this.locale);
 		check.fileExists(zipFile, "ZU_EXCEPTION_004");
@@ -609,14 +1044,16 @@ public class ZipUtils {
 		}
 
 		// read the ZIP file
-		try (final ZipFile zip = new ZipFile(zipFile)) {
+		try (final FileChannel channel = FileChannel.open(zipFile.toPath(),
+				StandardOpenOption.READ)) {
 			if (report != null) {
 				report.addMessage(new Message(MessageLevel.INFO,
 						MessageFormat.format(this.bundle.getString("ZU_MESSAGE_005"),
 								zipFile.getName(), Long.valueOf(zipFile.length() / 1024))));
 			}
 
-			zip.extractAll(targetDir.getAbsolutePath());
+			extractAll(channel, zipFile, targetDir, budget, workspace, report, selective,
+					content);
 
 			if (extractZipsAndDelete) {
 
@@ -640,10 +1077,19 @@ public class ZipUtils {
 							Report subReport = null;
 							if (report != null) {
 								subReport = report.createSubReport(sub);
+								if (budget.isContainerHashing()) {
+									// the content of the nested container is hashed once
+									subReport.setContainerHash(com.google.common.io.Files
+											.asByteSource(sub).hash(Hashing.sha256())
+											.toString());
+								}
 							}
-							unzip(sub, subTargetDir, extractZipsAndDelete, subReport);
+							unzip(sub, subTargetDir, extractZipsAndDelete, subReport, budget,
+									workspace, selective, content, depth + 1);
 
-							if (sub.delete() == false) {
+							final boolean deleted = workspace != null ? workspace.delete(sub)
+									: sub.delete();
+							if (deleted == false) {
 								log.warn("Can not delete directory " + sub.getAbsolutePath());
 							}
 						}
@@ -662,6 +1108,228 @@ public class ZipUtils {
 		}
 	}
 
+	/**
+	 * Extract all entries of a ZIP file. The uncompressed bytes are counted while
+	 * inflating, so that the extraction stops as soon as a limit is exceeded.
+	 * Stored entries are copied by the operating system without passing the Java
+	 * heap. If a workspace is given, the files are written through the workspace.
+	 * If selective is enabled, entries that are not required for validation are
+	 * skipped and added to the report. The time spent for every extracted entry
+	 * is recorded in the report. If extracted content is given, entries with the
+	 * same content as an already extracted file (also of an other nested
+	 * container) are linked to that file in the workspace.
+	 */
+	private void extractAll(final FileChannel channel, final File zipFile, final File targetDir,
+			final ExtractionBudget budget, final Workspace workspace, final Report report,
+			final boolean selective, final ExtractedContent content)
+			throws ProcessorException, IOException {
+
+		final Path target = targetDir.toPath().toAbsolutePath().normalize();
+
+		// the central directory is read entry by entry, so that the memory used does
+		// not depend on the number of entries
+		final Predicate<String> required = selective ? getRequiredEntries(channel) : null;
+		final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+
+		long index = 0;
+		ZipDirectoryEntry entry;
+		while ((entry = cursor.next()) != null) {
+
+			budget.countEntry(zipFile.getName());
+			budget.extracted(zipFile.getName(), ++index, cursor.getEntryCount());
+
+			final Path path = target.resolve(entry.getName()).normalize();
+			if (!path.startsWith(target)) {
+				// prevent entries outside of the target folder
+				throw new ProcessorException(MessageFormat.format(
+						this.bundle.getString("ZU_EXCEPTION_004"), zipFile.getAbsolutePath()));
+			}
+
+			if (required != null && !required.test(entry.getName())) {
+				if (report != null) {
+					report.addSkippedEntry(entry.getName());
+				}
+				continue;
+			}
+
+			if (entry.isDirectory()) {
+				Files.createDirectories(path);
+				continue;
+			}
+
+			Files.createDirectories(path.getParent());
+
+			// nested containers are deleted after extraction, so they are not linked
+			final boolean isShared = content != null && workspace != null
+					&& !entry.getName().toLowerCase().endsWith(".zip");
+
+			final long start = System.nanoTime();
+			try {
+				final Path candidate = isShared ? content.getCandidate(entry) : null;
+				if (candidate != null) {
+					extractDuplicate(channel, entry, path, budget, workspace, content, candidate);
+				} else {
+					if (entry.getMethod() == ZipDirectoryEntry.STORED) {
+						extractStored(channel, entry, path, budget, workspace);
+					} else {
+						extractStream(channel, entry, path, budget, workspace);
+					}
+
+					if (isShared) {
+						content.add(entry, path);
+					}
+				}
+			} catch (final IOException e) {
+				final ZipLimitExceededException limitExceeded = ExtractionBudget.unwrap(e);
+				if (limitExceeded != null) {
+					log.error("Security Error: " + limitExceeded.getMessage());
+					throw limitExceeded;
+				}
+				final WorkspaceQuotaExceededException quotaExceeded = Workspace.unwrap(e);
+				if (quotaExceeded != null) {
+					log.error("Workspace Error: " + quotaExceeded.getMessage());
+					throw quotaExceeded;
+				}
+				throw e;
+			}
+
+			if (report != null) {
+				report.recordTiming(StageTiming.Stage.EXTRACTION, entry.getName(),
+						System.nanoTime() - start, entry.getSize());
+			}
+		}
+	}
+
+	/**
+	 * Get the names of the entries of a container that are required for
+	 * validation. The XML metadata is read directly from the ZIP file.
+	 *
+	 * <p>
+	 * Only the names of the files referenced by the metadata are kept in memory;
+	 * all other entries are matched by their name.
+	 * </p>
+	 *
+	 * @return A {@link Predicate} for the names of the required entries or
+	 *         <code>null</code>, if the metadata can not be read and all entries
+	 *         are required.
+	 */
+	private Predicate<String> getRequiredEntries(final FileChannel channel) {
+
+		final XmlReader reader = new XmlReader(this.locale);
+		final Set<String> referenced = new HashSet<>();
+		boolean hasMetadata = false;
+
+		try {
+			final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+			ZipDirectoryEntry entry;
+			while ((entry = cursor.next()) != null) {
+
+				final String name = entry.getName();
+				if (!FileNames.MAIN_DOCUMENT_XML_FILE_NAME.equals(name)
+						&& !FileNames.METADATA_XML_FILE_NAME.equals(name)) {
+					continue;
+				}
+
+				// the size of the metadata is limited; larger files are extracted and
+				// checked by the extraction budget
+				try (InputStream stream = ByteStreams
+						.limit(ZipDirectory.openStream(channel, entry), MAX_METADATA_SIZE)) {
+					final Document document = reader.read(stream, name);
+					document.getDocumentVersion().stream().flatMap(v -> v.getDigitalFile().stream())
+							.map(DigitalFile::getFileName).forEach(referenced::add);
+					hasMetadata = true;
+				} catch (final XmlProcessingException e) {
+					if (log.isDebugEnabled()) {
+						log.debug("Can not read " + name + ", extracting all entries", e);
+					}
+					return null;
+				}
+			}
+		} catch (final IOException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Can not read metadata, extracting all entries", e);
+			}
+			return null;
+		}
+
+		if (!hasMetadata) {
+			return null;
+		}
+
+		return name -> isAlwaysRequired(name) || referenced.contains(name);
+	}
+
+	/**
+	 * XML files, nested containers, the main document and the content of folders
+	 * are always extracted.
+	 */
+	private static boolean isAlwaysRequired(final String name) {
+
+		final String lowerCaseName = name.toLowerCase();
+		return name.indexOf('/') >= 0 || lowerCaseName.endsWith(".xml")
+				|| lowerCaseName.endsWith(".zip")
+				|| FileNames.MAIN_DOCUMENT_PDF_FILE_NAME.equals(name);
+	}
+
+	/**
+	 * Extract an entry that has the same size and CRC-32 as an extracted file.
+	 * The content is hashed while it is extracted; if the SHA-256 matches, the
+	 * new file is replaced by a link to the extracted file.
+	 */
+	private static void extractDuplicate(final FileChannel channel,
+			final ZipDirectoryEntry entry, final Path path, final ExtractionBudget budget,
+			final Workspace workspace, final ExtractedContent content, final Path candidate)
+			throws IOException {
+
+		final HashCode hash;
+		final AtomicLong compressedRead = new AtomicLong();
+		try (HashingInputStream in = new HashingInputStream(Hashing.sha256(),
+				budget.limit(ZipDirectory.openStream(channel, entry, compressedRead),
+						entry.getName(), compressedRead::get));
+				OutputStream out = workspace.newOutputStream(path)) {
+			in.transferTo(out);
+			hash = in.hash();
+		}
+
+		if (!hash.equals(content.hash(candidate))) {
+			return;
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Linking " + entry.getName() + " to extracted file " + candidate);
+		}
+		workspace.delete(path.toFile());
+		workspace.link(candidate, path);
+	}
+
+	private static void extractStored(final FileChannel channel, final ZipDirectoryEntry entry,
+			final Path path, final ExtractionBudget budget, final Workspace workspace)
+			throws ProcessorException, IOException {
+
+		// the size of stored entries is known, so check the limits in advance
+		budget.countStored(entry.getName(), entry.getSize());
+
+		try (FileChannel out = workspace != null
+				? workspace.newFileChannel(path, entry.getSize())
+				: FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			ZipDirectory.transfer(channel, entry, out);
+		}
+	}
+
+	private static void extractStream(final FileChannel channel, final ZipDirectoryEntry entry,
+			final Path path, final ExtractionBudget budget, final Workspace workspace)
+			throws IOException {
+
+		final AtomicLong compressedRead = new AtomicLong();
+		try (InputStream in = budget.limit(ZipDirectory.openStream(channel, entry, compressedRead),
+				entry.getName(), compressedRead::get);
+				OutputStream out = workspace != null ? workspace.newOutputStream(path)
+						: Files.newOutputStream(path)) {
+			in.transferTo(out);
+		}
+	}
+
 	/**
 	 * Check, whether a ZIP file contains a file identified by name.
 	 *
@@ -683,10 +1351,8 @@ public class ZipUtils {
 		check.isValidZipFile(zipFile, "ZU_EXCEPTION_017");
 		check.isNotEncryptedZipFile(zipFile, "ZU_EXCEPTION_018");
 
-		try (final ZipFile zip = new ZipFile(zipFile)) {
-			final List<FileHeader> fileHeaders = zip.getFileHeaders();
-			return fileHeaders.stream().filter(e -> StringUtils.equals(e.getFileName(), fileName))
-					.findFirst().isPresent();
+		try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+			return ZipDirectory.find(channel, fileName) != null;
 		} catch (final ZipException e) {
 			throw new ProcessorException(MessageFormat.format(
 					this.bundle.getString("ZU_EXCEPTION_010"), zipFile.getAbsolutePath()), e);
@@ -712,24 +1378,118 @@ public class ZipUtils {
 
 		Preconditions.checkArgument(zipFile != null, "file is null");
 
-		// get the XML file from ZIP
-		final File metadataFile = getMetadataFileFromDocumentContainer(zipFile);
+		Check check = new Check(this.locale);
+		check.isZipFile(zipFile, "ZU_EXCEPTION_009");
+		if (!isDocumentContainer(zipFile)) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_011"), zipFile.getAbsolutePath()));
+		}
 
-		if (metadataFile == null) {
-			return false;
+		// check the XML entry without extracting it
+		final XmlReader reader = new XmlReader(this.locale);
+		try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+			final ZipDirectoryEntry entry = ZipDirectory.find(channel,
+					FileNames.METADATA_XML_FILE_NAME);
+			if (entry == null) {
+				throw new ZipException("Missing entry " + FileNames.METADATA_XML_FILE_NAME);
+			}
+			try (InputStream inputStream = ZipDirectory.openStream(channel, entry)) {
+				return reader.isMetadataFile(inputStream);
+			}
+		} catch (final ZipException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_003"), zipFile.getAbsolutePath()), e);
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_010"), zipFile.getAbsolutePath()), e);
+		}
+	}
+
+	/**
+	 * Read the XML metadata of a document container.
+	 * 
+	 * <p>
+	 * The ZIP entry is parsed directly; no file is extracted.
+	 * </p>
+	 *
+	 * @param containerFile A document container a ZIP file; must not be
+	 *                      <code>null</code>.
+	 * @return The metadata of the document.
+	 * @throws ProcessorException There was an error reading the container file.
+	 * @throws MetadataException  The XML metadata can not be read or is not valid.
+	 */
+	public Document readMetadataFromDocumentContainer(final File containerFile)
+			throws ProcessorException, MetadataException {
+
+		Preconditions.checkArgument(containerFile != null, "file is null");
+
+		Check check = new Check(this.locale);
+		check.isZipFile(containerFile, "ZU_EXCEPTION_009");
+		if (!isDocumentContainer(containerFile)) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_011"), containerFile.getAbsolutePath()));
+		}
+
+		return readMetadataFromContainer(containerFile, FileNames.METADATA_XML_FILE_NAME);
+	}
+
+	/**
+	 * Read the XML metadata of the main document of a documentation container.
+	 * 
+	 * <p>
+	 * The ZIP entry is parsed directly; no file is extracted.
+	 * </p>
+	 *
+	 * @param containerFile A documentation container a ZIP file; must not be
+	 *                      <code>null</code>.
+	 * @return The metadata of the main document.
+	 * @throws ProcessorException There was an error reading the container file.
+	 * @throws MetadataException  The XML metadata can not be read or is not valid.
+	 */
+	public Document readMetadataFromDocumentationContainer(final File containerFile)
+			throws ProcessorException, MetadataException {
+
+		Preconditions.checkArgument(containerFile != null, "file is null");
+
+		Check check = new Check(this.locale);
+		check.isZipFile(containerFile, "ZU_EXCEPTION_009");
+		if (!isDocumentationContainer(containerFile, false)) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_013"), containerFile.getAbsolutePath()));
 		}
 
+		return readMetadataFromContainer(containerFile, FileNames.MAIN_DOCUMENT_XML_FILE_NAME);
+	}
+
+	private Document readMetadataFromContainer(final File containerFile,
+			final String metadataFileName) throws ProcessorException, MetadataException {
+
 		final XmlReader reader = new XmlReader(this.locale);
 
-		// check the XML file
-		return reader.isMetadataFile(metadataFile);
+		try (FileChannel channel = FileChannel.open(containerFile.toPath(),
+				StandardOpenOption.READ)) {
+			final ZipDirectoryEntry entry = ZipDirectory.find(channel, metadataFileName);
+			if (entry == null) {
+				throw new ZipException("Missing entry " + metadataFileName);
+			}
+			try (InputStream inputStream = ZipDirectory.openStream(channel, entry)) {
+				return reader.read(inputStream, containerFile.getName() + "/" + metadataFileName);
+			}
+		} catch (final ZipException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_003"), containerFile.getAbsolutePath()), e);
+		} catch (final IOException e) {
+			throw new ProcessorException(MessageFormat.format(
+					this.bundle.getString("ZU_EXCEPTION_010"), containerFile.getAbsolutePath()), e);
+		}
 	}
 
 	/**
 	 * Get the XML metadata file from a document container.
 	 *
 	 * @param containerFile A document container a ZIP file.
-	 * @return The XML metadata file.
+	 * @return The XML metadata file. It is a temporary file the caller is
+	 *         responsible to delete.
 	 * @throws ProcessorException There was an error reading the container file.
 	 */
 	public File getMetadataFileFromDocumentContainer(final File containerFile)
@@ -760,7 +1520,8 @@ public class ZipUtils {
 	 *
 	 * @param containerFile A documentation container a ZIP file; must not be
 	 *                      <code>null</code>.
-	 * @return The XML metadata file.
+	 * @return The XML metadata file. It is a temporary file the caller is
+	 *         responsible to delete.
 	 * @throws ProcessorException There was an error reading the container file.
 	 */
 	public File getMetadataFileFromDocumentationContainer(final File containerFile)
@@ -789,10 +1550,17 @@ public class ZipUtils {
 	private File getgetMetadataFileFromContainer(final File containerFile,
 			final String metadataFileName) throws ProcessorException {
 
-		try (final ZipFile zipFile = new ZipFile(containerFile)) {
-			final FileHeader fileHeader = zipFile.getFileHeader(metadataFileName);
-			try (InputStream inputStream = zipFile.getInputStream(fileHeader)) {
-				final File metadataFile = extractTemporary(inputStream);
+		try (FileChannel channel = FileChannel.open(containerFile.toPath(),
+				StandardOpenOption.READ)) {
+			final ZipDirectoryEntry entry = ZipDirectory.find(channel, metadataFileName);
+			if (entry == null) {
+				throw new ZipException("Missing entry " + metadataFileName);
+			}
+			try (InputStream inputStream = ZipDirectory.openStream(channel, entry)) {
+				// copy the entry stream to the file without intermediate buffers
+				final File metadataFile = File.createTempFile("vdi2770", ".xml");
+				Files.copy(inputStream, metadataFile.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
 				return metadataFile;
 			}
 		} catch (final ZipException e) {
@@ -805,21 +1573,6 @@ public class ZipUtils {
 
 	}
 
-	private static File extractTemporary(final InputStream stream) throws IOException {
-
-		Preconditions.checkArgument(stream != null);
-
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		IOUtils.copy(stream, baos);
-		final byte[] bytes = baos.toByteArray();
-
-		final File file = File.createTempFile("vdi2770", ".zip");
-		file.deleteOnExit();
-		FileUtils.writeByteArrayToFile(file, bytes);
-
-		return file;
-	}
-
 	/**
 	 * Validate a given ZIP {@link File}
 	 * 
@@ -828,6 +1581,11 @@ public class ZipUtils {
 	 * encrypted.
 	 * </p>
 	 * 
+	 * <p>
+	 * The central directory is read once entry by entry, so the memory used does
+	 * not depend on the number of entries.
+	 * </p>
+	 * 
 	 * @param zipFile An existing {@link File}.
 	 * @return A {@link List} of {@link ZipFault}s indicating problems or warnings.
 	 * @throws ProcessorException There was an error while reading the ZIP file.
@@ -841,65 +1599,95 @@ public class ZipUtils {
 
 		final List<ZipFault> faults = new ArrayList<>();
 
-		try {
+		// check if file is a ZIP file
+		if (!ZipUtils.isZipFile(zipFile)) {
+			final ZipFault fault = new ZipFault(FaultLevel.ERROR, zipFile.getName(),
+					FaultType.HAS_INVALID_VALUE);
+			fault.setMessage(this.bundle.getString("ZU_MESSAGE_002"));
+			faults.add(fault);
+			return faults;
+		}
 
-			// check if file is a ZIP file
-			if (!ZipUtils.isZipFile(zipFile)) {
-				final ZipFault fault = new ZipFault(FaultLevel.ERROR, zipFile.getName(),
-						FaultType.HAS_INVALID_VALUE);
-				fault.setMessage(this.bundle.getString("ZU_MESSAGE_002"));
-				faults.add(fault);
-				return faults;
-			}
-
-			// validate ZIP by zip4j
-			if (!ZipUtils.isValidZipFile(zipFile)) {
-				final ZipFault fault = new ZipFault(FaultLevel.ERROR, zipFile.getName(),
-						FaultType.HAS_INVALID_VALUE);
-				fault.setMessage(this.bundle.getString("ZU_MESSAGE_003"));
-				faults.add(fault);
-				return faults;
-			}
-
-			// ZIP files must not be encrypted
-			if (ZipUtils.isEncryptedZipFile(zipFile)) {
-				final ZipFault fault = new ZipFault(FaultLevel.ERROR, zipFile.getName(),
-						FaultType.HAS_INVALID_VALUE);
-				fault.setMessage(this.bundle.getString("ZU_MESSAGE_004"));
-				faults.add(fault);
-				return faults;
-			}
-
-			try (final ZipFile zip = new ZipFile(zipFile)) {
-				final List<FileHeader> fileHeaders = zip.getFileHeaders();
-				for (FileHeader header : fileHeaders) {
-					if (header.isDirectory()) {
-
-						// VDI 2770 itself does not support directories in ZIP files.
-						// This will be reported as WARNING only, because other related container
-						// files like iiRDS contain folders.
-						final ZipFault fault = new ZipFault(FaultLevel.WARNING,
-								header.getFileName(), FaultType.HAS_INVALID_VALUE);
-						fault.setMessage(MessageFormat.format(
-								this.bundle.getString("ZU_MESSAGE_001"), zipFile.getName()));
-						faults.add(fault);
-
-						// we do not want to list the folder names, because
-						// they are not allowed in general
-						break;
-					}
+		boolean isEncrypted = false;
+		String directoryName = null;
+
+		try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+			final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+			ZipDirectoryEntry entry;
+			while ((entry = cursor.next()) != null) {
+				isEncrypted |= entry.isEncrypted();
+				if (directoryName == null && entry.isDirectory()) {
+					directoryName = entry.getName();
 				}
 			}
+		} catch (final IOException e) {
+			log.warn("Error reading file " + zipFile.getAbsolutePath(), e);
 
+			// the central directory can not be read
+			final ZipFault fault = new ZipFault(FaultLevel.ERROR, zipFile.getName(),
+					FaultType.HAS_INVALID_VALUE);
+			fault.setMessage(this.bundle.getString("ZU_MESSAGE_003"));
+			faults.add(fault);
 			return faults;
+		}
 
-		} catch (final ZipException e) {
-			throw new ProcessorException(MessageFormat.format(
-					this.bundle.getString("ZU_EXCEPTION_004"), zipFile.getAbsolutePath()), e);
-		} catch (IOException e) {
-			throw new ProcessorException(MessageFormat.format(
-					this.bundle.getString("ZU_EXCEPTION_004"), zipFile.getAbsolutePath()), e);
+		// ZIP files must not be encrypted
+		if (isEncrypted) {
+			final ZipFault fault = new ZipFault(FaultLevel.ERROR, zipFile.getName(),
+					FaultType.HAS_INVALID_VALUE);
+			fault.setMessage(this.bundle.getString("ZU_MESSAGE_004"));
+			faults.add(fault);
+			return faults;
+		}
+
+		if (directoryName != null) {
+
+			// VDI 2770 itself does not support directories in ZIP files.
+			// This will be reported as WARNING only, because other related container
+			// files like iiRDS contain folders.
+			// We do not want to list the folder names, because they are not allowed in
+			// general
+			final ZipFault fault = new ZipFault(FaultLevel.WARNING, directoryName,
+					FaultType.HAS_INVALID_VALUE);
+			fault.setMessage(MessageFormat.format(this.bundle.getString("ZU_MESSAGE_001"),
+					zipFile.getName()));
+			faults.add(fault);
+		}
+
+		return faults;
+	}
+
+	/**
+	 * Files extracted by one call of
+	 * {@link ZipUtils#unzip(File, Workspace, boolean, boolean, Report)}, addressed
+	 * by their content.
+	 */
+	private static final class ExtractedContent {
+
+		private final Map<String, Path> candidates = new HashMap<>();
+
+		private final Map<Path, HashCode> hashes = new HashMap<>();
+
+		Path getCandidate(final ZipDirectoryEntry entry) {
+			return this.candidates.get(getKey(entry));
+		}
+
+		void add(final ZipDirectoryEntry entry, final Path path) {
+			this.candidates.putIfAbsent(getKey(entry), path);
+		}
+
+		HashCode hash(final Path path) throws IOException {
+
+			HashCode hash = this.hashes.get(path);
+			if (hash == null) {
+				hash = MoreFiles.asByteSource(path).hash(Hashing.sha256());
+				this.hashes.put(path, hash);
+			}
+			return hash;
 		}
 
+		private static String getKey(final ZipDirectoryEntry entry) {
+			return entry.getSize() + ":" + entry.getCrc();
+		}
 	}
 }
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link ContentTypeDetector} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContentTypeDetectorTest {
+
+	private static final String EXAMPLES_FOLDER = "../examples";
+
+	/**
+	 * Detect PDF, ZIP and XML files by content
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void detectByMagicBytesTest(@TempDir final Path tmp) throws IOException {
+
+		assertTrue(ContentTypeDetector.isPdfFile(new File(EXAMPLES_FOLDER, "Valid.pdf")));
+		assertTrue(ContentTypeDetector
+				.isZipFile(new File(EXAMPLES_FOLDER, "container/documentcontainer.zip")));
+		assertTrue(ContentTypeDetector.isXmlFile(new File(EXAMPLES_FOLDER, "VDI2770_Main.xml")));
+		assertEquals(ContentTypeDetector.XML,
+				ContentTypeDetector.detect(new File(EXAMPLES_FOLDER, "VDI2770_Main.xml")));
+
+		// specific XML types are detected from the header
+		final Path svg = tmp.resolve("image.svg");
+		Files.write(svg, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<svg xmlns=\"http://www.w3.org/2000/svg\"/>").getBytes(StandardCharsets.UTF_8));
+		assertTrue(ContentTypeDetector.isXmlFile(svg.toFile()));
+		assertEquals("image/svg+xml", ContentTypeDetector.detect(svg.toFile()));
+
+		// office documents are ZIP files, but not containers
+		final File docx = new File(EXAMPLES_FOLDER, "folders/AB393/demo.docx");
+		assertFalse(ContentTypeDetector.isZipFile(docx));
+		assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+				ContentTypeDetector.detect(docx));
+	}
+
+	/**
+	 * The file name extension is not relevant and changed files are detected
+	 * again by a {@link ContentTypeCache}.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void detectChangedFileTest(@TempDir final Path tmp) throws IOException {
+
+		final Path file = tmp.resolve("container.bin");
+		Files.copy(new File(EXAMPLES_FOLDER, "container/documentcontainer.zip").toPath(), file);
+
+		final ContentTypeCache cache = new ContentTypeCache();
+		assertTrue(cache.isZipFile(file.toFile()));
+		assertTrue(cache.isZipFile(file.toFile()));
+		assertEquals(1, cache.size());
+
+		Files.write(file, "%PDF-1.4".getBytes(StandardCharsets.US_ASCII));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+		assertFalse(cache.isZipFile(file.toFile()));
+		assertTrue(cache.isPdfFile(file.toFile()));
+		assertTrue(ContentTypeDetector.isPdfFile(file.toFile()));
+		assertEquals(2, cache.size());
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.report.ContainerValidator;
+import de.vdi.vdi2770.processor.zip.ZipUtils;
+
+/**
+ * Tests for the {@link Workspace} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class WorkspaceTest {
+
+	private static final String EXAMPLES_FOLDER = "../examples";
+
+	private static final Locale LOCALE = Locale.getDefault();
+
+	/**
+	 * Closing a workspace deletes all files and updates the metrics.
+	 * 
+	 * @param root A temporary folder
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void cleanupTest(@TempDir final Path root) throws ProcessorException {
+
+		final int active = Workspace.getActiveWorkspaces();
+		final File folder;
+		final File file;
+
+		try (Workspace workspace = new Workspace(LOCALE, root.toFile(), -1)) {
+			folder = workspace.getFolder().toFile();
+			assertTrue(folder.toPath().startsWith(root));
+			assertEquals(active + 1, Workspace.getActiveWorkspaces());
+
+			file = workspace.copy(new ByteArrayInputStream(new byte[100]), "sub/file.bin");
+			assertTrue(file.exists());
+			assertEquals(100, workspace.getBytesInUse());
+			assertEquals(1, workspace.getFilesInUse());
+
+			assertThrows(IllegalArgumentException.class, () -> workspace.resolve("../outside"));
+
+			workspace.close();
+			assertTrue(workspace.isClosed());
+		}
+
+		assertFalse(file.exists());
+		assertFalse(folder.exists());
+		assertEquals(active, Workspace.getActiveWorkspaces());
+	}
+
+	/**
+	 * Writing more bytes than the quota allows fails and deleted files release
+	 * their bytes.
+	 * 
+	 * @param root A temporary folder
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void quotaTest(@TempDir final Path root) throws ProcessorException {
+
+		try (Workspace workspace = new Workspace(LOCALE, root.toFile(), 1000)) {
+			final File file = workspace.copy(new ByteArrayInputStream(new byte[800]), "a.bin");
+
+			assertThrows(WorkspaceQuotaExceededException.class,
+					() -> workspace.copy(new ByteArrayInputStream(new byte[800]), "b.bin"));
+
+			workspace.delete(new File(file.getParentFile(), "b.bin"));
+			assertTrue(workspace.delete(file));
+			assertEquals(0, workspace.getBytesInUse());
+			assertEquals(0, workspace.getFilesInUse());
+
+			workspace.copy(new ByteArrayInputStream(new byte[800]), "c.bin");
+		}
+	}
+
+	/**
+	 * Extract a container into a workspace with a too small quota.
+	 * 
+	 * @param root A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void unzipWithQuotaTest(@TempDir final Path root)
+			throws ProcessorException, MetadataException {
+
+		final File container = new File(EXAMPLES_FOLDER, "container/documentcontainer.zip");
+		final ZipUtils zip = new ZipUtils(LOCALE);
+
+		try (Workspace workspace = new Workspace(LOCALE, root.toFile(), 1000)) {
+			assertThrows(WorkspaceQuotaExceededException.class,
+					() -> zip.unzip(container, workspace, true, null));
+		}
+
+		try (Workspace workspace = new Workspace(LOCALE, root.toFile(), -1)) {
+			final Path folder = zip.unzip(container, workspace, true, null);
+			assertTrue(folder.toFile().isDirectory());
+			assertTrue(workspace.getBytesInUse() > 0);
+		}
+
+		// the validation does not leave any temporary files
+		final long bytes = Workspace.getTotalBytesInUse();
+		new ContainerValidator(LOCALE).validate(container, MessageLevel.INFO, false);
+		assertEquals(bytes, Workspace.getTotalBytesInUse());
+	}
+}
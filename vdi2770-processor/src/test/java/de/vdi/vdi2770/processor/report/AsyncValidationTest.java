@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.CONTAINER;
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.toLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import de.vdi.vdi2770.processor.report.ValidationProgress.Stage;
+
+/**
+ * Tests for
+ * {@link ContainerValidator#validateAsync(File, MessageLevel, boolean, ProgressListener, java.util.concurrent.Executor)}.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class AsyncValidationTest {
+
+	/**
+	 * The asynchronous validation returns the same report as the synchronous
+	 * validation and notifies the listener about all steps.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	@Test
+	public void asyncValidationTest() throws ProcessorException, MetadataException,
+			InterruptedException, ExecutionException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		final List<String> expected = toLines(validator.validate(CONTAINER, MessageLevel.INFO,
+				false));
+
+		final Queue<ValidationProgress> events = new ConcurrentLinkedQueue<>();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Report report = validator
+					.validateAsync(CONTAINER, MessageLevel.INFO, false, events::add, executor)
+					.get();
+			assertEquals(expected, toLines(report));
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue(events.stream().anyMatch(e -> e.getStage() == Stage.EXTRACTION));
+		assertTrue(events.stream().anyMatch(e -> e.getStage() == Stage.PDF_ANALYSIS));
+
+		final List<ValidationProgress> documents = new ArrayList<>();
+		events.stream().filter(e -> e.getStage() == Stage.VALIDATION).forEach(documents::add);
+		assertFalse(documents.isEmpty());
+		documents.forEach(e -> assertTrue(e.getCurrent() <= e.getTotal()));
+		assertEquals(documents.size(), documents.stream().mapToLong(e -> e.getCurrent()).max()
+				.getAsLong());
+	}
+
+	/**
+	 * A cancelled validation stops while extracting the container.
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void cancelValidationTest() throws InterruptedException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+
+		final AtomicReference<CompletableFuture<Report>> future = new AtomicReference<>();
+		final Queue<ValidationProgress> events = new ConcurrentLinkedQueue<>();
+		final ProgressListener listener = e -> {
+			events.add(e);
+			future.get().cancel(true);
+		};
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// the validation starts after the future has been set
+			executor.execute(() -> {
+				try {
+					started.await();
+				} catch (@SuppressWarnings("unused") final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			future.set(validator.validateAsync(CONTAINER, MessageLevel.INFO, false, listener,
+					executor));
+			started.countDown();
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		}
+
+		assertTrue(future.get().isCancelled());
+		assertEquals(1, events.size());
+		assertEquals(Stage.EXTRACTION, events.peek().getStage());
+	}
+
+	/**
+	 * A validation that is cancelled before it has been started is not executed.
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void cancelBeforeStartTest() throws InterruptedException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+
+		final Queue<ValidationProgress> events = new ConcurrentLinkedQueue<>();
+		final CountDownLatch started = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.execute(() -> {
+				try {
+					started.await();
+				} catch (@SuppressWarnings("unused") final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			final CompletableFuture<Report> future = validator.validateAsync(CONTAINER,
+					MessageLevel.INFO, false, events::add, executor);
+			assertTrue(future.cancel(true));
+			started.countDown();
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		}
+
+		assertTrue(events.isEmpty());
+	}
+}
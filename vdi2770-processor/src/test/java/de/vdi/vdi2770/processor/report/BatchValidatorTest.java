@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+
+/**
+ * Tests for {@link BatchValidator}.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class BatchValidatorTest {
+
+	private static final String[] CONTAINERS = new String[] { "documentcontainer.zip",
+			"documentcontainer-invalid.zip", "missingdocuments.zip" };
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Every container gets one result line with the messages of a single
+	 * validation; the summary counts the messages by ID.
+	 * 
+	 * @param folder A temporary folder.
+	 * @throws IOException
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void batchValidationTest(@TempDir final File folder)
+			throws IOException, ProcessorException, MetadataException {
+
+		final File input = createInput(folder);
+		final File resultFile = new File(folder, "results.jsonl");
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+
+		// a memory limit of 1 byte admits one container at a time
+		final BatchValidator batch = new BatchValidator(Locale.ENGLISH, validator, 2, 1);
+		final BatchSummary summary = batch.validate(BatchValidator.listContainers(input),
+				resultFile);
+
+		final Map<String, BatchResult> results = readResults(resultFile);
+		assertEquals(CONTAINERS.length + 1, results.size());
+		assertEquals(CONTAINERS.length + 1, summary.getContainerCount());
+		assertEquals(0, summary.getResumedCount());
+		assertEquals(1, summary.getFailedCount());
+
+		final BatchResult broken = results.get(new File(input, "broken.zip").getAbsolutePath());
+		assertEquals(BatchResult.Status.FAILED, broken.getStatus());
+		assertNotNull(broken.getException());
+
+		long errors = 0;
+		for (final String name : CONTAINERS) {
+			final File container = new File(input, name);
+			final Report report = validator.validate(container, MessageLevel.WARN, false);
+			final BatchResult result = results.get(container.getAbsolutePath());
+
+			assertEquals(report.filter(MessageLevel.ERROR, true, true).size(), result.getErrors());
+			assertEquals(report.filter(MessageLevel.WARN, true, true).size(),
+					result.getWarnings());
+			assertEquals(report.hasErrors(true) ? BatchResult.Status.INVALID
+					: BatchResult.Status.VALID, result.getStatus());
+			errors += result.getErrors();
+		}
+
+		assertEquals(errors, summary.getErrorCount());
+		assertEquals(errors,
+				summary.getErrors().values().stream().mapToLong(Long::longValue).sum());
+		assertTrue(summary.getErrors().keySet().stream()
+				.allMatch(id -> id.matches("[A-Z_]+_\\d+")));
+
+		final BatchSummary stored = this.mapper
+				.readValue(BatchValidator.getSummaryFile(resultFile), BatchSummary.class);
+		assertEquals(summary.getErrors(), stored.getErrors());
+		assertEquals(summary.getWarnings(), stored.getWarnings());
+	}
+
+	/**
+	 * An interrupted run is resumed: finished containers are not validated again,
+	 * containers that could not be validated are validated again and an
+	 * incomplete last line is removed.
+	 * 
+	 * @param folder A temporary folder.
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void resumeTest(@TempDir final File folder) throws IOException, ProcessorException {
+
+		final File input = createInput(folder);
+		final List<File> containers = BatchValidator.listContainers(input);
+		final File resultFile = new File(folder, "results.jsonl");
+
+		final BatchValidator batch = new BatchValidator(Locale.ENGLISH,
+				new ContainerValidator(Locale.ENGLISH, true), 2, -1);
+		batch.validate(containers.subList(0, 2), resultFile);
+
+		// simulate a run that has been killed while writing
+		Files.write(resultFile.toPath(), "{\"file\":\"".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		final Map<String, BatchResult> first = readResults(resultFile);
+
+		final String broken = new File(input, "broken.zip").getAbsolutePath();
+		assertEquals(BatchResult.Status.FAILED, first.get(broken).getStatus());
+
+		final BatchSummary summary = batch.validate(containers, resultFile);
+		assertEquals(1, summary.getResumedCount());
+		assertEquals(1, summary.getRetriedCount());
+		assertEquals(containers.size(), summary.getContainerCount());
+		assertEquals(1, summary.getFailedCount());
+
+		// the failed container has been validated again and has a second line
+		final Map<String, BatchResult> results = readResults(resultFile);
+		assertEquals(containers.size(), results.size());
+		assertEquals(containers.size() + 1, Files.readAllLines(resultFile.toPath()).size());
+
+		// the other results of the first run are kept
+		first.forEach((file, result) -> {
+			if (!file.equals(broken)) {
+				assertEquals(result, results.get(file));
+			}
+		});
+	}
+
+	/**
+	 * If the reports do not retain messages, the messages are collected while
+	 * validating, so invalid containers are not written as valid.
+	 * 
+	 * @param folder A temporary folder.
+	 * @throws IOException
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void listenerOnlyTest(@TempDir final File folder)
+			throws IOException, ProcessorException, MetadataException {
+
+		final File input = createInput(folder);
+		final File container = new File(input, "missingdocuments.zip");
+		final File resultFile = new File(folder, "results.jsonl");
+
+		final List<Message> received = new ArrayList<>();
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setReportListener((report, message) -> received.add(message), false);
+
+		final BatchSummary summary = new BatchValidator(Locale.ENGLISH, validator, 1, -1)
+				.validate(List.of(container), resultFile);
+
+		final Report expected = new ContainerValidator(Locale.ENGLISH, true).validate(container,
+				MessageLevel.WARN, false);
+		final BatchResult result = readResults(resultFile).get(container.getAbsolutePath());
+
+		assertEquals(BatchResult.Status.INVALID, result.getStatus());
+		assertTrue(result.getErrors() > 0);
+		assertEquals(expected.filter(MessageLevel.ERROR, true, true).size(), result.getErrors());
+		assertEquals(expected.filter(MessageLevel.WARN, true, true).size(),
+				result.getWarnings());
+		assertEquals(result.getErrors(), summary.getErrorCount());
+
+		// the listener of the validator still receives the messages
+		assertEquals(result.getMessages().size(), received.size());
+	}
+
+	private static File createInput(final File folder) throws IOException {
+
+		final File input = new File(folder, "input");
+		for (final String name : CONTAINERS) {
+			FileUtils.copyFile(new File("../examples/container", name), new File(input, name));
+		}
+		FileUtils.writeStringToFile(new File(input, "broken.zip"), "no zip file",
+				StandardCharsets.UTF_8);
+
+		return input;
+	}
+
+	// the last result of a container replaces previous results
+	private Map<String, BatchResult> readResults(final File resultFile) throws IOException {
+
+		final List<BatchResult> results = new ArrayList<>();
+		for (final String line : Files.readAllLines(resultFile.toPath())) {
+			if (line.endsWith("}")) {
+				results.add(this.mapper.readValue(line, BatchResult.class));
+			}
+		}
+
+		return results.stream()
+				.collect(Collectors.toMap(BatchResult::getFile, Function.identity(), (a, b) -> b));
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link ContainerTree} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContainerTreeTest {
+
+	/**
+	 * The snapshot contains names, sizes, types and the relations of all files.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void scanTest(@TempDir final File tmp) throws IOException {
+
+		final File sub = new File(tmp, "sub");
+		final File main = new File(tmp, "VDI2770_Main.xml");
+		final File pdf = new File(tmp, "a.pdf");
+		final File nested = new File(sub, "VDI2770_Metadata.xml");
+		FileUtils.writeStringToFile(main, "<xml/>", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(pdf, "pdf", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(nested, "<nested/>", StandardCharsets.UTF_8);
+
+		final ContainerTree tree = ContainerTree.scan(tmp);
+
+		assertEquals(5, tree.size());
+		// ordered like File#compareTo
+		final File[] expected = new File[] { pdf, main, sub };
+		Arrays.sort(expected);
+		assertEquals(Arrays.asList(expected), tree.listFiles(tmp));
+		assertEquals(Arrays.asList(main, nested), tree.findFiles(tmp, "xml"));
+		assertEquals(Arrays.asList(nested), tree.findFiles(sub, "xml"));
+
+		assertTrue(tree.exists(nested));
+		assertTrue(tree.isDirectory(sub));
+		assertFalse(tree.isDirectory(main));
+		assertEquals(9, tree.length(nested));
+		assertEquals(0, tree.length(sub));
+
+		final ContainerTree.Node node = tree.get(nested);
+		assertEquals("VDI2770_Metadata.xml", node.getName());
+		assertSame(tree.get(sub), node.getParent());
+		assertSame(tree.getRoot(), node.getParent().getParent());
+		assertNull(tree.getRoot().getParent());
+
+		// names are compared case sensitive
+		assertFalse(tree.exists(new File(tmp, "vdi2770_main.xml")));
+		assertNull(tree.listFiles(main));
+		assertFalse(tree.contains(tmp.getParentFile()));
+
+		// changes after the scan are not visible
+		FileUtils.forceDelete(pdf);
+		assertTrue(tree.exists(pdf));
+	}
+
+	/**
+	 * A session answers from the snapshot for files in the tree and from the file
+	 * system otherwise.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void sessionTest(@TempDir final File tmp) throws IOException {
+
+		final File folder = new File(tmp, "container");
+		final File file = new File(folder, "a.pdf");
+		final File outside = new File(tmp, "b.pdf");
+		FileUtils.writeStringToFile(file, "pdf", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(outside, "outside", StandardCharsets.UTF_8);
+
+		final ValidationSession session = new ValidationSession(Locale.ENGLISH, true);
+		session.addTree(ContainerTree.scan(folder));
+
+		final File added = new File(folder, "c.pdf");
+		FileUtils.writeStringToFile(added, "added", StandardCharsets.UTF_8);
+
+		final List<File> files = session.listFiles(folder);
+		assertEquals(Arrays.asList(file), files);
+		assertFalse(session.exists(added));
+		assertTrue(session.exists(file));
+		assertEquals(3, session.length(file));
+
+		assertTrue(session.exists(outside));
+		assertEquals(7, session.length(outside));
+		assertTrue(session.isDirectory(folder));
+
+		// the snapshots of other folders are kept side by side
+		final File other = new File(tmp, "other");
+		FileUtils.writeStringToFile(new File(other, "d.pdf"), "other", StandardCharsets.UTF_8);
+		final ContainerTree otherTree = ContainerTree.scan(other);
+		session.addTree(otherTree);
+
+		assertSame(otherTree, session.getTree(new File(other, "d.pdf")));
+		assertEquals(Arrays.asList(file), session.listFiles(folder));
+		assertFalse(session.exists(added));
+		assertNull(session.getTree(outside));
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.CONTAINER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+
+/**
+ * Tests for the {@link ReportListener} interface.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ReportListenerTest {
+
+	/**
+	 * The listener receives every message of every report in order.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void listenerTest() throws ProcessorException, MetadataException {
+
+		final RecordingListener listener = new RecordingListener();
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setReportListener(listener, true);
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+
+		assertEquals(countReports(report) - 1, listener.subReports);
+		assertReceived(report, listener.messages);
+	}
+
+	/**
+	 * Messages below the log threshold are not passed to the listener.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void thresholdTest() throws ProcessorException, MetadataException {
+
+		final RecordingListener listener = new RecordingListener();
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, false);
+		validator.setReportListener(listener, true);
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.WARN, false);
+
+		assertReceived(report, listener.messages);
+		listener.messages.values().forEach(l -> l
+				.forEach(m -> assertTrue(m.getLevel().numeric() >= MessageLevel.WARN.numeric())));
+	}
+
+	/**
+	 * If messages are not retained, the report is empty, but the listener
+	 * receives all messages. The result is not cached.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void listenerOnlyTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		final int expected = validator.validate(CONTAINER, MessageLevel.INFO, false)
+				.filter(MessageLevel.INFO, false, true).size();
+
+		final ValidationCache cache = new ValidationCache(10_000_000);
+		final RecordingListener listener = new RecordingListener();
+		validator.setCache(cache);
+		validator.setReportListener(listener, false);
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+
+		assertEquals(0, report.filter(MessageLevel.INFO, false, true).size());
+		assertEquals(expected, listener.messages.values().stream().mapToInt(List::size).sum());
+		assertEquals(0, cache.getStatistics().getEntries());
+	}
+
+	/**
+	 * Reports taken from the cache are passed to the listener, too.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void cachedReportTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setCache(new ValidationCache(10_000_000));
+		validator.validate(CONTAINER, MessageLevel.INFO, false);
+
+		final RecordingListener listener = new RecordingListener();
+		validator.setReportListener(listener, true);
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+
+		assertEquals(1, validator.getCache().getStatistics().getContainerHits());
+		assertEquals(countReports(report) - 1, listener.subReports);
+		assertReceived(report, listener.messages);
+	}
+
+	/**
+	 * The listener can stop the validation.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void stopTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		final int complete = validator.validate(CONTAINER, MessageLevel.INFO, false)
+				.filter(MessageLevel.INFO, false, true).size();
+
+		final RecordingListener listener = new RecordingListener() {
+
+			@Override
+			public boolean isStopRequested() {
+				return this.messages.size() > 1;
+			}
+		};
+		validator.setReportListener(listener, true);
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+		assertTrue(report.filter(MessageLevel.INFO, false, true).size() < complete);
+	}
+
+	private static void assertReceived(final Report report,
+			final Map<String, List<Message>> received) {
+
+		assertEquals(report.getMessages(),
+				received.getOrDefault(report.getId(), new ArrayList<>()));
+		report.getSubReports().forEach(r -> assertReceived(r, received));
+	}
+
+	private static int countReports(final Report report) {
+		return 1 + report.getSubReports().stream().mapToInt(ReportListenerTest::countReports)
+				.sum();
+	}
+
+	private static class RecordingListener implements ReportListener {
+
+		// messages by report id
+		protected final Map<String, List<Message>> messages = new HashMap<>();
+
+		protected int subReports = 0;
+
+		@Override
+		public void messageAdded(final Report report, final Message message) {
+			this.messages.computeIfAbsent(report.getId(), i -> new ArrayList<>()).add(message);
+		}
+
+		@Override
+		public void subReportAdded(final Report parent, final Report subReport) {
+			this.subReports++;
+		}
+	}
+}
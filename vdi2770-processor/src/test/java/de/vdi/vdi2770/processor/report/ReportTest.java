@@ -21,18 +21,43 @@
  ******************************************************************************/
 package de.vdi.vdi2770.processor.report;
 
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.CONTAINER;
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.toLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.base.Stopwatch;
 
 import de.vdi.vdi2770.metadata.MetadataException;
 import de.vdi.vdi2770.processor.ProcessorException;
 import de.vdi.vdi2770.processor.common.IndentUtils;
 import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import de.vdi.vdi2770.processor.zip.ContainerProcessor;
+import de.vdi.vdi2770.processor.zip.ZipUtils;
 import lombok.extern.log4j.Log4j2;
 
 /**
@@ -76,6 +101,171 @@ public class ReportTest {
 		printReport(result, 0);
 	}
 
+	/**
+	 * PDF files with the same content in different sub containers are analysed
+	 * once per validation and reported in every sub report.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void sharedPdfAnalysisTest(@TempDir final File tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final File folder = new File(tmp, "folders");
+		FileUtils.copyDirectory(new File("../examples/folders"), folder,
+				f -> f.isDirectory() || !f.getName().endsWith(".zip"));
+		final File container = new ContainerProcessor(Locale.getDefault()).createContainer(folder);
+
+		final ContainerValidator validator = new ContainerValidator(Locale.getDefault(), true);
+		final Report result = validator.validate(container, MessageLevel.INFO, false);
+
+		// VDI2770_Main.pdf and demo.pdf
+		assertEquals(2, validator.getAnalysedPdfFiles());
+		assertEquals(2, result.getSubReports().size());
+		for (final Report subReport : result.getSubReports()) {
+			assertTrue(subReport.getMessages().stream()
+					.anyMatch(m -> m.getText().contains("demo.pdf")));
+		}
+
+		// analyses are not shared between validations
+		validator.validate(container, MessageLevel.INFO, false);
+		assertEquals(4, validator.getAnalysedPdfFiles());
+	}
+
+	/**
+	 * Every XML file of a container is parsed at most twice (schema validation and
+	 * reading) during one validation; the report is the same as without sharing
+	 * the parsed files.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void parseOnceValidationTest(@TempDir final File tmp)
+			throws ProcessorException, MetadataException {
+
+		final File folder = new File(tmp, "container");
+		new ZipUtils(Locale.getDefault()).unzip(CONTAINER, folder, true);
+
+		final ContainerValidator validator = new ContainerValidator(Locale.getDefault(), false);
+		final ValidationSession session = new ValidationSession(Locale.getDefault(), false);
+		final Report result = validator.validateUnzippedContainer(folder,
+				new Report(Locale.getDefault(), folder, MessageLevel.INFO, false), session);
+
+		final Collection<File> xmlFiles = FileUtils.listFiles(folder, new String[] { "xml" },
+				true);
+		assertFalse(xmlFiles.isEmpty());
+		for (final File xmlFile : xmlFiles) {
+			final int parseCount = session.getParseCount(xmlFile);
+			assertTrue(parseCount > 0 && parseCount <= 2, xmlFile + ": " + parseCount);
+		}
+
+		final Report expected = validator.validateUnzippedContainer(folder,
+				new Report(Locale.getDefault(), folder, MessageLevel.INFO, false));
+		assertEquals(toLines(expected), toLines(result));
+	}
+
+	/**
+	 * Quick and standard profiles skip checks and report them; the full profile
+	 * performs all checks.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void validationProfileTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.getDefault(), false);
+		assertEquals(ValidationProfile.FULL, validator.getProfile());
+
+		final String fileName = CONTAINER.getPath();
+		final String full = String.join("\n", toLines(validator.validate(fileName, false)));
+		assertFalse(full.contains("REP_049"));
+		assertTrue(full.contains("REP_015"));
+		assertTrue(full.contains("REP_031"));
+
+		validator.setProfile(ValidationProfile.STANDARD);
+		final String standard = String.join("\n", toLines(validator.validate(fileName, false)));
+		assertTrue(standard.contains("REP_049"));
+		assertFalse(standard.contains("REP_015"));
+		assertFalse(standard.contains("REP_043"));
+		assertTrue(standard.contains("REP_031"));
+
+		validator.setProfile(ValidationProfile.QUICK);
+		final String quick = String.join("\n", toLines(validator.validate(fileName, false)));
+		assertTrue(quick.contains("REP_049"));
+		assertFalse(quick.contains("REP_015"));
+		assertFalse(quick.contains("REP_031"));
+		assertFalse(quick.contains("REP_032"));
+		assertFalse(quick.contains("REP_018"));
+	}
+
+	/**
+	 * Timings are recorded per report and stage, if enabled; the files of a stage
+	 * are listed with the slowest file first.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void timingTest() throws ProcessorException, MetadataException {
+
+		final File container = new File("../examples/container/vdi2770_demo.zip");
+
+		final Report untimed = new ContainerValidator(Locale.getDefault(), true)
+				.validate(container, MessageLevel.INFO, false);
+		assertFalse(untimed.isTimingEnabled());
+		assertTrue(untimed.getTimings().isEmpty());
+
+		final ContainerValidator validator = new ContainerValidator(Locale.getDefault(), true);
+		validator.setTimingEnabled(true);
+		final Report report = validator.validate(container, MessageLevel.INFO, false);
+		assertEquals(toLines(untimed), toLines(report));
+
+		final List<StageTiming.Stage> stages = report.getTimings().stream()
+				.map(StageTiming::getStage).collect(Collectors.toList());
+		assertTrue(stages.containsAll(Arrays.asList(StageTiming.Stage.EXTRACTION,
+				StageTiming.Stage.XML_VALIDATION, StageTiming.Stage.MODEL_VALIDATION,
+				StageTiming.Stage.PDF_LOAD, StageTiming.Stage.PDF_TEXT)));
+
+		final StageTiming pdf = report.getTimings().stream()
+				.filter(t -> t.getStage() == StageTiming.Stage.PDF_LOAD).findFirst().get();
+		assertEquals(1, pdf.getFiles());
+		assertEquals("VDI2770_Main.pdf", pdf.getChildren().get(0).getName());
+		assertEquals(pdf.getDurationNanos(), pdf.getChildren().get(0).getDurationNanos());
+
+		// every sub container has its own timings
+		assertEquals(2, report.getSubReports().size());
+		for (final Report sub : report.getSubReports()) {
+			assertTrue(sub.isTimingEnabled());
+			assertTrue(sub.getTimings().stream()
+					.anyMatch(t -> t.getStage() == StageTiming.Stage.EXTRACTION));
+		}
+
+		// only the slowest files are kept
+		final StageTiming timing = new StageTiming(StageTiming.Stage.CONTENT_TYPE, null);
+		for (int i = 1; i <= StageTiming.MAX_FILES + 10; i++) {
+			timing.add("file" + i, i, 1);
+		}
+		timing.add("file" + StageTiming.MAX_FILES, 1000, 1);
+		assertEquals(StageTiming.MAX_FILES + 10, timing.getFiles());
+		assertEquals(StageTiming.MAX_FILES, timing.getChildren().size());
+		assertEquals("file" + StageTiming.MAX_FILES, timing.getChildren().get(0).getName());
+		assertEquals("file11", timing.getChildren().get(StageTiming.MAX_FILES - 1).getName());
+
+		// a file that is not among the slowest files is counted once and keeps
+		// all of its samples
+		timing.add("file1", 2000, 1);
+		assertEquals(StageTiming.MAX_FILES + 10, timing.getFiles());
+		assertEquals("file1", timing.getChildren().get(0).getName());
+		assertEquals(2001, timing.getChildren().get(0).getDurationNanos());
+		assertEquals(1, timing.getChildren().get(0).getFiles());
+	}
+
 	private static void printReport(final Report report, final int indentLevel) {
 
 		report.getMessages().forEach(m -> {
@@ -184,4 +374,106 @@ public class ReportTest {
 		assertTrue(!Message.hasErrors(result.getSubReports().get(0).getMessages()));
 	}
 
+	/**
+	 * Sibling sub containers are validated concurrently. The reports do not depend
+	 * on the number of threads.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void parallelValidationTest(@TempDir final File tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final File zipFile = createDocumentationContainer(tmp, 8);
+
+		final ForkJoinPool sequential = new ForkJoinPool(1);
+		final ForkJoinPool parallel = new ForkJoinPool(4);
+		try {
+			final Report expected = new ContainerValidator(Locale.getDefault(), true, sequential)
+					.validate(zipFile, MessageLevel.INFO, false);
+			final Report result = new ContainerValidator(Locale.getDefault(), true, parallel)
+					.validate(zipFile, MessageLevel.INFO, false);
+
+			assertEquals(9, expected.getSubReports().size());
+			assertEquals(toLines(expected), toLines(result));
+		} finally {
+			sequential.shutdown();
+			parallel.shutdown();
+		}
+	}
+
+	/**
+	 * Validation time of a documentation container with 200 document containers
+	 * by one and by all available processors.
+	 * 
+	 * <p>
+	 * The benchmark is only executed, if the system property
+	 * <code>vdi2770.benchmark</code> is <code>true</code>.
+	 * </p>
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "vdi2770.benchmark", matches = "true")
+	public void parallelValidationBenchmark(@TempDir final File tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final File zipFile = createDocumentationContainer(tmp, 200);
+
+		final int processors = Runtime.getRuntime().availableProcessors();
+		for (final int threads : new int[] { 1, processors }) {
+			final ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				final Stopwatch watch = Stopwatch.createStarted();
+				final Report result = new ContainerValidator(Locale.getDefault(), true, pool)
+						.validate(zipFile, MessageLevel.INFO, false);
+				watch.stop();
+
+				assertEquals(201, result.getSubReports().size());
+				log.info(threads + " thread(s): " + watch.elapsed(TimeUnit.MILLISECONDS) + " ms");
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Create a documentation container with copies of the document container of
+	 * the example documentation container.
+	 */
+	private static File createDocumentationContainer(final File tmp, final int copies)
+			throws IOException {
+
+		final File zipFile = new File(tmp, "documentation.zip");
+		try (ZipFile source = new ZipFile(CONTAINER);
+				ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+
+			for (final ZipEntry entry : Collections.list(source.entries())) {
+				final byte[] content = source.getInputStream(entry).readAllBytes();
+
+				final List<String> names = new ArrayList<>();
+				names.add(entry.getName());
+				if (entry.getName().equals("documentcontainer.zip")) {
+					for (int i = 0; i < copies; i++) {
+						names.add("documentcontainer" + i + ".zip");
+					}
+				}
+
+				for (final String name : names) {
+					out.putNextEntry(new ZipEntry(name));
+					out.write(content);
+					out.closeEntry();
+				}
+			}
+		}
+
+		return zipFile;
+	}
+
 }
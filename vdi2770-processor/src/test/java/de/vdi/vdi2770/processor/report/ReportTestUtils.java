@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.vdi.vdi2770.processor.common.IndentUtils;
+
+/**
+ * Fixtures and helpers shared by the tests of the report package.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+final class ReportTestUtils {
+
+	/**
+	 * The example documentation container.
+	 */
+	static final File CONTAINER = new File("../examples/container/documentationcontainer.zip");
+
+	private ReportTestUtils() {
+		// utility class
+	}
+
+	/**
+	 * Flatten a report and its sub reports to lines, e.g. to compare reports.
+	 * Every report is listed with its file name, container type and number of
+	 * skipped entries, followed by its indented messages.
+	 * 
+	 * @param report A report; must not be <code>null</code>.
+	 * @return The lines of the report.
+	 */
+	static List<String> toLines(final Report report) {
+
+		final List<String> result = new ArrayList<>();
+		result.add(report.getFileName() + " " + report.getContainerType() + " "
+				+ report.getSkippedEntryCount());
+		report.getMessages().forEach(
+				m -> result.add(IndentUtils.indent(m.getLevel() + " " + m.getText(), m.getIndent())));
+		report.getSubReports().forEach(r -> result.addAll(toLines(r)));
+		return result;
+	}
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.CONTAINER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Message;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+
+/**
+ * Tests for the {@link ValidationBudget} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ValidationBudgetTest {
+
+	/**
+	 * Without limits, the report is complete.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void unlimitedBudgetTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setBudget(ValidationBudget.UNLIMITED);
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+		assertFalse(isAborted(report));
+	}
+
+	/**
+	 * The validation is aborted after the maximum number of messages; the partial
+	 * report is returned and not cached.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void messageBudgetTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		final int complete = validator.validate(CONTAINER, MessageLevel.INFO, false)
+				.filter(MessageLevel.INFO, false, true).size();
+
+		final ValidationCache cache = new ValidationCache(10_000_000);
+		validator.setCache(cache);
+		validator.setBudget(new ValidationBudget(-1, 10, -1, -1));
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+		assertTrue(isAborted(report));
+		assertTrue(report.hasErrors());
+		assertTrue(report.filter(MessageLevel.INFO, false, true).size() < complete);
+
+		validator.validate(CONTAINER, MessageLevel.INFO, false);
+		assertEquals(0, cache.getStatistics().getContainerHits());
+	}
+
+	/**
+	 * The validation is aborted, if more files than allowed are analysed.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void fileBudgetTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setBudget(new ValidationBudget(-1, -1, -1, 1));
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+		assertTrue(isAborted(report));
+
+		// the first file is analysed
+		assertTrue(toText(report).contains("REP_015"));
+	}
+
+	/**
+	 * The validation is aborted, if the time limit is exceeded.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void timeBudgetTest() throws ProcessorException, MetadataException {
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setBudget(new ValidationBudget(1, -1, -1, -1));
+
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+		assertTrue(isAborted(report));
+		assertTrue(report.hasErrors());
+	}
+
+	private static boolean isAborted(final Report report) {
+		return report.getErrorMessages(false).stream()
+				.anyMatch(m -> m.getText().startsWith("REP_050"));
+	}
+
+	private static String toText(final Report report) {
+		final List<Message> messages = report.filter(MessageLevel.INFO, false, true);
+		return messages.stream().map(Message::getText).collect(Collectors.joining("\n"));
+	}
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.report;
+
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.CONTAINER;
+import static de.vdi.vdi2770.processor.report.ReportTestUtils.toLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+
+/**
+ * Tests for the {@link ValidationCache} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ValidationCacheTest {
+
+	/**
+	 * A container is validated once; the second report is taken from memory and
+	 * is the same as the report of a validation without cache.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void memoryCacheTest(@TempDir final File tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final List<String> expected = toLines(new ContainerValidator(Locale.ENGLISH, true)
+				.validate(CONTAINER, MessageLevel.INFO, true));
+
+		final ValidationCache cache = new ValidationCache(10_000_000);
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setCache(cache);
+
+		final Report first = validator.validate(CONTAINER, MessageLevel.INFO, true);
+		final Report second = validator.validate(CONTAINER, MessageLevel.INFO, true);
+
+		assertEquals(expected, toLines(first));
+		assertEquals(expected, toLines(second));
+		assertEquals(first.getFileHash(), second.getFileHash());
+
+		// the log threshold is not part of the key
+		final Report errors = validator.validate(CONTAINER, MessageLevel.ERROR, true);
+		assertEquals(second.getErrorMessages(true), errors.getErrorMessages(true));
+		assertTrue(errors.getInfoMessages(true, false).isEmpty());
+
+		final ValidationCacheStatistics stats = cache.getStatistics();
+		assertEquals(2, stats.getContainerHits());
+		assertEquals(1, stats.getContainerMisses());
+		assertEquals(0, stats.getDiskHits());
+
+		// other settings and file names are validated again
+		validator.validate(CONTAINER, MessageLevel.INFO, false);
+		final File copy = new File(tmp, "copy.zip");
+		FileUtils.copyFile(CONTAINER, copy);
+		assertEquals("copy.zip", validator.validate(copy, MessageLevel.INFO, true).getFileName());
+		assertEquals(3, cache.getStatistics().getContainerMisses());
+	}
+
+	/**
+	 * Sub containers with the same content are validated once, also in different
+	 * containers.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void subContainerCacheTest() throws ProcessorException, MetadataException {
+
+		final List<String> expected = toLines(new ContainerValidator(Locale.ENGLISH, false)
+				.validate(CONTAINER, MessageLevel.INFO, false));
+
+		final ValidationCache cache = new ValidationCache(10_000_000);
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, false);
+		validator.setCache(cache);
+
+		// a different container key, but the same sub containers
+		validator.validate(CONTAINER, MessageLevel.INFO, true);
+		final Report report = validator.validate(CONTAINER, MessageLevel.INFO, false);
+
+		assertEquals(expected, toLines(report));
+
+		final ValidationCacheStatistics stats = cache.getStatistics();
+		assertEquals(2, stats.getContainerMisses());
+		assertTrue(stats.getSubContainerMisses() > 0);
+		assertEquals(stats.getSubContainerMisses(), stats.getSubContainerHits());
+	}
+
+	/**
+	 * Sub containers with the same ZIP file hash, but different entries that have
+	 * not been extracted, have different keys.
+	 */
+	@Test
+	public void subContainerKeyTest() {
+
+		final String hash = "0123";
+		final String key = ValidationCache.getSubContainerKey(hash, Locale.ENGLISH, true,
+				ValidationProfile.STANDARD, 1, Arrays.asList("b.pdf", "a.pdf"), 2);
+
+		assertEquals(key, ValidationCache.getSubContainerKey(hash, Locale.ENGLISH, true,
+				ValidationProfile.STANDARD, 1, Arrays.asList("a.pdf", "b.pdf"), 2));
+		assertNotEquals(key, ValidationCache.getSubContainerKey(hash, Locale.ENGLISH, true,
+				ValidationProfile.STANDARD, 1, Arrays.asList("a.pdf", "c.pdf"), 2));
+		assertNotEquals(key, ValidationCache.getSubContainerKey(hash, Locale.ENGLISH, true,
+				ValidationProfile.STANDARD, 1, Arrays.asList("a.pdf", "b.pdf"), 3));
+	}
+
+	/**
+	 * Results are read from disk by a new cache instance, e.g. after a restart.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void diskCacheTest(@TempDir final File tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final File directory = new File(tmp, "cache");
+
+		final ContainerValidator validator = new ContainerValidator(Locale.ENGLISH, true);
+		validator.setCache(new ValidationCache(10_000_000, directory));
+		final List<String> expected = toLines(
+				validator.validate(CONTAINER, MessageLevel.INFO, false));
+
+		// no results in memory
+		final ValidationCache cache = new ValidationCache(0, directory);
+		validator.setCache(cache);
+		assertEquals(expected, toLines(validator.validate(CONTAINER, MessageLevel.INFO, false)));
+		assertEquals(1, cache.getStatistics().getDiskHits());
+		assertEquals(0, cache.getStatistics().getEntries());
+
+		// a damaged file is a miss
+		for (final File file : FileUtils.listFiles(directory, new String[] { "json" }, true)) {
+			FileUtils.writeStringToFile(file, "{", "UTF-8");
+		}
+		assertEquals(expected, toLines(validator.validate(CONTAINER, MessageLevel.INFO, false)));
+		assertEquals(1, cache.getStatistics().getContainerMisses());
+
+		cache.clear();
+		assertTrue(FileUtils.listFiles(directory, null, true).isEmpty());
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.google.common.base.Stopwatch;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import de.vdi.vdi2770.processor.report.ContainerValidator;
+import de.vdi.vdi2770.processor.zip.ContainerCost.CostClass;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Tests for the {@link ContainerCostEstimator} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ContainerCostEstimatorTest {
+
+	private static final String EXAMPLES_FOLDER = "../examples";
+
+	/**
+	 * Estimate a documentation container with nested document containers.
+	 * 
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void estimateDocumentationContainerTest() throws ProcessorException {
+
+		final File container = new File(EXAMPLES_FOLDER, "container/documentationcontainer.zip");
+		final ContainerCost cost = new ContainerCostEstimator(Locale.getDefault())
+				.estimate(container);
+
+		assertEquals(container.getName(), cost.getFileName());
+		assertEquals(container.length(), cost.getFileSize());
+		assertEquals(1, cost.getDepth());
+		assertTrue(cost.getContainerCount() > 1);
+		assertEquals(cost.getContainerCount(), cost.getMetadataFileCount());
+		assertTrue(cost.getPdfCount() > 1);
+		assertTrue(cost.getDistinctPdfCount() <= cost.getPdfCount());
+		assertTrue(cost.getPdfSizes().keySet().stream().anyMatch(p -> p.contains(".zip/")));
+		assertTrue(cost.getTotalSize() > cost.getDistinctPdfSize());
+		assertTrue(cost.isComplete());
+		assertEquals(CostClass.LOW, cost.getCpuClass());
+		assertEquals(CostClass.LOW, cost.getMemoryClass());
+	}
+
+	/**
+	 * A larger container has a higher estimated cost.
+	 * 
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void estimateOrderTest() throws ProcessorException {
+
+		final ContainerCostEstimator estimator = new ContainerCostEstimator(Locale.getDefault());
+		final ContainerCost document = estimator
+				.estimate(new File(EXAMPLES_FOLDER, "container/documentcontainer.zip"));
+		final ContainerCost documentation = estimator
+				.estimate(new File(EXAMPLES_FOLDER, "container/documentationcontainer.zip"));
+		final ContainerCost empty = estimator.estimate(new File(EXAMPLES_FOLDER, "empty.zip"));
+
+		assertEquals(0, document.getDepth());
+		assertEquals(1, document.getContainerCount());
+		assertEquals(0, empty.getContainerCount());
+		assertTrue(empty.getEstimatedMillis() < document.getEstimatedMillis());
+		assertTrue(document.getEstimatedMillis() < documentation.getEstimatedMillis());
+	}
+
+	/**
+	 * Compare the estimated and the measured validation time of all sample
+	 * containers. The test is used to calibrate the model and is skipped unless
+	 * the system property <code>vdi2770.benchmark</code> is <code>true</code>.
+	 * 
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "vdi2770.benchmark", matches = "true")
+	public void calibrationBenchmark() throws ProcessorException, MetadataException {
+
+		final Collection<File> containers = FileUtils.listFiles(new File(EXAMPLES_FOLDER),
+				new String[] { "zip" }, true);
+		final ContainerCostEstimator estimator = new ContainerCostEstimator(Locale.getDefault());
+		final ContainerValidator validator = new ContainerValidator(Locale.getDefault(), false);
+
+		// warm up
+		for (final File container : containers) {
+			validator.validate(container, MessageLevel.INFO, false);
+		}
+
+		final List<String> lines = new ArrayList<>();
+		for (final File container : containers) {
+			final ContainerCost cost = estimator.estimate(container);
+
+			// a new validator, so PDF analyses are not reused
+			final ContainerValidator measured = new ContainerValidator(Locale.getDefault(), false);
+			final Stopwatch watch = Stopwatch.createStarted();
+			measured.validate(container, MessageLevel.INFO, false);
+			final long millis = watch.elapsed(TimeUnit.MILLISECONDS);
+
+			lines.add(container.getName() + ";" + cost.getContainerCount() + ";"
+					+ cost.getDistinctPdfCount() + ";" + cost.getDistinctPdfSize() + ";"
+					+ cost.getTotalSize() + ";" + cost.getEstimatedMillis() + ";" + millis);
+		}
+
+		log.info("container;containers;pdfs;pdf bytes;total bytes;estimated ms;measured ms\n"
+				+ String.join("\n", lines));
+	}
+}
@@ -21,12 +21,29 @@
  ******************************************************************************/
 package de.vdi.vdi2770.processor.zip;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
 
 import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.metadata.model.Document;
+import de.vdi.vdi2770.metadata.xml.XmlReader;
 import de.vdi.vdi2770.processor.ProcessorException;
 
 /**
@@ -53,4 +70,164 @@ public class ContainerProcessorTest {
 
 		processor.createContainer(new File(EXAMPLES_FOLDER));
 	}
+
+	/**
+	 * Rebuild only containers with changed inputs.
+	 * 
+	 * @param tempDir A temporary folder.
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void incrementalContainerTest(@TempDir File tempDir)
+			throws ProcessorException, MetadataException, IOException {
+
+		final File folder = new File(tempDir, "folders");
+		FileUtils.copyDirectory(new File(EXAMPLES_FOLDER), folder,
+				f -> f.isDirectory() || !f.getName().endsWith(".zip"));
+
+		ContainerProcessor processor = new ContainerProcessor(Locale.getDefault(), true);
+
+		// first build creates all containers
+		ContainerBuildResult first = processor.createContainerIncremental(folder);
+		Assertions.assertEquals(3, first.getRebuiltCount());
+		Assertions.assertEquals(0, first.getReusedCount());
+		Assertions.assertTrue(new File(folder, ContainerManifest.FILE_NAME).exists());
+		Assertions.assertTrue(new File(folder, "AB393/AB393.zip").exists());
+
+		// nothing changed
+		ContainerBuildResult second = processor.createContainerIncremental(folder);
+		Assertions.assertEquals(0, second.getRebuiltCount());
+		Assertions.assertEquals(3, second.getReusedCount());
+		Assertions.assertEquals(first.getContainerFile(), second.getContainerFile());
+
+		// touching a file does not change its content
+		final File pdf = new File(folder, "AB393/demo.pdf");
+		Assertions.assertTrue(pdf.setLastModified(pdf.lastModified() + 10000));
+		Assertions.assertEquals(0, processor.createContainerIncremental(folder).getRebuiltCount());
+
+		// a changed digital file rebuilds its container and the parent
+		FileUtils.writeStringToFile(pdf, "%", StandardCharsets.US_ASCII, true);
+		ContainerBuildResult third = processor.createContainerIncremental(folder);
+		Assertions.assertEquals(2, third.getRebuiltCount());
+		Assertions.assertTrue(third.isRebuilt());
+		for (ContainerBuildResult child : third.getChildren()) {
+			Assertions.assertEquals(child.getFolder().getName().equals("AB393"),
+					child.isRebuilt());
+		}
+
+		// a different build mode rebuilds all containers
+		ContainerProcessor reproducible = new ContainerProcessor(Locale.getDefault(), true, true);
+		Assertions.assertEquals(3,
+				reproducible.createContainerIncremental(folder).getRebuiltCount());
+		Assertions.assertEquals(0,
+				reproducible.createContainerIncremental(folder).getRebuiltCount());
+	}
+
+	/**
+	 * Identical folders with different file times result in byte-identical
+	 * containers in reproducible mode.
+	 * 
+	 * @param tempDir A temporary folder.
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void reproducibleContainerTest(@TempDir File tempDir)
+			throws ProcessorException, MetadataException, IOException {
+
+		ContainerProcessor processor = new ContainerProcessor(Locale.getDefault(), true, true);
+
+		final List<byte[]> containers = new ArrayList<>();
+		final List<byte[]> streams = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			final File folder = new File(tempDir, "folders" + i);
+			FileUtils.copyDirectory(new File(EXAMPLES_FOLDER), folder,
+					f -> f.isDirectory() || !f.getName().endsWith(".zip"), false);
+
+			// different file times for every copy
+			final long time = System.currentTimeMillis() - i * 86400000L;
+			for (File file : FileUtils.listFiles(folder, null, true)) {
+				Assertions.assertTrue(file.setLastModified(time));
+			}
+
+			File zip = processor.createContainer(folder);
+			containers.add(Files.toByteArray(zip));
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			processor.writeContainer(folder, out);
+			streams.add(out.toByteArray());
+		}
+
+		Assertions.assertArrayEquals(containers.get(0), containers.get(1));
+		Assertions.assertArrayEquals(streams.get(0), streams.get(1));
+	}
+
+	/**
+	 * Stream a folder structure as container without creating ZIP files on disk.
+	 * 
+	 * @throws ProcessorException
+	 * @throws IOException
+	 */
+	@Test
+	public void writeContainerToStreamTest() throws ProcessorException, IOException {
+
+		ContainerProcessor processor = new ContainerProcessor(Locale.getDefault(), true);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		processor.writeContainer(new File(EXAMPLES_FOLDER), out);
+
+		List<String> entries = listEntries(out.toByteArray());
+		Assertions.assertTrue(entries.contains("VDI2770_Main.xml"));
+		Assertions.assertTrue(entries.contains("VDI2770_Main.pdf"));
+		Assertions.assertTrue(entries.contains("AB393.zip"));
+		Assertions.assertTrue(entries.contains("456-29201.zip"));
+	}
+
+	/**
+	 * Stream a container from an in-memory {@link Document}.
+	 * 
+	 * @throws MetadataException
+	 * @throws ProcessorException
+	 * @throws IOException
+	 */
+	@Test
+	public void writeInMemoryContainerTest()
+			throws MetadataException, ProcessorException, IOException {
+
+		File folder = new File(EXAMPLES_FOLDER, "AB393");
+		Document document = new XmlReader(Locale.getDefault())
+				.read(new File(folder, "VDI2770_Metadata.xml"));
+
+		ContainerSource source = new ContainerSource(document);
+		source.addDigitalFile("demo.pdf", Files.asByteSource(new File(folder, "demo.pdf")));
+		source.addDigitalFile("demo.docx", ByteSource.wrap(new byte[] { 1, 2, 3 }));
+
+		ContainerWriter writer = new ContainerWriter(Locale.getDefault());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(source, out);
+
+		List<String> entries = listEntries(out.toByteArray());
+		Assertions.assertEquals(List.of("demo.pdf", "demo.docx", "VDI2770_Metadata.xml"),
+				entries);
+
+		// incomplete sources are rejected before writing
+		ContainerSource incomplete = new ContainerSource(document);
+		Assertions.assertThrows(ProcessorException.class,
+				() -> writer.write(incomplete, new ByteArrayOutputStream()));
+	}
+
+	private static List<String> listEntries(final byte[] zip) throws IOException {
+
+		List<String> names = new ArrayList<>();
+		try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				names.add(entry.getName());
+			}
+		}
+		return names;
+	}
 }
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Workspace;
+
+/**
+ * Tests for the {@link ContainerRepackager} class.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+public class ContainerRepackagerTest {
+
+	private static final String EXAMPLE_CONTAINER = "../examples/demo_vdi.zip";
+
+	/**
+	 * Replace the main XML file and rename a file in a (deflated) nested
+	 * container. All other entries are copied verbatim.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void repackageTest(@TempDir final Path tmp) throws IOException, ProcessorException {
+
+		final Path xml = tmp.resolve("VDI2770_Main.xml");
+		try (ZipFile zip = new ZipFile(EXAMPLE_CONTAINER);
+				InputStream stream = zip.getInputStream(zip.getEntry("VDI2770_Main.xml"))) {
+			Files.writeString(xml,
+					new String(stream.readAllBytes(), StandardCharsets.UTF_8) + "\n");
+		}
+
+		final ContainerChanges changes = new ContainerChanges()
+				.replace("VDI2770_Main.xml", xml);
+		changes.nested("AB393.zip").rename("demo.docx", "demo2.docx");
+
+		final File target = tmp.resolve("result.zip").toFile();
+		final ContainerRepackager repackager = new ContainerRepackager(Locale.getDefault());
+
+		// main PDF, 456-29201.zip and three entries of AB393.zip
+		try (Workspace workspace = new Workspace(Locale.getDefault())) {
+			assertEquals(5, repackager.repackage(new File(EXAMPLE_CONTAINER), target, changes,
+					workspace));
+
+			// temporary files of the nested container are released exactly once
+			assertTrue(workspace.getBytesInUse() >= 0);
+			assertEquals(0, workspace.getFilesInUse());
+		}
+
+		final Map<String, ZipEntry> original = readEntries(new File(EXAMPLE_CONTAINER));
+		final Map<String, ZipEntry> result = readEntries(target);
+
+		assertEquals(original.keySet(), result.keySet());
+		assertEquals(original.get("VDI2770_Main.pdf").getCompressedSize(),
+				result.get("VDI2770_Main.pdf").getCompressedSize());
+		assertEquals(original.get("456-29201.zip").getCrc(),
+				result.get("456-29201.zip").getCrc());
+		assertEquals(Files.size(xml), result.get("VDI2770_Main.xml").getSize());
+
+		// check the nested container
+		final Path nested = tmp.resolve("AB393.zip");
+		try (ZipFile zip = new ZipFile(target);
+				InputStream stream = zip.getInputStream(zip.getEntry("AB393.zip"))) {
+			Files.copy(stream, nested);
+		}
+		final Map<String, ZipEntry> nestedEntries = readEntries(nested.toFile());
+		assertNotNull(nestedEntries.get("demo2.docx"));
+		assertNull(nestedEntries.get("demo.docx"));
+		assertTrue(nestedEntries.containsKey("VDI2770_Metadata.xml"));
+	}
+
+	/**
+	 * Remove an entry of a stored nested container and add a file to the outer
+	 * container.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void repackageStoredNestedTest(@TempDir final Path tmp)
+			throws IOException, ProcessorException {
+
+		final Path a = tmp.resolve("a.txt");
+		Files.writeString(a, "VDI 2770 ".repeat(1000));
+		final Path b = tmp.resolve("b.txt");
+		Files.writeString(b, "b");
+
+		final Path inner = tmp.resolve("inner.zip");
+		try (ZipChannelWriter writer = new ZipChannelWriter(inner)) {
+			writer.addFile(a, "a.txt");
+			writer.addFile(b, "b.txt");
+		}
+		final Path outer = tmp.resolve("outer.zip");
+		try (ZipChannelWriter writer = new ZipChannelWriter(outer)) {
+			writer.addFile(a, "a.txt");
+			writer.addFile(inner, "inner.zip", ZipDirectoryEntry.STORED);
+		}
+
+		final ContainerChanges changes = new ContainerChanges().add("c.txt", b);
+		changes.nested("inner.zip").remove("b.txt");
+
+		final File target = tmp.resolve("result.zip").toFile();
+		assertEquals(2, new ContainerRepackager(Locale.getDefault()).repackage(outer.toFile(),
+				target, changes));
+
+		final Map<String, ZipEntry> result = readEntries(target);
+		assertTrue(result.containsKey("a.txt"));
+		assertTrue(result.containsKey("c.txt"));
+		assertEquals(ZipEntry.STORED, result.get("inner.zip").getMethod());
+
+		final Path nested = tmp.resolve("nested.zip");
+		try (ZipFile zip = new ZipFile(target);
+				InputStream stream = zip.getInputStream(zip.getEntry("inner.zip"))) {
+			Files.copy(stream, nested);
+		}
+		final Map<String, ZipEntry> nestedEntries = readEntries(nested.toFile());
+		assertEquals(1, nestedEntries.size());
+		assertTrue(nestedEntries.containsKey("a.txt"));
+	}
+
+	/**
+	 * Changes of missing entries are rejected and no target file is left.
+	 * 
+	 * @param tmp A temporary folder
+	 */
+	@Test
+	public void missingEntryTest(@TempDir final Path tmp) {
+
+		final File target = tmp.resolve("result.zip").toFile();
+		final ContainerChanges changes = new ContainerChanges().remove("missing.pdf");
+
+		assertThrows(ProcessorException.class, () -> new ContainerRepackager(Locale.getDefault())
+				.repackage(new File(EXAMPLE_CONTAINER), target, changes));
+		assertFalse(target.exists());
+	}
+
+	/**
+	 * Read all entries of a ZIP file. The content is read to verify the CRC.
+	 */
+	private static Map<String, ZipEntry> readEntries(final File file) throws IOException {
+
+		final Map<String, ZipEntry> result = new HashMap<>();
+		try (ZipFile zip = new ZipFile(file)) {
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				try (InputStream stream = zip.getInputStream(entry)) {
+					stream.transferTo(OutputStream.nullOutputStream());
+				}
+				result.put(entry.getName(), entry);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.processor.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.base.Stopwatch;
+
+import de.vdi.vdi2770.processor.ProcessorException;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Tests for the {@link ZipChannelWriter} class and the extraction of stored
+ * entries.
+ * 
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Log4j2
+public class ZipChannelWriterTest {
+
+	/**
+	 * Compressible files are deflated, incompressible files are stored. The result
+	 * can be read by {@link ZipFile} and extracted again.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void roundTripTest(@TempDir final Path tmp) throws IOException, ProcessorException {
+
+		final Path text = tmp.resolve("text.xml");
+		Files.writeString(text, "<Document>VDI 2770</Document>\n".repeat(10000));
+		final Path random = tmp.resolve("scan.pdf");
+		Files.write(random, randomBytes(300 * 1024, 1));
+		final Path empty = tmp.resolve("empty.txt");
+		Files.write(empty, new byte[0]);
+
+		final File zipFile = tmp.resolve("result.zip").toFile();
+		final ZipUtils zip = new ZipUtils(Locale.getDefault());
+		zip.zip(zipFile, Arrays.asList(text.toFile(), random.toFile(), empty.toFile()));
+
+		try (ZipFile result = new ZipFile(zipFile)) {
+			assertEquals(3, result.size());
+			assertEquals(ZipEntry.DEFLATED, result.getEntry("text.xml").getMethod());
+			assertEquals(ZipEntry.STORED, result.getEntry("scan.pdf").getMethod());
+			try (InputStream in = result.getInputStream(result.getEntry("scan.pdf"))) {
+				assertArrayEquals(Files.readAllBytes(random), in.readAllBytes());
+			}
+		}
+
+		final File target = tmp.resolve("extracted").toFile();
+		zip.unzip(zipFile, target, false);
+		assertArrayEquals(Files.readAllBytes(text), Files.readAllBytes(new File(target, "text.xml").toPath()));
+		assertArrayEquals(Files.readAllBytes(random), Files.readAllBytes(new File(target, "scan.pdf").toPath()));
+		assertEquals(0, new File(target, "empty.txt").length());
+	}
+
+	/**
+	 * A corrupted stored entry is detected by its CRC.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void storedCrcErrorTest(@TempDir final Path tmp) throws IOException {
+
+		final Path random = tmp.resolve("scan.pdf");
+		Files.write(random, randomBytes(100 * 1024, 2));
+
+		final Path zipFile = tmp.resolve("corrupt.zip");
+		try (ZipChannelWriter writer = new ZipChannelWriter(zipFile)) {
+			writer.addFile(random, "scan.pdf", ZipDirectoryEntry.STORED);
+		}
+
+		// change a byte of the data
+		try (FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			final ZipDirectoryEntry entry = ZipDirectory.read(channel).get(0);
+			final long offset = ZipDirectory.getDataOffset(channel, entry) + 1000;
+			final ByteBuffer data = ByteBuffer.allocate(1);
+			channel.read(data, offset);
+			data.put(0, (byte) (data.get(0) + 1));
+			data.rewind();
+			channel.write(data, offset);
+		}
+
+		final ZipUtils zip = new ZipUtils(Locale.getDefault());
+		assertThrows(ProcessorException.class,
+				() -> zip.unzip(zipFile.toFile(), tmp.resolve("extracted").toFile(), false));
+	}
+
+	/**
+	 * More than 65535 entries require ZIP64 end of central directory records.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void zip64EntryCountTest(@TempDir final Path tmp) throws IOException {
+
+		final Path content = tmp.resolve("content.txt");
+		Files.writeString(content, "VDI 2770");
+
+		final int count = 70000;
+		final Path zipFile = tmp.resolve("many.zip");
+		try (ZipChannelWriter writer = new ZipChannelWriter(zipFile);
+				FileChannel source = FileChannel.open(content, StandardOpenOption.READ)) {
+			final long time = ZipChannelWriter.toDosTime(System.currentTimeMillis());
+			for (int i = 0; i < count; i++) {
+				writer.addFile(source, "file" + i + ".txt", ZipDirectoryEntry.STORED, time);
+			}
+		}
+
+		try (FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ)) {
+			final List<ZipDirectoryEntry> entries = ZipDirectory.read(channel);
+			assertEquals(count, entries.size());
+			try (InputStream in = ZipDirectory.openStream(channel, entries.get(count - 1))) {
+				assertEquals("VDI 2770", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+
+		try (ZipFile result = new ZipFile(zipFile.toFile())) {
+			assertEquals(count, result.size());
+		}
+	}
+
+	/**
+	 * Throughput of zipping and unzipping a 5 GB container with stored entries.
+	 * 
+	 * <p>
+	 * The benchmark needs about 15 GB of disk space and is only executed, if the
+	 * system property <code>vdi2770.benchmark</code> is <code>true</code>.
+	 * </p>
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "vdi2770.benchmark", matches = "true")
+	public void largeContainerBenchmark(@TempDir final Path tmp)
+			throws IOException, ProcessorException {
+
+		final long fileSize = 1024L * 1024 * 1024;
+		final byte[] block = randomBytes(64 * 1024 * 1024, 3);
+
+		final List<File> files = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			final Path file = tmp.resolve("scan" + i + ".pdf");
+			try (OutputStream out = Files.newOutputStream(file)) {
+				for (long written = 0; written < fileSize; written += block.length) {
+					out.write(block);
+				}
+			}
+			files.add(file.toFile());
+		}
+
+		final File zipFile = tmp.resolve("large.zip").toFile();
+		final ZipUtils zip = new ZipUtils(Locale.getDefault());
+
+		final Stopwatch zipWatch = Stopwatch.createStarted();
+		zip.zip(zipFile, files);
+		zipWatch.stop();
+		assertTrue(zipFile.length() > 5 * fileSize);
+
+		final Stopwatch unzipWatch = Stopwatch.createStarted();
+		zip.unzip(zipFile, tmp.resolve("extracted").toFile(), false);
+		unzipWatch.stop();
+
+		final long megaBytes = zipFile.length() / (1024 * 1024);
+		log.info("zip: " + megaBytes * 1000 / Math.max(1, zipWatch.elapsed(TimeUnit.MILLISECONDS))
+				+ " MB/s, unzip: "
+				+ megaBytes * 1000 / Math.max(1, unzipWatch.elapsed(TimeUnit.MILLISECONDS))
+				+ " MB/s");
+
+		try (ZipFile result = new ZipFile(zipFile)) {
+			assertEquals(5, result.size());
+		}
+	}
+
+	/**
+	 * Large entries are deflated block by block by multiple threads. The result is
+	 * a single deflate stream that can be read by {@link ZipFile}.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void parallelDeflateTest(@TempDir final Path tmp) throws IOException {
+
+		// not a multiple of the block size
+		final Path xml = writeXml(tmp.resolve("dump.xml"), 5L * 1024 * 1024 + 123);
+		// exactly two blocks
+		final Path blocks = writeXml(tmp.resolve("blocks.xml"), 2L * 1024 * 1024);
+
+		final Path zipFile = tmp.resolve("parallel.zip");
+		try (ZipChannelWriter writer = new ZipChannelWriter(zipFile)) {
+			writer.setDeflateThreads(4);
+			writer.setParallelThreshold(0);
+			writer.addFile(xml, "dump.xml", ZipDirectoryEntry.DEFLATED);
+			writer.addFile(blocks, "blocks.xml", ZipDirectoryEntry.DEFLATED);
+		}
+
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			for (final Path file : Arrays.asList(xml, blocks)) {
+				final ZipEntry entry = zip.getEntry(file.getFileName().toString());
+				assertTrue(entry.getCompressedSize() < entry.getSize() / 2);
+				try (InputStream stream = zip.getInputStream(entry)) {
+					assertArrayEquals(Files.readAllBytes(file), stream.readAllBytes());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compare sequential and parallel deflate of a 1 GB XML file. The test is
+	 * skipped unless the system property <code>vdi2770.benchmark</code> is
+	 * <code>true</code>.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "vdi2770.benchmark", matches = "true")
+	public void parallelDeflateBenchmark(@TempDir final Path tmp) throws IOException {
+
+		final Path xml = writeXml(tmp.resolve("dump.xml"), 1024L * 1024 * 1024);
+		final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+		final long[] sizes = new long[2];
+		final long[] millis = new long[2];
+		for (int i = 0; i < 2; i++) {
+			final Path zipFile = tmp.resolve("dump" + i + ".zip");
+			final Stopwatch watch = Stopwatch.createStarted();
+			try (ZipChannelWriter writer = new ZipChannelWriter(zipFile)) {
+				writer.setDeflateThreads(i == 0 ? 1 : threads);
+				writer.addFile(xml, "dump.xml", ZipDirectoryEntry.DEFLATED);
+			}
+			millis[i] = Math.max(1, watch.elapsed(TimeUnit.MILLISECONDS));
+			sizes[i] = Files.size(zipFile);
+
+			try (ZipFile zip = new ZipFile(zipFile.toFile());
+					InputStream stream = zip.getInputStream(zip.getEntry("dump.xml"))) {
+				assertEquals(Files.size(xml), stream.transferTo(OutputStream.nullOutputStream()));
+			}
+		}
+
+		log.info("deflate 1 thread: " + 1024 * 1000 / millis[0] + " MB/s, " + sizes[0]
+				+ " bytes; " + threads + " threads: " + 1024 * 1000 / millis[1] + " MB/s, "
+				+ sizes[1] + " bytes");
+	}
+
+	/**
+	 * Files with the same content are compressed once and copied into all ZIP
+	 * files.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void blobStoreTest(@TempDir final Path tmp) throws IOException, ProcessorException {
+
+		final Path xml = writeXml(tmp.resolve("manual.xml"), 256 * 1024);
+		final Path copy = Files.copy(xml, tmp.resolve("copy.xml"));
+		final Path other = Files.write(tmp.resolve("other.bin"), randomBytes(64 * 1024, 7));
+
+		final ZipUtils zip = new ZipUtils(Locale.getDefault());
+		final File first = tmp.resolve("first.zip").toFile();
+		final File second = tmp.resolve("second.zip").toFile();
+		try (BlobStore store = new BlobStore(Locale.getDefault())) {
+			zip.zip(first, List.of(xml.toFile(), other.toFile()), false, store);
+			zip.zip(second, List.of(copy.toFile(), xml.toFile()), false, store);
+
+			assertEquals(2, store.size());
+			assertEquals(2, store.getMisses());
+			assertEquals(2, store.getHits());
+		}
+
+		final byte[] expected = Files.readAllBytes(xml);
+		try (ZipFile zipFile = new ZipFile(second)) {
+			for (final String name : new String[] { "copy.xml", "manual.xml" }) {
+				final ZipEntry entry = zipFile.getEntry(name);
+				assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+				try (InputStream in = zipFile.getInputStream(entry)) {
+					assertArrayEquals(expected, in.readAllBytes());
+				}
+			}
+		}
+		try (ZipFile zipFile = new ZipFile(first)) {
+			try (InputStream in = zipFile.getInputStream(zipFile.getEntry("other.bin"))) {
+				assertArrayEquals(Files.readAllBytes(other), in.readAllBytes());
+			}
+		}
+	}
+
+	private static Path writeXml(final Path file, final long size) throws IOException {
+
+		final Random random = new Random(size);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			long written = 0;
+			while (written < size) {
+				final byte[] line = ("<Value id=\"" + random.nextInt(100000) + "\">"
+						+ random.nextInt(1000) + "</Value>\n").getBytes(StandardCharsets.US_ASCII);
+				final int length = (int) Math.min(line.length, size - written);
+				out.write(line, 0, length);
+				written += length;
+			}
+		}
+		return file;
+	}
+
+	private static byte[] randomBytes(final int length, final long seed) {
+		final byte[] result = new byte[length];
+		new Random(seed).nextBytes(result);
+		return result;
+	}
+}
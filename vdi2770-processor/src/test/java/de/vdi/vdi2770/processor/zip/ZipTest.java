@@ -21,16 +21,52 @@
  ******************************************************************************/
 package de.vdi.vdi2770.processor.zip;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import de.vdi.vdi2770.metadata.MetadataException;
+import de.vdi.vdi2770.metadata.model.Document;
 import de.vdi.vdi2770.metadata.xml.XmlReader;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.base.Stopwatch;
 
 import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.MessageLevel;
+import de.vdi.vdi2770.processor.common.Workspace;
+import de.vdi.vdi2770.processor.report.ContainerValidator;
+import de.vdi.vdi2770.processor.report.Report;
+import lombok.extern.log4j.Log4j2;
 
 /**
  * Tests for the {@link ZipUtils} class.
@@ -39,6 +75,7 @@ import de.vdi.vdi2770.processor.ProcessorException;
  *         Informatics InfAI)
  *
  */
+@Log4j2
 public class ZipTest {
 
 	private static final String EXAMPLES_FOLDER = "../examples/container";
@@ -112,4 +149,463 @@ public class ZipTest {
 
 		assertTrue(reader.isMetadataFile(metadataFile));
 	}
+
+	/**
+	 * Read metadata directly from the ZIP entries of containers.
+	 *
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 */
+	@Test
+	public void readMetadataFromContainerTest() throws ProcessorException, MetadataException {
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+
+		final File documentContainer = new File(EXAMPLES_FOLDER, "documentcontainer.zip");
+		assertTrue(zip.zipFileContainsMetadataXml(documentContainer));
+		assertNotNull(zip.readMetadataFromDocumentContainer(documentContainer));
+
+		final Document mainDocument = zip.readMetadataFromDocumentationContainer(
+				new File(EXAMPLES_FOLDER, "documentationcontainer.zip"));
+		assertTrue(mainDocument.isMainDocument());
+
+		assertThrows(ProcessorException.class,
+				() -> zip.readMetadataFromDocumentationContainer(documentContainer));
+	}
+
+	/**
+	 * Abort extraction, if the uncompressed bytes exceed the total size limit.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void extractionTotalSizeLimitTest(@TempDir final Path tmp) throws IOException {
+
+		final File zipFile = createCompressibleZip(tmp, 5 * 1024 * 1024);
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		ExtractionBudget budget = new ExtractionBudget(Locale.getDefault(), 1024 * 1024, -1, -1,
+				-1, -1);
+
+		assertThrows(ZipLimitExceededException.class,
+				() -> zip.unzip(zipFile, tmp.resolve("out").toFile(), false, null, budget));
+		assertTrue(budget.getTotalSize() <= 1024 * 1024 + 64 * 1024);
+	}
+
+	/**
+	 * Abort extraction, if the compression factor of an entry is too high.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void extractionCompressionFactorLimitTest(@TempDir final Path tmp)
+			throws IOException {
+
+		final File zipFile = createCompressibleZip(tmp, 5 * 1024 * 1024);
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		ExtractionBudget budget = new ExtractionBudget(Locale.getDefault(), -1, -1, 100, -1, -1);
+
+		assertThrows(ZipLimitExceededException.class,
+				() -> zip.unzip(zipFile, tmp.resolve("out").toFile(), false, null, budget));
+	}
+
+	/**
+	 * The compression factor is calculated from the compressed bytes read, so a
+	 * forged compressed size in the central directory does not hide it.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 */
+	@Test
+	public void extractionForgedCompressedSizeTest(@TempDir final Path tmp)
+			throws IOException {
+
+		final File zipFile = tmp.resolve("forged.zip").toFile();
+		final byte[] random = new byte[1024 * 1024];
+		new Random(42).nextBytes(random);
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+			out.putNextEntry(new ZipEntry("zeros.bin"));
+			out.write(new byte[5 * 1024 * 1024]);
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("random.bin"));
+			out.write(random);
+			out.closeEntry();
+		}
+
+		// declare a compressed size of 1 MiB for the first entry
+		try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size())
+					.order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(buffer, 0);
+			int offset = buffer.capacity() - 22;
+			while (buffer.getInt(offset) != 0x06054b50) {
+				offset--;
+			}
+			final int centralDirectory = buffer.getInt(offset + 16);
+			assertEquals(0x02014b50, buffer.getInt(centralDirectory));
+			buffer.putInt(centralDirectory + 20, 1024 * 1024);
+			buffer.position(centralDirectory + 20).limit(centralDirectory + 24);
+			channel.write(buffer, centralDirectory + 20);
+		}
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		ExtractionBudget budget = new ExtractionBudget(Locale.getDefault(), -1, -1, 100, -1, -1);
+
+		assertThrows(ZipLimitExceededException.class,
+				() -> zip.unzip(zipFile, tmp.resolve("out").toFile(), false, null, budget));
+	}
+
+	/**
+	 * Entries with the same content are extracted once and linked. Every entry
+	 * is counted once against the budget.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws IOException
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void extractDuplicateTest(@TempDir final Path tmp)
+			throws IOException, ProcessorException {
+
+		final byte[] content = "VDI 2770 ".repeat(10000).getBytes(StandardCharsets.US_ASCII);
+		final File zipFile = tmp.resolve("duplicates.zip").toFile();
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+			out.putNextEntry(new ZipEntry("a.txt"));
+			out.write(content);
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("copy/a.txt"));
+			out.write(content);
+			out.closeEntry();
+		}
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		ExtractionBudget budget = new ExtractionBudget(Locale.getDefault(), -1, -1, -1, -1, -1);
+		try (Workspace workspace = new Workspace(Locale.getDefault())) {
+			final Path folder = zip.unzip(zipFile, workspace, false, false, null, budget);
+
+			assertEquals(2L * content.length, budget.getTotalSize());
+			assertTrue(workspace.getBytesInUse() <= 2L * content.length);
+			assertEquals(new String(content, StandardCharsets.US_ASCII),
+					Files.readString(folder.resolve("copy/a.txt")));
+		}
+	}
+
+	/**
+	 * Check nesting depth, entry count and time limits for nested containers.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 */
+	@Test
+	public void extractionDepthAndEntryLimitTest(@TempDir final Path tmp)
+			throws ProcessorException {
+
+		final File container = new File(EXAMPLES_FOLDER, "documentationcontainer.zip");
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+
+		assertThrows(ZipLimitExceededException.class,
+				() -> zip.unzip(container, tmp.resolve("depth").toFile(), true, null,
+						new ExtractionBudget(Locale.getDefault(), -1, -1, -1, 0, -1)));
+
+		assertThrows(ZipLimitExceededException.class,
+				() -> zip.unzip(container, tmp.resolve("entries").toFile(), true, null,
+						new ExtractionBudget(Locale.getDefault(), -1, -1, -1, -1, 1)));
+
+		final ExtractionBudget expired = new ExtractionBudget(Locale.getDefault(), -1, -1, -1,
+				-1, -1);
+		expired.setDeadline(Instant.now().minusSeconds(1));
+		assertThrows(ZipLimitExceededException.class,
+				() -> zip.unzip(container, tmp.resolve("time").toFile(), true, null, expired));
+
+		ExtractionBudget budget = new ExtractionBudget(Locale.getDefault(), -1, -1, -1, 1, -1);
+		zip.unzip(container, tmp.resolve("ok").toFile(), true, null, budget);
+		assertTrue(budget.getEntryCount() > 1);
+		assertTrue(budget.getTotalSize() > container.length());
+	}
+
+	/**
+	 * List nested containers from the central directories.
+	 * 
+	 * @throws ProcessorException
+	 * @throws IOException
+	 */
+	@Test
+	public void listEntriesTest() throws ProcessorException, IOException {
+
+		final File container = new File(EXAMPLES_FOLDER, "documentationcontainer.zip");
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+
+		final ZipEntryNode root = zip.listEntries(container);
+		assertTrue(root.isZip());
+		assertNotNull(root.getChild("VDI2770_Main.xml"));
+
+		final List<ZipEntryNode> nested = root.getChildren().stream().filter(ZipEntryNode::isZip)
+				.collect(Collectors.toList());
+		assertTrue(nested.size() > 0);
+		for (final ZipEntryNode node : nested) {
+			assertNotNull(node.getChild("VDI2770_Metadata.xml"));
+			assertTrue(node.getSize() > 0);
+			assertNotNull(node.getMethod());
+		}
+
+		// same result for an in-memory container
+		final ZipEntryNode inMemory = zip.listEntries(
+				ZipDirectory.inMemory(Files.readAllBytes(container.toPath())), container.getName(),
+				new ExtractionBudget(Locale.getDefault(), -1, -1, -1, -1, -1));
+		assertEquals(root, inMemory);
+	}
+
+	/**
+	 * The file listing equals the files of an extracted container.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws IOException
+	 */
+	@Test
+	public void listAllFilesInZipTest(@TempDir final Path tmp)
+			throws ProcessorException, IOException {
+
+		final File container = new File(EXAMPLES_FOLDER, "documentationcontainer.zip");
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+
+		final List<String> names = zip.listAllFilesInZip(container);
+
+		final Path target = tmp.resolve("extracted");
+		zip.unzip(container, target.toFile(), true);
+		try (Stream<Path> files = Files.walk(target)) {
+			final List<String> extracted = files.filter(p -> !p.equals(target))
+					.map(p -> p.getFileName().toString()).collect(Collectors.toList());
+			assertEquals(extracted.size(), names.size());
+			assertEquals(new HashSet<>(extracted), new HashSet<>(names));
+		}
+	}
+
+	/**
+	 * Selective extraction skips entries that are not referenced by the metadata.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws IOException
+	 */
+	@Test
+	public void selectiveExtractionTest(@TempDir final Path tmp)
+			throws ProcessorException, IOException {
+
+		final File folder = new File("../examples/folders/AB393");
+		final File zipFile = tmp.resolve("AB393.zip").toFile();
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+			for (final File file : folder.listFiles()) {
+				out.putNextEntry(new ZipEntry(file.getName()));
+				out.write(Files.readAllBytes(file.toPath()));
+				out.closeEntry();
+			}
+			out.putNextEntry(new ZipEntry("extra.txt"));
+			out.write("not referenced".getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		try (Workspace workspace = new Workspace(Locale.getDefault(), tmp.toFile(), -1)) {
+
+			final Report report = new Report(Locale.getDefault(), zipFile,
+					MessageLevel.INFO, false);
+			final Path selective = zip.unzip(zipFile, workspace, false, true, report);
+			assertTrue(selective.resolve("VDI2770_Metadata.xml").toFile().exists());
+			assertTrue(selective.resolve("demo.pdf").toFile().exists());
+			assertTrue(selective.resolve("demo.docx").toFile().exists());
+			assertFalse(selective.resolve("extra.txt").toFile().exists());
+			assertEquals(List.of("extra.txt"), report.getSkippedEntries());
+		}
+
+		try (Workspace workspace = new Workspace(Locale.getDefault(), tmp.toFile(), -1)) {
+
+			final Report report = new Report(Locale.getDefault(), zipFile,
+					MessageLevel.INFO, false);
+			final Path all = zip.unzip(zipFile, workspace, false, false, report);
+			assertTrue(all.resolve("extra.txt").toFile().exists());
+			assertTrue(report.getSkippedEntries().isEmpty());
+		}
+	}
+
+	/**
+	 * Files with the same content in different nested containers are extracted
+	 * once.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void extractDuplicatesOnceTest(@TempDir final Path tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final File folder = tmp.resolve("folders").toFile();
+		FileUtils.copyDirectory(new File("../examples/folders"), folder,
+				f -> f.isDirectory() || !f.getName().endsWith(".zip"));
+		final File container = new ContainerProcessor(Locale.getDefault()).createContainer(folder);
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		try (Workspace workspace = new Workspace(Locale.getDefault(), tmp.toFile(), -1)) {
+
+			final Path extracted = zip.unzip(container, workspace, true, null);
+			final Path first = extracted.resolve("AB393/demo.pdf");
+			final Path second = extracted.resolve("456-29201/demo.pdf");
+
+			assertTrue(Files.exists(first));
+			assertEquals(Files.mismatch(first, second), -1L);
+			assertTrue(Files.isSameFile(first, second));
+			assertTrue(workspace.getBytesInUse() < FileUtils.sizeOfDirectory(extracted.toFile()));
+		}
+	}
+
+	private static File createCompressibleZip(final Path folder, final int size)
+			throws IOException {
+
+		final File zipFile = folder.resolve("zeros.zip").toFile();
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+			out.putNextEntry(new ZipEntry("zeros.bin"));
+			out.write(new byte[size]);
+			out.closeEntry();
+		}
+		return zipFile;
+	}
+
+	/**
+	 * ZIP64 containers with more than 65,535 entries are validated and extracted
+	 * by iterating the central directory. The names of skipped entries in the
+	 * report are limited.
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	public void largeArchiveTest(@TempDir final Path tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final int count = 70000;
+		final File zipFile = createLargeArchive(tmp, count, 0, 0);
+
+		assertTrue(ZipUtils.isValidZipFile(zipFile));
+		assertFalse(ZipUtils.isEncryptedZipFile(zipFile));
+		assertFalse(ZipUtils.isBomb(zipFile));
+
+		ZipUtils zip = new ZipUtils(Locale.getDefault());
+		assertTrue(zip.validateZipFile(zipFile).isEmpty());
+		assertTrue(zip.zipFileContainsFile(zipFile, "file" + (count - 1) + ".txt"));
+		assertTrue(zip.zipFileContainsMetadataXml(zipFile));
+
+		try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+			final ZipDirectory.Cursor cursor = ZipDirectory.open(channel);
+			long entries = 0;
+			while (cursor.next() != null) {
+				entries++;
+			}
+			assertEquals(cursor.getEntryCount(), entries);
+			assertTrue(entries > count);
+		}
+
+		try (Workspace workspace = new Workspace(Locale.getDefault(), tmp.toFile(), -1)) {
+
+			final Report report = new Report(Locale.getDefault(), zipFile,
+					MessageLevel.INFO, false);
+			final Path selective = zip.unzip(zipFile, workspace, false, true, report);
+			assertTrue(selective.resolve("demo.pdf").toFile().exists());
+			assertFalse(selective.resolve("file0.txt").toFile().exists());
+			assertEquals(count, report.getSkippedEntryCount());
+			assertEquals(Report.MAX_SKIPPED_ENTRIES, report.getSkippedEntries().size());
+		}
+
+		final Report report = new ContainerValidator(Locale.getDefault(), false)
+				.validate(zipFile, MessageLevel.INFO, false);
+		assertTrue(report.getMessages().stream()
+				.anyMatch(m -> StringUtils.startsWith(m.getText(), "REP_048")));
+	}
+
+	/**
+	 * Validate a synthetic container of more than 10 GB with more than 65,535
+	 * entries.
+	 * 
+	 * <p>
+	 * The benchmark needs about 11 GB of disk space and is only executed, if the
+	 * system property <code>vdi2770.benchmark</code> is <code>true</code>.
+	 * </p>
+	 * 
+	 * @param tmp A temporary folder
+	 * @throws ProcessorException
+	 * @throws MetadataException
+	 * @throws IOException
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "vdi2770.benchmark", matches = "true")
+	public void largeArchiveBenchmark(@TempDir final Path tmp)
+			throws ProcessorException, MetadataException, IOException {
+
+		final long largeSize = 1024L * 1024 * 1024;
+		final Stopwatch createWatch = Stopwatch.createStarted();
+		final File zipFile = createLargeArchive(tmp, 100000, 10, largeSize);
+		createWatch.stop();
+		assertTrue(zipFile.length() > 10 * largeSize);
+
+		final Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		final long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+		final Stopwatch validateWatch = Stopwatch.createStarted();
+		final Report report = new ContainerValidator(Locale.getDefault(), false)
+				.validate(zipFile, MessageLevel.INFO, false);
+		validateWatch.stop();
+
+		final long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+		log.info("create: " + createWatch.elapsed(TimeUnit.MILLISECONDS) + " ms, validate: "
+				+ validateWatch.elapsed(TimeUnit.MILLISECONDS) + " ms, heap: "
+				+ (heapAfter - heapBefore) / (1024 * 1024) + " MB");
+
+		assertTrue(report.getMessages().stream()
+				.anyMatch(m -> StringUtils.startsWith(m.getText(), "REP_048")));
+	}
+
+	/**
+	 * Create a ZIP64 document container with the content of the AB393 example
+	 * folder and the given number of additional small and large entries.
+	 */
+	private static File createLargeArchive(final Path tmp, final int smallEntries,
+			final int largeEntries, final long largeSize) throws IOException {
+
+		final Path small = tmp.resolve("small.txt");
+		Files.writeString(small, "VDI 2770");
+
+		// a sparse file; the entries are stored, so the content is copied as it is
+		final Path large = tmp.resolve("large.bin");
+		try (RandomAccessFile file = new RandomAccessFile(large.toFile(), "rw")) {
+			file.setLength(largeSize);
+		}
+
+		final File zipFile = tmp.resolve("large.zip").toFile();
+		try (ZipChannelWriter writer = new ZipChannelWriter(zipFile.toPath());
+				FileChannel source = FileChannel.open(small, StandardOpenOption.READ)) {
+
+			for (final File file : new File("../examples/folders/AB393").listFiles()) {
+				writer.addFile(file.toPath(), file.getName(), ZipDirectoryEntry.DEFLATED);
+			}
+
+			final long time = ZipChannelWriter.toDosTime(System.currentTimeMillis());
+			for (int i = 0; i < smallEntries; i++) {
+				writer.addFile(source, "file" + i + ".txt", ZipDirectoryEntry.STORED, time);
+			}
+			for (int i = 0; i < largeEntries; i++) {
+				writer.addFile(large, "large" + i + ".bin", ZipDirectoryEntry.STORED);
+			}
+		}
+
+		return zipFile;
+	}
 }
@@ -23,13 +23,13 @@ package de.vdi.vdi2770.web.controller;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.io.FilenameUtils;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -39,6 +39,8 @@ import org.springframework.web.multipart.MultipartFile;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
+import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.Workspace;
 import de.vdi.vdi2770.web.configuration.SmartLocaleResolver;
 import de.vdi.vdi2770.web.transfer.ErrorPayload;
 import lombok.extern.log4j.Log4j2;
@@ -128,41 +130,29 @@ public class BaseController {
 	}
 
 	/**
-	 * Create a temporary folder, that will be be deleted on exit.
+	 * Transfer a {@link MultipartFile} as {@link File} into a {@link Workspace}.
 	 * 
-	 * @return A {@link File} instance.
+	 * <p>
+	 * The file is deleted when the workspace is closed.
+	 * </p>
 	 * 
-	 * @throws IOException There was an error while creating the folder.
-	 */
-	protected final static File createTempFolder() throws IOException {
-
-		final Path tempFolder = Files.createTempDirectory("vdi2770_");
-
-		final File tmpFile = tempFolder.toFile();
-		tmpFile.deleteOnExit();
-
-		return tmpFile;
-	}
-
-	/**
-	 * Transfer a {@link MultipartFile} as {@link File} in a temporary folder.
-	 * 
-	 * @param file A non-<code>null</code> {@link MultipartFile} instance.
+	 * @param file      A non-<code>null</code> {@link MultipartFile} instance.
+	 * @param workspace An open {@link Workspace}; must not be <code>null</code>.
 	 * @return A {@link File}
-	 * @throws IOException Error while transferring the file content to local file.
+	 * @throws IOException        Error while reading the uploaded file.
+	 * @throws ProcessorException Error while writing the file to the workspace or
+	 *                            the quota of the workspace has been exceeded.
 	 */
-	protected final static File transferFile(final MultipartFile file) throws IOException {
+	protected final static File transferFile(final MultipartFile file, final Workspace workspace)
+			throws IOException, ProcessorException {
 
 		Preconditions.checkArgument(file != null, "file is null");
+		Preconditions.checkArgument(workspace != null, "workspace is null");
 		Preconditions.checkArgument(!Strings.isNullOrEmpty(file.getOriginalFilename()),
 				"missing file name");
 
-		final File tmpFile = createTempFolder();
-
-		final File transferdFile = new File(tmpFile, file.getOriginalFilename());
-		transferdFile.deleteOnExit();
-		file.transferTo(transferdFile);
-
-		return transferdFile;
+		try (InputStream stream = file.getInputStream()) {
+			return workspace.copy(stream, FilenameUtils.getName(file.getOriginalFilename()));
+		}
 	}
 }
@@ -26,10 +26,10 @@ import java.util.Locale;
 
 import javax.servlet.http.HttpServletRequest;
 
+import de.vdi.vdi2770.processor.common.Workspace;
 import de.vdi.vdi2770.processor.report.Report;
 import de.vdi.vdi2770.processor.report.fop.FopReport;
 
-import org.apache.commons.io.FileUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -105,20 +105,18 @@ public class ReportController extends BaseController {
 					"empty file name");
 			Preconditions.checkArgument(!file.isEmpty(), "file is empty");
 
-			// save file to temporary folder
-			final File zipFile = transferFile(file);
+			// read language from request
+			final Locale locale = getLocale(request);
 
-			try {
+			// save file to a workspace that is deleted after validation
+			try (Workspace workspace = new Workspace(locale)) {
 
-				// read language from request
-				final Locale locale = getLocale(request);
+				final File zipFile = transferFile(file, workspace);
 
 				// validate the file
 				final Report result = this.service.validateFile(zipFile, props, locale);
 
 				return toResponse(result);
-			} finally {
-				FileUtils.deleteDirectory(zipFile.getParentFile());
 			}
 		} catch (final Exception e) {
 			return toResponse(e, request);
@@ -146,11 +144,11 @@ public class ReportController extends BaseController {
 					"empty file name");
 			Preconditions.checkArgument(!file.isEmpty(), "file is empty");
 
-			final File zipFile = transferFile(file);
+			final Locale locale = getLocale(request);
 
-			try {
+			try (Workspace workspace = new Workspace(locale)) {
 
-				final Locale locale = getLocale(request);
+				final File zipFile = transferFile(file, workspace);
 
 				final Report result = this.service.validateFile(zipFile, props, locale);
 
@@ -163,9 +161,6 @@ public class ReportController extends BaseController {
 				byte[] pdfBytes = doc.createPdf(result, config.isRenderWarning(),
 						config.isRenderInfo(), config.isRenderFileHash());
 				return toResponse(pdfBytes);
-
-			} finally {
-				FileUtils.deleteDirectory(zipFile.getParentFile());
 			}
 		} catch (final Exception e) {
 			return toResponse(e, request);
@@ -32,13 +32,17 @@ import org.joda.time.LocalDateTime;
 import org.joda.time.format.DateTimeFormatter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import de.vdi.vdi2770.processor.report.ReportStatistics;
+import de.vdi.vdi2770.processor.report.ValidationCacheStatistics;
+import de.vdi.vdi2770.web.service.ReportService;
 
 /**
  * @author Johannes Schmidt (Leipzig University, Institute for Applied
@@ -52,7 +56,27 @@ public class StatsController {
 	@Value("${vdi2770.statistic.logfile:./stats/statistics.csv}")
 	private File logFile;
 
-	public StatsController() {
+	private final ReportService service;
+
+	public StatsController(final ReportService service) {
+		this.service = service;
+	}
+
+	/**
+	 * Get the hit and miss counts of the validation cache.
+	 * 
+	 * @return The statistics of the cache.
+	 */
+	@RequestMapping(path = "/stats/cache", method = { RequestMethod.GET }, produces = {
+			MediaType.APPLICATION_JSON_VALUE })
+	public ValidationCacheStatistics getCacheStatistics() {
+
+		final ValidationCacheStatistics result = this.service.getCacheStatistics();
+		if (result == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+		}
+
+		return result;
 	}
 
 	@RequestMapping(path = "/stats", method = { RequestMethod.GET }, produces = {
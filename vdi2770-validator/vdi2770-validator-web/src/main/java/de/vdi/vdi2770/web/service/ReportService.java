@@ -23,19 +23,22 @@ package de.vdi.vdi2770.web.service;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
 import de.vdi.vdi2770.metadata.MetadataException;
 import de.vdi.vdi2770.processor.ProcessorException;
+import de.vdi.vdi2770.processor.common.ContentTypeDetector;
 import de.vdi.vdi2770.processor.common.Message;
 import de.vdi.vdi2770.processor.common.MessageLevel;
 import de.vdi.vdi2770.processor.report.ContainerValidator;
 import de.vdi.vdi2770.processor.report.Report;
 import de.vdi.vdi2770.processor.report.ReportStatistics;
 import de.vdi.vdi2770.processor.report.StatisticsWriter;
+import de.vdi.vdi2770.processor.report.ValidationCache;
+import de.vdi.vdi2770.processor.report.ValidationCacheStatistics;
+import de.vdi.vdi2770.processor.report.ValidationProfile;
 import de.vdi.vdi2770.processor.zip.ZipUtils;
 import de.vdi.vdi2770.web.transfer.ReportProperties;
 
@@ -60,11 +63,31 @@ public class ReportService {
 	@Value("${vdi2770.statistic.logfile:./stats/statistics.csv}")
 	private String logFile;
 
+	// reports of repeatedly uploaded containers (optional)
+	private final ValidationCache cache;
+
 	/**
 	 * ctor
 	 */
 	public ReportService() {
 		super();
+
+		this.cache = ValidationCache.fromConfiguration(Locale.getDefault());
+	}
+
+	/**
+	 * Get the hit and miss counts of the validation cache.
+	 * 
+	 * @return The statistics or <code>null</code>, if the cache is disabled
+	 *         (application properties <code>vdi2770.cache.*</code>).
+	 */
+	public ValidationCacheStatistics getCacheStatistics() {
+
+		if (this.cache == null) {
+			return null;
+		}
+
+		return this.cache.getStatistics();
 	}
 
 	/**
@@ -113,10 +136,15 @@ public class ReportService {
 			logLevel = MessageLevel.ERROR;
 		}
 
+		ValidationProfile profile = config.getProfile();
+		if (profile == null) {
+			profile = ValidationProfile.FULL;
+		}
+
 		if (!file.isDirectory()) {
 			// probe content type of the given file
 			try {
-				mimeType = Files.probeContentType(file.toPath());
+				mimeType = ContentTypeDetector.detect(file);
 			} catch (final IOException e) {
 				log.error("can not get MIME type", e);
 				result = new Report(locale, file, logLevel, props.isRenderFileHash());
@@ -132,13 +160,13 @@ public class ReportService {
 			// validate container file
 			else if (ZipUtils.ZIP_CONTENT_TYPE.contains(mimeType)) {
 				result = validateContainerFile(file, locale, logLevel, config.isEnableStrictMode(),
-						config.isRenderFileHash());
+						config.isRenderFileHash(), profile, config.isRenderTiming());
 			}
 			// validate XML meta data file
 			else if (MediaType.APPLICATION_XML_UTF_8.withoutParameters().toString().equals(mimeType)
 					|| "text/xml".equals(mimeType)) {
 				result = validateXmlFile(file, locale, logLevel, config.isEnableStrictMode(),
-						config.isRenderFileHash());
+						config.isRenderFileHash(), profile, config.isRenderTiming());
 			} else {
 				result = new Report(locale, file, logLevel, props.isRenderFileHash());
 				result.addMessage(new Message(MessageLevel.ERROR,
@@ -162,20 +190,29 @@ public class ReportService {
 	}
 
 	private static Report validateXmlFile(final File file, final Locale locale,
-			final MessageLevel logLevel, boolean strictModeEnabled, boolean renderFileHash) {
+			final MessageLevel logLevel, boolean strictModeEnabled, boolean renderFileHash,
+			final ValidationProfile profile, final boolean renderTiming) {
 
 		final ContainerValidator reporting = new ContainerValidator(locale, strictModeEnabled);
+		reporting.setProfile(profile);
 
 		final Report result = new Report(locale, file, logLevel, renderFileHash);
+		if (renderTiming) {
+			result.enableTiming();
+		}
 		reporting.validateAndReportVdiXmlFile(file, result, 0, false);
 
 		return result;
 	}
 
-	private static Report validateContainerFile(final File file, final Locale locale,
-			final MessageLevel logLevel, boolean strictModeEnabled, boolean renderFileHash) {
+	private Report validateContainerFile(final File file, final Locale locale,
+			final MessageLevel logLevel, boolean strictModeEnabled, boolean renderFileHash,
+			final ValidationProfile profile, final boolean renderTiming) {
 
 		final ContainerValidator reporting = new ContainerValidator(locale, strictModeEnabled);
+		reporting.setCache(this.cache);
+		reporting.setProfile(profile);
+		reporting.setTimingEnabled(renderTiming);
 		try {
 			return reporting.validate(file, logLevel, renderFileHash);
 		} catch (final MetadataException | ProcessorException ex) {
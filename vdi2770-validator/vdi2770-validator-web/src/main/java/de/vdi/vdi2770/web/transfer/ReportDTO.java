@@ -31,6 +31,7 @@ import com.google.common.base.Preconditions;
 import de.vdi.vdi2770.processor.common.ContainerType;
 import de.vdi.vdi2770.processor.common.Message;
 import de.vdi.vdi2770.processor.report.Report;
+import de.vdi.vdi2770.processor.report.StageTiming;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -65,6 +66,9 @@ public class ReportDTO {
 
 	private final List<MessageDTO> messages = new ArrayList<>();
 
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	private final List<TimingDTO> timings = new ArrayList<>();
+
 	/**
 	 * standard ctor
 	 */
@@ -93,6 +97,10 @@ public class ReportDTO {
 		for (Message message : report.getMessages()) {
 			this.messages.add(new MessageDTO(message));
 		}
+
+		for (StageTiming timing : report.getTimings()) {
+			this.timings.add(new TimingDTO(timing));
+		}
 	}
 
 }
@@ -21,6 +21,7 @@
  ******************************************************************************/
 package de.vdi.vdi2770.web.transfer;
 
+import de.vdi.vdi2770.processor.report.ValidationProfile;
 import lombok.Data;
 
 /**
@@ -36,5 +37,7 @@ public class ReportProperties {
 	private boolean allowStatistics = true;
 	private boolean enableStrictMode = false;
 	private boolean renderFileHash = false;
+	private ValidationProfile profile = ValidationProfile.FULL;
+	private boolean renderTiming = false;
 
 }
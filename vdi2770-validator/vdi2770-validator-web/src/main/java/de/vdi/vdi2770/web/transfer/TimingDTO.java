@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (C) 2021 Johannes Schmidt
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package de.vdi.vdi2770.web.transfer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.base.Preconditions;
+
+import de.vdi.vdi2770.processor.report.StageTiming;
+import de.vdi.vdi2770.processor.report.StageTiming.Stage;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A {@link TimingDTO} contains the time spent in a step of a validation.
+ *
+ * @author Johannes Schmidt (Leipzig University, Institute for Applied
+ *         Informatics InfAI)
+ *
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class TimingDTO {
+
+	/**
+	 * The step of the validation.
+	 */
+	private Stage stage;
+
+	/**
+	 * The name of the file; not set for the sum of a step.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String name;
+
+	/**
+	 * The wall time in milliseconds.
+	 */
+	private long durationMillis;
+
+	/**
+	 * The number of processed bytes.
+	 */
+	private long bytes;
+
+	/**
+	 * The number of files.
+	 */
+	private long files;
+
+	/**
+	 * The timings of the files of the step; the slowest file first.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	private final List<TimingDTO> children = new ArrayList<>();
+
+	/**
+	 * Standard ctor
+	 */
+	public TimingDTO() {
+	}
+
+	/**
+	 * Copy ctor
+	 * 
+	 * @param timing The original {@link StageTiming} instance to copy.
+	 */
+	public TimingDTO(final StageTiming timing) {
+
+		Preconditions.checkArgument(timing != null);
+
+		this.stage = timing.getStage();
+		this.name = timing.getName();
+		this.durationMillis = timing.getDurationMillis();
+		this.bytes = timing.getBytes();
+		this.files = timing.getFiles();
+
+		for (StageTiming child : timing.getChildren()) {
+			this.children.add(new TimingDTO(child));
+		}
+	}
+}
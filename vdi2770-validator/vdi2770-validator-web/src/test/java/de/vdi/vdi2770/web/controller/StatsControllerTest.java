@@ -21,10 +21,12 @@
  ******************************************************************************/
 package de.vdi.vdi2770.web.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
@@ -117,4 +119,50 @@ public class StatsControllerTest extends BaseControllerTest {
 
 		FileUtils.forceDelete(statsFile);
 	}
+
+	/**
+	 * A container that is uploaded twice is validated once.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void readCacheStatistics() throws Exception {
+
+		final String serverUrl = "http://localhost:" + this.port + "/rest/stats/cache";
+		final HttpEntity<Void> statsRequest = new HttpEntity<>(
+				getHeaders(Locale.LanguageRange.parse("en-US")));
+
+		final long hitsBefore = getContainerHits(
+				this.restTemplate.exchange(serverUrl, HttpMethod.GET, statsRequest, Map.class));
+
+		MultiValueMap<String, Object> formData = new LinkedMultiValueMap<>();
+		formData.add("file", new FileSystemResource(
+				new File(EXAMPLES_FOLDER, "container/documentcontainer.zip").toPath()));
+		final ReportProperties props = new ReportProperties();
+		props.setAllowStatistics(false);
+		formData.add("settings", props);
+
+		HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(formData,
+				getHeaders(Locale.LanguageRange.parse("en-US")));
+
+		final String validateUrl = "http://localhost:" + this.port + "/rest/report";
+		final ReportDTO first = this.restTemplate
+				.postForEntity(validateUrl, requestEntity, ReportDTO.class).getBody();
+		final ReportDTO second = this.restTemplate
+				.postForEntity(validateUrl, requestEntity, ReportDTO.class).getBody();
+
+		assertTrue(first != null && second != null);
+		assertEquals(first.getMessages(), second.getMessages());
+
+		final long hitsAfter = getContainerHits(
+				this.restTemplate.exchange(serverUrl, HttpMethod.GET, statsRequest, Map.class));
+		assertTrue(hitsAfter >= hitsBefore + 1);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static long getContainerHits(final ResponseEntity<Map> response) {
+
+		assertTrue(response.getStatusCode() == HttpStatus.OK);
+		return ((Number) response.getBody().get("containerHits")).longValue();
+	}
 }